@@ -16,12 +16,20 @@
 
 package com.impetus.client.cassandra.pelops;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.persistence.PersistenceException;
 
@@ -58,10 +66,14 @@ import org.scale7.cassandra.pelops.Selector;
 import org.scale7.cassandra.pelops.pool.IThriftPool;
 
 import com.impetus.client.cassandra.pelops.PelopsDataHandler.ThriftRow;
+import com.impetus.client.cassandra.pelops.PelopsRowIterator.PageReader;
 import com.impetus.client.cassandra.query.CassQuery;
 import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.PersistenceProperties;
+import com.impetus.kundera.client.Batcher;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.ClientBase;
+import com.impetus.kundera.client.Configurable;
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.db.DataRow;
 import com.impetus.kundera.db.RelationHolder;
@@ -82,12 +94,24 @@ import com.impetus.kundera.property.PropertyAccessorFactory;
  * @author animesh.kumar
  * @since 0.1
  */
-public class PelopsClient extends ClientBase implements Client<CassQuery>
+public class PelopsClient extends ClientBase implements Client<CassQuery>, Batcher, Configurable
 {
 
     /** log for this class. */
     private static Log log = LogFactory.getLog(PelopsClient.class);
 
+    /** Default number of row keys sent in one multi-get call. */
+    public static final int DEFAULT_BATCH_READ_SIZE = 100;
+
+    /** Default number of rows read in one call by range and index scans. */
+    public static final int DEFAULT_SCAN_PAGE_SIZE = 1000;
+
+    /**
+     * Read consistency setting under which rows are read at ONE and verified
+     * at QUORUM in the background.
+     */
+    public static final String SPECULATIVE_READ = "SPECULATIVE";
+
     /** The closed. */
     private boolean closed = false;
 
@@ -106,6 +130,39 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
     /** The timestamp. */
     private long timestamp;
 
+    /** Number of row keys sent in one multi-get call. */
+    private int batchReadSize;
+
+    /** Executor issuing multi-get chunks in parallel, null if disabled. */
+    private ExecutorService batchReadExecutor;
+
+    /** Number of rows read in one call by range and index scans. */
+    private int scanPageSize = DEFAULT_SCAN_PAGE_SIZE;
+
+    /** Read consistency setting of persistence unit. */
+    private String defaultReadConsistency;
+
+    /** Write consistency setting of persistence unit. */
+    private String defaultWriteConsistency;
+
+    /** Consistency level of reads. */
+    private ConsistencyLevel readConsistencyLevel = ConsistencyLevel.ONE;
+
+    /** Consistency level of writes. */
+    private ConsistencyLevel writeConsistencyLevel = ConsistencyLevel.ONE;
+
+    /** Whether rows read at ONE are verified at QUORUM in the background. */
+    private boolean speculativeRead;
+
+    /** Executor verifying speculative reads, null if disabled. */
+    private ExecutorService readVerifyExecutor;
+
+    /** Mutator carrying rows of current batch, null if batch is empty. */
+    private Mutator batchMutator;
+
+    /** Nodes written by current batch, indexed once batch is executed. */
+    private List<Node> batchNodes = new ArrayList<Node>();
+
     /**
      * default constructor.
      * 
@@ -117,11 +174,121 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
      *            the persistence unit
      */
     public PelopsClient(IndexManager indexManager, EntityReader reader, String persistenceUnit)
+    {
+        this(indexManager, reader, persistenceUnit, DEFAULT_BATCH_READ_SIZE, null);
+    }
+
+    /**
+     * Instantiates a new pelops client.
+     * 
+     * @param indexManager
+     *            the index manager
+     * @param reader
+     *            the reader
+     * @param persistenceUnit
+     *            the persistence unit
+     * @param batchReadSize
+     *            number of row keys sent in one multi-get call
+     * @param batchReadExecutor
+     *            executor for parallel multi-get chunks, null to read chunks
+     *            sequentially
+     */
+    public PelopsClient(IndexManager indexManager, EntityReader reader, String persistenceUnit, int batchReadSize,
+            ExecutorService batchReadExecutor)
     {
         this.persistenceUnit = persistenceUnit;
         this.indexManager = indexManager;
         this.dataHandler = new PelopsDataHandler(this);
         this.reader = reader;
+        this.batchReadSize = batchReadSize > 0 ? batchReadSize : DEFAULT_BATCH_READ_SIZE;
+        this.batchReadExecutor = batchReadExecutor;
+    }
+
+    /**
+     * Sets number of rows read in one call by range and index scans.
+     * 
+     * @param scanPageSize
+     *            the scan page size
+     */
+    public void setScanPageSize(int scanPageSize)
+    {
+        this.scanPageSize = scanPageSize > 0 ? scanPageSize : DEFAULT_SCAN_PAGE_SIZE;
+    }
+
+    /**
+     * Sets consistency levels of persistence unit, used unless overridden
+     * through {@link #setProperties(Map)}.
+     * 
+     * @param readConsistency
+     *            read consistency level name, or {@link #SPECULATIVE_READ}
+     * @param writeConsistency
+     *            write consistency level name
+     * @param readVerifyExecutor
+     *            executor verifying speculative reads, null to disable
+     *            verification
+     */
+    public void setConsistencyLevels(String readConsistency, String writeConsistency,
+            ExecutorService readVerifyExecutor)
+    {
+        this.defaultReadConsistency = readConsistency;
+        this.defaultWriteConsistency = writeConsistency;
+        this.readVerifyExecutor = readVerifyExecutor;
+        applyConsistencyLevels(readConsistency, writeConsistency);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Configurable#setProperties(java.util.Map)
+     */
+    @Override
+    public void setProperties(Map<String, Object> properties)
+    {
+        Object readConsistency = properties.get(PersistenceProperties.KUNDERA_READ_CONSISTENCY);
+        Object writeConsistency = properties.get(PersistenceProperties.KUNDERA_WRITE_CONSISTENCY);
+        applyConsistencyLevels(readConsistency != null ? readConsistency.toString() : defaultReadConsistency,
+                writeConsistency != null ? writeConsistency.toString() : defaultWriteConsistency);
+    }
+
+    /**
+     * Gets the read consistency level.
+     * 
+     * @return the read consistency level
+     */
+    public ConsistencyLevel getReadConsistencyLevel()
+    {
+        return readConsistencyLevel;
+    }
+
+    /**
+     * Gets the write consistency level.
+     * 
+     * @return the write consistency level
+     */
+    public ConsistencyLevel getWriteConsistencyLevel()
+    {
+        return writeConsistencyLevel;
+    }
+
+    /**
+     * Applies read and write consistency settings.
+     * 
+     * @param readConsistency
+     *            the read consistency
+     * @param writeConsistency
+     *            the write consistency
+     */
+    private void applyConsistencyLevels(String readConsistency, String writeConsistency)
+    {
+        speculativeRead = readConsistency != null && SPECULATIVE_READ.equalsIgnoreCase(readConsistency.trim());
+        readConsistencyLevel = speculativeRead ? ConsistencyLevel.ONE : PelopsUtils.getConsistencyLevel(
+                readConsistency, ConsistencyLevel.ONE);
+        if (readConsistencyLevel == ConsistencyLevel.ANY)
+        {
+            log.warn("Consistency level ANY applies to writes only, reads would be performed at ONE");
+            readConsistencyLevel = ConsistencyLevel.ONE;
+        }
+        writeConsistencyLevel = PelopsUtils.getConsistencyLevel(writeConsistency, ConsistencyLevel.ONE);
     }
 
     /*
@@ -185,13 +352,31 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
     public final <E> List<E> findAll(Class<E> entityClass, Object... rowIds)
     {
         EntityMetadata entityMetadata = KunderaMetadataManager.getEntityMetadata(entityClass);
+        List<String> relationNames = entityMetadata.getRelationNames();
+
+        String[] rowKeys = new String[rowIds.length];
+        for (int i = 0; i < rowIds.length; i++)
+        {
+            rowKeys[i] = rowIds[i].toString();
+        }
+
+        List<Object> entities = null;
+        try
+        {
+            entities = find(entityClass, relationNames, relationNames != null, entityMetadata, rowKeys);
+        }
+        catch (Exception e)
+        {
+            log.error("Error on retrieval" + e.getMessage());
+            throw new PersistenceException(e.getMessage());
+        }
+
         List<E> results = new ArrayList<E>();
-        for (Object rowKey : rowIds)
+        for (Object r : entities)
         {
-            E r = (E) find(entityClass, entityMetadata, rowKey.toString(), entityMetadata.getRelationNames());
             if (r != null)
             {
-                results.add(r);
+                results.add((E) r);
             }
         }
 
@@ -221,15 +406,14 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
             throw new PersistenceException("PelopsClient is closed.");
         }
 
-        Selector selector = Pelops.createSelector(PelopsUtils.generatePoolName(getPersistenceUnit()));
-        // selector.
-
         PelopsDataHandler handler = new PelopsDataHandler(this);
 
         List entities = null;
         try
         {
-            entities = handler.fromThriftRow(selector, entityClass, metadata, relationNames, isWrapReq, rowIds);
+            List<String> rowKeys = Arrays.asList(rowIds);
+            Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = multiGet(handler, metadata, rowKeys);
+            entities = handler.fromThriftRows(entityClass, metadata, rowKeys, rows, relationNames, isWrapReq);
         }
         catch (Exception e)
         {
@@ -239,6 +423,172 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
         return entities;
     }
 
+    /**
+     * Fetches given rows in chunks of configured batch read size, each chunk
+     * being one multi-get round trip. Chunks are issued in parallel if a batch
+     * read executor is configured. Speculative reads are verified in the
+     * background once fetched.
+     * 
+     * @param handler
+     *            the data handler
+     * @param metadata
+     *            the entity metadata
+     * @param rowKeys
+     *            the row keys
+     * @return map of row key to fetched columns
+     * @throws Exception
+     *             the exception
+     */
+    private Map<ByteBuffer, List<ColumnOrSuperColumn>> multiGet(final PelopsDataHandler handler,
+            final EntityMetadata metadata, List<String> rowKeys) throws Exception
+    {
+        final String poolName = PelopsUtils.generatePoolName(getPersistenceUnit());
+        final ConsistencyLevel consistencyLevel = readConsistencyLevel;
+        if (rowKeys.isEmpty())
+        {
+            return new HashMap<ByteBuffer, List<ColumnOrSuperColumn>>();
+        }
+        else if (rowKeys.size() <= batchReadSize)
+        {
+            Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = handler.multiGet(Pelops.createSelector(poolName),
+                    metadata, rowKeys, consistencyLevel);
+            verifyRead(handler, metadata, rowKeys, rows);
+            return rows;
+        }
+
+        List<List<String>> chunks = new ArrayList<List<String>>();
+        for (int i = 0; i < rowKeys.size(); i += batchReadSize)
+        {
+            chunks.add(rowKeys.subList(i, Math.min(i + batchReadSize, rowKeys.size())));
+        }
+
+        Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = new HashMap<ByteBuffer, List<ColumnOrSuperColumn>>(
+                rowKeys.size());
+        if (batchReadExecutor == null)
+        {
+            Selector selector = Pelops.createSelector(poolName);
+            for (List<String> chunk : chunks)
+            {
+                rows.putAll(handler.multiGet(selector, metadata, chunk, consistencyLevel));
+            }
+        }
+        else
+        {
+            List<Future<Map<ByteBuffer, List<ColumnOrSuperColumn>>>> futures = new ArrayList<Future<Map<ByteBuffer, List<ColumnOrSuperColumn>>>>(
+                    chunks.size());
+            for (final List<String> chunk : chunks)
+            {
+                futures.add(batchReadExecutor.submit(new Callable<Map<ByteBuffer, List<ColumnOrSuperColumn>>>()
+                {
+                    @Override
+                    public Map<ByteBuffer, List<ColumnOrSuperColumn>> call() throws Exception
+                    {
+                        return handler.multiGet(Pelops.createSelector(poolName), metadata, chunk, consistencyLevel);
+                    }
+                }));
+            }
+
+            for (Future<Map<ByteBuffer, List<ColumnOrSuperColumn>>> future : futures)
+            {
+                rows.putAll(future.get());
+            }
+        }
+        verifyRead(handler, metadata, rowKeys, rows);
+        return rows;
+    }
+
+    /**
+     * Re-reads rows fetched by a speculative read at QUORUM in the background,
+     * which repairs stale replicas, and logs a warning if rows read at ONE
+     * were stale. Rows are compared on column timestamps. Nothing is done
+     * unless reads are speculative.
+     * 
+     * @param handler
+     *            the data handler
+     * @param metadata
+     *            the entity metadata
+     * @param rowKeys
+     *            the row keys
+     * @param rows
+     *            rows read at ONE
+     */
+    private void verifyRead(final PelopsDataHandler handler, final EntityMetadata metadata, List<String> rowKeys,
+            Map<ByteBuffer, List<ColumnOrSuperColumn>> rows)
+    {
+        if (!speculativeRead || readVerifyExecutor == null)
+        {
+            return;
+        }
+
+        final String poolName = PelopsUtils.generatePoolName(getPersistenceUnit());
+        final List<String> keys = new ArrayList<String>(rowKeys);
+        final Map<ByteBuffer, List<Long>> readTimestamps = getTimestamps(rows);
+        readVerifyExecutor.execute(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    Selector selector = Pelops.createSelector(poolName);
+                    Map<ByteBuffer, List<ColumnOrSuperColumn>> quorumRows = new HashMap<ByteBuffer, List<ColumnOrSuperColumn>>(
+                            keys.size());
+                    for (int i = 0; i < keys.size(); i += batchReadSize)
+                    {
+                        quorumRows.putAll(handler.multiGet(selector, metadata,
+                                keys.subList(i, Math.min(i + batchReadSize, keys.size())), ConsistencyLevel.QUORUM));
+                    }
+                    if (!readTimestamps.equals(getTimestamps(quorumRows)))
+                    {
+                        log.warn("Speculative read of " + keys.size() + " rows from " + metadata.getTableName()
+                                + " returned stale data, replicas have been repaired by QUORUM read");
+                    }
+                }
+                catch (Exception e)
+                {
+                    log.warn("Couldn't verify speculative read from " + metadata.getTableName(), e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Gets timestamps of columns (or sub columns of super columns) of given
+     * rows.
+     * 
+     * @param rows
+     *            the rows
+     * @return map of row key to column timestamps
+     */
+    private static Map<ByteBuffer, List<Long>> getTimestamps(Map<ByteBuffer, List<ColumnOrSuperColumn>> rows)
+    {
+        Map<ByteBuffer, List<Long>> timestamps = new HashMap<ByteBuffer, List<Long>>(rows.size());
+        for (Map.Entry<ByteBuffer, List<ColumnOrSuperColumn>> row : rows.entrySet())
+        {
+            if (row.getValue().isEmpty())
+            {
+                continue;
+            }
+            List<Long> rowTimestamps = new ArrayList<Long>();
+            for (ColumnOrSuperColumn col : row.getValue())
+            {
+                if (col.isSetSuper_column())
+                {
+                    for (Column column : col.getSuper_column().getColumns())
+                    {
+                        rowTimestamps.add(column.getTimestamp());
+                    }
+                }
+                else
+                {
+                    rowTimestamps.add(col.getColumn().getTimestamp());
+                }
+            }
+            timestamps.put(row.getKey().duplicate(), rowTimestamps);
+        }
+        return timestamps;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -291,7 +641,7 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
             throw new PersistenceException("PelopsClient is closed.");
         Selector selector = Pelops.createSelector(PelopsUtils.generatePoolName(getPersistenceUnit()));
         return selector.getSuperColumnsFromRow(columnFamily, rowId, Selector.newColumnsPredicate(superColumnNames),
-                ConsistencyLevel.ONE);
+                readConsistencyLevel);
     }
 
     /*
@@ -310,10 +660,80 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
         EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(entity.getClass());
 
         RowDeletor rowDeletor = Pelops.createRowDeletor(PelopsUtils.generatePoolName(getPersistenceUnit()));
-        rowDeletor.deleteRow(metadata.getTableName(), pKey.toString(), ConsistencyLevel.ONE);
+        rowDeletor.deleteRow(metadata.getTableName(), pKey.toString(), writeConsistencyLevel);
         getIndexManager().remove(metadata, entity, pKey.toString());
     }
 
+    /**
+     * Deletes rows of given keys in a single batch mutation, by deleting all
+     * columns of entity from each of them. Index entries aren't removed.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param rowKeys
+     *            the row keys
+     */
+    public void deleteRows(EntityMetadata metadata, Collection<String> rowKeys)
+    {
+        if (!isOpen())
+        {
+            throw new PersistenceException("PelopsClient is closed.");
+        }
+
+        List<Bytes> columnNames = new ArrayList<Bytes>();
+        for (com.impetus.kundera.metadata.model.Column column : metadata.getColumnsAsList())
+        {
+            columnNames.add(Bytes.fromUTF8(column.getName()));
+        }
+
+        Mutator mutator = Pelops.createMutator(PelopsUtils.generatePoolName(getPersistenceUnit()));
+        for (String rowKey : rowKeys)
+        {
+            mutator.deleteColumns(metadata.getTableName(), Bytes.fromUTF8(rowKey), columnNames);
+        }
+        mutator.execute(writeConsistencyLevel);
+    }
+
+    /**
+     * Writes given column values to rows of given keys in a single batch
+     * mutation. Index entries aren't updated.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param rowKeys
+     *            the row keys
+     * @param values
+     *            the values keyed by their columns
+     */
+    public void updateRows(EntityMetadata metadata, Collection<String> rowKeys,
+            Map<com.impetus.kundera.metadata.model.Column, Object> values)
+    {
+        if (!isOpen())
+        {
+            throw new PersistenceException("PelopsClient is closed.");
+        }
+
+        // Timestamps as of entity writes, for later writes to supersede these
+        long timestamp = System.currentTimeMillis();
+        List<Column> columns = new ArrayList<Column>(values.size());
+        for (Map.Entry<com.impetus.kundera.metadata.model.Column, Object> value : values.entrySet())
+        {
+            Column column = new Column();
+            column.setName(PropertyAccessorFactory.STRING.toBytes(value.getKey().getName()));
+            column.setValue(PropertyAccessorFactory.getPropertyAccessor(value.getKey().getField()).toBytes(
+                    value.getValue()));
+            column.setTimestamp(timestamp);
+            columns.add(column);
+        }
+
+        Mutator mutator = Pelops.createMutator(PelopsUtils.generatePoolName(getPersistenceUnit()));
+        for (String rowKey : rowKeys)
+        {
+            mutator.writeColumns(metadata.getTableName(), Bytes.fromUTF8(rowKey), columns);
+        }
+        mutator.execute(writeConsistencyLevel);
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -428,7 +848,7 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
             String pk = (String) key;
 
             mutator.writeColumns(joinTableName, new Bytes(pk.getBytes()), Arrays.asList(columns.toArray(new Column[0])));
-            mutator.execute(ConsistencyLevel.ONE);
+            mutator.execute(writeConsistencyLevel);
         }
 
     }
@@ -567,7 +987,7 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
     {
         Selector selector = Pelops.createSelector(PelopsUtils.generatePoolName(getPersistenceUnit()));
         List<Column> columns = selector.getColumnsFromRow(joinTableName, new Bytes(parentId.getBytes()),
-                Selector.newColumnsPredicateAll(true, 10), ConsistencyLevel.ONE);
+                Selector.newColumnsPredicateAll(true, 10), readConsistencyLevel);
 
         PelopsDataHandler handler = new PelopsDataHandler(this);
         List<E> foreignKeys = handler.getForeignKeysFromJoinTable(inverseJoinColumnName, columns);
@@ -596,7 +1016,7 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
                         Bytes.fromByteArray(childIdStr.getBytes())));
 
         Map<Bytes, List<Column>> qResults = selector.getIndexedColumns(tableName, ix, slicePredicate,
-                ConsistencyLevel.ONE);
+                readConsistencyLevel);
 
         List<Object> rowKeys = new ArrayList<Object>();
 
@@ -636,7 +1056,7 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
         }
 
         RowDeletor rowDeletor = Pelops.createRowDeletor(PelopsUtils.generatePoolName(getPersistenceUnit()));
-        rowDeletor.deleteRow(tableName, columnValue.toString(), ConsistencyLevel.ONE);
+        rowDeletor.deleteRow(tableName, columnValue.toString(), writeConsistencyLevel);
     }
 
     /**
@@ -654,101 +1074,291 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
      */
     public List find(List<IndexClause> ixClause, EntityMetadata m, boolean isRelation, List<String> relations)
     {
-        // ixClause can be 0,1 or more!
-        Selector selector = Pelops.createSelector(PelopsUtils.generatePoolName(getPersistenceUnit()));
+        return find(ixClause, m, isRelation, relations, Integer.MAX_VALUE);
+    }
 
-        SlicePredicate slicePredicate = Selector.newColumnsPredicateAll(false, Integer.MAX_VALUE);
-        List<Object> entities = null;
+    /**
+     * Finds entities matching given index clauses, or all entities if there
+     * isn't any clause, reading rows one page at a time.
+     * 
+     * @param ixClause
+     *            the ix clause
+     * @param m
+     *            the m
+     * @param isRelation
+     *            the is relation
+     * @param relations
+     *            the relations
+     * @param maxResults
+     *            maximum number of entities per clause
+     * @return the list
+     */
+    public List find(List<IndexClause> ixClause, EntityMetadata m, boolean isRelation, List<String> relations,
+            int maxResults)
+    {
+        return toList(scan(ixClause, m, isRelation, relations, maxResults));
+    }
+
+    /**
+     * Lazily iterates over entities matching given index clauses, or over all
+     * entities if there isn't any clause. Rows are read and converted to
+     * entities one page at a time, as iteration proceeds.
+     * 
+     * @param ixClause
+     *            the ix clause
+     * @param m
+     *            the m
+     * @param isRelation
+     *            the is relation
+     * @param relations
+     *            the relations
+     * @param maxResults
+     *            maximum number of entities per clause
+     * @return the iterator
+     */
+    public Iterator<Object> scan(List<IndexClause> ixClause, EntityMetadata m, boolean isRelation,
+            List<String> relations, int maxResults)
+    {
+        // ixClause can be 0,1 or more!
         if (ixClause.isEmpty())
         {
-            Map<Bytes, List<Column>> qResults = selector.getColumnsFromRows(m.getTableName(),
-                    selector.newKeyRange("", "", 100), slicePredicate, ConsistencyLevel.ONE);
-            entities = new ArrayList<Object>(qResults.size());
-            populateData(m, qResults, entities, isRelation, relations);
+            return scanRange(Bytes.EMPTY, Bytes.EMPTY, m, isRelation, relations, maxResults);
         }
-        else
+
+        final List<Iterator<Object>> iterators = new ArrayList<Iterator<Object>>(ixClause.size());
+        for (IndexClause ix : ixClause)
         {
-            entities = new ArrayList<Object>();
-            for (IndexClause ix : ixClause)
+            iterators.add(scanIndex(ix, m, isRelation, relations, maxResults));
+        }
+        if (iterators.size() == 1)
+        {
+            return iterators.get(0);
+        }
+
+        // Results of one clause after another
+        return new Iterator<Object>()
+        {
+            private int current;
+
+            @Override
+            public boolean hasNext()
             {
-                Map<Bytes, List<Column>> qResults = selector.getIndexedColumns(m.getTableName(), ix, slicePredicate,
-                        ConsistencyLevel.ONE);
-                // iterate through complete map and
-                populateData(m, qResults, entities, isRelation, relations);
+                while (current < iterators.size() && !iterators.get(current).hasNext())
+                {
+                    current++;
+                }
+                return current < iterators.size();
             }
-        }
-        return entities;
+
+            @Override
+            public Object next()
+            {
+                if (!hasNext())
+                {
+                    throw new NoSuchElementException();
+                }
+                return iterators.get(current).next();
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException("Entities can't be removed through query results");
+            }
+        };
     }
 
     /**
-     * Find by range.
+     * Lazily iterates over entities of rows in given key range, in key order.
      * 
-     * @param minVal
-     *            the min val
-     * @param maxVal
-     *            the max val
+     * @param startKey
+     *            the start key, empty for start of column family
+     * @param endKey
+     *            the end key, empty for end of column family
      * @param m
      *            the m
      * @param isWrapReq
      *            the is wrap req
      * @param relations
      *            the relations
-     * @return the list
-     * @throws Exception
-     *             the exception
+     * @param maxResults
+     *            maximum number of entities
+     * @return the iterator
      */
-    public List findByRange(byte[] minVal, byte[] maxVal, EntityMetadata m, boolean isWrapReq, List<String> relations)
-            throws Exception
+    public Iterator<Object> scanRange(Bytes startKey, final Bytes endKey, final EntityMetadata m,
+            final boolean isWrapReq, final List<String> relations, int maxResults)
     {
-        Selector selector = Pelops.createSelector(PelopsUtils.generatePoolName(getPersistenceUnit()));
-
-        SlicePredicate slicePredicate = Selector.newColumnsPredicateAll(false, Integer.MAX_VALUE);
-        List<Object> entities = null;
+        final Selector selector = Pelops.createSelector(PelopsUtils.generatePoolName(getPersistenceUnit()));
+        final SlicePredicate slicePredicate = Selector.newColumnsPredicateAll(false, Integer.MAX_VALUE);
+        final boolean isSuperColumnFamily = !m.getEmbeddedColumnFieldNames().isEmpty();
+        final ConsistencyLevel consistencyLevel = readConsistencyLevel;
 
-        List<KeySlice> keys = selector.getKeySlices(new ColumnParent(m.getTableName()),
-                selector.newKeyRange(Bytes.fromByteArray(minVal), Bytes.fromByteArray(maxVal), 10000), slicePredicate,
-                ConsistencyLevel.ONE);
-
-        List<String> superColumnNames = m.getEmbeddedColumnFieldNames();
-
-        List results = null;
-        if (keys != null)
+        return new PelopsRowIterator(new PageReader()
         {
-            results = new ArrayList(keys.size());
-            for (KeySlice key : keys)
+            @Override
+            public Map<Bytes, ThriftRow> readPage(Bytes pageStartKey, int count)
             {
-                List<ColumnOrSuperColumn> columns = key.getColumns();
-                byte[] rowKey = key.getKey();
+                List<KeySlice> keys = selector.getKeySlices(new ColumnParent(m.getTableName()),
+                        selector.newKeyRange(pageStartKey, endKey, count), slicePredicate, consistencyLevel);
 
-                if (!superColumnNames.isEmpty())
+                Map<Bytes, ThriftRow> rows = new LinkedHashMap<Bytes, ThriftRow>();
+                for (KeySlice key : keys)
                 {
-                    List<SuperColumn> superColumns = new ArrayList<SuperColumn>(columns.size());
+                    List<ColumnOrSuperColumn> columns = key.getColumns();
+                    byte[] rowKey = key.getKey();
 
-                    for (ColumnOrSuperColumn supCol : columns)
+                    ThriftRow row;
+                    if (isSuperColumnFamily)
                     {
-                        superColumns.add(supCol.getSuper_column());
+                        List<SuperColumn> superColumns = new ArrayList<SuperColumn>(columns.size());
+                        for (ColumnOrSuperColumn supCol : columns)
+                        {
+                            superColumns.add(supCol.getSuper_column());
+                        }
+                        row = dataHandler.new ThriftRow(new String(rowKey), m.getTableName(), null, superColumns);
                     }
-
-                    Object r = dataHandler.fromSuperColumnThriftRow(m.getEntityClazz(), m, dataHandler.new ThriftRow(
-                            new String(rowKey), m.getTableName(), null, superColumns), relations, isWrapReq);
-                    results.add(r);
-                    // List<SuperColumn> superCol = columns.
-                }
-                else
-                {
-                    List<Column> cols = new ArrayList<Column>(columns.size());
-                    for (ColumnOrSuperColumn supCol : columns)
+                    else
                     {
-                        cols.add(supCol.getColumn());
+                        List<Column> cols = new ArrayList<Column>(columns.size());
+                        for (ColumnOrSuperColumn supCol : columns)
+                        {
+                            cols.add(supCol.getColumn());
+                        }
+                        row = dataHandler.new ThriftRow(new String(rowKey), m.getTableName(), cols, null);
                     }
+                    rows.put(Bytes.fromByteArray(rowKey), row);
+                }
+                return rows;
+            }
 
-                    Object r = dataHandler.fromColumnThriftRow(m.getEntityClazz(), m, dataHandler.new ThriftRow(
-                            new String(rowKey), m.getTableName(), cols, null), relations, isWrapReq);
-                    results.add(r);
+            @Override
+            public Object toEntity(ThriftRow row)
+            {
+                return populateEntity(m, row, isWrapReq, relations);
+            }
+        }, startKey, scanPageSize, maxResults);
+    }
+
+    /**
+     * Lazily iterates over entities matching given index clause, reading
+     * indexed slices one page at a time.
+     * 
+     * @param ix
+     *            the ix
+     * @param m
+     *            the m
+     * @param isRelation
+     *            the is relation
+     * @param relations
+     *            the relations
+     * @param maxResults
+     *            maximum number of entities
+     * @return the iterator
+     */
+    private Iterator<Object> scanIndex(final IndexClause ix, final EntityMetadata m, final boolean isRelation,
+            final List<String> relations, int maxResults)
+    {
+        final Selector selector = Pelops.createSelector(PelopsUtils.generatePoolName(getPersistenceUnit()));
+        final SlicePredicate slicePredicate = Selector.newColumnsPredicateAll(false, Integer.MAX_VALUE);
+        final ConsistencyLevel consistencyLevel = readConsistencyLevel;
+
+        return new PelopsRowIterator(new PageReader()
+        {
+            @Override
+            public Map<Bytes, ThriftRow> readPage(Bytes pageStartKey, int count)
+            {
+                IndexClause pageClause = new IndexClause(ix);
+                pageClause.setStart_key(pageStartKey.toByteArray());
+                pageClause.setCount(count);
+                Map<Bytes, List<Column>> qResults = selector.getIndexedColumns(m.getTableName(), pageClause,
+                        slicePredicate, consistencyLevel);
+
+                Map<Bytes, ThriftRow> rows = new LinkedHashMap<Bytes, ThriftRow>();
+                for (Map.Entry<Bytes, List<Column>> row : qResults.entrySet())
+                {
+                    rows.put(row.getKey(), dataHandler.new ThriftRow(Bytes.toUTF8(row.getKey().toByteArray()),
+                            m.getTableName(), row.getValue(), null));
                 }
+                return rows;
+            }
+
+            @Override
+            public Object toEntity(ThriftRow row)
+            {
+                return populateEntity(m, row, isRelation, relations);
+            }
+        }, Bytes.fromByteArray(ix.getStart_key()), scanPageSize, Math.min(maxResults, ix.getCount()));
+    }
+
+    /**
+     * Find by range.
+     * 
+     * @param minVal
+     *            the min val
+     * @param maxVal
+     *            the max val
+     * @param m
+     *            the m
+     * @param isWrapReq
+     *            the is wrap req
+     * @param relations
+     *            the relations
+     * @param maxResults
+     *            maximum number of entities
+     * @return the list
+     * @throws Exception
+     *             the exception
+     */
+    public List findByRange(byte[] minVal, byte[] maxVal, EntityMetadata m, boolean isWrapReq, List<String> relations,
+            int maxResults) throws Exception
+    {
+        return toList(scanRange(Bytes.fromByteArray(minVal), Bytes.fromByteArray(maxVal), m, isWrapReq, relations,
+                maxResults));
+    }
+
+    /**
+     * Converts a row read by a scan to entity.
+     * 
+     * @param m
+     *            the m
+     * @param row
+     *            the row
+     * @param isWrapReq
+     *            the is wrap req
+     * @param relations
+     *            the relations
+     * @return the entity
+     */
+    private Object populateEntity(EntityMetadata m, ThriftRow row, boolean isWrapReq, List<String> relations)
+    {
+        try
+        {
+            if (row.getSuperColumns() != null)
+            {
+                return dataHandler.fromSuperColumnThriftRow(m.getEntityClazz(), m, row, relations, isWrapReq);
             }
+            return dataHandler.fromColumnThriftRow(m.getEntityClazz(), m, row, relations, isWrapReq);
         }
+        catch (Exception e)
+        {
+            throw new KunderaException(e);
+        }
+    }
 
+    /**
+     * Drains entities of a scan into a list.
+     * 
+     * @param entities
+     *            the entities
+     * @return the list
+     */
+    private List toList(Iterator<Object> entities)
+    {
+        List<Object> results = new ArrayList<Object>();
+        while (entities.hasNext())
+        {
+            results.add(entities.next());
+        }
         return results;
     }
 
@@ -809,7 +1419,7 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
         IndexClause ix = Selector.newIndexClause(Bytes.EMPTY, 10000,
                 Selector.newIndexExpression(colName, IndexOperator.EQ, Bytes.fromByteArray(colValue.getBytes())));
         Map<Bytes, List<Column>> qResults = selector.getIndexedColumns(m.getTableName(), ix, slicePredicate,
-                ConsistencyLevel.ONE);
+                readConsistencyLevel);
         entities = new ArrayList<Object>(qResults.size());
         // iterate through complete map and
         populateData(m, qResults, entities, false, null);
@@ -902,7 +1512,24 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
         addRelationsToThriftRow(metadata, tf, relations);
 
         Mutator mutator = Pelops.createMutator(PelopsUtils.generatePoolName(getPersistenceUnit()));
+        writeThriftRow(mutator, metadata, tf);
 
+        mutator.execute(writeConsistencyLevel);
+        tf = null;
+    }
+
+    /**
+     * Adds columns and super columns of thrift row to mutator.
+     * 
+     * @param mutator
+     *            the mutator
+     * @param metadata
+     *            the metadata
+     * @param tf
+     *            the tf
+     */
+    private void writeThriftRow(Mutator mutator, EntityMetadata metadata, PelopsDataHandler.ThriftRow tf)
+    {
         List<Column> thriftColumns = tf.getColumns();
         List<SuperColumn> thriftSuperColumns = tf.getSuperColumns();
         if (thriftColumns != null && !thriftColumns.isEmpty())
@@ -922,9 +1549,90 @@ public class PelopsClient extends ClientBase implements Client<CassQuery>
             }
 
         }
+    }
 
-        mutator.execute(ConsistencyLevel.ONE);
-        tf = null;
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.client.Batcher#addBatch(com.impetus.kundera.graph
+     * .Node)
+     */
+    @Override
+    public void addBatch(Node node)
+    {
+        Object entity = node.getData();
+        String id = ObjectGraphBuilder.getEntityId(node.getNodeId());
+        EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+
+        try
+        {
+            PelopsDataHandler.ThriftRow tf = populateTfRow(entity, id, metadata);
+            addRelationsToThriftRow(metadata, tf, getRelationHolders(node));
+
+            if (batchMutator == null)
+            {
+                batchMutator = Pelops.createMutator(PelopsUtils.generatePoolName(getPersistenceUnit()));
+            }
+            writeThriftRow(batchMutator, metadata, tf);
+            batchNodes.add(node);
+        }
+        catch (Exception e)
+        {
+            throw new KunderaException(e);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#executeBatch()
+     */
+    @Override
+    public int executeBatch()
+    {
+        int size = batchNodes.size();
+        if (batchMutator != null)
+        {
+            try
+            {
+                // All rows of the batch go in a single batch_mutate call
+                batchMutator.execute(writeConsistencyLevel);
+            }
+            catch (Exception e)
+            {
+                // Failed batch must not be resent with the next one
+                clear();
+                throw new KunderaException(e);
+            }
+
+            indexNodes(batchNodes, getIndexManager());
+        }
+        clear();
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#getBatchSize()
+     */
+    @Override
+    public int getBatchSize()
+    {
+        return batchNodes.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#clear()
+     */
+    @Override
+    public void clear()
+    {
+        batchMutator = null;
+        batchNodes.clear();
     }
 
     /**
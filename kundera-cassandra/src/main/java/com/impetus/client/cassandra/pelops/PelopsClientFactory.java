@@ -16,6 +16,11 @@
 package com.impetus.client.cassandra.pelops;
 
 import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.util.Version;
@@ -34,7 +39,6 @@ import com.impetus.kundera.configure.schema.api.SchemaManager;
 import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.index.LuceneIndexer;
 import com.impetus.kundera.loader.GenericClientFactory;
-import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.persistence.EntityReader;
@@ -57,6 +61,27 @@ public class PelopsClientFactory extends GenericClientFactory
     /** Configure schema manager. */
     private SchemaManager schemaManager;
 
+    /** Number of row keys sent in one multi-get call. */
+    private int batchReadSize;
+
+    /** Executor issuing multi-get chunks in parallel, null if disabled. */
+    private ExecutorService batchReadExecutor;
+
+    /** Number of rows read in one call by range and index scans. */
+    private int scanPageSize;
+
+    /** Read consistency setting of persistence unit. */
+    private String readConsistency;
+
+    /** Write consistency setting of persistence unit. */
+    private String writeConsistency;
+
+    /**
+     * Single threaded executor verifying speculative reads, verifications
+     * beyond its queue capacity are dropped.
+     */
+    private ExecutorService readVerifyExecutor;
+
     /*
      * (non-Javadoc)
      * 
@@ -69,14 +94,32 @@ public class PelopsClientFactory extends GenericClientFactory
         // is threadsafe an hence using a single instance
         logger.info("Initializing Threadsafe Indexmanager. Is it really threadsafe?");
 
-        String luceneDirPath = MetadataUtils.getLuceneDirectory(getPersistenceUnit());
         indexManager = new IndexManager(LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34),
-                luceneDirPath));
+                KunderaMetadata.INSTANCE.getClientMetadata(getPersistenceUnit())));
 
         reader = new CassandraEntityReader();
 
         schemaManager = new CassandraSchemaManager(PelopsClientFactory.class.getName());
         schemaManager.exportSchema();
+
+        PersistenceUnitMetadata persistenceUnitMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata()
+                .getPersistenceUnitMetadata(getPersistenceUnit());
+        batchReadSize = PelopsUtils.getIntProperty(persistenceUnitMetadata,
+                PersistenceProperties.KUNDERA_BATCH_READ_SIZE, PelopsClient.DEFAULT_BATCH_READ_SIZE);
+        int batchReadThreads = PelopsUtils.getIntProperty(persistenceUnitMetadata,
+                PersistenceProperties.KUNDERA_BATCH_READ_THREADS, 0);
+        if (batchReadThreads > 0)
+        {
+            batchReadExecutor = Executors.newFixedThreadPool(batchReadThreads);
+        }
+        scanPageSize = PelopsUtils.getIntProperty(persistenceUnitMetadata,
+                PersistenceProperties.KUNDERA_SCAN_PAGE_SIZE, PelopsClient.DEFAULT_SCAN_PAGE_SIZE);
+        readConsistency = persistenceUnitMetadata.getProperties().getProperty(
+                PersistenceProperties.KUNDERA_READ_CONSISTENCY);
+        writeConsistency = persistenceUnitMetadata.getProperties().getProperty(
+                PersistenceProperties.KUNDERA_WRITE_CONSISTENCY);
+        readVerifyExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(
+                1000), new ThreadPoolExecutor.DiscardPolicy());
     }
 
     /*
@@ -116,7 +159,11 @@ public class PelopsClientFactory extends GenericClientFactory
     @Override
     protected Client instantiateClient(String persistenceUnit)
     {
-        return new PelopsClient(indexManager, reader, persistenceUnit);
+        PelopsClient client = new PelopsClient(indexManager, reader, persistenceUnit, batchReadSize,
+                batchReadExecutor);
+        client.setScanPageSize(scanPageSize);
+        client.setConsistencyLevels(readConsistency, writeConsistency, readVerifyExecutor);
+        return client;
     }
 
     /*
@@ -140,6 +187,14 @@ public class PelopsClientFactory extends GenericClientFactory
     {
         indexManager.close();
         schemaManager.dropSchema();
+        if (batchReadExecutor != null)
+        {
+            batchReadExecutor.shutdown();
+        }
+        if (readVerifyExecutor != null)
+        {
+            readVerifyExecutor.shutdown();
+        }
         // Pelops.shutdown();
     }
 
@@ -18,6 +18,7 @@ package com.impetus.client.cassandra.pelops;
 import java.lang.reflect.Field;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -103,52 +104,11 @@ public class PelopsDataHandler extends DataHandler
     public Object fromThriftRow(Selector selector, Class<?> clazz, EntityMetadata m, String rowKey,
             List<String> relationNames, boolean isWrapReq) throws Exception
     {
-        List<String> superColumnNames = m.getEmbeddedColumnFieldNames();
-        Object e = null;
-
-        if (!superColumnNames.isEmpty())
-        {
-            List<SuperColumn> thriftSuperColumns = selector.getSuperColumnsFromRow(m.getTableName(), rowKey,
-                    Selector.newColumnsPredicateAll(true, 10000), ConsistencyLevel.ONE);
-            e = fromSuperColumnThriftRow(clazz, m, new ThriftRow(rowKey, m.getTableName(), null, thriftSuperColumns),
-                    relationNames, isWrapReq);
-
-        }
-        else
-        {
-
-            List<ByteBuffer> rowKeys = new ArrayList<ByteBuffer>(1);
-            ByteBuffer rKeyAsByte = ByteBufferUtil.bytes(rowKey);
-            rowKeys.add(ByteBufferUtil.bytes(rowKey));
-
-            Map<ByteBuffer, List<ColumnOrSuperColumn>> columnOrSuperColumnsFromRow = selector
-                    .getColumnOrSuperColumnsFromRows(new ColumnParent(m.getTableName()), rowKeys,
-                            Selector.newColumnsPredicateAll(true, 10000), ConsistencyLevel.ONE);
-
-            List<ColumnOrSuperColumn> colList = columnOrSuperColumnsFromRow.get(rKeyAsByte);
-
-            List<Column> thriftColumns = new ArrayList<Column>(colList.size());
-            for (ColumnOrSuperColumn col : colList)
-            {
-                if (col.super_column == null)
-                {
-                    thriftColumns.add(col.getColumn());
-                }
-                else
-                {
-                    thriftColumns.addAll(col.getSuper_column().getColumns());
-                }
-
-            }
-
-            e = fromColumnThriftRow(clazz, m, new ThriftRow(rowKey, m.getTableName(), thriftColumns, null),
-                    relationNames, isWrapReq);
-        }
-        return e;
+        return fromThriftRow(selector, clazz, m, relationNames, isWrapReq, rowKey).get(0);
     }
 
     /**
-     * From thrift row.
+     * From thrift row. All row keys are fetched with a single multi-get call.
      * 
      * @param selector
      *            the selector
@@ -162,17 +122,111 @@ public class PelopsDataHandler extends DataHandler
      *            the is wrap req
      * @param rowIds
      *            the row ids
-     * @return the list
+     * @return the list, holding null for row keys which were not found
      * @throws Exception
      *             the exception
      */
     public List<Object> fromThriftRow(Selector selector, Class<?> clazz, EntityMetadata m, List<String> relationNames,
             boolean isWrapReq, String... rowIds) throws Exception
     {
-        List<Object> entities = new ArrayList<Object>(rowIds.length);
-        for (String rowKey : rowIds)
+        List<String> rowKeys = Arrays.asList(rowIds);
+        ConsistencyLevel consistencyLevel = client instanceof PelopsClient ? ((PelopsClient) client)
+                .getReadConsistencyLevel() : ConsistencyLevel.ONE;
+        Map<ByteBuffer, List<ColumnOrSuperColumn>> rows = multiGet(selector, m, rowKeys, consistencyLevel);
+        return fromThriftRows(clazz, m, rowKeys, rows, relationNames, isWrapReq);
+    }
+
+    /**
+     * Fetches columns (or super columns) of given rows with one
+     * <code>multiget_slice</code> round trip.
+     * 
+     * @param selector
+     *            the selector
+     * @param m
+     *            the entity metadata
+     * @param rowKeys
+     *            the row keys
+     * @param consistencyLevel
+     *            the read consistency level
+     * @return map of row key to fetched columns
+     */
+    public Map<ByteBuffer, List<ColumnOrSuperColumn>> multiGet(Selector selector, EntityMetadata m,
+            List<String> rowKeys, ConsistencyLevel consistencyLevel)
+    {
+        List<ByteBuffer> keys = new ArrayList<ByteBuffer>(rowKeys.size());
+        for (String rowKey : rowKeys)
         {
-            Object e = fromThriftRow(selector, clazz, m, rowKey, relationNames, isWrapReq);
+            keys.add(ByteBufferUtil.bytes(rowKey));
+        }
+
+        return selector.getColumnOrSuperColumnsFromRows(new ColumnParent(m.getTableName()), keys,
+                Selector.newColumnsPredicateAll(true, 10000), consistencyLevel);
+    }
+
+    /**
+     * Populates entities from rows fetched through
+     * {@link #multiGet(Selector, EntityMetadata, List, ConsistencyLevel)}, in the order of given
+     * row keys.
+     * 
+     * @param clazz
+     *            the clazz
+     * @param m
+     *            the m
+     * @param rowKeys
+     *            the row keys
+     * @param rows
+     *            the fetched rows
+     * @param relationNames
+     *            the relation names
+     * @param isWrapReq
+     *            the is wrap req
+     * @return the list, holding null for row keys which were not found
+     * @throws Exception
+     *             the exception
+     */
+    public List<Object> fromThriftRows(Class<?> clazz, EntityMetadata m, List<String> rowKeys,
+            Map<ByteBuffer, List<ColumnOrSuperColumn>> rows, List<String> relationNames, boolean isWrapReq)
+            throws Exception
+    {
+        boolean isSuperColumnFamily = !m.getEmbeddedColumnFieldNames().isEmpty();
+        List<Object> entities = new ArrayList<Object>(rowKeys.size());
+        for (String rowKey : rowKeys)
+        {
+            List<ColumnOrSuperColumn> colList = rows.get(ByteBufferUtil.bytes(rowKey));
+            if (colList == null || colList.isEmpty())
+            {
+                entities.add(null);
+                continue;
+            }
+
+            Object e = null;
+            if (isSuperColumnFamily)
+            {
+                List<SuperColumn> thriftSuperColumns = new ArrayList<SuperColumn>(colList.size());
+                for (ColumnOrSuperColumn col : colList)
+                {
+                    thriftSuperColumns.add(col.getSuper_column());
+                }
+                e = fromSuperColumnThriftRow(clazz, m,
+                        new ThriftRow(rowKey, m.getTableName(), null, thriftSuperColumns), relationNames, isWrapReq);
+            }
+            else
+            {
+                List<Column> thriftColumns = new ArrayList<Column>(colList.size());
+                for (ColumnOrSuperColumn col : colList)
+                {
+                    if (col.super_column == null)
+                    {
+                        thriftColumns.add(col.getColumn());
+                    }
+                    else
+                    {
+                        thriftColumns.addAll(col.getSuper_column().getColumns());
+                    }
+                }
+                e = fromColumnThriftRow(clazz, m, new ThriftRow(rowKey, m.getTableName(), thriftColumns, null),
+                        relationNames, isWrapReq);
+            }
             entities.add(e);
         }
         return entities;
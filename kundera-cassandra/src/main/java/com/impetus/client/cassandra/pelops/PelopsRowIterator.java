@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.cassandra.pelops;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NoSuchElementException;
+
+import org.scale7.cassandra.pelops.Bytes;
+
+import com.impetus.client.cassandra.pelops.PelopsDataHandler.ThriftRow;
+
+/**
+ * Lazily iterates over entities of rows read one page at a time, each page
+ * resuming from last row key of previous one. Only one page of rows is held
+ * in memory at a time.
+ * 
+ * @author agent
+ */
+public class PelopsRowIterator implements Iterator<Object>
+{
+
+    /** Reads pages of rows. */
+    private final PageReader pageReader;
+
+    /** Maximum number of rows read in one call. */
+    private final int pageSize;
+
+    /** Key to start next page from. */
+    private Bytes startKey;
+
+    /** Whether start key is last key of previous page, to be skipped. */
+    private boolean isResumed;
+
+    /** Number of entities still to be returned. */
+    private int remaining;
+
+    /** Rows of current page not iterated yet. */
+    private Iterator<Entry<Bytes, ThriftRow>> page;
+
+    /** Whether last page has been read. */
+    private boolean isExhausted;
+
+    /** Next entity, null if not read yet. */
+    private Object next;
+
+    /**
+     * Instantiates a new pelops row iterator.
+     * 
+     * @param pageReader
+     *            the page reader
+     * @param startKey
+     *            key of first row, empty for start of column family
+     * @param pageSize
+     *            maximum number of rows read in one call
+     * @param maxResults
+     *            maximum number of entities returned
+     */
+    public PelopsRowIterator(PageReader pageReader, Bytes startKey, int pageSize, int maxResults)
+    {
+        this.pageReader = pageReader;
+        this.startKey = startKey;
+        this.pageSize = pageSize;
+        this.remaining = maxResults;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext()
+    {
+        while (next == null && remaining > 0)
+        {
+            if (page != null && page.hasNext())
+            {
+                ThriftRow row = page.next().getValue();
+
+                // Rows of deleted entities are returned without columns till
+                // they are compacted away
+                if (!isEmpty(row))
+                {
+                    next = pageReader.toEntity(row);
+                }
+            }
+            else if (isExhausted)
+            {
+                break;
+            }
+            else
+            {
+                readPage();
+            }
+        }
+        return next != null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public Object next()
+    {
+        if (!hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+        Object entity = next;
+        next = null;
+        remaining--;
+        return entity;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see java.util.Iterator#remove()
+     */
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException("Entities can't be removed through query results");
+    }
+
+    /**
+     * Reads next page, one row more than requested if resuming, as start key
+     * is inclusive.
+     */
+    private void readPage()
+    {
+        int count = Math.min(pageSize, remaining);
+        if (isResumed)
+        {
+            count++;
+        }
+
+        Map<Bytes, ThriftRow> rows = pageReader.readPage(startKey, count);
+        isExhausted = rows.size() < count;
+
+        Bytes lastKey = null;
+        for (Bytes key : rows.keySet())
+        {
+            lastKey = key;
+        }
+        if (lastKey == null)
+        {
+            isExhausted = true;
+        }
+        else
+        {
+            if (isResumed)
+            {
+                // Already returned with previous page
+                rows.remove(startKey);
+            }
+            startKey = lastKey;
+            isResumed = true;
+        }
+        page = rows.entrySet().iterator();
+    }
+
+    /**
+     * Checks whether row has no columns.
+     * 
+     * @param row
+     *            the row
+     * @return true, if is empty
+     */
+    private boolean isEmpty(ThriftRow row)
+    {
+        return (row.getColumns() == null || row.getColumns().isEmpty())
+                && (row.getSuperColumns() == null || row.getSuperColumns().isEmpty());
+    }
+
+    /**
+     * Reads pages of rows and converts rows to entities.
+     */
+    public interface PageReader
+    {
+
+        /**
+         * Reads rows starting from given key, in key order of column family.
+         * 
+         * @param startKey
+         *            the start key, inclusive
+         * @param count
+         *            maximum number of rows
+         * @return rows keyed by row key, in order
+         */
+        Map<Bytes, ThriftRow> readPage(Bytes startKey, int count);
+
+        /**
+         * Converts a row to entity.
+         * 
+         * @param row
+         *            the row
+         * @return the entity, null if row can't be converted
+         */
+        Object toEntity(ThriftRow row);
+    }
+}
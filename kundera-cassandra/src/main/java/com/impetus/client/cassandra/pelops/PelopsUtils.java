@@ -18,6 +18,7 @@ package com.impetus.client.cassandra.pelops;
 import java.util.Properties;
 
 import org.apache.cassandra.thrift.Column;
+import org.apache.cassandra.thrift.ConsistencyLevel;
 import org.apache.commons.lang.StringUtils;
 import org.scale7.cassandra.pelops.pool.CommonsBackedPool.Policy;
 import org.slf4j.Logger;
@@ -106,6 +107,65 @@ public class PelopsUtils
         return policy;
     }
 
+    /**
+     * Reads an integer valued property configured for given persistence unit.
+     * 
+     * @param persistenceUnitMetadata
+     *            the persistence unit metadata
+     * @param propertyName
+     *            name of the property
+     * @param defaultValue
+     *            value to be used if property is missing or can't be parsed
+     * @return the configured value, or default value
+     */
+    public static int getIntProperty(PersistenceUnitMetadata persistenceUnitMetadata, String propertyName,
+            int defaultValue)
+    {
+        String value = persistenceUnitMetadata.getProperties().getProperty(propertyName);
+        if (StringUtils.isEmpty(value))
+        {
+            return defaultValue;
+        }
+
+        try
+        {
+            return Integer.parseInt(value.trim());
+        }
+        catch (NumberFormatException e)
+        {
+            logger.warn("Property " + propertyName + " for " + persistenceUnitMetadata.getPersistenceUnitName()
+                    + " persistence unit couldn't be parsed. Default value " + defaultValue + " would be used");
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Parses a consistency level name, e.g. ONE, QUORUM or ALL.
+     * 
+     * @param value
+     *            the consistency level name, may be null
+     * @param defaultLevel
+     *            level to be used if value is missing or isn't a valid level
+     * @return the consistency level
+     */
+    public static ConsistencyLevel getConsistencyLevel(String value, ConsistencyLevel defaultLevel)
+    {
+        if (StringUtils.isBlank(value))
+        {
+            return defaultLevel;
+        }
+
+        try
+        {
+            return ConsistencyLevel.valueOf(value.trim().toUpperCase());
+        }
+        catch (IllegalArgumentException e)
+        {
+            logger.warn("Invalid consistency level " + value + ", " + defaultLevel + " would be used");
+            return defaultLevel;
+        }
+    }
+
     /**
      * Generates Secondary index name for a given column on a table
      * 
@@ -17,9 +17,12 @@ package com.impetus.client.cassandra.query;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.Query;
 
@@ -33,6 +36,7 @@ import org.scale7.cassandra.pelops.Bytes;
 import org.scale7.cassandra.pelops.Selector;
 
 import com.impetus.client.cassandra.pelops.PelopsClient;
+import com.impetus.kundera.Constants;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.metadata.MetadataUtils;
@@ -42,10 +46,12 @@ import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.persistence.EntityReader;
 import com.impetus.kundera.persistence.PersistenceDelegator;
+import com.impetus.kundera.property.PropertyAccessorHelper;
 import com.impetus.kundera.query.KunderaQuery;
 import com.impetus.kundera.query.KunderaQuery.FilterClause;
 import com.impetus.kundera.query.QueryHandlerException;
 import com.impetus.kundera.query.QueryImpl;
+import com.impetus.kundera.query.ResultAggregator;
 
 /**
  * The Class CassQuery.
@@ -105,12 +111,12 @@ public class CassQuery extends QueryImpl implements Query
                 boolean isRowKeyQuery = ixClause.keySet().iterator().next();
                 if (!isRowKeyQuery)
                 {
-                    result = ((PelopsClient) client).find(ixClause.get(isRowKeyQuery), m, false, null);
+                    result = ((PelopsClient) client).find(ixClause.get(isRowKeyQuery), m, false, null, maxResult);
                 }
                 else
                 {
                     result = ((CassandraEntityReader) getReader()).handleFindByRange(m, client, result, ixClause,
-                            isRowKeyQuery);
+                            isRowKeyQuery, maxResult);
                 }
             }
             else
@@ -122,6 +128,51 @@ public class CassQuery extends QueryImpl implements Query
         return result;
     }
 
+    /**
+     * Lazily iterates over results of query. Entities without relations,
+     * searched on secondary indexes or row key range, are read and populated
+     * one page at a time as iteration proceeds, so that even a query over a
+     * whole column family runs in constant memory. Other queries are run
+     * through {@link #getResultList()}.
+     * 
+     * @return the iterator
+     */
+    public Iterator<?> iterate()
+    {
+        EntityMetadata m = getEntityMetadata();
+        Client client = persistenceDelegeator.getClient(m);
+        boolean isRelational = m.isRelationViaJoinTable()
+                || (m.getRelationNames() != null && !m.getRelationNames().isEmpty());
+
+        // Scans capture read consistency level of client when created
+        setHints(client);
+        try
+        {
+            if (!isRelational && !kunderaQuery.isDeleteUpdate()
+                    && !KunderaMetadata.INSTANCE.getApplicationMetadata().isNative(getJPAQuery())
+                    && MetadataUtils.useSecondryIndex(m.getPersistenceUnit()))
+            {
+                Map<Boolean, List<IndexClause>> ixClause = prepareIndexClause(m);
+                boolean isRowKeyQuery = ixClause.keySet().iterator().next();
+                if (!isRowKeyQuery)
+                {
+                    return ((PelopsClient) client).scan(ixClause.get(isRowKeyQuery), m, false, null, maxResult);
+                }
+
+                List<IndexExpression> expressions = ixClause.get(isRowKeyQuery).get(0).getExpressions();
+                return ((PelopsClient) client).scanRange(Bytes.fromByteArray(expressions.get(0).getValue()),
+                        Bytes.fromByteArray(expressions.get(1).getValue()), m, false, null, maxResult);
+            }
+
+            List<?> results = getResultList();
+            return results != null ? results.iterator() : Collections.emptyList().iterator();
+        }
+        finally
+        {
+            unsetHints(client);
+        }
+    }
+
     /**
      * On executeUpdate.
      * 
@@ -138,15 +189,133 @@ public class CassQuery extends QueryImpl implements Query
         }
         else if (kunderaQuery.isDeleteUpdate())
         {
-            List result = getResultList();
-            return result != null ? result.size() : 0;
-            // throw new
-            // QueryHandlerException("executeUpdate() is currently supported for native queries only");
+            return executeDeleteOrUpdate();
         }
 
         return 0;
     }
 
+    /**
+     * Deletes or updates matching rows a page at a time, each page in a single
+     * batch mutation. Rows are found by secondary index or row key range scan,
+     * or through Lucene, whose index is then brought in line. Rows of super
+     * column families aren't deleted or updated in bulk, as columns they hold
+     * aren't known up front.
+     * 
+     * @param m
+     *            the m
+     * @param client
+     *            the client
+     * @return number of rows deleted or updated
+     */
+    @Override
+    protected int onBulkDeleteOrUpdate(EntityMetadata m, Client client)
+    {
+        if (!EntityMetadata.Type.COLUMN_FAMILY.equals(m.getType()))
+        {
+            return Constants.INVALID;
+        }
+
+        PelopsClient pelopsClient = (PelopsClient) client;
+        Map<Column, Object> values = kunderaQuery.isUpdateClause() ? getUpdatedValues(m) : null;
+
+        Iterator<?> rows;
+        Set<String> luceneIds = null;
+        if (MetadataUtils.useSecondryIndex(m.getPersistenceUnit()))
+        {
+            rows = scanAll(m, pelopsClient);
+        }
+        else
+        {
+            luceneIds = fetchIdsFromLucene(client);
+            rows = luceneIds.iterator();
+        }
+
+        int count = 0;
+        List<String> batch = new ArrayList<String>(BULK_BATCH_SIZE);
+        while (rows.hasNext())
+        {
+            Object row = rows.next();
+            batch.add(luceneIds != null ? (String) row : PropertyAccessorHelper.getId(row, m));
+            if (batch.size() == BULK_BATCH_SIZE || !rows.hasNext())
+            {
+                if (values != null)
+                {
+                    pelopsClient.updateRows(m, batch, values);
+                }
+                else
+                {
+                    pelopsClient.deleteRows(m, batch);
+                }
+                count += batch.size();
+                batch.clear();
+            }
+        }
+
+        if (luceneIds != null)
+        {
+            onBulkIndexUpdate(m, client, luceneIds);
+        }
+        return count;
+    }
+
+    /**
+     * Aggregates over entities streamed from secondary index or row key range
+     * scans a page at a time, so that memory held doesn't grow with number of
+     * rows scanned. Queries resolved through Lucene are aggregated by
+     * {@link #aggregateUsingLucene(EntityMetadata, Client)}.
+     * 
+     * @param m
+     *            the m
+     * @param client
+     *            the client
+     * @return the results
+     */
+    @Override
+    protected List<Object> onAggregate(EntityMetadata m, Client client)
+    {
+        if (!MetadataUtils.useSecondryIndex(m.getPersistenceUnit()))
+        {
+            return aggregateUsingLucene(m, client);
+        }
+
+        ResultAggregator aggregator = newResultAggregator();
+        Iterator<Object> entities = scanAll(m, (PelopsClient) client);
+        while (entities.hasNext())
+        {
+            aggregator.add(entities.next());
+        }
+        return aggregator.getResults();
+    }
+
+    /**
+     * Lazily iterates over all entities matching query, regardless of max
+     * results, scanning secondary indexes or row key range.
+     * 
+     * @param m
+     *            the m
+     * @param pelopsClient
+     *            the pelops client
+     * @return the iterator
+     */
+    private Iterator<Object> scanAll(EntityMetadata m, PelopsClient pelopsClient)
+    {
+        Map<Boolean, List<IndexClause>> ixClause = prepareIndexClause(m);
+        boolean isRowKeyQuery = ixClause.keySet().iterator().next();
+        if (isRowKeyQuery)
+        {
+            List<IndexExpression> expressions = ixClause.get(isRowKeyQuery).get(0).getExpressions();
+            return pelopsClient.scanRange(Bytes.fromByteArray(expressions.get(0).getValue()),
+                    Bytes.fromByteArray(expressions.get(1).getValue()), m, false, null, Integer.MAX_VALUE);
+        }
+
+        for (IndexClause ix : ixClause.get(isRowKeyQuery))
+        {
+            ix.setCount(Integer.MAX_VALUE);
+        }
+        return pelopsClient.scan(ixClause.get(isRowKeyQuery), m, false, null, Integer.MAX_VALUE);
+    }
+
     /**
      * Prepare index clause.
      * 
@@ -227,6 +396,7 @@ public class CassQuery extends QueryImpl implements Query
                     : null;
 
             ((CassandraEntityReader) getReader()).setConditions(ixClause);
+            ((CassandraEntityReader) getReader()).setMaxResults(maxResult);
 
             ls = reader.populateRelation(m, m.getRelationNames(), m.isParent(), client);
         }
@@ -45,6 +45,9 @@ public class CassandraEntityReader extends AbstractEntityReader implements Entit
     /** The conditions. */
     Map<Boolean, List<IndexClause>> conditions = new HashMap<Boolean, List<IndexClause>>();
 
+    /** Maximum number of entities read by a find by range. */
+    private int maxResults = 100;
+
     /** The log. */
     private static Log log = LogFactory.getLog(CassandraEntityReader.class);
 
@@ -143,7 +146,7 @@ public class CassandraEntityReader extends AbstractEntityReader implements Entit
         else
         {
             // List<Object> results = new ArrayList<Object>();
-            ls = handleFindByRange(m, client, ls, conditions, isRowKeyQuery);
+            ls = handleFindByRange(m, client, ls, conditions, isRowKeyQuery, maxResults);
             // ls = (List<EnhanceEntity>) results;
         }
         return ls;
@@ -162,10 +165,12 @@ public class CassandraEntityReader extends AbstractEntityReader implements Entit
      *            the ix clause
      * @param isRowKeyQuery
      *            the is row key query
+     * @param maxResults
+     *            maximum number of entities
      * @return the list
      */
     public List handleFindByRange(EntityMetadata m, Client client, List result,
-            Map<Boolean, List<IndexClause>> ixClause, boolean isRowKeyQuery)
+            Map<Boolean, List<IndexClause>> ixClause, boolean isRowKeyQuery, int maxResults)
     {
         List<IndexExpression> expressions = ixClause.get(isRowKeyQuery).get(0).getExpressions();
 
@@ -173,7 +178,7 @@ public class CassandraEntityReader extends AbstractEntityReader implements Entit
         byte[] maxVal = expressions.get(1).getValue();
         try
         {
-            result = ((PelopsClient) client).findByRange(minValue, maxVal, m, false, null);
+            result = ((PelopsClient) client).findByRange(minValue, maxVal, m, false, null, maxResults);
         }
         catch (Exception e)
         {
@@ -194,4 +199,15 @@ public class CassandraEntityReader extends AbstractEntityReader implements Entit
     {
         this.conditions = conditions;
     }
+
+    /**
+     * Sets maximum number of entities read by a find by range.
+     * 
+     * @param maxResults
+     *            the max results
+     */
+    public void setMaxResults(int maxResults)
+    {
+        this.maxResults = maxResults;
+    }
 }
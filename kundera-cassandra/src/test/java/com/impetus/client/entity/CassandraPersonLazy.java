@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.entity;
+
+import java.util.Set;
+
+import javax.persistence.CascadeType;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.JoinColumn;
+import javax.persistence.ManyToOne;
+import javax.persistence.OneToMany;
+import javax.persistence.Table;
+
+/**
+ * Person whose relations are fetched lazily.
+ * 
+ * @author agent
+ */
+@Entity
+@Table(name = "CassandraPersonLazy", schema = "UUIDCassandra@cass_pu")
+public class CassandraPersonLazy
+{
+
+    /** The person id. */
+    @Id
+    @Column(name = "PERSON_ID")
+    private String personId;
+
+    /** The person name. */
+    @Column(name = "PERSON_NAME")
+    private String personName;
+
+    /** The address. */
+    @ManyToOne(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @JoinColumn(name = "ADDRESS_ID")
+    private CassandraAddressMTo1 address;
+
+    /** The addresses. */
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY)
+    @JoinColumn(name = "PERSON_ID")
+    private Set<CassandraAddress1ToM> addresses;
+
+    /**
+     * Gets the person id.
+     * 
+     * @return the person id
+     */
+    public String getPersonId()
+    {
+        return personId;
+    }
+
+    /**
+     * Sets the person id.
+     * 
+     * @param personId
+     *            the new person id
+     */
+    public void setPersonId(String personId)
+    {
+        this.personId = personId;
+    }
+
+    /**
+     * Gets the person name.
+     * 
+     * @return the person name
+     */
+    public String getPersonName()
+    {
+        return personName;
+    }
+
+    /**
+     * Sets the person name.
+     * 
+     * @param personName
+     *            the new person name
+     */
+    public void setPersonName(String personName)
+    {
+        this.personName = personName;
+    }
+
+    /**
+     * Gets the address.
+     * 
+     * @return the address
+     */
+    public CassandraAddressMTo1 getAddress()
+    {
+        return address;
+    }
+
+    /**
+     * Sets the address.
+     * 
+     * @param address
+     *            the new address
+     */
+    public void setAddress(CassandraAddressMTo1 address)
+    {
+        this.address = address;
+    }
+
+    /**
+     * Gets the addresses.
+     * 
+     * @return the addresses
+     */
+    public Set<CassandraAddress1ToM> getAddresses()
+    {
+        return addresses;
+    }
+
+    /**
+     * Sets the addresses.
+     * 
+     * @param addresses
+     *            the new addresses
+     */
+    public void setAddresses(Set<CassandraAddress1ToM> addresses)
+    {
+        this.addresses = addresses;
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Person indexed in Lucene rather than in secondary indexes.
+ * 
+ * @author agent
+ */
+@Entity
+@Table(name = "CassandraPersonLucene", schema = "UUIDCassandra@cass_lucene_pu")
+public class CassandraPersonLucene
+{
+
+    /** The person id. */
+    @Id
+    @Column(name = "personId")
+    private String personId;
+
+    /** The person name. */
+    @Column(name = "personName")
+    private String personName;
+
+    /** The state. */
+    @Column(name = "state")
+    private String state;
+
+    /**
+     * Gets the person id.
+     * 
+     * @return the person id
+     */
+    public String getPersonId()
+    {
+        return personId;
+    }
+
+    /**
+     * Sets the person id.
+     * 
+     * @param personId
+     *            the new person id
+     */
+    public void setPersonId(String personId)
+    {
+        this.personId = personId;
+    }
+
+    /**
+     * Gets the person name.
+     * 
+     * @return the person name
+     */
+    public String getPersonName()
+    {
+        return personName;
+    }
+
+    /**
+     * Sets the person name.
+     * 
+     * @param personName
+     *            the new person name
+     */
+    public void setPersonName(String personName)
+    {
+        this.personName = personName;
+    }
+
+    /**
+     * Gets the state.
+     * 
+     * @return the state
+     */
+    public String getState()
+    {
+        return state;
+    }
+
+    /**
+     * Sets the state.
+     * 
+     * @param state
+     *            the new state
+     */
+    public void setState(String state)
+    {
+        this.state = state;
+    }
+}
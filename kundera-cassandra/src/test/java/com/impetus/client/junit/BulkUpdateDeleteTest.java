@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.junit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.entity.CassandraPersonLucene;
+import com.impetus.client.persistence.CassandraCli;
+import com.impetus.kundera.index.LuceneIndexer;
+import com.impetus.kundera.index.LuceneQueryBuilder;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+
+/**
+ * Test case for JPQL UPDATE and DELETE queries run in Cassandra, on rows
+ * whose ids are looked up in Lucene.
+ * 
+ * @author agent
+ */
+public class BulkUpdateDeleteTest
+{
+
+    /** The persistence unit. */
+    private static final String PERSISTENCE_UNIT = "cass_lucene_pu";
+
+    /** States of persons persisted, in order of their ids. */
+    private static final String[] STATES = { "UP", "UP", "UK", "MP" };
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Persists a person per state.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        CassandraCli.cassandraSetUp();
+        CassandraCli.createKeySpace("UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraPersonLucene", "UUIDCassandra");
+        emf = Persistence.createEntityManagerFactory(PERSISTENCE_UNIT);
+
+        EntityManager em = emf.createEntityManager();
+        for (int i = 0; i < STATES.length; i++)
+        {
+            CassandraPersonLucene person = new CassandraPersonLucene();
+            person.setPersonId(String.valueOf(i + 1));
+            person.setPersonName("name" + (i + 1));
+            person.setState(STATES[i]);
+            em.persist(person);
+        }
+        em.close();
+    }
+
+    /**
+     * Matching rows are updated, and so are their index entries.
+     */
+    @Test
+    public void testUpdate()
+    {
+        EntityManager em = emf.createEntityManager();
+        int count = em.createQuery("Update CassandraPersonLucene p SET p.state=DELHI where p.state = UP")
+                .executeUpdate();
+        em.close();
+        Assert.assertEquals(2, count);
+
+        em = emf.createEntityManager();
+        Assert.assertEquals("DELHI", em.find(CassandraPersonLucene.class, "1").getState());
+        Assert.assertEquals("DELHI", em.find(CassandraPersonLucene.class, "2").getState());
+        Assert.assertEquals("UK", em.find(CassandraPersonLucene.class, "3").getState());
+        Assert.assertEquals("name1", em.find(CassandraPersonLucene.class, "1").getPersonName());
+        em.close();
+
+        Assert.assertEquals(0, countIndexed("UP"));
+        Assert.assertEquals(2, countIndexed("DELHI"));
+    }
+
+    /**
+     * Matching rows are deleted, and so are their index entries.
+     */
+    @Test
+    public void testDelete()
+    {
+        EntityManager em = emf.createEntityManager();
+        int count = em.createQuery("Delete from CassandraPersonLucene p where p.state = UP").executeUpdate();
+        em.close();
+        Assert.assertEquals(2, count);
+
+        em = emf.createEntityManager();
+        Assert.assertNull(em.find(CassandraPersonLucene.class, "1"));
+        Assert.assertNull(em.find(CassandraPersonLucene.class, "2"));
+        Assert.assertNotNull(em.find(CassandraPersonLucene.class, "3"));
+        Assert.assertNotNull(em.find(CassandraPersonLucene.class, "4"));
+        em.close();
+
+        Assert.assertEquals(0, countIndexed("UP"));
+        Assert.assertEquals(1, countIndexed("UK"));
+    }
+
+    /**
+     * Counts persons indexed with given state.
+     * 
+     * @param state
+     *            the state
+     * @return number of index entries
+     */
+    private int countIndexed(String state)
+    {
+        LuceneIndexer indexer = LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34),
+                KunderaMetadata.INSTANCE.getClientMetadata(PERSISTENCE_UNIT));
+        try
+        {
+            return indexer.count(new LuceneQueryBuilder().appendClause("CassandraPersonLucene.state", "=", state)
+                    .build(CassandraPersonLucene.class));
+        }
+        finally
+        {
+            indexer.close();
+        }
+    }
+
+    /**
+     * Removes persons left, along with their index entries.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        EntityManager em = emf.createEntityManager();
+        for (int i = 1; i <= STATES.length; i++)
+        {
+            CassandraPersonLucene person = em.find(CassandraPersonLucene.class, String.valueOf(i));
+            if (person != null)
+            {
+                em.remove(person);
+            }
+        }
+        em.close();
+        emf.close();
+        CassandraCli.dropKeySpace("UUIDCassandra");
+    }
+}
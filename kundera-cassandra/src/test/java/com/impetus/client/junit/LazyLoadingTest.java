@@ -0,0 +1,214 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.junit;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.entity.CassandraAddress1ToM;
+import com.impetus.client.entity.CassandraAddressMTo1;
+import com.impetus.client.entity.CassandraPersonLazy;
+import com.impetus.client.persistence.CassandraCli;
+import com.impetus.kundera.PersistenceProperties;
+import com.impetus.kundera.proxy.KunderaProxy;
+import com.impetus.kundera.proxy.LazyInitializationException;
+
+/**
+ * Test case for relations with FetchType.LAZY read through proxies, once
+ * enabled by kundera.lazy.loading.
+ * 
+ * @author agent
+ */
+public class LazyLoadingTest
+{
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Persists a person with an address and two more addresses.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        CassandraCli.cassandraSetUp();
+        CassandraCli.createKeySpace("UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraPersonLazy", "UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraAddressMTo1", "UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraAddress1ToM", "UUIDCassandra");
+        emf = Persistence.createEntityManagerFactory("cass_pu");
+
+        CassandraPersonLazy person = new CassandraPersonLazy();
+        person.setPersonId("p1");
+        person.setPersonName("name");
+        CassandraAddressMTo1 address = new CassandraAddressMTo1();
+        address.setAddressId("a1");
+        address.setStreet("street");
+        person.setAddress(address);
+        Set<CassandraAddress1ToM> addresses = new HashSet<CassandraAddress1ToM>();
+        for (int i = 1; i <= 2; i++)
+        {
+            CassandraAddress1ToM other = new CassandraAddress1ToM();
+            other.setAddressId("o" + i);
+            other.setStreet("street o" + i);
+            addresses.add(other);
+        }
+        person.setAddresses(addresses);
+
+        EntityManager em = emf.createEntityManager();
+        em.persist(person);
+        em.close();
+    }
+
+    /**
+     * Lazy relations are proxies read on first access.
+     */
+    @Test
+    public void testInitialization()
+    {
+        EntityManager em = createEntityManager();
+        CassandraPersonLazy person = em.find(CassandraPersonLazy.class, "p1");
+        Assert.assertTrue(person.getAddress() instanceof KunderaProxy);
+        KunderaProxy proxy = (KunderaProxy) person.getAddress();
+        Assert.assertTrue(proxy.getKunderaLazyInitializer().isUninitialized());
+        Assert.assertEquals("street", person.getAddress().getStreet());
+        Assert.assertFalse(proxy.getKunderaLazyInitializer().isUninitialized());
+
+        Assert.assertTrue(person.getAddresses() instanceof KunderaProxy);
+        Assert.assertEquals(2, person.getAddresses().size());
+        for (CassandraAddress1ToM other : person.getAddresses())
+        {
+            Assert.assertEquals("street " + other.getAddressId(), other.getStreet());
+        }
+        em.close();
+    }
+
+    /**
+     * Lazy relations are read along with their entity unless enabled.
+     */
+    @Test
+    public void testDisabledByDefault()
+    {
+        EntityManager em = emf.createEntityManager();
+        CassandraPersonLazy person = em.find(CassandraPersonLazy.class, "p1");
+        Assert.assertFalse(person.getAddress() instanceof KunderaProxy);
+        Assert.assertEquals("street", person.getAddress().getStreet());
+        Assert.assertFalse(person.getAddresses() instanceof KunderaProxy);
+        Assert.assertEquals(2, person.getAddresses().size());
+        em.close();
+    }
+
+    /**
+     * Proxies can't be read once their EntityManager is closed, proxies
+     * already initialized still can.
+     */
+    @Test
+    public void testDetachedAccess()
+    {
+        EntityManager em = createEntityManager();
+        CassandraPersonLazy person = em.find(CassandraPersonLazy.class, "p1");
+        Assert.assertEquals(2, person.getAddresses().size());
+        em.close();
+
+        Assert.assertEquals(2, person.getAddresses().size());
+        try
+        {
+            person.getAddress().getStreet();
+            Assert.fail("Proxy of a closed EntityManager must not be initialized");
+        }
+        catch (LazyInitializationException e)
+        {
+            // Expected
+        }
+    }
+
+    /**
+     * Entity behind a proxy is what gets merged or persisted.
+     */
+    @Test
+    public void testPersistAndMergeProxy()
+    {
+        EntityManager em = createEntityManager();
+        CassandraAddressMTo1 reference = em.getReference(CassandraAddressMTo1.class, "a1");
+        reference.setStreet("merged street");
+        CassandraAddressMTo1 merged = em.merge(reference);
+        Assert.assertFalse(merged instanceof KunderaProxy);
+        em.close();
+        Assert.assertEquals("merged street", findAddress("a1").getStreet());
+
+        em = createEntityManager();
+        CassandraPersonLazy person = em.find(CassandraPersonLazy.class, "p1");
+        person.getAddress().setStreet("persisted street");
+        em.persist(person.getAddress());
+        em.close();
+        Assert.assertEquals("persisted street", findAddress("a1").getStreet());
+    }
+
+    /**
+     * Creates entity manager with lazy loading enabled.
+     * 
+     * @return the entity manager
+     */
+    private EntityManager createEntityManager()
+    {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PersistenceProperties.KUNDERA_LAZY_LOADING, "true");
+        return emf.createEntityManager(properties);
+    }
+
+    /**
+     * Finds address in a new entity manager.
+     * 
+     * @param addressId
+     *            the address id
+     * @return the address
+     */
+    private CassandraAddressMTo1 findAddress(String addressId)
+    {
+        EntityManager em = emf.createEntityManager();
+        CassandraAddressMTo1 address = em.find(CassandraAddressMTo1.class, addressId);
+        em.close();
+        return address;
+    }
+
+    /**
+     * Tear down.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        emf.close();
+        CassandraCli.dropKeySpace("UUIDCassandra");
+    }
+}
@@ -0,0 +1,171 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.junit;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.apache.cassandra.service.StorageProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.cassandra.pelops.PelopsClient;
+import com.impetus.client.entity.CassandraUUIDEntity;
+import com.impetus.client.persistence.CassandraCli;
+
+/**
+ * Test case for batched multi-get reads of {@link PelopsClient#findAll}.
+ * Round trips are counted through read operations recorded by the embedded
+ * Cassandra server.
+ */
+public class PelopsBatchReadTest
+{
+
+    /** Number of rows to be persisted. */
+    private static final int ROW_COUNT = 50;
+
+    /** Batch read size, kept small to have more than one chunk. */
+    private static final int BATCH_SIZE = 20;
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /** Row keys of persisted entities. */
+    private Object[] keys;
+
+    /**
+     * Sets the up.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        CassandraCli.cassandraSetUp();
+        CassandraCli.createKeySpace("UUIDCassandra");
+        CassandraCli.columnFamilyExist("uuidsample", "UUIDCassandra");
+
+        emf = Persistence.createEntityManagerFactory("cass_pu");
+        EntityManager em = emf.createEntityManager();
+        keys = new Object[ROW_COUNT];
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            CassandraUUIDEntity entity = new CassandraUUIDEntity();
+            entity.setUuidKey(UUID.randomUUID());
+            entity.setName("name" + i);
+            entity.setAge(i);
+            em.persist(entity);
+            keys[i] = entity.getUuidKey();
+        }
+        em.close();
+    }
+
+    /**
+     * Compares round trips made by per key find with batched findAll.
+     */
+    @Test
+    public void testFindAllRoundTrips()
+    {
+        PelopsClient client = new PelopsClient(null, null, "cass_pu", BATCH_SIZE, null);
+
+        long before = StorageProxy.instance.getReadOperations();
+        for (Object key : keys)
+        {
+            Assert.assertNotNull(client.find(CassandraUUIDEntity.class, key));
+        }
+        long singleReads = StorageProxy.instance.getReadOperations() - before;
+
+        before = StorageProxy.instance.getReadOperations();
+        List<CassandraUUIDEntity> results = client.findAll(CassandraUUIDEntity.class, keys);
+        long batchReads = StorageProxy.instance.getReadOperations() - before;
+
+        assertResults(results);
+        Assert.assertEquals(ROW_COUNT, singleReads);
+        Assert.assertEquals((ROW_COUNT + BATCH_SIZE - 1) / BATCH_SIZE, batchReads);
+    }
+
+    /**
+     * Parallel chunks must keep order of requested keys.
+     */
+    @Test
+    public void testFindAllParallel()
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            PelopsClient client = new PelopsClient(null, null, "cass_pu", BATCH_SIZE, executor);
+            assertResults(client.findAll(CassandraUUIDEntity.class, keys));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Rows which do not exist are skipped.
+     */
+    @Test
+    public void testFindAllMissingKey()
+    {
+        PelopsClient client = new PelopsClient(null, null, "cass_pu", BATCH_SIZE, null);
+        List<CassandraUUIDEntity> results = client.findAll(CassandraUUIDEntity.class, keys[0], UUID.randomUUID(),
+                keys[1]);
+        Assert.assertEquals(2, results.size());
+        Assert.assertEquals(keys[0], results.get(0).getUuidKey());
+        Assert.assertEquals(keys[1], results.get(1).getUuidKey());
+    }
+
+    /**
+     * Asserts all persisted rows are returned in requested order.
+     * 
+     * @param results
+     *            the results
+     */
+    private void assertResults(List<CassandraUUIDEntity> results)
+    {
+        Assert.assertNotNull(results);
+        Assert.assertEquals(ROW_COUNT, results.size());
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            Assert.assertEquals(keys[i], results.get(i).getUuidKey());
+            Assert.assertEquals("name" + i, results.get(i).getName());
+        }
+    }
+
+    /**
+     * Tear down.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        emf.close();
+        CassandraCli.dropKeySpace("UUIDCassandra");
+    }
+}
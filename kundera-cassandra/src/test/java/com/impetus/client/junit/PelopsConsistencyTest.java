@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.junit;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.apache.cassandra.service.StorageProxy;
+import org.apache.cassandra.thrift.ConsistencyLevel;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.cassandra.pelops.PelopsClient;
+import com.impetus.client.entity.CassandraUUIDEntity;
+import com.impetus.client.persistence.CassandraCli;
+import com.impetus.kundera.PersistenceProperties;
+
+/**
+ * Test case for configurable read and write consistency levels of
+ * {@link PelopsClient}, including speculative reads verified in the
+ * background.
+ * 
+ * @author agent
+ */
+public class PelopsConsistencyTest
+{
+
+    /** Number of rows to be persisted. */
+    private static final int ROW_COUNT = 10;
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /** Row keys of persisted entities. */
+    private Object[] keys;
+
+    /**
+     * Sets the up.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        CassandraCli.cassandraSetUp();
+        CassandraCli.createKeySpace("UUIDCassandra");
+        CassandraCli.columnFamilyExist("uuidsample", "UUIDCassandra");
+
+        emf = Persistence.createEntityManagerFactory("cass_pu");
+        EntityManager em = emf.createEntityManager();
+        keys = new Object[ROW_COUNT];
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            CassandraUUIDEntity entity = new CassandraUUIDEntity();
+            entity.setUuidKey(UUID.randomUUID());
+            entity.setName("name" + i);
+            entity.setAge(i);
+            em.persist(entity);
+            keys[i] = entity.getUuidKey();
+        }
+        em.close();
+    }
+
+    /**
+     * Levels of persistence unit apply unless overridden, ANY and SPECULATIVE
+     * read at ONE.
+     */
+    @Test
+    public void testConsistencyLevels()
+    {
+        PelopsClient client = new PelopsClient(null, null, "cass_pu");
+        Assert.assertEquals(ConsistencyLevel.ONE, client.getReadConsistencyLevel());
+        Assert.assertEquals(ConsistencyLevel.ONE, client.getWriteConsistencyLevel());
+
+        client.setConsistencyLevels("QUORUM", "ALL", null);
+        Assert.assertEquals(ConsistencyLevel.QUORUM, client.getReadConsistencyLevel());
+        Assert.assertEquals(ConsistencyLevel.ALL, client.getWriteConsistencyLevel());
+
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PersistenceProperties.KUNDERA_READ_CONSISTENCY, "ANY");
+        client.setProperties(properties);
+        Assert.assertEquals(ConsistencyLevel.ONE, client.getReadConsistencyLevel());
+        Assert.assertEquals(ConsistencyLevel.ALL, client.getWriteConsistencyLevel());
+
+        properties.put(PersistenceProperties.KUNDERA_READ_CONSISTENCY, PelopsClient.SPECULATIVE_READ);
+        properties.put(PersistenceProperties.KUNDERA_WRITE_CONSISTENCY, "ANY");
+        client.setProperties(properties);
+        Assert.assertEquals(ConsistencyLevel.ONE, client.getReadConsistencyLevel());
+        Assert.assertEquals(ConsistencyLevel.ANY, client.getWriteConsistencyLevel());
+
+        // Levels of persistence unit are back once overrides are gone
+        client.setProperties(new HashMap<String, Object>());
+        Assert.assertEquals(ConsistencyLevel.QUORUM, client.getReadConsistencyLevel());
+        Assert.assertEquals(ConsistencyLevel.ALL, client.getWriteConsistencyLevel());
+    }
+
+    /**
+     * Speculative read returns rows read at ONE and reads them again in the
+     * background.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testSpeculativeRead() throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        PelopsClient client = new PelopsClient(null, null, "cass_pu");
+        client.setConsistencyLevels(PelopsClient.SPECULATIVE_READ, null, executor);
+
+        long before = StorageProxy.instance.getReadOperations();
+        List<CassandraUUIDEntity> results = client.findAll(CassandraUUIDEntity.class, keys);
+        assertResults(results);
+
+        executor.shutdown();
+        Assert.assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // One multi-get at ONE and one at QUORUM
+        Assert.assertEquals(2, StorageProxy.instance.getReadOperations() - before);
+    }
+
+    /**
+     * Speculative read isn't verified without an executor, nor are reads at
+     * other levels.
+     */
+    @Test
+    public void testNoVerification()
+    {
+        PelopsClient client = new PelopsClient(null, null, "cass_pu");
+        client.setConsistencyLevels(PelopsClient.SPECULATIVE_READ, null, null);
+        long before = StorageProxy.instance.getReadOperations();
+        assertResults(client.findAll(CassandraUUIDEntity.class, keys));
+        Assert.assertEquals(1, StorageProxy.instance.getReadOperations() - before);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            client.setConsistencyLevels("QUORUM", null, executor);
+            before = StorageProxy.instance.getReadOperations();
+            assertResults(client.findAll(CassandraUUIDEntity.class, keys));
+            Assert.assertEquals(1, StorageProxy.instance.getReadOperations() - before);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Consistency levels set on EntityManager apply to its reads and writes.
+     */
+    @Test
+    public void testEntityManagerLevels()
+    {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PersistenceProperties.KUNDERA_READ_CONSISTENCY, "QUORUM");
+        properties.put(PersistenceProperties.KUNDERA_WRITE_CONSISTENCY, "ALL");
+        EntityManager em = emf.createEntityManager(properties);
+
+        CassandraUUIDEntity found = em.find(CassandraUUIDEntity.class, keys[0]);
+        Assert.assertNotNull(found);
+        found.setName("updated");
+        em.merge(found);
+        em.close();
+
+        em = emf.createEntityManager();
+        Assert.assertEquals("updated", em.find(CassandraUUIDEntity.class, keys[0]).getName());
+        em.close();
+    }
+
+    /**
+     * Asserts all persisted rows are returned in requested order.
+     * 
+     * @param results
+     *            the results
+     */
+    private void assertResults(List<CassandraUUIDEntity> results)
+    {
+        Assert.assertNotNull(results);
+        Assert.assertEquals(ROW_COUNT, results.size());
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            Assert.assertEquals(keys[i], results.get(i).getUuidKey());
+        }
+    }
+
+    /**
+     * Tear down.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        emf.close();
+        CassandraCli.dropKeySpace("UUIDCassandra");
+    }
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.junit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import junit.framework.Assert;
+
+import org.apache.cassandra.thrift.Column;
+import org.junit.Before;
+import org.junit.Test;
+import org.scale7.cassandra.pelops.Bytes;
+
+import com.impetus.client.cassandra.pelops.PelopsDataHandler;
+import com.impetus.client.cassandra.pelops.PelopsDataHandler.ThriftRow;
+import com.impetus.client.cassandra.pelops.PelopsRowIterator;
+import com.impetus.client.cassandra.pelops.PelopsRowIterator.PageReader;
+
+/**
+ * Test case for {@link PelopsRowIterator}, paging through an in-memory column
+ * family.
+ *
+ * @author agent
+ */
+public class PelopsRowIteratorTest
+{
+
+    /** Number of rows in column family. */
+    private static final int ROW_COUNT = 25;
+
+    /** Rows of column family in key order, empty ones being deleted. */
+    private TreeMap<String, List<Column>> columnFamily;
+
+    /** Data handler creating thrift rows. */
+    private PelopsDataHandler dataHandler;
+
+    /** Row counts requested by pages read. */
+    private List<Integer> pageCounts;
+
+    /**
+     * Sets the up.
+     */
+    @Before
+    public void setUp()
+    {
+        dataHandler = new PelopsDataHandler(null);
+        pageCounts = new ArrayList<Integer>();
+        columnFamily = new TreeMap<String, List<Column>>();
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            Column column = new Column();
+            column.setName("name".getBytes());
+            column.setValue(("value" + i).getBytes());
+            columnFamily.put(String.format("row%02d", i), Arrays.asList(column));
+        }
+    }
+
+    /**
+     * All rows are returned once, in order, reading one page at a time.
+     */
+    @Test
+    public void testPaging()
+    {
+        List<Object> keys = drain(new PelopsRowIterator(new InMemoryPageReader(), Bytes.EMPTY, 10, Integer.MAX_VALUE));
+
+        Assert.assertEquals(ROW_COUNT, keys.size());
+        Assert.assertEquals(new ArrayList<String>(columnFamily.keySet()), keys);
+        // First page and two resumed pages, each asking for start key again
+        Assert.assertEquals(Arrays.asList(10, 11, 11), pageCounts);
+    }
+
+    /**
+     * Iteration stops at maximum results without reading further pages.
+     */
+    @Test
+    public void testMaxResults()
+    {
+        List<Object> keys = drain(new PelopsRowIterator(new InMemoryPageReader(), Bytes.EMPTY, 10, 12));
+
+        Assert.assertEquals(12, keys.size());
+        Assert.assertEquals("row11", keys.get(11));
+        Assert.assertEquals(Arrays.asList(10, 3), pageCounts);
+    }
+
+    /**
+     * Rows left behind by deleted entities are skipped.
+     */
+    @Test
+    public void testDeletedRows()
+    {
+        columnFamily.put("row05", Collections.<Column> emptyList());
+        columnFamily.put("row10", Collections.<Column> emptyList());
+
+        List<Object> keys = drain(new PelopsRowIterator(new InMemoryPageReader(), Bytes.EMPTY, 5, Integer.MAX_VALUE));
+
+        Assert.assertEquals(ROW_COUNT - 2, keys.size());
+        Assert.assertFalse(keys.contains("row05"));
+        Assert.assertFalse(keys.contains("row10"));
+    }
+
+    /**
+     * Iterates over all entities.
+     *
+     * @param iterator
+     *            the iterator
+     * @return the entities
+     */
+    private List<Object> drain(PelopsRowIterator iterator)
+    {
+        List<Object> entities = new ArrayList<Object>();
+        while (iterator.hasNext())
+        {
+            entities.add(iterator.next());
+        }
+        Assert.assertFalse(iterator.hasNext());
+        return entities;
+    }
+
+    /**
+     * Reads pages of in-memory column family, converting rows to their keys.
+     */
+    private class InMemoryPageReader implements PageReader
+    {
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see
+         * com.impetus.client.cassandra.pelops.PelopsRowIterator.PageReader#
+         * readPage(org.scale7.cassandra.pelops.Bytes, int)
+         */
+        @Override
+        public Map<Bytes, ThriftRow> readPage(Bytes startKey, int count)
+        {
+            pageCounts.add(count);
+            Map<Bytes, ThriftRow> rows = new LinkedHashMap<Bytes, ThriftRow>();
+            for (Map.Entry<String, List<Column>> row : columnFamily.tailMap(Bytes.toUTF8(startKey.toByteArray()))
+                    .entrySet())
+            {
+                if (rows.size() == count)
+                {
+                    break;
+                }
+                rows.put(Bytes.fromUTF8(row.getKey()),
+                        dataHandler.new ThriftRow(row.getKey(), "cf", row.getValue(), null));
+            }
+            return rows;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see
+         * com.impetus.client.cassandra.pelops.PelopsRowIterator.PageReader#
+         * toEntity(com.impetus.client.cassandra.pelops.PelopsDataHandler.ThriftRow)
+         */
+        @Override
+        public Object toEntity(ThriftRow row)
+        {
+            return row.getId();
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.junit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.entity.CassandraUUIDEntity;
+import com.impetus.client.persistence.CassandraCli;
+import com.impetus.kundera.PersistenceProperties;
+
+/**
+ * Test case for write-behind flushing, entities are written to Cassandra in
+ * batches once configured batch size is reached, or on commit/ close.
+ */
+public class PelopsWriteBehindTest
+{
+
+    /** Number of pending operations after which batch is written. */
+    private static final int BATCH_SIZE = 10;
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        CassandraCli.cassandraSetUp();
+        CassandraCli.createKeySpace("UUIDCassandra");
+        CassandraCli.columnFamilyExist("uuidsample", "UUIDCassandra");
+        emf = Persistence.createEntityManagerFactory("cass_pu");
+    }
+
+    /**
+     * Entities are not written until batch size is reached.
+     */
+    @Test
+    public void testBatchSize()
+    {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PersistenceProperties.KUNDERA_BATCH_SIZE, String.valueOf(BATCH_SIZE));
+        EntityManager em = emf.createEntityManager(properties);
+
+        UUID[] keys = new UUID[BATCH_SIZE + 1];
+        for (int i = 0; i < BATCH_SIZE - 1; i++)
+        {
+            keys[i] = persist(em, i);
+        }
+        Assert.assertNull(findInNewEntityManager(keys[0]));
+
+        // Batch is written on reaching batch size
+        keys[BATCH_SIZE - 1] = persist(em, BATCH_SIZE - 1);
+        for (int i = 0; i < BATCH_SIZE; i++)
+        {
+            CassandraUUIDEntity found = findInNewEntityManager(keys[i]);
+            Assert.assertNotNull(found);
+            Assert.assertEquals("name" + i, found.getName());
+        }
+
+        // Pending entities are written on close
+        keys[BATCH_SIZE] = persist(em, BATCH_SIZE);
+        Assert.assertNull(findInNewEntityManager(keys[BATCH_SIZE]));
+        em.close();
+        Assert.assertNotNull(findInNewEntityManager(keys[BATCH_SIZE]));
+    }
+
+    /**
+     * Pending changes are visible to find on the same entity manager.
+     */
+    @Test
+    public void testFindPending()
+    {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PersistenceProperties.KUNDERA_BATCH_SIZE, String.valueOf(BATCH_SIZE));
+        EntityManager em = emf.createEntityManager(properties);
+
+        UUID key = persist(em, 0);
+        CassandraUUIDEntity found = em.find(CassandraUUIDEntity.class, key);
+        Assert.assertNotNull(found);
+        Assert.assertEquals("name0", found.getName());
+
+        found.setName("updated");
+        em.merge(found);
+        Assert.assertEquals("updated", em.find(CassandraUUIDEntity.class, key).getName());
+        em.close();
+
+        Assert.assertEquals("updated", findInNewEntityManager(key).getName());
+    }
+
+    /**
+     * Changes pending at rollback are not written on close.
+     */
+    @Test
+    public void testRollback()
+    {
+        Map<String, Object> properties = new HashMap<String, Object>();
+        properties.put(PersistenceProperties.KUNDERA_BATCH_SIZE, String.valueOf(BATCH_SIZE));
+        EntityManager em = emf.createEntityManager(properties);
+
+        em.getTransaction().begin();
+        UUID key = persist(em, 0);
+        em.getTransaction().rollback();
+        em.close();
+
+        Assert.assertNull(findInNewEntityManager(key));
+    }
+
+    /**
+     * Persists a new entity.
+     *
+     * @param em
+     *            the em
+     * @param i
+     *            the i
+     * @return the key of persisted entity
+     */
+    private UUID persist(EntityManager em, int i)
+    {
+        CassandraUUIDEntity entity = new CassandraUUIDEntity();
+        entity.setUuidKey(UUID.randomUUID());
+        entity.setName("name" + i);
+        entity.setAge(i);
+        em.persist(entity);
+        return entity.getUuidKey();
+    }
+
+    /**
+     * Finds entity through a fresh entity manager, hence from database.
+     *
+     * @param key
+     *            the key
+     * @return the cassandra uuid entity
+     */
+    private CassandraUUIDEntity findInNewEntityManager(UUID key)
+    {
+        EntityManager em = emf.createEntityManager();
+        try
+        {
+            return em.find(CassandraUUIDEntity.class, key);
+        }
+        finally
+        {
+            em.close();
+        }
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        emf.close();
+        CassandraCli.dropKeySpace("UUIDCassandra");
+    }
+}
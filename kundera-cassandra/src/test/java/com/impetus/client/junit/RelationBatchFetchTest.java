@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.junit;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.apache.cassandra.service.StorageProxy;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.entity.CassandraAddress1ToM;
+import com.impetus.client.entity.CassandraAddressMTo1;
+import com.impetus.client.entity.CassandraPerson1ToM;
+import com.impetus.client.entity.CassandraPersonMTo1;
+import com.impetus.client.persistence.CassandraCli;
+
+/**
+ * Test case for relations of query results fetched together rather than per
+ * entity. Round trips are counted through read operations recorded by the
+ * embedded Cassandra server; fetching relations entity by entity would take
+ * at least one read per result.
+ * 
+ * @author agent
+ */
+public class RelationBatchFetchTest
+{
+
+    /** Number of persons persisted. */
+    private static final int ROW_COUNT = 10;
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Sets the up.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        CassandraCli.cassandraSetUp();
+        CassandraCli.createKeySpace("UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraPersonMTo1", "UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraAddressMTo1", "UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraPerson1ToM", "UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraAddress1ToM", "UUIDCassandra");
+        emf = Persistence.createEntityManagerFactory("cass_pu");
+    }
+
+    /**
+     * Many-to-one targets of all results are read together, and a target
+     * referred by several results is read once.
+     */
+    @Test
+    public void testManyToOne()
+    {
+        EntityManager em = emf.createEntityManager();
+        CassandraAddressMTo1 shared = prepareAddressMTo1("shared");
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            CassandraPersonMTo1 person = new CassandraPersonMTo1();
+            person.setPersonId("p" + i);
+            person.setPersonName("name" + i);
+
+            // Every other person shares an address
+            person.setAddress(i % 2 == 0 ? shared : prepareAddressMTo1("a" + i));
+            em.persist(person);
+        }
+        em.close();
+
+        em = emf.createEntityManager();
+        long before = StorageProxy.instance.getReadOperations();
+        List<CassandraPersonMTo1> persons = em.createQuery("Select p from CassandraPersonMTo1 p").getResultList();
+        long reads = StorageProxy.instance.getReadOperations() - before;
+
+        Assert.assertEquals(ROW_COUNT, persons.size());
+        CassandraAddressMTo1 sharedFound = null;
+        for (CassandraPersonMTo1 person : persons)
+        {
+            int i = Integer.parseInt(person.getPersonId().substring(1));
+            Assert.assertNotNull(person.getAddress());
+            if (i % 2 == 0)
+            {
+                Assert.assertEquals("shared", person.getAddress().getAddressId());
+                if (sharedFound != null)
+                {
+                    Assert.assertSame(sharedFound, person.getAddress());
+                }
+                sharedFound = person.getAddress();
+            }
+            else
+            {
+                Assert.assertEquals("a" + i, person.getAddress().getAddressId());
+                Assert.assertEquals("street a" + i, person.getAddress().getStreet());
+            }
+        }
+        Assert.assertTrue("Relations read per entity: " + reads + " reads", reads < ROW_COUNT);
+        em.close();
+    }
+
+    /**
+     * One-to-many children of all results are read together and matched back
+     * to their parents.
+     */
+    @Test
+    public void testOneToMany()
+    {
+        EntityManager em = emf.createEntityManager();
+        for (int i = 0; i < ROW_COUNT; i++)
+        {
+            CassandraPerson1ToM person = new CassandraPerson1ToM();
+            person.setPersonId("p" + i);
+            person.setPersonName("name" + i);
+            Set<CassandraAddress1ToM> addresses = new HashSet<CassandraAddress1ToM>();
+            addresses.add(prepareAddress1ToM("p" + i + "a1"));
+            addresses.add(prepareAddress1ToM("p" + i + "a2"));
+            person.setAddresses(addresses);
+            em.persist(person);
+        }
+        em.close();
+
+        em = emf.createEntityManager();
+        long before = StorageProxy.instance.getReadOperations();
+        List<CassandraPerson1ToM> persons = em.createQuery("Select p from CassandraPerson1ToM p").getResultList();
+        long reads = StorageProxy.instance.getReadOperations() - before;
+
+        Assert.assertEquals(ROW_COUNT, persons.size());
+        for (CassandraPerson1ToM person : persons)
+        {
+            Assert.assertNotNull(person.getAddresses());
+            Assert.assertEquals(2, person.getAddresses().size());
+            for (CassandraAddress1ToM address : person.getAddresses())
+            {
+                Assert.assertTrue(address.getAddressId().startsWith(person.getPersonId() + "a"));
+            }
+        }
+        Assert.assertTrue("Relations read per entity: " + reads + " reads", reads < ROW_COUNT);
+        em.close();
+    }
+
+    /**
+     * Prepares many-to-one address.
+     * 
+     * @param addressId
+     *            the address id
+     * @return the address
+     */
+    private CassandraAddressMTo1 prepareAddressMTo1(String addressId)
+    {
+        CassandraAddressMTo1 address = new CassandraAddressMTo1();
+        address.setAddressId(addressId);
+        address.setStreet("street " + addressId);
+        return address;
+    }
+
+    /**
+     * Prepares one-to-many address.
+     * 
+     * @param addressId
+     *            the address id
+     * @return the address
+     */
+    private CassandraAddress1ToM prepareAddress1ToM(String addressId)
+    {
+        CassandraAddress1ToM address = new CassandraAddress1ToM();
+        address.setAddressId(addressId);
+        address.setStreet("street " + addressId);
+        return address;
+    }
+
+    /**
+     * Tear down.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        emf.close();
+        CassandraCli.dropKeySpace("UUIDCassandra");
+    }
+}
@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.junit;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.NoResultException;
+import javax.persistence.NonUniqueResultException;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.entity.CassandraPersonLucene;
+import com.impetus.client.persistence.CassandraCli;
+
+/**
+ * Test case for single results of aggregate and entity queries.
+ * 
+ * @author agent
+ */
+public class SingleResultQueryTest
+{
+
+    /** States of persons persisted, in order of their ids. */
+    private static final String[] STATES = { "UP", "UP", "UK", "MP" };
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Persists a person per state.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        CassandraCli.cassandraSetUp();
+        CassandraCli.createKeySpace("UUIDCassandra");
+        CassandraCli.columnFamilyExist("CassandraPersonLucene", "UUIDCassandra");
+        emf = Persistence.createEntityManagerFactory("cass_lucene_pu");
+
+        EntityManager em = emf.createEntityManager();
+        for (int i = 0; i < STATES.length; i++)
+        {
+            CassandraPersonLucene person = new CassandraPersonLucene();
+            person.setPersonId(String.valueOf(i + 1));
+            person.setPersonName("name" + (i + 1));
+            person.setState(STATES[i]);
+            em.persist(person);
+        }
+        em.close();
+    }
+
+    /**
+     * Aggregate query without GROUP BY returns one row, even if nothing
+     * matches.
+     */
+    @Test
+    public void testAggregate()
+    {
+        EntityManager em = emf.createEntityManager();
+        Assert.assertEquals(Long.valueOf(2),
+                em.createQuery("Select count(p) from CassandraPersonLucene p where p.state = UP").getSingleResult());
+        Assert.assertEquals(Long.valueOf(0),
+                em.createQuery("Select count(p) from CassandraPersonLucene p where p.state = AP").getSingleResult());
+        try
+        {
+            em.createQuery("Select p.state, count(p) from CassandraPersonLucene p GROUP BY p.state")
+                    .getSingleResult();
+            Assert.fail("One row per group must be returned");
+        }
+        catch (NonUniqueResultException e)
+        {
+            // Expected
+        }
+        em.close();
+    }
+
+    /**
+     * Entity query returns the only entity matching it, and fails if none or
+     * several do.
+     */
+    @Test
+    public void testEntity()
+    {
+        EntityManager em = emf.createEntityManager();
+        CassandraPersonLucene person = (CassandraPersonLucene) em.createQuery(
+                "Select p from CassandraPersonLucene p where p.state = UK").getSingleResult();
+        Assert.assertEquals("3", person.getPersonId());
+        try
+        {
+            em.createQuery("Select p from CassandraPersonLucene p where p.state = AP").getSingleResult();
+            Assert.fail("No entity matches query");
+        }
+        catch (NoResultException e)
+        {
+            // Expected
+        }
+        try
+        {
+            em.createQuery("Select p from CassandraPersonLucene p where p.state = UP").getSingleResult();
+            Assert.fail("Two entities match query");
+        }
+        catch (NonUniqueResultException e)
+        {
+            // Expected
+        }
+        em.close();
+    }
+
+    /**
+     * Removes persons, along with their index entries.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        EntityManager em = emf.createEntityManager();
+        for (int i = 1; i <= STATES.length; i++)
+        {
+            CassandraPersonLucene person = em.find(CassandraPersonLucene.class, String.valueOf(i));
+            if (person != null)
+            {
+                em.remove(person);
+            }
+        }
+        em.close();
+        emf.close();
+        CassandraCli.dropKeySpace("UUIDCassandra");
+    }
+}
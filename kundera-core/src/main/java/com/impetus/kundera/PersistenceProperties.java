@@ -71,4 +71,108 @@ public interface PersistenceProperties
     public static final String KUNDERA_INDEX_HOME_DIR = "index_home_dir";
 
     public static final String KUNDERA_DDL_AUTO_PREPARE = "kundera_ddl_auto_prepare";
+
+    // Maximum number of row keys sent to the datastore in one multi-get call.
+    /** The Constant KUNDERA_BATCH_READ_SIZE. */
+    public static final String KUNDERA_BATCH_READ_SIZE = "kundera.batch.read.size";
+
+    // Number of threads used to issue multi-get chunks in parallel (0 means
+    // chunks are read sequentially on the calling thread).
+    /** The Constant KUNDERA_BATCH_READ_THREADS. */
+    public static final String KUNDERA_BATCH_READ_THREADS = "kundera.batch.read.threads";
+
+    // Number of rows read in one call by queries scanning a range of rows or
+    // a secondary index, which resume from the last row read (scanner caching
+    // for HBase, cursor batch size for MongoDB).
+    /** The Constant KUNDERA_SCAN_PAGE_SIZE. */
+    public static final String KUNDERA_SCAN_PAGE_SIZE = "kundera.scan.page.size";
+
+    // Size in bytes of client side buffer holding puts of a batch, which is
+    // sent to region servers whenever it fills up (HBase only).
+    /** The Constant KUNDERA_WRITE_BUFFER_SIZE. */
+    public static final String KUNDERA_WRITE_BUFFER_SIZE = "kundera.write.buffer.size";
+
+    // Storage layout of embedded collections in HBase: qualifier (default,
+    // elements are columns of collection's column family, prefixed with their
+    // sequence count) or family (each element is a column family of its own,
+    // added to table on the fly). Rows in either layout are read.
+    /** The Constant KUNDERA_EMBEDDED_COLLECTION_LAYOUT. */
+    public static final String KUNDERA_EMBEDDED_COLLECTION_LAYOUT = "kundera.embedded.collection.layout";
+
+    // Write concern of writes to MongoDB: a name, e.g. NORMAL, SAFE or
+    // FSYNC_SAFE, or number of servers that must acknowledge a write.
+    /** The Constant KUNDERA_WRITE_CONCERN. */
+    public static final String KUNDERA_WRITE_CONCERN = "kundera.write.concern";
+
+    // Number of pending persist/merge/remove operations after which the
+    // persistence context is flushed (0 means every operation is flushed
+    // right away).
+    /** The Constant KUNDERA_BATCH_SIZE. */
+    public static final String KUNDERA_BATCH_SIZE = "kundera.batch.size";
+
+    // Age in milliseconds of oldest pending operation after which the
+    // persistence context is flushed (0 means no time based flush). It is
+    // checked on next persist/merge/remove, not by a timer, so pending
+    // operations of an idle EntityManager wait for its flush, commit or close.
+    /** The Constant KUNDERA_BATCH_FLUSH_INTERVAL. */
+    public static final String KUNDERA_BATCH_FLUSH_INTERVAL = "kundera.batch.flush.interval";
+
+    // Whether relations with FetchType.LAZY (JPA default for one-to-many and
+    // many-to-many) are read through proxies on first access, rather than
+    // along with their entity (false by default).
+    /** The Constant KUNDERA_LAZY_LOADING. */
+    public static final String KUNDERA_LAZY_LOADING = "kundera.lazy.loading";
+
+    // Maximum time in milliseconds Lucene searches may lag behind index
+    // writes (0 means searcher is reopened on every search after a write).
+    /** The Constant KUNDERA_INDEX_REFRESH_INTERVAL. */
+    public static final String KUNDERA_INDEX_REFRESH_INTERVAL = "kundera.index.refresh.interval";
+
+    // Lucene index directory type: ram (default, index held in heap and copied
+    // to index_home_dir on commit), mmap, niofs or fs (index opened in place
+    // at index_home_dir).
+    /** The Constant KUNDERA_INDEX_DIRECTORY. */
+    public static final String KUNDERA_INDEX_DIRECTORY = "kundera.index.directory";
+
+    // Interval in milliseconds at which pending index changes are committed
+    // by a background thread (0 means they're committed on flush).
+    /** The Constant KUNDERA_INDEX_COMMIT_INTERVAL. */
+    public static final String KUNDERA_INDEX_COMMIT_INTERVAL = "kundera.index.commit.interval";
+
+    // RAM buffer size in MB for documents added to Lucene index before they
+    // are written to the directory.
+    /** The Constant KUNDERA_INDEX_RAM_BUFFER_SIZE. */
+    public static final String KUNDERA_INDEX_RAM_BUFFER_SIZE = "kundera.index.ram.buffer.size";
+
+    // Whether entities are indexed in a separate Lucene index per index name,
+    // each with its own writer, under index_home_dir (true/false).
+    /** The Constant KUNDERA_INDEX_SHARDED. */
+    public static final String KUNDERA_INDEX_SHARDED = "kundera.index.sharded";
+
+    // Consistency level of reads from Cassandra: a level name, e.g. ONE,
+    // QUORUM or ALL, or SPECULATIVE (rows are read at ONE and verified at
+    // QUORUM in the background). May be overridden per EntityManager property
+    // or query hint of the same name.
+    /** The Constant KUNDERA_READ_CONSISTENCY. */
+    public static final String KUNDERA_READ_CONSISTENCY = "kundera.read.consistency";
+
+    // Consistency level of writes to Cassandra, e.g. ANY, ONE, QUORUM or ALL.
+    // May be overridden per EntityManager property or query hint of the same
+    // name.
+    /** The Constant KUNDERA_WRITE_CONSISTENCY. */
+    public static final String KUNDERA_WRITE_CONSISTENCY = "kundera.write.consistency";
+
+    // Query hint telling whether ids returned by query are cached (true/false).
+    // Queries on @Cacheable entities are cached unless hinted otherwise.
+    /** The Constant KUNDERA_QUERY_CACHE. */
+    public static final String KUNDERA_QUERY_CACHE = "kundera.query.cache";
+
+    // Maximum number of query results cached per EntityManagerFactory
+    // (default 1000, 0 disables query result cache).
+    /** The Constant KUNDERA_QUERY_CACHE_SIZE. */
+    public static final String KUNDERA_QUERY_CACHE_SIZE = "kundera.query.cache.size";
+
+    // Time in milliseconds query results are cached for (default 60000).
+    /** The Constant KUNDERA_QUERY_CACHE_TTL. */
+    public static final String KUNDERA_QUERY_CACHE_TTL = "kundera.query.cache.ttl";
 }
@@ -50,4 +50,27 @@ public interface Cache extends javax.persistence.Cache
      */
     void put(Object key, Object value);
 
+    /**
+     * Get an entity from cache region of its class.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param key
+     *            the key
+     * @return the object
+     */
+    Object get(Class<?> entityClass, Object key);
+
+    /**
+     * Add an entity to cache region of its class.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    void put(Class<?> entityClass, Object key, Object value);
+
 }
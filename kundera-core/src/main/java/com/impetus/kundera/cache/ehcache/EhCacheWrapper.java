@@ -15,14 +15,19 @@
  ******************************************************************************/
 package com.impetus.kundera.cache.ehcache;
 
-import net.sf.ehcache.Element;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-import org.apache.commons.lang.NotImplementedException;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.Element;
 
 import com.impetus.kundera.cache.Cache;
 
 /**
- * Cache implementation using Ehcache.
+ * Cache implementation using Ehcache. Entities of a class are held in a region
+ * of their own if ehcache configuration declares a cache named after the
+ * fully qualified class name, so that its size and expiry can be tuned per
+ * entity, and in the wrapped cache otherwise.
  * 
  * @author animesh.kumar
  */
@@ -32,6 +37,9 @@ public class EhCacheWrapper implements Cache
     /** The ehcache. */
     private net.sf.ehcache.Cache ehcache;
 
+    /** Cache region per entity class, the wrapped cache if none is configured. */
+    private Map<Class<?>, net.sf.ehcache.Cache> regions = new ConcurrentHashMap<Class<?>, net.sf.ehcache.Cache>();
+
     /**
      * Instantiates a new eh cache wrapper.
      * 
@@ -72,6 +80,31 @@ public class EhCacheWrapper implements Cache
         ehcache.put(new Element(key, value));
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#get(java.lang.Class,
+     * java.lang.Object)
+     */
+    @Override
+    public Object get(Class<?> entityClass, Object key)
+    {
+        Element element = getRegion(entityClass).get(key);
+        return element == null ? null : element.getObjectValue();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.cache.Cache#put(java.lang.Class,
+     * java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public void put(Class<?> entityClass, Object key, Object value)
+    {
+        getRegion(entityClass).put(new Element(key, value));
+    }
+
     /* @see com.impetus.kundera.cache.Cache#size() */
     /*
      * (non-Javadoc)
@@ -81,7 +114,15 @@ public class EhCacheWrapper implements Cache
     @Override
     public int size()
     {
-        return ehcache.getSize();
+        int size = ehcache.getSize();
+        for (net.sf.ehcache.Cache region : regions.values())
+        {
+            if (region != ehcache)
+            {
+                size += region.getSize();
+            }
+        }
+        return size;
     }
 
     /*
@@ -92,7 +133,7 @@ public class EhCacheWrapper implements Cache
     @Override
     public boolean contains(Class arg0, Object arg1)
     {
-        return (ehcache.get(arg1) != null);
+        return (getRegion(arg0).get(arg1) != null);
     }
 
     /*
@@ -103,8 +144,23 @@ public class EhCacheWrapper implements Cache
     @Override
     public void evict(Class arg0)
     {
-        // TODO Can we use Class with ehcache
-        throw new NotImplementedException("TODO");
+        net.sf.ehcache.Cache region = getRegion(arg0);
+        if (region != ehcache)
+        {
+            region.removeAll();
+            return;
+        }
+
+        // Entities of classes without a region of their own share wrapped
+        // cache, they're told apart by their values
+        for (Object key : ehcache.getKeys())
+        {
+            Element element = ehcache.getQuiet(key);
+            if (element != null && arg0.isInstance(element.getObjectValue()))
+            {
+                ehcache.remove(key);
+            }
+        }
     }
 
     /*
@@ -115,8 +171,7 @@ public class EhCacheWrapper implements Cache
     @Override
     public void evict(Class arg0, Object arg1)
     {
-        // TODO Can we use Class with ehcache
-        ehcache.remove(arg1);
+        getRegion(arg0).remove(arg1);
     }
 
     /*
@@ -128,6 +183,33 @@ public class EhCacheWrapper implements Cache
     public void evictAll()
     {
         ehcache.removeAll();
+        for (net.sf.ehcache.Cache region : regions.values())
+        {
+            if (region != ehcache)
+            {
+                region.removeAll();
+            }
+        }
+    }
+
+    /**
+     * Gets cache region of given entity class.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @return cache configured under class name, or the wrapped cache
+     */
+    private net.sf.ehcache.Cache getRegion(Class<?> entityClass)
+    {
+        net.sf.ehcache.Cache region = regions.get(entityClass);
+        if (region == null)
+        {
+            CacheManager manager = ehcache.getCacheManager();
+            region = manager != null && !entityClass.getName().equals(ehcache.getName())
+                    && manager.cacheExists(entityClass.getName()) ? manager.getCache(entityClass.getName()) : ehcache;
+            regions.put(entityClass, region);
+        }
+        return region;
     }
 
 }
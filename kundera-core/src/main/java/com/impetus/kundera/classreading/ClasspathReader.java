@@ -16,8 +16,6 @@
 package com.impetus.kundera.classreading;
 
 import java.io.File;
-import java.io.IOException;
-import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
@@ -65,27 +63,18 @@ public class ClasspathReader extends Reader
         this.classesToScan = classesToScan;
     }
 
+    /**
+     * Scans jars and directories in parallel and notifies listeners of
+     * annotated classes found, in order of resources.
+     */
     @Override
     public final void read()
     {
-        URL[] resources = findResources();
-        for (URL resource : resources)
+        for (String className : scanResources(findResources()))
         {
-
-            try
-            {
-                ResourceIterator itr = getResourceIterator(resource, getFilter());
-
-                InputStream is = null;
-                while ((is = itr.next()) != null)
-                {
-                    scanClass(is);
-                }
-            }
-            catch (IOException e)
+            for (AnnotationDiscoveryListener listener : getAnnotationDiscoveryListeners())
             {
-                logger.error(e.getMessage());
-                throw new ResourceReadingException(e);
+                listener.discovered(className);
             }
         }
     }
@@ -15,7 +15,8 @@
  ******************************************************************************/
 package com.impetus.kundera.classreading;
 
-import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.File;
 import java.io.IOException;
@@ -24,6 +25,12 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javassist.bytecode.AnnotationsAttribute;
 import javassist.bytecode.ClassFile;
@@ -40,6 +47,9 @@ public abstract class Reader
     /** The valid annotations. */
     private List<String> validAnnotations = new ArrayList<String>();
 
+    /** Valid annotations as class file descriptors, built on first scan. */
+    private volatile byte[][] annotationDescriptors;
+
     /** The annotation discovery listeners. */
     private List<AnnotationDiscoveryListener> annotationDiscoveryListeners = new ArrayList<AnnotationDiscoveryListener>();
 
@@ -61,39 +71,326 @@ public abstract class Reader
      */
     public void scanClass(InputStream bits) throws IOException
     {
-        DataInputStream dstream = new DataInputStream(new BufferedInputStream(bits));
-        ClassFile cf = null;
-        try
+        String className = getAnnotatedClassName(bits);
+        if (className != null)
         {
-            cf = new ClassFile(dstream);
+            // fire all listeners
+            for (AnnotationDiscoveryListener listener : getAnnotationDiscoveryListeners())
+            {
+                listener.discovered(className);
+            }
+        }
+    }
 
-            String className = cf.getName();
-            List<String> annotations = new ArrayList<String>();
+    /**
+     * Scans given resources in parallel, one jar or directory per task, and
+     * returns names of classes having any of valid annotations, in order of
+     * resources.
+     * 
+     * @param resources
+     *            the resources
+     * @return the annotated class names
+     */
+    public List<String> scanResources(URL[] resources)
+    {
+        List<String> classNames = new ArrayList<String>();
+        if (resources == null || resources.length == 0)
+        {
+            return classNames;
+        }
 
-            accumulateAnnotations(annotations, (AnnotationsAttribute) cf.getAttribute(AnnotationsAttribute.visibleTag));
-            accumulateAnnotations(annotations,
-                    (AnnotationsAttribute) cf.getAttribute(AnnotationsAttribute.invisibleTag));
+        int threads = Math.min(resources.length, Runtime.getRuntime().availableProcessors());
+        if (threads <= 1)
+        {
+            for (URL resource : resources)
+            {
+                classNames.addAll(scanResource(resource));
+            }
+            return classNames;
+        }
 
-            // iterate through all valid annotations
-            for (String validAnn : getValidAnnotations())
+        ExecutorService scanner = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "kundera-classpath-scanner");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try
+        {
+            List<Future<List<String>>> results = new ArrayList<Future<List<String>>>(resources.length);
+            for (final URL resource : resources)
             {
-                // check if the current class has one?
-                if (annotations.contains(validAnn))
+                results.add(scanner.submit(new Callable<List<String>>()
                 {
-                    // fire all listeners
-                    for (AnnotationDiscoveryListener listener : getAnnotationDiscoveryListeners())
+                    @Override
+                    public List<String> call()
                     {
-                        listener.discovered(className);
+                        return scanResource(resource);
                     }
+                }));
+            }
+            for (Future<List<String>> result : results)
+            {
+                classNames.addAll(result.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ResourceReadingException(e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new ResourceReadingException(e.getCause());
+        }
+        finally
+        {
+            scanner.shutdownNow();
+        }
+        return classNames;
+    }
+
+    /**
+     * Scans classes of a jar or directory and returns names of those having
+     * any of valid annotations.
+     * 
+     * @param resource
+     *            the resource
+     * @return the annotated class names
+     */
+    public List<String> scanResource(URL resource)
+    {
+        List<String> classNames = new ArrayList<String>();
+        ResourceIterator itr = getResourceIterator(resource, getFilter());
+        try
+        {
+            InputStream is = null;
+            while ((is = itr.next()) != null)
+            {
+                String className = getAnnotatedClassName(is);
+                if (className != null)
+                {
+                    classNames.add(className);
                 }
             }
+        }
+        catch (IOException e)
+        {
+            throw new ResourceReadingException(e);
+        }
+        finally
+        {
+            itr.close();
+        }
+        return classNames;
+    }
 
+    /**
+     * Reads a class file and returns its class name if it has any of valid
+     * annotations. Class files not referring to any of them in their constant
+     * pool are skipped without being parsed.
+     * 
+     * @param bits
+     *            the bits
+     * @return the class name, null if class isn't annotated
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    public String getAnnotatedClassName(InputStream bits) throws IOException
+    {
+        byte[] classBytes;
+        try
+        {
+            classBytes = readFully(bits);
         }
         finally
         {
-            dstream.close();
             bits.close();
         }
+
+        if (!isCandidate(classBytes))
+        {
+            return null;
+        }
+
+        ClassFile cf = new ClassFile(new DataInputStream(new ByteArrayInputStream(classBytes)));
+        List<String> annotations = new ArrayList<String>();
+        accumulateAnnotations(annotations, (AnnotationsAttribute) cf.getAttribute(AnnotationsAttribute.visibleTag));
+        accumulateAnnotations(annotations, (AnnotationsAttribute) cf.getAttribute(AnnotationsAttribute.invisibleTag));
+
+        // check if the current class has any of valid annotations
+        for (String validAnn : getValidAnnotations())
+        {
+            if (annotations.contains(validAnn))
+            {
+                return cf.getName();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether constant pool of a class file has descriptor of any of
+     * valid annotations, which it must have if class is annotated with it.
+     * Malformed class files are left to class file parser to reject.
+     * 
+     * @param classBytes
+     *            the class bytes
+     * @return true, if class may have any of valid annotations
+     */
+    protected boolean isCandidate(byte[] classBytes)
+    {
+        byte[][] descriptors = getAnnotationDescriptors();
+        try
+        {
+            // Skip magic and version
+            int pos = 8;
+            int count = readUnsignedShort(classBytes, pos);
+            pos += 2;
+            for (int i = 1; i < count; i++)
+            {
+                int tag = classBytes[pos++] & 0xFF;
+                switch (tag)
+                {
+                case 1: // Utf8
+                    int length = readUnsignedShort(classBytes, pos);
+                    pos += 2;
+                    for (byte[] descriptor : descriptors)
+                    {
+                        if (equals(classBytes, pos, length, descriptor))
+                        {
+                            return true;
+                        }
+                    }
+                    pos += length;
+                    break;
+                case 7: // Class
+                case 8: // String
+                case 16: // MethodType
+                    pos += 2;
+                    break;
+                case 15: // MethodHandle
+                    pos += 3;
+                    break;
+                case 3: // Integer
+                case 4: // Float
+                case 9: // Fieldref
+                case 10: // Methodref
+                case 11: // InterfaceMethodref
+                case 12: // NameAndType
+                case 18: // InvokeDynamic
+                    pos += 4;
+                    break;
+                case 5: // Long
+                case 6: // Double
+                    pos += 8;
+                    // Takes two entries
+                    i++;
+                    break;
+                default:
+                    return true;
+                }
+            }
+            return false;
+        }
+        catch (ArrayIndexOutOfBoundsException e)
+        {
+            return true;
+        }
+    }
+
+    /**
+     * Gets valid annotations as class file descriptors, i.e. of the form
+     * "Ljavax/persistence/Entity;".
+     * 
+     * @return the annotation descriptors
+     */
+    private byte[][] getAnnotationDescriptors()
+    {
+        byte[][] descriptors = annotationDescriptors;
+        if (descriptors == null)
+        {
+            List<String> annotations = getValidAnnotations();
+            descriptors = new byte[annotations.size()][];
+            for (int i = 0; i < descriptors.length; i++)
+            {
+                descriptors[i] = ("L" + annotations.get(i).replace('.', '/') + ";").getBytes();
+            }
+            annotationDescriptors = descriptors;
+        }
+        return descriptors;
+    }
+
+    /**
+     * Reads an unsigned 2 byte number.
+     * 
+     * @param bytes
+     *            the bytes
+     * @param pos
+     *            the pos
+     * @return the number
+     */
+    private static int readUnsignedShort(byte[] bytes, int pos)
+    {
+        return ((bytes[pos] & 0xFF) << 8) | (bytes[pos + 1] & 0xFF);
+    }
+
+    /**
+     * Compares a range of bytes with given bytes.
+     * 
+     * @param bytes
+     *            the bytes
+     * @param pos
+     *            the pos
+     * @param length
+     *            the length
+     * @param other
+     *            the other
+     * @return true, if equal
+     */
+    private static boolean equals(byte[] bytes, int pos, int length, byte[] other)
+    {
+        if (length != other.length)
+        {
+            return false;
+        }
+        for (int i = 0; i < length; i++)
+        {
+            if (bytes[pos + i] != other[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads a stream till its end.
+     * 
+     * @param is
+     *            the is
+     * @return the bytes
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static byte[] readFully(InputStream is) throws IOException
+    {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = is.read(buffer)) != -1)
+        {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
     }
 
     // helper method to accumulate annotations.
@@ -198,6 +495,7 @@ public abstract class Reader
     public void addValidAnnotations(String annotation)
     {
         this.validAnnotations.add(annotation);
+        this.annotationDescriptors = null;
     }
 
     /**
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.client;
+
+import com.impetus.kundera.graph.Node;
+
+/**
+ * Optional batch persist SPI for {@link Client} implementations. Clients
+ * implementing it receive every dirty managed node of a flush through
+ * {@link #addBatch(Node)} and write them all to the datastore in one go on
+ * {@link #executeBatch()}. Clients that don't implement it are flushed node by
+ * node through {@link Client#persist(Node)}.
+ *
+ * @author agent
+ */
+public interface Batcher
+{
+
+    /**
+     * Adds a node to the current batch. Invoked in flush stack order, so link
+     * values of already flushed nodes are available to the node being added.
+     *
+     * @param node
+     *            the node
+     */
+    void addBatch(Node node);
+
+    /**
+     * Writes all nodes added since the last execution to the datastore and
+     * clears the batch.
+     *
+     * @return the number of nodes written
+     */
+    int executeBatch();
+
+    /**
+     * Gets the number of nodes waiting in the current batch.
+     *
+     * @return the batch size
+     */
+    int getBatchSize();
+
+    /**
+     * Discards all nodes waiting in the current batch.
+     */
+    void clear();
+}
@@ -16,6 +16,7 @@
 package com.impetus.kundera.client;
 
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -24,6 +25,7 @@ import com.impetus.kundera.graph.Node;
 import com.impetus.kundera.graph.NodeLink;
 import com.impetus.kundera.graph.NodeLink.LinkProperty;
 import com.impetus.kundera.index.IndexManager;
+import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.Relation;
 import com.impetus.kundera.metadata.model.Relation.ForeignKey;
@@ -134,4 +136,55 @@ public class ClientBase
         // indexManager.update(entityMetadata, node.getData(), null, null);
     }
 
+    /**
+     * Indexes nodes written in a batch. Nodes not linked to any other node are
+     * indexed in bulk per entity, others are indexed one by one along with
+     * their parent keys.
+     * 
+     * @param nodes
+     *            the nodes
+     * @param indexManager
+     *            the index manager
+     */
+    protected void indexNodes(List<Node> nodes, IndexManager indexManager)
+    {
+        Map<EntityMetadata, List<Object>> entities = new LinkedHashMap<EntityMetadata, List<Object>>();
+        for (Node node : nodes)
+        {
+            EntityMetadata entityMetadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+            if (isLinked(node))
+            {
+                indexNode(node, entityMetadata, indexManager);
+            }
+            else
+            {
+                List<Object> entityList = entities.get(entityMetadata);
+                if (entityList == null)
+                {
+                    entityList = new ArrayList<Object>();
+                    entities.put(entityMetadata, entityList);
+                }
+                entityList.add(node.getData());
+            }
+        }
+
+        for (EntityMetadata entityMetadata : entities.keySet())
+        {
+            indexManager.writeAll(entityMetadata, entities.get(entityMetadata));
+        }
+    }
+
+    /**
+     * Checks whether node has any parent or child node.
+     * 
+     * @param node
+     *            the node
+     * @return true, if is linked
+     */
+    private boolean isLinked(Node node)
+    {
+        return (node.getParents() != null && !node.getParents().isEmpty())
+                || (node.getChildren() != null && !node.getChildren().isEmpty());
+    }
+
 }
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.client;
+
+import java.util.Map;
+
+/**
+ * Optional SPI for {@link Client} implementations whose settings, e.g.
+ * consistency levels, may be overridden per EntityManager (through its
+ * properties) or per query (through its hints).
+ *
+ * @author agent
+ */
+public interface Configurable
+{
+
+    /**
+     * Applies EntityManager properties and query hints to the client. Given
+     * properties override persistence unit settings of the same name, settings
+     * not present in the map are reset to their persistence unit values.
+     *
+     * @param properties
+     *            the properties, never null
+     */
+    void setProperties(Map<String, Object> properties);
+}
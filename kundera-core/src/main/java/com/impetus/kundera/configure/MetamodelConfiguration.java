@@ -15,18 +15,17 @@
  ******************************************************************************/
 package com.impetus.kundera.configure;
 
-import java.io.BufferedInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
-import java.io.InputStream;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
-import javassist.bytecode.AnnotationsAttribute;
-import javassist.bytecode.ClassFile;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.persistence.Entity;
 import javax.persistence.metamodel.Metamodel;
@@ -36,7 +35,6 @@ import org.slf4j.LoggerFactory;
 
 import com.impetus.kundera.classreading.ClasspathReader;
 import com.impetus.kundera.classreading.Reader;
-import com.impetus.kundera.classreading.ResourceIterator;
 import com.impetus.kundera.loader.MetamodelLoaderException;
 import com.impetus.kundera.metadata.MetadataBuilder;
 import com.impetus.kundera.metadata.model.ApplicationMetadata;
@@ -180,26 +178,9 @@ class MetamodelConfiguration implements Configuration
         Map<String, List<String>> puToClazzMap = new HashMap<String, List<String>>();
         if (resources != null)
         {
-            for (URL resource : resources)
-            {
-                try
-                {
-                    ResourceIterator itr = reader.getResourceIterator(resource, reader.getFilter());
-
-                    InputStream is = null;
-                    while ((is = itr.next()) != null)
-                    {
-                        scanClassAndPutMetadata(is, reader, entityMetadataMap, entityNameToClassMap, persistenceUnit,
-                                client, puToClazzMap);
-                    }
-                }
-                catch (IOException e)
-                {
-                    log.error("Error while retreiving and storing entity metadata. Details:" + e.getMessage());
-                    throw new MetamodelLoaderException("Error while retreiving and storing entity metadata");
-
-                }
-            }
+            // Jars and directories are scanned in parallel
+            List<String> classNames = reader.scanResources(resources);
+            putMetadata(classNames, entityMetadataMap, entityNameToClassMap, persistenceUnit, client, puToClazzMap);
         }
         ((MetamodelImpl) metamodel).setEntityMetadataMap(entityMetadataMap);
         appMetadata.getMetamodelMap().put(persistenceUnit, metamodel);
@@ -207,97 +188,150 @@ class MetamodelConfiguration implements Configuration
     }
 
     /**
-     * Scan class and put metadata.
+     * Loads entity classes and puts their metadata, building metadata of
+     * different classes concurrently.
      * 
-     * @param bits
-     *            the bits
-     * @param reader
-     *            the reader
+     * @param classNames
+     *            names of classes annotated with @Entity
      * @param entityMetadataMap
      *            the entity metadata map
      * @param entityNameToClassMap
      *            the entity name to class map
-     * @param persistence
-     *            unit the persistence unit.
-     * @throws IOException
-     *             Signals that an I/O exception has occurred.
+     * @param persistenceUnit
+     *            the persistence unit
+     * @param client
+     *            the client
+     * @param clazzToPuMap
+     *            the clazz to pu map
      */
-    private void scanClassAndPutMetadata(InputStream bits, Reader reader,
-            Map<Class<?>, EntityMetadata> entityMetadataMap, Map<String, Class<?>> entityNameToClassMap,
-            String persistenceUnit, String client, Map<String, List<String>> clazzToPuMap) throws IOException
+    private void putMetadata(List<String> classNames, Map<Class<?>, EntityMetadata> entityMetadataMap,
+            Map<String, Class<?>> entityNameToClassMap, String persistenceUnit, String client,
+            Map<String, List<String>> clazzToPuMap)
     {
-        DataInputStream dstream = new DataInputStream(new BufferedInputStream(bits));
-        ClassFile cf = null;
-        String className = null;
-
-        try
+        List<Class<?>> classes = new ArrayList<Class<?>>(classNames.size());
+        for (String className : classNames)
         {
-            cf = new ClassFile(dstream);
+            Class<?> clazz;
+            try
+            {
+                clazz = Class.forName(className);
+            }
+            catch (ClassNotFoundException e)
+            {
+                log.error("Class " + className + " not found, it won't be loaded as entity");
+                continue;
+            }
 
-            className = cf.getName();
-            List<String> annotations = new ArrayList<String>();
+            if (entityNameToClassMap.containsKey(clazz.getSimpleName()))
+            {
+                throw new MetamodelLoaderException("Name conflict between classes "
+                        + entityNameToClassMap.get(clazz.getSimpleName()).getName() + " and " + clazz.getName()
+                        + ". Make sure no two entity classes with the same name "
+                        + " are specified for persistence unit " + persistenceUnit);
+            }
 
-            reader.accumulateAnnotations(annotations,
-                    (AnnotationsAttribute) cf.getAttribute(AnnotationsAttribute.visibleTag));
-            reader.accumulateAnnotations(annotations,
-                    (AnnotationsAttribute) cf.getAttribute(AnnotationsAttribute.invisibleTag));
+            // This is required just to keep hibernate happy.
+            // As somehow it complains for lazily loading of entities
+            // while building session factory.
+            entityNameToClassMap.put(clazz.getSimpleName(), clazz);
 
-            // iterate through all valid annotations
-            for (String validAnn : reader.getValidAnnotations())
+            if (!entityMetadataMap.containsKey(clazz))
             {
-                // check if the current class has one?
-                if (annotations.contains(validAnn))
-                {
-                    Class<?> clazz = Class.forName(className);
-
-                    if (entityNameToClassMap.containsKey(clazz.getSimpleName()))
-                    {
-                        throw new MetamodelLoaderException("Name conflict between classes "
-                                + entityNameToClassMap.get(clazz.getSimpleName()).getName() + " and " + clazz.getName()
-                                + ". Make sure no two entity classes with the same name "
-                                + " are specified for persistence unit " + persistenceUnit);
-                    }
+                log.debug("Metadata not found in cache for " + clazz.getName());
+                classes.add(clazz);
+            }
+        }
 
-                    // This is required just to keep hibernate happy.
-                    // As somehow it complains for lazily loading of entities
-                    // while building session factory.
+        List<EntityMetadata> metadatas = buildMetadata(classes, persistenceUnit, client);
+        for (int i = 0; i < classes.size(); i++)
+        {
+            // in case entity's pu does not belong to parse persistence unit,
+            // it will be null.
+            EntityMetadata metadata = metadatas.get(i);
+            if (metadata != null)
+            {
+                entityMetadataMap.put(classes.get(i), metadata);
+                mapClazztoPu(classes.get(i), persistenceUnit, clazzToPuMap);
+            }
+        }
+    }
 
-                    entityNameToClassMap.put(clazz.getSimpleName(), clazz);
+    /**
+     * Builds metadata of given entity classes, in parallel if there are more
+     * than one.
+     * 
+     * @param classes
+     *            the classes
+     * @param persistenceUnit
+     *            the persistence unit
+     * @param client
+     *            the client
+     * @return metadata of classes in same order, null for those not belonging
+     *         to persistence unit
+     */
+    private List<EntityMetadata> buildMetadata(List<Class<?>> classes, final String persistenceUnit,
+            final String client)
+    {
+        List<EntityMetadata> metadatas = new ArrayList<EntityMetadata>(classes.size());
+        int threads = Math.min(classes.size(), Runtime.getRuntime().availableProcessors());
+        if (threads <= 1)
+        {
+            MetadataBuilder metadataBuilder = new MetadataBuilder(persistenceUnit, client);
+            for (Class<?> clazz : classes)
+            {
+                metadatas.add(metadataBuilder.buildEntityMetadata(clazz));
+            }
+            return metadatas;
+        }
 
-                    EntityMetadata metadata = entityMetadataMap.get(clazz);
-                    if (null == metadata)
+        ExecutorService builder = Executors.newFixedThreadPool(threads, new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "kundera-metadata-builder");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        try
+        {
+            List<Future<EntityMetadata>> results = new ArrayList<Future<EntityMetadata>>(classes.size());
+            for (final Class<?> clazz : classes)
+            {
+                results.add(builder.submit(new Callable<EntityMetadata>()
+                {
+                    @Override
+                    public EntityMetadata call()
                     {
-                        log.debug("Metadata not found in cache for " + clazz.getName());
-                        // double check locking.
-                        synchronized (clazz)
-                        {
-                            if (null == metadata)
-                            {
-                                MetadataBuilder metadataBuilder = new MetadataBuilder(persistenceUnit, client);
-                                metadata = metadataBuilder.buildEntityMetadata(clazz);
-
-                                // in case entity's pu does not belong to parse
-                                // persistence unit, it will be null.
-                                if (metadata != null)
-                                {
-                                    entityMetadataMap.put(clazz, metadata);
-                                    mapClazztoPu(clazz, persistenceUnit, clazzToPuMap);
-                                }
-                            }
-                        }
+                        return new MetadataBuilder(persistenceUnit, client).buildEntityMetadata(clazz);
                     }
-                }
+                }));
             }
+            for (Future<EntityMetadata> result : results)
+            {
+                metadatas.add(result.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new MetamodelLoaderException(e);
         }
-        catch (ClassNotFoundException e)
+        catch (ExecutionException e)
         {
-            log.error("Class " + className + " not found, it won't be loaded as entity");
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            log.error("Error while building entity metadata. Details:" + e.getCause().getMessage());
+            throw new MetamodelLoaderException(e.getCause());
         }
         finally
         {
-            dstream.close();
-            bits.close();
+            builder.shutdownNow();
         }
+        return metadatas;
     }
 
     /**
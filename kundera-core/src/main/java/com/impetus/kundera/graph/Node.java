@@ -60,6 +60,10 @@ public class Node implements NodeStateContext
     // Whether this is a head node
     private boolean isHeadNode;
 
+    // Column values of node data when it was put into persistence cache,
+    // for dirty checking
+    private Object[] snapshot;
+
     /** Client for this node */
     Client client;
 
@@ -344,6 +348,23 @@ public class Node implements NodeStateContext
         this.dirty = dirty;
     }
 
+    /**
+     * @return the snapshot
+     */
+    public Object[] getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * @param snapshot
+     *            the snapshot to set
+     */
+    public void setSnapshot(Object[] snapshot)
+    {
+        this.snapshot = snapshot;
+    }
+
     /**
      * @return the client
      */
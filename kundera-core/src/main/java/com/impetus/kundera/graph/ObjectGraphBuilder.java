@@ -21,6 +21,7 @@ import java.util.Map;
 
 import com.impetus.kundera.Constants;
 import com.impetus.kundera.graph.NodeLink.LinkProperty;
+import com.impetus.kundera.lifecycle.states.ManagedState;
 import com.impetus.kundera.lifecycle.states.NodeState;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.MetadataUtils;
@@ -28,8 +29,9 @@ import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.Relation;
 import com.impetus.kundera.persistence.context.PersistenceCache;
 import com.impetus.kundera.property.PropertyAccessorHelper;
-import com.impetus.kundera.utils.DeepEquals;
-import com.impetus.kundera.utils.ObjectUtils;
+import com.impetus.kundera.proxy.KunderaProxy;
+import com.impetus.kundera.proxy.LazyInitializer;
+import com.impetus.kundera.utils.EntitySnapshot;
 
 /**
  * Responsible for generating {@link ObjectGraph} of nodes from a given entity
@@ -67,6 +69,16 @@ public class ObjectGraphBuilder
      */
     private Node getNode(Object entity, ObjectGraph graph, NodeState initialNodeState)
     {
+        if (entity instanceof KunderaProxy)
+        {
+            LazyInitializer initializer = ((KunderaProxy) entity).getKunderaLazyInitializer();
+            if (initializer.isUninitialized())
+            {
+                return getReferenceNode(initializer, graph);
+            }
+            entity = initializer.getImplementation();
+        }
+
         EntityMetadata entityMetadata = KunderaMetadataManager.getEntityMetadata(entity.getClass());
         if (entityMetadata == null)
         {
@@ -91,30 +103,24 @@ public class ObjectGraphBuilder
         Node node = null;
         Node nodeInPersistenceCache = persistenceCache.getMainCache().getNodeFromCache(nodeId);
 
-        // Make a deep copy of entity data
-        Object nodeDataCopy = ObjectUtils.deepCopy(entity);
-
         if (nodeInPersistenceCache == null)
         {
-            node = new Node(nodeId, nodeDataCopy, initialNodeState, persistenceCache);
+            node = new Node(nodeId, entity, initialNodeState, persistenceCache);
 
         }
         else
         {
             node = nodeInPersistenceCache;
 
-            // Determine whether this node is dirty based on comparison between
-            // Node data and entity data
-            // If dirty, set the entity data into node and mark it as dirty
-            if (!DeepEquals.deepEquals(node.getData(), entity))
+            // Determine whether this node is dirty by comparing entity data
+            // with snapshot of node data taken when it was cached.
+            // If dirty, set the entity data into node and mark it as dirty.
+            // A node already dirty stays so until it's flushed.
+            if (EntitySnapshot.isModified(entityMetadata, entity, node.getSnapshot()))
             {
-                node.setData(nodeDataCopy);
+                node.setData(entity);
                 node.setDirty(true);
             }
-            else
-            {
-                node.setDirty(false);
-            }
 
             // If node is NOT in managed state, its data needs to be
             // replaced with the one provided in entity object
@@ -135,6 +141,14 @@ public class ObjectGraphBuilder
             // Child Object set in this entity
             Object childObject = PropertyAccessorHelper.getObject(entity, relation.getProperty());
 
+            // Collection not read yet has no changes to be cascaded
+            if (childObject instanceof KunderaProxy
+                    && ((KunderaProxy) childObject).getKunderaLazyInitializer().isUninitialized()
+                    && PropertyAccessorHelper.isCollection(relation.getProperty().getType()))
+            {
+                continue;
+            }
+
             if (childObject != null)
             {
                 // This child object could be either an entity(1-1 or M-1) or a
@@ -166,6 +180,34 @@ public class ObjectGraphBuilder
         return node;
     }
 
+    /**
+     * Constructs node of an entity referred to by a proxy not initialized yet.
+     * Node holds no entity data and isn't traversed any further, it links
+     * entity to its parent so that relation is written when parent is.
+     * 
+     * @param initializer
+     *            lazy initializer of proxy
+     * @param graph
+     *            the graph
+     * @return the node, null if already there in graph
+     */
+    private Node getReferenceNode(LazyInitializer initializer, ObjectGraph graph)
+    {
+        String nodeId = getNodeId(initializer.getIdentifier(), initializer.getPersistentClass());
+        if (graph.getNode(nodeId) != null)
+        {
+            return null;
+        }
+
+        Node node = persistenceCache.getMainCache().getNodeFromCache(nodeId);
+        if (node == null)
+        {
+            node = new Node(nodeId, initializer.getPersistentClass(), new ManagedState(), persistenceCache);
+        }
+        graph.addNode(nodeId, node);
+        return node;
+    }
+
     /**
      * @param graph
      * @param node
@@ -23,6 +23,7 @@ import org.apache.lucene.analysis.Tokenizer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.document.Field;
 import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.Fieldable;
 import org.apache.lucene.util.Version;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -147,10 +148,11 @@ public abstract class DocumentIndexer implements Indexer
     {
         if (parentId != null)
         {
-            Field luceneField = new Field(PARENT_ID_FIELD, parentId, Field.Store.YES, Field.Index.ANALYZED_NO_NORMS);
+            Field luceneField = new Field(PARENT_ID_FIELD, parentId, Field.Store.YES,
+                    Field.Index.NOT_ANALYZED_NO_NORMS);
             currentDoc.add(luceneField);
             Field fieldClass = new Field(PARENT_ID_CLASS, clazz.getCanonicalName().toLowerCase(), Field.Store.YES,
-                    Field.Index.ANALYZED);
+                    Field.Index.NOT_ANALYZED_NO_NORMS);
             currentDoc.add(fieldClass);
         }
     }
@@ -172,7 +174,30 @@ public abstract class DocumentIndexer implements Indexer
     protected void indexSuperColumn(EntityMetadata metadata, Object object, Document currentDoc, Object embeddedObject,
             EmbeddedColumn superColumn)
     {
+        addSuperColumnFieldsToDocument(metadata, object, currentDoc, embeddedObject, superColumn);
 
+        // Store document into Index
+        indexDocument(metadata, currentDoc);
+
+    }
+
+    /**
+     * Adds super column and entity fields to document, without storing it.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param object
+     *            the object
+     * @param currentDoc
+     *            the current doc
+     * @param embeddedObject
+     *            the embedded object
+     * @param superColumn
+     *            the super column
+     */
+    protected void addSuperColumnFieldsToDocument(EntityMetadata metadata, Object object, Document currentDoc,
+            Object embeddedObject, EmbeddedColumn superColumn)
+    {
         // Add all super column fields into document
         for (Column col : superColumn.getColumns())
         {
@@ -183,10 +208,6 @@ public abstract class DocumentIndexer implements Indexer
         }
         // Add all entity fields to document
         addEntityFieldsToDocument(metadata, object, currentDoc);
-
-        // Store document into Index
-        indexDocument(metadata, currentDoc);
-
     }
 
     /**
@@ -244,23 +265,24 @@ public abstract class DocumentIndexer implements Indexer
             Field luceneField;
             String id;
             id = PropertyAccessorHelper.getId(object, metadata);
-            luceneField = new Field(ENTITY_ID_FIELD, id, Field.Store.YES, Field.Index.ANALYZED);
+            // ids and class names are indexed as single terms, to be matched
+            // exactly
+            luceneField = new Field(ENTITY_ID_FIELD, id, Field.Store.YES, Field.Index.NOT_ANALYZED_NO_NORMS);
             // luceneField.set
             // adding class
             // namespace
             // /*Field.Store.YES, Field.Index.ANALYZED_NO_NORMS*/);
             document.add(luceneField);
 
-            // index namespace for unique deletion
-            luceneField = new Field(KUNDERA_ID_FIELD, getKunderaId(metadata, id), Field.Store.YES, Field.Index.NO); // adding
-            // class
-            // namespace
-            // Field.Store.YES/*, Field.Index.ANALYZED_NO_NORMS*/);
+            // index namespace for unique deletion, must be indexed as a single
+            // term for documents to be deleted/ updated by it
+            luceneField = new Field(KUNDERA_ID_FIELD, getKunderaId(metadata, id), Field.Store.YES,
+                    Field.Index.NOT_ANALYZED_NO_NORMS);
             document.add(luceneField);
 
             // index entity class
             luceneField = new Field(ENTITY_CLASS_FIELD, metadata.getEntityClazz().getCanonicalName().toLowerCase(),
-                    Field.Store.YES, Field.Index.ANALYZED);
+                    Field.Store.YES, Field.Index.NOT_ANALYZED_NO_NORMS);
             document.add(luceneField);
             //
             luceneField = new Field("timestamp", System.currentTimeMillis() + "", Field.Store.YES, Field.Index.NO);
@@ -300,8 +322,18 @@ public abstract class DocumentIndexer implements Indexer
             // String value = (obj == null) ? null : obj.toString();
             if (obj != null)
             {
-                Field luceneField = new Field(getCannonicalPropertyName(indexName, colName), obj.toString(),
-                        Field.Store.YES, Field.Index.ANALYZED_NO_NORMS);
+                String name = getCannonicalPropertyName(indexName, colName);
+                Fieldable luceneField;
+                // numbers and dates are indexed as numeric fields, searchable
+                // by numeric ranges
+                if (LuceneQueryBuilder.isNumeric(field.getType()))
+                {
+                    luceneField = LuceneQueryBuilder.getNumericField(name, field.getType(), obj);
+                }
+                else
+                {
+                    luceneField = new Field(name, obj.toString(), Field.Store.YES, Field.Index.ANALYZED_NO_NORMS);
+                }
                 document.add(luceneField);
             }
             else
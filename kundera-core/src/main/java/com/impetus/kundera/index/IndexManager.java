@@ -15,8 +15,11 @@
  ******************************************************************************/
 package com.impetus.kundera.index;
 
+import java.util.Collection;
 import java.util.Map;
 
+import org.apache.lucene.search.Query;
+
 import com.impetus.kundera.Constants;
 import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.EntityMetadata;
@@ -83,12 +86,9 @@ public class IndexManager
             {
                 String id = PropertyAccessorHelper.getId(entity, metadata);
 
-                boolean documentExists = indexer.entityExistsInIndex(entity.getClass());
-                if (documentExists)
-                {
-                    indexer.unindex(metadata, id);
-                    indexer.flush();
-                }
+                // Deleting by term is a no-op for documents not yet indexed,
+                // hence no need to search for them first
+                indexer.unindex(metadata, id);
                 indexer.index(metadata, entity, parentId, clazz);
             }
         }
@@ -134,6 +134,23 @@ public class IndexManager
         }
     }
 
+    /**
+     * Indexes a batch of objects in one go. Any index already written for
+     * them is replaced, so it's used for new as well as updated objects.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param entities
+     *            the entities
+     */
+    public final void writeAll(EntityMetadata metadata, Collection<?> entities)
+    {
+        if (!MetadataUtils.useSecondryIndex(metadata.getPersistenceUnit()) && !entities.isEmpty())
+        {
+            indexer.index(metadata, entities);
+        }
+    }
+
     /**
      * Searches on the index. Note: Query must be in Indexer's understandable
      * format
@@ -209,6 +226,44 @@ public class IndexManager
         return indexer.search(query, start, count, fetchRelation);
     }
 
+    /**
+     * Searches on the index with a query built by {@link LuceneQueryBuilder}.
+     * Indexers other than Lucene's are handed query's string form.
+     * 
+     * @param query
+     *            the query
+     * @param start
+     *            the start
+     * @param count
+     *            the count
+     * @return the list
+     */
+    public final Map<String, String> search(Query query, int start, int count)
+    {
+        if (indexer instanceof LuceneIndexer)
+        {
+            return ((LuceneIndexer) indexer).search(query, start, count, false);
+        }
+        return indexer.search(query.toString(), start, count, false);
+    }
+
+    /**
+     * Counts documents matching a query built by {@link LuceneQueryBuilder},
+     * without loading any of them where indexer is Lucene's.
+     * 
+     * @param query
+     *            the query
+     * @return number of matching documents
+     */
+    public final int count(Query query)
+    {
+        if (indexer instanceof LuceneIndexer)
+        {
+            return ((LuceneIndexer) indexer).count(query);
+        }
+        return indexer.search(query.toString(), Constants.INVALID, Integer.MAX_VALUE, false).size();
+    }
+
     /**
      * Flushes out the indexes, keeping RAM directory open.
      */
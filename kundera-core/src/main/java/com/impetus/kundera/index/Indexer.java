@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.impetus.kundera.index;
 
+import java.util.Collection;
 import java.util.Map;
 
 import com.impetus.kundera.metadata.model.EntityMetadata;
@@ -62,6 +63,17 @@ public interface Indexer
      */
     void index(EntityMetadata metadata, Object object, String parentId, Class<?> clazz);
 
+    /**
+     * Indexes a batch of objects of an entity, replacing whatever is indexed
+     * for them already.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param objects
+     *            the objects
+     */
+    void index(EntityMetadata metadata, Collection<?> objects);
+
     /**
      * Searches for an object. Note that the "query" must be in Indexer
      * specified form.
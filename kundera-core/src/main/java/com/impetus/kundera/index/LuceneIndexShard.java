@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+
+import com.impetus.kundera.metadata.model.ClientMetadata;
+
+/**
+ * A single Lucene index of a {@link LuceneIndexer}, with its own directory,
+ * writer and near-real-time searcher. Writes to different shards don't contend
+ * with each other.
+ *
+ * @author agent
+ */
+class LuceneIndexShard
+{
+
+    /** Whether index is held in a RAM directory and copied to file system. */
+    private final boolean isRAMDirectory;
+
+    /** The index. */
+    private final Directory index;
+
+    /** Directory RAM directory is copied to on commit, null if not in use. */
+    private final Directory persistentIndex;
+
+    /** The writer. */
+    private final IndexWriter writer;
+
+    /** Shared near-real-time searcher. */
+    private final LuceneSearcherManager searcherManager;
+
+    /** Whether there are changes not committed yet. */
+    private volatile boolean readyForCommit;
+
+    /**
+     * Opens index at given file system directory.
+     *
+     * @param analyzer
+     *            the analyzer
+     * @param indexDirectory
+     *            the index directory
+     * @param clientMetadata
+     *            client metadata holding index configuration
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    LuceneIndexShard(Analyzer analyzer, File indexDirectory, ClientMetadata clientMetadata) throws IOException
+    {
+        if (!indexDirectory.isDirectory())
+        {
+            indexDirectory.mkdirs();
+        }
+
+        String directoryType = clientMetadata.getIndexDirectoryType();
+        isRAMDirectory = directoryType == null || LuceneIndexer.DIRECTORY_RAM.equalsIgnoreCase(directoryType);
+
+        if (isRAMDirectory)
+        {
+            index = new RAMDirectory();
+
+            // Load index persisted earlier into RAM directory. File system
+            // directory is kept open for commits, till shard is closed
+            persistentIndex = FSDirectory.open(indexDirectory);
+            if (IndexReader.indexExists(persistentIndex))
+            {
+                Directory.copy(persistentIndex, index, false);
+            }
+        }
+        else
+        {
+            persistentIndex = null;
+
+            // Existing segments are opened in place and read lazily
+            index = openDirectory(directoryType, indexDirectory);
+
+            // Lock may be held by another process writing same index, so it's
+            // never broken here
+            if (IndexWriter.isLocked(index))
+            {
+                index.close();
+                throw new LuceneIndexingException("Index at " + indexDirectory
+                        + " is locked by another writer. If no other process uses it, delete "
+                        + IndexWriter.WRITE_LOCK_NAME + " left there by a crashed process");
+            }
+        }
+
+        IndexWriterConfig config = new IndexWriterConfig(Version.LUCENE_34, analyzer);
+        config.setRAMBufferSizeMB(clientMetadata.getIndexRAMBufferSize());
+        writer = new IndexWriter(index, config);
+        writer.setMergePolicy(new LogDocMergePolicy());
+        writer.setMergeFactor(1000);
+
+        searcherManager = new LuceneSearcherManager(writer, clientMetadata.getIndexRefreshInterval());
+    }
+
+    /**
+     * Opens file system directory of given type.
+     *
+     * @param directoryType
+     *            the directory type
+     * @param path
+     *            the path
+     * @return the directory
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private Directory openDirectory(String directoryType, File path) throws IOException
+    {
+        if (LuceneIndexer.DIRECTORY_MMAP.equalsIgnoreCase(directoryType))
+        {
+            return new MMapDirectory(path);
+        }
+        else if (LuceneIndexer.DIRECTORY_NIOFS.equalsIgnoreCase(directoryType))
+        {
+            return new NIOFSDirectory(path);
+        }
+        else if (LuceneIndexer.DIRECTORY_FS.equalsIgnoreCase(directoryType))
+        {
+            return FSDirectory.open(path);
+        }
+        throw new LuceneIndexingException("Invalid index directory type " + directoryType + ", supported are "
+                + LuceneIndexer.DIRECTORY_RAM + ", " + LuceneIndexer.DIRECTORY_MMAP + ", "
+                + LuceneIndexer.DIRECTORY_NIOFS + " and " + LuceneIndexer.DIRECTORY_FS);
+    }
+
+    /**
+     * Adds a document to index.
+     *
+     * @param document
+     *            the document
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void addDocument(Document document) throws IOException
+    {
+        writer.addDocument(document);
+        onWrite();
+    }
+
+    /**
+     * Deletes documents containing given term.
+     *
+     * @param term
+     *            the term
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void deleteDocuments(Term term) throws IOException
+    {
+        writer.deleteDocuments(term);
+        onWrite();
+    }
+
+    /**
+     * Deletes documents matching given query.
+     *
+     * @param query
+     *            the query
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void deleteDocuments(Query query) throws IOException
+    {
+        writer.deleteDocuments(query);
+        onWrite();
+    }
+
+    /**
+     * Replaces documents containing given term with given documents, in a
+     * single operation.
+     *
+     * @param term
+     *            the term
+     * @param documents
+     *            the documents
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void updateDocuments(Term term, Collection<Document> documents) throws IOException
+    {
+        if (documents.size() == 1)
+        {
+            writer.updateDocument(term, documents.iterator().next());
+        }
+        else
+        {
+            writer.updateDocuments(term, documents);
+        }
+        onWrite();
+    }
+
+    /**
+     * Acquires searcher of this shard, to be released by {@link #release}.
+     *
+     * @return the index searcher
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    IndexSearcher acquire() throws IOException
+    {
+        return searcherManager.acquire();
+    }
+
+    /**
+     * Releases searcher acquired by {@link #acquire()}.
+     *
+     * @param searcher
+     *            the searcher
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void release(IndexSearcher searcher) throws IOException
+    {
+        searcherManager.release(searcher);
+    }
+
+    /**
+     * Commits pending changes, copying RAM directory to file system if in use.
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    synchronized void commit() throws IOException
+    {
+        if (readyForCommit)
+        {
+            // Changes made while committing will mark it ready again
+            readyForCommit = false;
+            try
+            {
+                writer.commit();
+                if (isRAMDirectory)
+                {
+                    Directory.copy(index, persistentIndex, false);
+                }
+            }
+            catch (IOException e)
+            {
+                readyForCommit = true;
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Commits pending changes, then closes searcher, writer and directory of
+     * this shard.
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    synchronized void close() throws IOException
+    {
+        searcherManager.close();
+        try
+        {
+            commit();
+            writer.close();
+            index.close();
+        }
+        finally
+        {
+            if (persistentIndex != null)
+            {
+                persistentIndex.close();
+            }
+        }
+    }
+
+    /**
+     * Marks shard changed after a write.
+     */
+    private void onWrite()
+    {
+        // Searcher is reopened from writer, so changes are visible to
+        // searches without a commit
+        readyForCommit = true;
+        searcherManager.markDirty();
+    }
+}
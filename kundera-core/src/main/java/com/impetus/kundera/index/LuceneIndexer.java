@@ -17,9 +17,20 @@ package com.impetus.kundera.index;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -28,31 +39,37 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.CorruptIndexException;
 import org.apache.lucene.index.IndexReader;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexWriterConfig;
-import org.apache.lucene.index.LogDocMergePolicy;
+import org.apache.lucene.index.MultiReader;
 import org.apache.lucene.index.Term;
 import org.apache.lucene.queryParser.ParseException;
 import org.apache.lucene.queryParser.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TermQuery;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.store.Directory;
 import org.apache.lucene.store.FSDirectory;
-import org.apache.lucene.store.LockObtainFailedException;
-import org.apache.lucene.store.RAMDirectory;
 import org.apache.lucene.util.Version;
 
 import com.impetus.kundera.Constants;
+import com.impetus.kundera.PersistenceProperties;
 import com.impetus.kundera.cache.ElementCollectionCacheManager;
+import com.impetus.kundera.metadata.model.ClientMetadata;
 import com.impetus.kundera.metadata.model.EmbeddedColumn;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessorHelper;
 
 /**
- * Provides indexing functionality using lucene library.
+ * Provides indexing functionality using lucene library. There is one indexer
+ * per index home directory, so persistence units with different directories
+ * don't share a writer. With sharding enabled, every index name (see
+ * {@link EntityMetadata#getIndexName()}) gets its own index in a sub
+ * directory, with its own writer and refresh cycle.
  * 
  * @author amresh.singh
  */
@@ -62,150 +79,333 @@ public class LuceneIndexer extends DocumentIndexer
     /** log for this class. */
     private static Log log = LogFactory.getLog(LuceneIndexer.class);
 
-    /** The w. */
-    private static IndexWriter w;
+    /** Indexers keyed by index home directory. */
+    private static Map<String, LuceneIndexer> indexers = new HashMap<String, LuceneIndexer>();
 
-    /** The reader. */
-    private static IndexReader reader;
+    /** Index directory type holding index in heap, copied to disk on commit. */
+    public static final String DIRECTORY_RAM = "ram";
 
-    /** The index. */
-    private static Directory index;
+    /** Index directory type using memory mapped file system directory. */
+    public static final String DIRECTORY_MMAP = "mmap";
 
-    /** The is initialized. */
-    private static boolean isInitialized;
+    /** Index directory type using NIO file system directory. */
+    public static final String DIRECTORY_NIOFS = "niofs";
 
-    /** The indexer. */
-    private static LuceneIndexer indexer;
+    /** Index directory type using file system directory chosen by Lucene. */
+    public static final String DIRECTORY_FS = "fs";
 
-    /** The ready for commit. */
-    private static boolean readyForCommit;
+    /** The analyzer. */
+    private final Analyzer analyzer;
 
     /** The lucene dir path. */
-    private static String luceneDirPath;
+    private final String luceneDirPath;
+
+    /** Client metadata holding index configuration. */
+    private final ClientMetadata clientMetadata;
+
+    /** Shard holding all indexes, null if sharded per index name. */
+    private final LuceneIndexShard defaultShard;
+
+    /** Shards keyed by index name, if sharded per index name. */
+    private final Map<String, LuceneIndexShard> shards = new ConcurrentHashMap<String, LuceneIndexShard>();
+
+    /** Background committer, null if commits are synchronous. */
+    private ScheduledExecutorService committer;
+
+    /** Number of client factories using this indexer, guarded by class lock. */
+    private int references;
+
+    /** Minimum batch size for documents to be built in parallel. */
+    private static final int PARALLEL_BUILD_THRESHOLD = 64;
+
+    /** Threads building documents of a batch, created on first use. */
+    private static ExecutorService documentBuilder;
 
     /**
      * Instantiates a new lucene indexer.
      * 
      * @param analyzer
      *            the analyzer
-     * @param lucDirPath
-     *            the luc dir path
+     * @param clientMetadata
+     *            client metadata holding index configuration
      */
-    private LuceneIndexer(Analyzer analyzer, String lucDirPath)
+    private LuceneIndexer(Analyzer analyzer, ClientMetadata clientMetadata)
     {
         super(analyzer);
-        try
-        {
-            luceneDirPath = lucDirPath;
-            index = new RAMDirectory();/*
-                                        * FSDirectory.open(getIndexDirectory( ))
-                                        */
-            // isInitialized
-            /* writer */
-            w = new IndexWriter(index, new IndexWriterConfig(Version.LUCENE_34, analyzer));
-            /* reader = */
-            w.setMergePolicy(new LogDocMergePolicy());
-            w.setMergeFactor(1000);
-            w.getConfig().setRAMBufferSizeMB(32);
-        }
-        catch (CorruptIndexException e)
-        {
-            throw new LuceneIndexingException(e);
-        }
-        catch (LockObtainFailedException e)
+        this.analyzer = analyzer;
+        this.clientMetadata = clientMetadata;
+        this.luceneDirPath = clientMetadata.getLuceneIndexDir();
+
+        defaultShard = clientMetadata.isIndexSharded() ? null : openShard(new File(luceneDirPath));
+        if (defaultShard == null)
         {
-            throw new LuceneIndexingException(e);
+            openExistingShards();
         }
-        catch (IOException e)
+
+        long commitInterval = clientMetadata.getIndexCommitInterval();
+        if (commitInterval > 0)
         {
-            throw new LuceneIndexingException(e);
+            startCommitter(commitInterval);
         }
     }
 
     /**
-     * Gets the single instance of LuceneIndexer.
+     * Gets the LuceneIndexer instance for given index directory.
      * 
      * @param analyzer
      *            the analyzer
      * @param lucDirPath
      *            the luc dir path
-     * @return single instance of LuceneIndexer
+     * @return LuceneIndexer instance
      */
     public static synchronized LuceneIndexer getInstance(Analyzer analyzer, String lucDirPath)
     {
-        // super(analyzer);
-        if (indexer == null && lucDirPath != null)
+        ClientMetadata clientMetadata = new ClientMetadata();
+        clientMetadata.setLuceneIndexDir(lucDirPath);
+        return getInstance(analyzer, clientMetadata);
+    }
+
+    /**
+     * Gets the LuceneIndexer instance for index directory of given client
+     * metadata, configured by its index properties. Persistence units sharing
+     * an index directory share the indexer created for the first of them, so
+     * they must agree on its layout; other settings of first one are used.
+     * 
+     * @param analyzer
+     *            the analyzer
+     * @param clientMetadata
+     *            the client metadata
+     * @return LuceneIndexer instance, null if Lucene indexing is not enabled
+     */
+    public static synchronized LuceneIndexer getInstance(Analyzer analyzer, ClientMetadata clientMetadata)
+    {
+        if (clientMetadata == null || clientMetadata.isUseSecondryIndex())
         {
-            indexer = new LuceneIndexer(analyzer, lucDirPath);
+            return null;
+        }
 
+        String key = new File(clientMetadata.getLuceneIndexDir()).getAbsolutePath();
+        LuceneIndexer indexer = indexers.get(key);
+        if (indexer == null)
+        {
+            indexer = new LuceneIndexer(analyzer, clientMetadata);
+            indexers.put(key, indexer);
         }
+        else
+        {
+            indexer.checkConfiguration(clientMetadata);
+        }
+        indexer.references++;
         return indexer;
     }
 
     /**
-     * Added for HBase support.
+     * Checks index configuration of another persistence unit using this
+     * indexer against the one it was created with. Sharding and directory
+     * type decide where index files are, so a mismatch fails; other settings
+     * only tune this indexer, so a mismatch is logged.
+     * 
+     * @param requested
+     *            client metadata of the other persistence unit
+     */
+    private void checkConfiguration(ClientMetadata requested)
+    {
+        if (requested == clientMetadata)
+        {
+            return;
+        }
+
+        String directoryType = getDirectoryType(clientMetadata);
+        if (requested.isIndexSharded() != clientMetadata.isIndexSharded()
+                || !getDirectoryType(requested).equals(directoryType))
+        {
+            throw new LuceneIndexingException("Index at " + luceneDirPath + " is already open with "
+                    + PersistenceProperties.KUNDERA_INDEX_SHARDED + "=" + clientMetadata.isIndexSharded() + " and "
+                    + PersistenceProperties.KUNDERA_INDEX_DIRECTORY + "=" + directoryType
+                    + ", persistence units sharing it must use the same settings");
+        }
+
+        if (requested.getIndexCommitInterval() != clientMetadata.getIndexCommitInterval()
+                || requested.getIndexRefreshInterval() != clientMetadata.getIndexRefreshInterval()
+                || requested.getIndexRAMBufferSize() != clientMetadata.getIndexRAMBufferSize())
+        {
+            log.warn("Index at " + luceneDirPath + " is already open with commit interval "
+                    + clientMetadata.getIndexCommitInterval() + " ms, refresh interval "
+                    + clientMetadata.getIndexRefreshInterval() + " ms and RAM buffer size "
+                    + clientMetadata.getIndexRAMBufferSize() + " MB, which are used instead of the ones requested");
+        }
+    }
+
+    /**
+     * Gets index directory type of client metadata.
      * 
-     * @return default index writer
+     * @param metadata
+     *            the client metadata
+     * @return the directory type in lower case, ram if not specified
      */
-    private IndexWriter getIndexWriter()
+    private static String getDirectoryType(ClientMetadata metadata)
     {
-        return w;
+        String directoryType = metadata.getIndexDirectoryType();
+        return directoryType != null ? directoryType.toLowerCase() : DIRECTORY_RAM;
     }
 
     /**
-     * Returns default index reader.
+     * Opens index shard at given directory.
      * 
-     * @return index reader.
+     * @param directory
+     *            the directory
+     * @return the lucene index shard
      */
-    private IndexReader getIndexReader()
+    private LuceneIndexShard openShard(File directory)
     {
-        flushInternal();
+        try
+        {
+            return new LuceneIndexShard(analyzer, directory, clientMetadata);
+        }
+        catch (CorruptIndexException e)
+        {
+            throw new LuceneIndexingException(e);
+        }
+        catch (IOException e)
+        {
+            throw new LuceneIndexingException(e);
+        }
+    }
 
-        if (reader == null)
+    /**
+     * Opens shards found in sub directories of index home, so that searches
+     * over all shards see indexes written by earlier runs too.
+     */
+    private void openExistingShards()
+    {
+        File[] directories = new File(luceneDirPath).listFiles();
+        if (directories == null)
         {
-            try
+            return;
+        }
+
+        for (File directory : directories)
+        {
+            if (directory.isDirectory() && indexExists(directory))
             {
-                if (!isInitialized)
-                {
-                    Directory sourceDir = FSDirectory.open(getIndexDirectory());
-                    sourceDir.copy(sourceDir, index, true);
-                    isInitialized = true;
-                }
-                reader = IndexReader.open(index, true);
+                shards.put(directory.getName(), openShard(directory));
             }
-            catch (CorruptIndexException e)
+        }
+    }
+
+    /**
+     * Checks whether given directory holds a Lucene index.
+     * 
+     * @param directory
+     *            the directory
+     * @return true, if index exists
+     */
+    private boolean indexExists(File directory)
+    {
+        try
+        {
+            Directory fsDirectory = FSDirectory.open(directory);
+            try
             {
-                throw new LuceneIndexingException(e);
+                return IndexReader.indexExists(fsDirectory);
             }
-            catch (IOException e)
+            finally
             {
-                throw new LuceneIndexingException(e);
+                fsDirectory.close();
             }
         }
-        return reader;
+        catch (IOException e)
+        {
+            throw new LuceneIndexingException("Error while opening Lucene index at " + directory, e);
+        }
     }
 
     /**
-     * Creates a Lucene index directory if it does not exist.
+     * Returns shard holding index of given entity, opening it if required.
      * 
-     * @return the index directory
+     * @param metadata
+     *            the metadata
+     * @return the shard
      */
-    private File getIndexDirectory()
+    private LuceneIndexShard getShard(EntityMetadata metadata)
     {
-        File file = new File(luceneDirPath);
+        if (defaultShard != null)
+        {
+            return defaultShard;
+        }
 
-        if (!file.isDirectory())
+        String indexName = metadata.getIndexName();
+        LuceneIndexShard shard = shards.get(indexName);
+        if (shard == null)
         {
-            file.mkdir();
+            synchronized (shards)
+            {
+                shard = shards.get(indexName);
+                if (shard == null)
+                {
+                    shard = openShard(new File(luceneDirPath, indexName));
+                    shards.put(indexName, shard);
+                }
+            }
         }
-        return file;
+        return shard;
+    }
+
+    /**
+     * Returns all open shards.
+     * 
+     * @return the shards
+     */
+    private Collection<LuceneIndexShard> getShards()
+    {
+        if (defaultShard != null)
+        {
+            List<LuceneIndexShard> all = new ArrayList<LuceneIndexShard>(1);
+            all.add(defaultShard);
+            return all;
+        }
+        return shards.values();
+    }
+
+    /**
+     * Starts background thread committing pending index changes.
+     * 
+     * @param commitInterval
+     *            the commit interval in milliseconds
+     */
+    private void startCommitter(long commitInterval)
+    {
+        committer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+        {
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread thread = new Thread(r, "kundera-index-committer");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        committer.scheduleWithFixedDelay(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                try
+                {
+                    flushInternal();
+                }
+                catch (LuceneIndexingException e)
+                {
+                    log.warn("Error while committing Lucene indexes, will retry. Details:" + e.getMessage());
+                }
+            }
+        }, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public final void index(EntityMetadata metadata, Object object)
     {
         indexDocument(metadata, object, null, null);
-        onCommit();
     }
 
     @Override
@@ -215,7 +415,9 @@ public class LuceneIndexer extends DocumentIndexer
         try
         {
             /* String indexName, Query query, boolean autoCommit */
-            getIndexWriter().deleteDocuments(new Term(KUNDERA_ID_FIELD, getKunderaId(metadata, id)));
+            LuceneIndexShard shard = getShard(metadata);
+            shard.deleteDocuments(getLegacyDocumentQuery(metadata, id));
+            shard.deleteDocuments(new Term(KUNDERA_ID_FIELD, getKunderaId(metadata, id)));
         }
         catch (CorruptIndexException e)
         {
@@ -227,37 +429,57 @@ public class LuceneIndexer extends DocumentIndexer
         }
     }
 
-    @SuppressWarnings("deprecation")
     @Override
     public final Map<String, String> search(String luceneQuery, int start, int count, boolean fetchRelation)
     {
+        QueryParser qp = new KunderaQueryParser();
+        qp.setLowercaseExpandedTerms(false);
+        qp.setAllowLeadingWildcard(true);
+        try
+        {
+            return search(qp.parse(luceneQuery), start, count, fetchRelation);
+        }
+        catch (ParseException e)
+        {
+            throw new LuceneIndexingException("Error while parsing Lucene Query " + luceneQuery, e);
+        }
+    }
 
-        reader = getIndexReader();
+    /**
+     * Searches for objects matching a query built by
+     * {@link LuceneQueryBuilder}, without parsing it.
+     * 
+     * @param q
+     *            the query
+     * @param start
+     *            the start
+     * @param count
+     *            the count
+     * @param fetchRelation
+     *            the fetch relation
+     * @return the map
+     */
+    public final Map<String, String> search(Query q, int start, int count, boolean fetchRelation)
+    {
         if (Constants.INVALID == count)
         {
             count = 100;
         }
 
-        log.debug("Searching index with query[" + luceneQuery + "], start:" + start + ", count:" + count);
+        log.debug("Searching index with query[" + q + "], start:" + start + ", count:" + count);
 
         // Set<String> entityIds = new HashSet<String>();
         Map<String, String> indexCol = new HashMap<String, String>();
 
-        if (reader == null)
-        {
-            throw new LuceneIndexingException("Index reader is not initialized!");
-        }
-
-        IndexSearcher searcher = new IndexSearcher(reader);
-        QueryParser qp = new QueryParser(Version.LUCENE_34, DEFAULT_SEARCHABLE_FIELD, new StandardAnalyzer(
-                Version.LUCENE_34));
-
+        Map<LuceneIndexShard, IndexSearcher> searchers = new HashMap<LuceneIndexShard, IndexSearcher>();
+        IndexSearcher searcher = null;
         try
         {
-            qp.setLowercaseExpandedTerms(false);
-            qp.setAllowLeadingWildcard(true);
-            // qp.set
-            Query q = qp.parse(luceneQuery);
+            searcher = acquireSearcher(searchers);
+            if (searcher == null)
+            {
+                return indexCol;
+            }
             TopDocs docs = searcher.search(q, count);
 
             int nullCount = 0;
@@ -277,17 +499,120 @@ public class LuceneIndexer extends DocumentIndexer
                 indexCol.put(superCol + "|" + entityId, entityId);
             }
         }
-        catch (ParseException e)
+        catch (IOException e)
         {
-            throw new LuceneIndexingException("Error while parsing Lucene Query " + luceneQuery, e);
+            throw new LuceneIndexingException(e);
+        }
+        finally
+        {
+            releaseSearchers(searcher, searchers);
+        }
+
+        return indexCol;
+    }
+
+    /**
+     * Counts documents matching a query, collecting only their number.
+     * 
+     * @param q
+     *            the query
+     * @return number of matching documents
+     */
+    public final int count(Query q)
+    {
+        log.debug("Counting documents matching query[" + q + "]");
+
+        Map<LuceneIndexShard, IndexSearcher> searchers = new HashMap<LuceneIndexShard, IndexSearcher>();
+        IndexSearcher searcher = null;
+        try
+        {
+            searcher = acquireSearcher(searchers);
+            if (searcher == null)
+            {
+                return 0;
+            }
+            TotalHitCountCollector collector = new TotalHitCountCollector();
+            searcher.search(q, collector);
+            return collector.getTotalHits();
         }
         catch (IOException e)
         {
             throw new LuceneIndexingException(e);
         }
+        finally
+        {
+            releaseSearchers(searcher, searchers);
+        }
+    }
 
-        reader = null;
-        return indexCol;
+    /**
+     * Acquires searchers of all shards, returning a searcher over all of them.
+     * 
+     * @param searchers
+     *            map to collect acquired searchers into, for release
+     * @return the index searcher, null if no shard is open yet
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private IndexSearcher acquireSearcher(Map<LuceneIndexShard, IndexSearcher> searchers) throws IOException
+    {
+        for (LuceneIndexShard shard : getShards())
+        {
+            searchers.put(shard, shard.acquire());
+        }
+
+        if (searchers.isEmpty())
+        {
+            return null;
+        }
+        else if (searchers.size() == 1)
+        {
+            return searchers.values().iterator().next();
+        }
+
+        // Sub readers stay open, they are released along with their searchers
+        List<IndexReader> readers = new ArrayList<IndexReader>();
+        for (IndexSearcher searcher : searchers.values())
+        {
+            readers.add(searcher.getIndexReader());
+        }
+        return new IndexSearcher(new MultiReader(readers.toArray(new IndexReader[0]), false));
+    }
+
+    /**
+     * Releases searchers acquired for a search.
+     * 
+     * @param searcher
+     *            searcher used for search, may be null
+     * @param searchers
+     *            the searchers keyed by their shards
+     */
+    private void releaseSearchers(IndexSearcher searcher, Map<LuceneIndexShard, IndexSearcher> searchers)
+    {
+        // Searcher spanning shards holds a reference on each shard's reader
+        if (searcher != null && searchers.size() > 1)
+        {
+            try
+            {
+                searcher.getIndexReader().close();
+            }
+            catch (IOException e)
+            {
+                log.warn("Error while closing index searcher, Details:" + e.getMessage());
+            }
+        }
+
+        for (LuceneIndexShard shard : searchers.keySet())
+        {
+            try
+            {
+                shard.release(searchers.get(shard));
+            }
+            catch (IOException e)
+            {
+                log.warn("Error while releasing index searcher, Details:" + e.getMessage());
+            }
+        }
     }
 
     /**
@@ -303,14 +628,9 @@ public class LuceneIndexer extends DocumentIndexer
 
         log.debug("Indexing document: " + document + " for " + metadata.getDBType() + " in file system using Lucene");
 
-        IndexWriter w = getIndexWriter();
         try
         {
-            // w.setR
-            w.addDocument(document);
-            // w.optimize();
-            // w.commit();
-            // w.close();
+            getShard(metadata).addDocument(document);
         }
         catch (CorruptIndexException e)
         {
@@ -325,20 +645,17 @@ public class LuceneIndexer extends DocumentIndexer
     }
 
     /**
-     * Flush internal.
+     * Commits pending changes of all shards.
      */
     private void flushInternal()
     {
         try
         {
-            if (w != null && readyForCommit)
+            for (LuceneIndexShard shard : getShards())
             {
-                w.commit();
-                index.copy(index, FSDirectory.open(getIndexDirectory()), false);
-                readyForCommit = false;
+                shard.commit();
             }
         }
-
         catch (CorruptIndexException e)
         {
             log.error("Error while Flushing Lucene Indexes. Details:" + e.getMessage());
@@ -352,28 +669,45 @@ public class LuceneIndexer extends DocumentIndexer
     }
 
     /**
-     * Close of transaction.
+     * Commits pending changes. Once all users of this indexer have closed it,
+     * background committer is stopped, shards are closed and next
+     * {@link #getInstance(Analyzer, ClientMetadata)} creates a new indexer.
      */
     public void close()
     {
-        try
+        boolean closeShards = false;
+        synchronized (LuceneIndexer.class)
         {
-            if (w != null && readyForCommit)
+            if (references > 0 && --references == 0)
             {
-                w.commit();
-                index.copy(index, FSDirectory.open(getIndexDirectory()), false);
+                if (committer != null)
+                {
+                    committer.shutdown();
+                    committer = null;
+                }
+                indexers.remove(new File(luceneDirPath).getAbsolutePath());
+                closeShards = true;
             }
         }
 
-        catch (CorruptIndexException e)
+        if (!closeShards)
+        {
+            flushInternal();
+            return;
+        }
+
+        try
         {
-            log.error("Error while closing lucene indexes. Details:" + e.getMessage());
-            throw new LuceneIndexingException("Error while closing lucene indexes.", e);
+            for (LuceneIndexShard shard : getShards())
+            {
+                shard.close();
+            }
+            shards.clear();
         }
         catch (IOException e)
         {
-            log.error("Error while closing lucene indexes. Details:" + e.getMessage());
-            throw new LuceneIndexingException("Error while closing lucene indexes.", e);
+            log.error("Error while closing Lucene Indexes. Details:" + e.getMessage());
+            throw new LuceneIndexingException("Error while closing Lucene Indexes", e);
         }
     }
 
@@ -385,13 +719,11 @@ public class LuceneIndexer extends DocumentIndexer
     @Override
     public void flush()
     {
-        if (w != null)
+        // Searches don't commit anymore, so pending changes are committed and
+        // copied to file system here, unless a background committer does it
+        if (committer == null)
         {
-
-            // w.commit();
-            // w.close();
-            // index.copy(index, FSDirectory.open(getIndexDirectory()),
-            // false);
+            flushInternal();
         }
     }
 
@@ -400,13 +732,173 @@ public class LuceneIndexer extends DocumentIndexer
     {
 
         indexDocument(metadata, object, parentId, clazz);
-        onCommit();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.index.Indexer#index(com.impetus.kundera.metadata.
+     * model.EntityMetadata, java.util.Collection)
+     */
+    @Override
+    public void index(EntityMetadata metadata, Collection<?> objects)
+    {
+        if (!metadata.isIndexable() || objects.isEmpty())
+        {
+            return;
+        }
+
+        log.debug("Indexing " + objects.size() + " @Entity[" + metadata.getEntityClazz().getName() + "] objects");
+
+        List<?> entities = new ArrayList<Object>(objects);
+        List<List<Document>> documents = prepareDocuments(metadata, entities);
+        LuceneIndexShard shard = getShard(metadata);
+        try
+        {
+            for (int i = 0; i < entities.size(); i++)
+            {
+                // Documents are replaced by kundera id, whether indexed earlier
+                // or not, so there is no need to look them up first
+                String id = PropertyAccessorHelper.getId(entities.get(i), metadata);
+                Term term = new Term(KUNDERA_ID_FIELD, getKunderaId(metadata, id));
+                List<Document> entityDocuments = documents.get(i);
+                // Must precede update, a query delete drops documents added
+                // before it as well
+                shard.deleteDocuments(getLegacyDocumentQuery(metadata, id));
+                if (entityDocuments.isEmpty())
+                {
+                    shard.deleteDocuments(term);
+                }
+                else
+                {
+                    shard.updateDocuments(term, entityDocuments);
+                }
+            }
+
+            // One commit for whole batch, unless a background committer does it
+            if (committer == null)
+            {
+                shard.commit();
+            }
+        }
+        catch (PropertyAccessException e)
+        {
+            throw new LuceneIndexingException("Can't access Primary key property from " + metadata.getEntityClazz(), e);
+        }
+        catch (CorruptIndexException e)
+        {
+            log.error("Error while indexing batch of " + metadata.getEntityClazz() + " into Lucene. Details:"
+                    + e.getMessage());
+            throw new LuceneIndexingException("Error while indexing batch of " + metadata.getEntityClazz()
+                    + " into Lucene.", e);
+        }
+        catch (IOException e)
+        {
+            log.error("Error while indexing batch of " + metadata.getEntityClazz() + " into Lucene. Details:"
+                    + e.getMessage());
+            throw new LuceneIndexingException("Error while indexing batch of " + metadata.getEntityClazz()
+                    + " into Lucene.", e);
+        }
+    }
+
+    /**
+     * Builds documents for a batch of objects, splitting large batches among
+     * document builder threads.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param objects
+     *            the objects
+     * @return documents of each object, in same order as objects
+     */
+    private List<List<Document>> prepareDocuments(final EntityMetadata metadata, List<?> objects)
+    {
+        List<List<Document>> documents = new ArrayList<List<Document>>(objects.size());
+        int threads = Runtime.getRuntime().availableProcessors();
+        if (objects.size() < PARALLEL_BUILD_THRESHOLD || threads < 2)
+        {
+            for (Object object : objects)
+            {
+                documents.add(prepareDocuments(metadata, object, null, null));
+            }
+            return documents;
+        }
+
+        int chunkSize = (objects.size() + threads - 1) / threads;
+        List<Future<List<List<Document>>>> futures = new ArrayList<Future<List<List<Document>>>>();
+        for (int start = 0; start < objects.size(); start += chunkSize)
+        {
+            final List<?> chunk = objects.subList(start, Math.min(start + chunkSize, objects.size()));
+            futures.add(getDocumentBuilder().submit(new Callable<List<List<Document>>>()
+            {
+                @Override
+                public List<List<Document>> call()
+                {
+                    List<List<Document>> chunkDocuments = new ArrayList<List<Document>>(chunk.size());
+                    for (Object object : chunk)
+                    {
+                        chunkDocuments.add(prepareDocuments(metadata, object, null, null));
+                    }
+                    return chunkDocuments;
+                }
+            }));
+        }
+
+        try
+        {
+            for (Future<List<List<Document>>> future : futures)
+            {
+                documents.addAll(future.get());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new LuceneIndexingException("Interrupted while building documents of " + metadata.getEntityClazz(),
+                    e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new LuceneIndexingException("Error while building documents of " + metadata.getEntityClazz(),
+                    e.getCause());
+        }
+        return documents;
+    }
+
+    /**
+     * Returns thread pool building documents of large batches.
+     * 
+     * @return the document builder
+     */
+    private static synchronized ExecutorService getDocumentBuilder()
+    {
+        if (documentBuilder == null)
+        {
+            documentBuilder = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                    new ThreadFactory()
+                    {
+                        @Override
+                        public Thread newThread(Runnable r)
+                        {
+                            Thread thread = new Thread(r, "kundera-index-builder");
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return documentBuilder;
     }
 
     @Override
     public boolean entityExistsInIndex(Class<?> entityClass)
     {
-        String luceneQuery = "+" + ENTITY_CLASS_FIELD + ":" + entityClass.getCanonicalName().toLowerCase();
+        Query luceneQuery = new TermQuery(new Term(ENTITY_CLASS_FIELD, entityClass.getCanonicalName()
+                .toLowerCase()));
         Map<String, String> results;
         try
         {
@@ -437,13 +929,35 @@ public class LuceneIndexer extends DocumentIndexer
      *            the parent id
      * @param clazz
      *            the clazz
-     * @return the document
      */
-    private Document indexDocument(EntityMetadata metadata, Object object, String parentId, Class<?> clazz)
+    private void indexDocument(EntityMetadata metadata, Object object, String parentId, Class<?> clazz)
+    {
+        for (Document document : prepareDocuments(metadata, object, parentId, clazz))
+        {
+            indexDocument(metadata, document);
+        }
+    }
+
+    /**
+     * Builds documents to be indexed for an object, one per super column (or
+     * element collection object) in case of super column family, else one.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param object
+     *            the object
+     * @param parentId
+     *            the parent id
+     * @param clazz
+     *            the clazz
+     * @return the documents
+     */
+    private List<Document> prepareDocuments(EntityMetadata metadata, Object object, String parentId, Class<?> clazz)
     {
+        List<Document> documents = new ArrayList<Document>(1);
         if (!metadata.isIndexable())
         {
-            return null;
+            return documents;
         }
 
         log.debug("Indexing @Entity[" + metadata.getEntityClazz().getName() + "] " + object);
@@ -496,7 +1010,8 @@ public class LuceneIndexer extends DocumentIndexer
 
                                 currentDoc = prepareDocumentForSuperColumn(metadata, object,
                                         elementCollectionObjectName, parentId, clazz);
-                                indexSuperColumn(metadata, object, currentDoc, obj, embeddedColumn);
+                                addSuperColumnFieldsToDocument(metadata, object, currentDoc, obj, embeddedColumn);
+                                documents.add(currentDoc);
                                 count++;
                             }
                         }
@@ -521,7 +1036,8 @@ public class LuceneIndexer extends DocumentIndexer
 
                                 currentDoc = prepareDocumentForSuperColumn(metadata, object,
                                         elementCollectionObjectName, parentId, clazz);
-                                indexSuperColumn(metadata, object, currentDoc, obj, embeddedColumn);
+                                addSuperColumnFieldsToDocument(metadata, object, currentDoc, obj, embeddedColumn);
+                                documents.add(currentDoc);
                             }
                         }
 
@@ -530,9 +1046,10 @@ public class LuceneIndexer extends DocumentIndexer
                     {
                         currentDoc = prepareDocumentForSuperColumn(metadata, object, embeddedColumnName, parentId,
                                 clazz);
-                        indexSuperColumn(metadata, object, currentDoc,
+                        addSuperColumnFieldsToDocument(metadata, object, currentDoc,
                                 metadata.isEmbeddable(embeddedObject.getClass()) ? embeddedObject : object,
                                 embeddedColumn);
+                        documents.add(currentDoc);
                     }
                 }
                 catch (PropertyAccessException e)
@@ -554,35 +1071,96 @@ public class LuceneIndexer extends DocumentIndexer
             addEntityFieldsToDocument(metadata, object, currentDoc);
 
             indexParentKey(parentId, currentDoc, clazz);
-            // Store document into index
-            indexDocument(metadata, currentDoc);
+            documents.add(currentDoc);
         }
 
-        return currentDoc;
+        return documents;
     }
 
     /**
-     * On commit.
+     * Gets query matching documents of given entity indexed before kundera id
+     * was indexed. These have no kundera id term to be deleted or replaced by,
+     * and their entity id and class fields were analyzed, so they are matched
+     * the same way.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param id
+     *            the id
+     * @return the legacy document query
      */
-    private void onCommit()
+    private Query getLegacyDocumentQuery(EntityMetadata metadata, String id)
     {
-        // TODO: Sadly this required to keep lucene happy, in case of indexing
-        // and searching with same entityManager.
-        // Other alternative would be to issue flush on each search
-        // try
-        // {
-        // w.commit();
-        isInitialized = true;
-        readyForCommit = true;
-        // }
-        // catch (CorruptIndexException e)
-        // {
-        // throw new IndexingException(e.getMessage());
-        // }
-        // catch (IOException e)
-        // {
-        // throw new IndexingException(e.getMessage());
-        // }
+        BooleanQuery query = new BooleanQuery();
+        try
+        {
+            query.add(new QueryParser(Version.LUCENE_34, ENTITY_ID_FIELD, analyzer).parse("\""
+                    + QueryParser.escape(id) + "\""), BooleanClause.Occur.MUST);
+            query.add(new QueryParser(Version.LUCENE_34, ENTITY_CLASS_FIELD, analyzer).parse("\""
+                    + QueryParser.escape(metadata.getEntityClazz().getCanonicalName().toLowerCase()) + "\""),
+                    BooleanClause.Occur.MUST);
+        }
+        catch (ParseException e)
+        {
+            throw new LuceneIndexingException("Can't build query for legacy documents of key:" + id, e);
+        }
+        return query;
     }
 
+    /**
+     * Query parser matching identifier fields as single terms and numeric
+     * fields by numeric ranges, the way they are indexed. Other fields are
+     * parsed as usual.
+     */
+    private static final class KunderaQueryParser extends QueryParser
+    {
+
+        /**
+         * Instantiates a new kundera query parser.
+         */
+        KunderaQueryParser()
+        {
+            super(Version.LUCENE_34, DEFAULT_SEARCHABLE_FIELD, new StandardAnalyzer(Version.LUCENE_34));
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * org.apache.lucene.queryParser.QueryParser#getFieldQuery(java.lang.String
+         * , java.lang.String, boolean)
+         */
+        @Override
+        protected Query getFieldQuery(String field, String queryText, boolean quoted) throws ParseException
+        {
+            if (LuceneQueryBuilder.isKeywordField(field)
+                    || LuceneQueryBuilder.isNumeric(LuceneQueryBuilder.getFieldType(field)))
+            {
+                return LuceneQueryBuilder.getTermQuery(field, queryText);
+            }
+            return super.getFieldQuery(field, queryText, quoted);
+        }
+
+        /*
+         * (non-Javadoc)
+         * 
+         * @see
+         * org.apache.lucene.queryParser.QueryParser#getRangeQuery(java.lang.String
+         * , java.lang.String, java.lang.String, boolean)
+         */
+        @Override
+        protected Query getRangeQuery(String field, String part1, String part2, boolean inclusive)
+                throws ParseException
+        {
+            if (!LuceneQueryBuilder.isKeywordField(field)
+                    && LuceneQueryBuilder.isNumeric(LuceneQueryBuilder.getFieldType(field)))
+            {
+                // * and null stand for open ended ranges
+                String lower = "*".equals(part1) || "null".equals(part1) ? null : part1;
+                String upper = "*".equals(part2) || "null".equals(part2) ? null : part2;
+                return LuceneQueryBuilder.getRangeQuery(field, lower, upper, inclusive, inclusive);
+            }
+            return super.getRangeQuery(field, part1, part2, inclusive);
+        }
+    }
 }
@@ -0,0 +1,586 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.persistence.metamodel.Metamodel;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause.Occur;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.NumericRangeQuery;
+import org.apache.lucene.search.PhraseQuery;
+import org.apache.lucene.search.PrefixQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TermRangeQuery;
+import org.apache.lucene.search.WildcardQuery;
+import org.apache.lucene.util.Version;
+
+import com.impetus.kundera.metadata.model.ApplicationMetadata;
+import com.impetus.kundera.metadata.model.Column;
+import com.impetus.kundera.metadata.model.EmbeddedColumn;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.MetamodelImpl;
+import com.impetus.kundera.metadata.model.PropertyIndex;
+import com.impetus.kundera.property.PropertyAccessException;
+import com.impetus.kundera.property.accessor.DateAccessor;
+
+/**
+ * Builds Lucene queries directly from filter clauses of a JPA query, without
+ * going through query strings that would have to be parsed back. Identifier
+ * fields are matched as single terms, numeric and date fields (indexed as
+ * {@link NumericField}s) by numeric ranges and other fields by terms of their
+ * analyzed values. Clauses joined by OR are searched as alternatives of
+ * clauses joined by AND.
+ * 
+ * @author agent
+ */
+public final class LuceneQueryBuilder
+{
+
+    /** Fields indexed as single, not analyzed terms. */
+    private static final Set<String> KEYWORD_FIELDS = new HashSet<String>(Arrays.asList(
+            DocumentIndexer.ENTITY_ID_FIELD, DocumentIndexer.KUNDERA_ID_FIELD, DocumentIndexer.ENTITY_CLASS_FIELD,
+            DocumentIndexer.PARENT_ID_FIELD, DocumentIndexer.PARENT_ID_CLASS));
+
+    /** Java types of indexed fields, keyed by field names. */
+    private static final Map<String, Class<?>> fieldTypes = new ConcurrentHashMap<String, Class<?>>();
+
+    /** The analyzer values of text fields are matched with. */
+    private static final Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_34);
+
+    /** Clauses joined by AND, one group per alternative joined by OR. */
+    private final List<BooleanQuery> groups = new ArrayList<BooleanQuery>();
+
+    /**
+     * Instantiates a new lucene query builder.
+     */
+    public LuceneQueryBuilder()
+    {
+        groups.add(new BooleanQuery());
+    }
+
+    /**
+     * Appends a filter clause, which must be matched along with clauses
+     * appended since last OR.
+     * 
+     * @param field
+     *            the field, i.e. index name and column name
+     * @param condition
+     *            the condition, e.g. =, like, >, >=, < or <=
+     * @param value
+     *            the value
+     * @return this builder
+     */
+    public LuceneQueryBuilder appendClause(String field, String condition, String value)
+    {
+        Query query;
+        if (condition.equals("="))
+        {
+            query = getTermQuery(field, value);
+        }
+        else if (condition.equalsIgnoreCase("like"))
+        {
+            query = getLikeQuery(field, value);
+        }
+        else if (condition.equals(">"))
+        {
+            query = getRangeQuery(field, value, null, false, false);
+        }
+        else if (condition.equals(">="))
+        {
+            query = getRangeQuery(field, value, null, true, false);
+        }
+        else if (condition.equals("<"))
+        {
+            query = getRangeQuery(field, null, value, false, false);
+        }
+        else if (condition.equals("<="))
+        {
+            query = getRangeQuery(field, null, value, false, true);
+        }
+        else
+        {
+            throw new LuceneIndexingException("Unsupported condition " + condition + " on " + field);
+        }
+        groups.get(groups.size() - 1).add(query, Occur.MUST);
+        return this;
+    }
+
+    /**
+     * Appends an operator joining filter clauses, OR starts a new alternative
+     * while AND is implied between clauses.
+     * 
+     * @param operator
+     *            the operator
+     * @return this builder
+     */
+    public LuceneQueryBuilder appendOperator(String operator)
+    {
+        if ("OR".equalsIgnoreCase(operator))
+        {
+            groups.add(new BooleanQuery());
+        }
+        return this;
+    }
+
+    /**
+     * Builds query matching appended clauses on entities of given class.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @return the query
+     */
+    public Query build(Class<?> entityClass)
+    {
+        BooleanQuery query = new BooleanQuery();
+        if (groups.size() > 1)
+        {
+            BooleanQuery alternatives = new BooleanQuery();
+            for (BooleanQuery group : groups)
+            {
+                alternatives.add(group, Occur.SHOULD);
+            }
+            query.add(alternatives, Occur.MUST);
+        }
+        else if (!groups.get(0).clauses().isEmpty())
+        {
+            query.add(groups.get(0), Occur.MUST);
+        }
+        query.add(new TermQuery(new Term(DocumentIndexer.ENTITY_CLASS_FIELD, entityClass.getCanonicalName()
+                .toLowerCase())), Occur.MUST);
+        return query;
+    }
+
+    /**
+     * Gets query matching field equal to value.
+     * 
+     * @param field
+     *            the field
+     * @param value
+     *            the value
+     * @return the query
+     */
+    public static Query getTermQuery(String field, String value)
+    {
+        if (isKeywordField(field))
+        {
+            return new TermQuery(new Term(field, value));
+        }
+
+        Class<?> type = getFieldType(field);
+        if (isNumeric(type))
+        {
+            try
+            {
+                Number number = toNumber(type, value);
+                return getNumericRangeQuery(field, number, number, true, true);
+            }
+            catch (RuntimeException e)
+            {
+                // Not a number, matched as text and so never found
+            }
+        }
+
+        List<String> terms = analyze(field, value);
+        if (terms.isEmpty())
+        {
+            return new TermQuery(new Term(field, value.toLowerCase()));
+        }
+        else if (terms.size() == 1)
+        {
+            return new TermQuery(new Term(field, terms.get(0)));
+        }
+        PhraseQuery phrase = new PhraseQuery();
+        for (String term : terms)
+        {
+            phrase.add(new Term(field, term));
+        }
+        return phrase;
+    }
+
+    /**
+     * Gets query matching field within range of values.
+     * 
+     * @param field
+     *            the field
+     * @param lower
+     *            the lower value, null if range is open ended below
+     * @param upper
+     *            the upper value, null if range is open ended above
+     * @param includeLower
+     *            whether lower value is in range
+     * @param includeUpper
+     *            whether upper value is in range
+     * @return the query
+     */
+    public static Query getRangeQuery(String field, String lower, String upper, boolean includeLower,
+            boolean includeUpper)
+    {
+        Class<?> type = getFieldType(field);
+        if (!isKeywordField(field) && isNumeric(type))
+        {
+            try
+            {
+                return getNumericRangeQuery(field, lower == null ? null : toNumber(type, lower), upper == null ? null
+                        : toNumber(type, upper), includeLower, includeUpper);
+            }
+            catch (RuntimeException e)
+            {
+                // Not a number, compared as text
+            }
+        }
+        return new TermRangeQuery(field, lower, upper, includeLower, includeUpper);
+    }
+
+    /**
+     * Gets query matching field against a like pattern, where % and _ stand
+     * for any characters and any one character. Pattern without wildcards
+     * matches values starting with it.
+     * 
+     * @param field
+     *            the field
+     * @param pattern
+     *            the pattern
+     * @return the query
+     */
+    public static Query getLikeQuery(String field, String pattern)
+    {
+        String value = isKeywordField(field) ? pattern : pattern.toLowerCase();
+        value = value.replace('%', '*').replace('_', '?');
+        if (value.indexOf('*') < 0 && value.indexOf('?') < 0)
+        {
+            return new PrefixQuery(new Term(field, value));
+        }
+        return new WildcardQuery(new Term(field, value));
+    }
+
+    /**
+     * Checks if field is indexed as a single, not analyzed term.
+     * 
+     * @param field
+     *            the field
+     * @return true, if field holds identifiers
+     */
+    public static boolean isKeywordField(String field)
+    {
+        return KEYWORD_FIELDS.contains(field);
+    }
+
+    /**
+     * Checks if values of given type are indexed as numeric fields.
+     * 
+     * @param type
+     *            the type
+     * @return true, if numeric
+     */
+    public static boolean isNumeric(Class<?> type)
+    {
+        return getNumericType(type) != null;
+    }
+
+    /**
+     * Gets numeric field holding given value of a numeric type.
+     * 
+     * @param name
+     *            the field name
+     * @param type
+     *            the declared type of value
+     * @param value
+     *            the value
+     * @return the numeric field
+     */
+    static NumericField getNumericField(String name, Class<?> type, Object value)
+    {
+        NumericField field = new NumericField(name, Field.Store.YES, true);
+        Number number = toNumber(type, value);
+        Class<?> numericType = getNumericType(type);
+        if (numericType == Integer.class)
+        {
+            field.setIntValue(number.intValue());
+        }
+        else if (numericType == Long.class)
+        {
+            field.setLongValue(number.longValue());
+        }
+        else if (numericType == Float.class)
+        {
+            field.setFloatValue(number.floatValue());
+        }
+        else
+        {
+            field.setDoubleValue(number.doubleValue());
+        }
+        return field;
+    }
+
+    /**
+     * Gets the java type of values indexed in a field, String if it isn't a
+     * field of any entity or holds values of different types.
+     * 
+     * @param field
+     *            the field, i.e. index name and column name
+     * @return the field type
+     */
+    static Class<?> getFieldType(String field)
+    {
+        Class<?> type = fieldTypes.get(field);
+        if (type == null)
+        {
+            type = resolveFieldType(field);
+            fieldTypes.put(field, type);
+        }
+        return type;
+    }
+
+    /**
+     * Resolves field type from metadata of entities indexed in it.
+     * 
+     * @param field
+     *            the field
+     * @return the field type
+     */
+    private static Class<?> resolveFieldType(String field)
+    {
+        Class<?> type = null;
+        ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
+        if (appMetadata != null && appMetadata.getMetamodelMap() != null)
+        {
+            for (Metamodel metamodel : appMetadata.getMetamodelMap().values())
+            {
+                for (EntityMetadata metadata : ((MetamodelImpl) metamodel).getEntityMetadataMap().values())
+                {
+                    String prefix = metadata.getIndexName() + ".";
+                    if (!field.startsWith(prefix))
+                    {
+                        continue;
+                    }
+                    String name = field.substring(prefix.length());
+                    for (PropertyIndex index : metadata.getIndexProperties())
+                    {
+                        if (index.getName().equals(name))
+                        {
+                            type = mergeType(type, index.getProperty().getType());
+                        }
+                    }
+                    for (EmbeddedColumn embeddedColumn : metadata.getEmbeddedColumnsAsList())
+                    {
+                        for (Column column : embeddedColumn.getColumns())
+                        {
+                            if (column.getField().getName().equals(name))
+                            {
+                                type = mergeType(type, column.getField().getType());
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return type == null ? String.class : type;
+    }
+
+    /**
+     * Merges types of a field indexed by more than one entity.
+     * 
+     * @param type
+     *            the type found so far, may be null
+     * @param other
+     *            the other type
+     * @return the type
+     */
+    private static Class<?> mergeType(Class<?> type, Class<?> other)
+    {
+        if (type == null || getNumericType(type) == getNumericType(other))
+        {
+            return type == null ? other : type;
+        }
+        return String.class;
+    }
+
+    /**
+     * Gets boxed type numeric values of given type are indexed as, null if
+     * they are indexed as text. Dates are indexed as milliseconds.
+     * 
+     * @param type
+     *            the type
+     * @return the numeric type
+     */
+    private static Class<?> getNumericType(Class<?> type)
+    {
+        if (type == int.class || type == Integer.class || type == short.class || type == Short.class
+                || type == byte.class || type == Byte.class)
+        {
+            return Integer.class;
+        }
+        else if (type == long.class || type == Long.class || isDate(type))
+        {
+            return Long.class;
+        }
+        else if (type == float.class || type == Float.class)
+        {
+            return Float.class;
+        }
+        else if (type == double.class || type == Double.class)
+        {
+            return Double.class;
+        }
+        return null;
+    }
+
+    /**
+     * Checks if type is a date or calendar.
+     * 
+     * @param type
+     *            the type
+     * @return true, if date
+     */
+    private static boolean isDate(Class<?> type)
+    {
+        return Date.class.isAssignableFrom(type) || Calendar.class.isAssignableFrom(type);
+    }
+
+    /**
+     * Converts value, or its string form, to number it's indexed as.
+     * 
+     * @param type
+     *            the declared type of value
+     * @param value
+     *            the value
+     * @return the number
+     * @throws NumberFormatException
+     *             if string isn't a number
+     * @throws PropertyAccessException
+     *             if string isn't a date
+     */
+    private static Number toNumber(Class<?> type, Object value)
+    {
+        Number number;
+        if (value instanceof Date)
+        {
+            number = ((Date) value).getTime();
+        }
+        else if (value instanceof Calendar)
+        {
+            number = ((Calendar) value).getTimeInMillis();
+        }
+        else if (value instanceof Number)
+        {
+            number = (Number) value;
+        }
+        else
+        {
+            String s = value.toString().trim();
+            if (isDate(type) && !s.matches("-?\\d+"))
+            {
+                number = DateAccessor.getDateByPattern(s).getTime();
+            }
+            else
+            {
+                number = new BigDecimal(s);
+            }
+        }
+        return number;
+    }
+
+    /**
+     * Gets numeric range query of field type.
+     * 
+     * @param field
+     *            the field
+     * @param min
+     *            the min, null if open ended
+     * @param max
+     *            the max, null if open ended
+     * @param minInclusive
+     *            the min inclusive
+     * @param maxInclusive
+     *            the max inclusive
+     * @return the query
+     */
+    private static Query getNumericRangeQuery(String field, Number min, Number max, boolean minInclusive,
+            boolean maxInclusive)
+    {
+        Class<?> numericType = getNumericType(getFieldType(field));
+        if (numericType == Integer.class)
+        {
+            return NumericRangeQuery.newIntRange(field, min == null ? null : min.intValue(),
+                    max == null ? null : max.intValue(), minInclusive, maxInclusive);
+        }
+        else if (numericType == Long.class)
+        {
+            return NumericRangeQuery.newLongRange(field, min == null ? null : min.longValue(),
+                    max == null ? null : max.longValue(), minInclusive, maxInclusive);
+        }
+        else if (numericType == Float.class)
+        {
+            return NumericRangeQuery.newFloatRange(field, min == null ? null : min.floatValue(),
+                    max == null ? null : max.floatValue(), minInclusive, maxInclusive);
+        }
+        return NumericRangeQuery.newDoubleRange(field, min == null ? null : min.doubleValue(),
+                max == null ? null : max.doubleValue(), minInclusive, maxInclusive);
+    }
+
+    /**
+     * Analyzes value of a text field into terms it's indexed as.
+     * 
+     * @param field
+     *            the field
+     * @param value
+     *            the value
+     * @return the terms
+     */
+    private static List<String> analyze(String field, String value)
+    {
+        List<String> terms = new ArrayList<String>();
+        try
+        {
+            TokenStream stream = analyzer.reusableTokenStream(field, new StringReader(value));
+            CharTermAttribute term = stream.addAttribute(CharTermAttribute.class);
+            stream.reset();
+            while (stream.incrementToken())
+            {
+                terms.add(term.toString());
+            }
+            stream.end();
+            stream.close();
+        }
+        catch (IOException e)
+        {
+            throw new LuceneIndexingException("Error while analyzing " + value + " of " + field, e);
+        }
+        return terms;
+    }
+}
@@ -0,0 +1,257 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.search.IndexSearcher;
+
+/**
+ * Shares a near-real-time {@link IndexSearcher} opened from an
+ * {@link IndexWriter} among concurrent searches. Searchers are reference
+ * counted: every {@link #acquire()} must be followed by a {@link #release}.
+ * Writes only mark the searcher dirty; it's reopened from the writer (without
+ * committing) on a background schedule and, on acquire, once it has been
+ * stale for longer than the refresh interval.
+ *
+ * @author agent
+ */
+class LuceneSearcherManager
+{
+
+    /** log for this class. */
+    private static Log log = LogFactory.getLog(LuceneSearcherManager.class);
+
+    /** The writer. */
+    private final IndexWriter writer;
+
+    /**
+     * Maximum time (in milliseconds) a searcher may lag behind writes, 0 to
+     * reopen on every search after a write.
+     */
+    private final long refreshInterval;
+
+    /** The current searcher. */
+    private volatile IndexSearcher currentSearcher;
+
+    /** Whether writes have been made since searcher was last reopened. */
+    private volatile boolean dirty;
+
+    /** Time at which searcher was last reopened. */
+    private volatile long lastRefreshTime;
+
+    /** Lock held while reopening searcher. */
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    /** Background refresher, null if refresh interval is 0. */
+    private ScheduledExecutorService refresher;
+
+    /**
+     * Instantiates a new lucene searcher manager.
+     *
+     * @param writer
+     *            the writer
+     * @param refreshInterval
+     *            the refresh interval
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    LuceneSearcherManager(IndexWriter writer, long refreshInterval) throws IOException
+    {
+        this.writer = writer;
+        this.refreshInterval = refreshInterval;
+        currentSearcher = new IndexSearcher(IndexReader.open(writer, true));
+        lastRefreshTime = System.currentTimeMillis();
+
+        if (refreshInterval > 0)
+        {
+            refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+            {
+                @Override
+                public Thread newThread(Runnable r)
+                {
+                    Thread thread = new Thread(r, "kundera-index-refresher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            refresher.scheduleWithFixedDelay(new Runnable()
+            {
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        maybeRefresh();
+                    }
+                    catch (IOException e)
+                    {
+                        log.warn("Error while refreshing index searcher, Details:" + e.getMessage());
+                    }
+                }
+            }, refreshInterval, refreshInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Marks searcher stale after a write to the index.
+     */
+    void markDirty()
+    {
+        dirty = true;
+    }
+
+    /**
+     * Acquires current searcher, reopening it first if it's stale for longer
+     * than refresh interval.
+     *
+     * @return the index searcher
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    IndexSearcher acquire() throws IOException
+    {
+        if (dirty && System.currentTimeMillis() - lastRefreshTime >= refreshInterval)
+        {
+            maybeRefresh();
+        }
+
+        synchronized (this)
+        {
+            if (currentSearcher == null)
+            {
+                throw new LuceneIndexingException("Index searcher is already closed");
+            }
+            currentSearcher.getIndexReader().incRef();
+            return currentSearcher;
+        }
+    }
+
+    /**
+     * Releases a searcher obtained by {@link #acquire()}.
+     *
+     * @param searcher
+     *            the searcher
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void release(IndexSearcher searcher) throws IOException
+    {
+        searcher.getIndexReader().decRef();
+    }
+
+    /**
+     * Reopens searcher from writer if there are writes it does not see. When a
+     * refresh interval is set, callers don't wait for a refresh already in
+     * progress and keep using current searcher.
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void maybeRefresh() throws IOException
+    {
+        if (refreshInterval > 0)
+        {
+            if (!refreshLock.tryLock())
+            {
+                return;
+            }
+        }
+        else
+        {
+            refreshLock.lock();
+        }
+
+        try
+        {
+            if (!dirty || currentSearcher == null)
+            {
+                return;
+            }
+
+            // Writes made while reopening will mark it dirty again
+            dirty = false;
+            IndexReader reader = currentSearcher.getIndexReader();
+            IndexReader newReader;
+            try
+            {
+                newReader = reader.reopen(writer, true);
+            }
+            catch (IOException e)
+            {
+                dirty = true;
+                throw e;
+            }
+
+            if (newReader != reader)
+            {
+                swapSearcher(new IndexSearcher(newReader));
+            }
+            lastRefreshTime = System.currentTimeMillis();
+        }
+        finally
+        {
+            refreshLock.unlock();
+        }
+    }
+
+    /**
+     * Stops background refresh and releases current searcher.
+     *
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void close() throws IOException
+    {
+        if (refresher != null)
+        {
+            refresher.shutdownNow();
+        }
+        swapSearcher(null);
+    }
+
+    /**
+     * Replaces current searcher, old one is closed once all searches on it
+     * have released it.
+     *
+     * @param newSearcher
+     *            the new searcher
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void swapSearcher(IndexSearcher newSearcher) throws IOException
+    {
+        IndexSearcher oldSearcher;
+        synchronized (this)
+        {
+            oldSearcher = currentSearcher;
+            currentSearcher = newSearcher;
+        }
+        if (oldSearcher != null)
+        {
+            release(oldSearcher);
+        }
+    }
+}
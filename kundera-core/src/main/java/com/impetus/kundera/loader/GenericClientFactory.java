@@ -22,6 +22,7 @@ import com.impetus.kundera.PersistenceProperties;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.metadata.model.ClientMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 
 /**
  * Abstract class to hold generic definitions for client factory
@@ -79,14 +80,52 @@ public abstract class GenericClientFactory implements ClientFactory, ClientLifeC
         if (KunderaMetadata.INSTANCE.getClientMetadata(persistenceUnit) == null)
         {
             ClientMetadata clientMetadata = new ClientMetadata();
-            String secIndex = KunderaMetadata.INSTANCE.getApplicationMetadata()
-                    .getPersistenceUnitMetadata(persistenceUnit)
-                    .getProperty(PersistenceProperties.KUNDERA_INDEX_HOME_DIR);
+            PersistenceUnitMetadata puMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata()
+                    .getPersistenceUnitMetadata(persistenceUnit);
+            String secIndex = puMetadata.getProperty(PersistenceProperties.KUNDERA_INDEX_HOME_DIR);
             clientMetadata.setLuceneIndexDir(secIndex);
+
+            clientMetadata.setIndexDirectoryType(puMetadata.getProperty(PersistenceProperties.KUNDERA_INDEX_DIRECTORY));
+            clientMetadata.setIndexRefreshInterval((long) getNumericProperty(puMetadata,
+                    PersistenceProperties.KUNDERA_INDEX_REFRESH_INTERVAL, clientMetadata.getIndexRefreshInterval()));
+            clientMetadata.setIndexCommitInterval((long) getNumericProperty(puMetadata,
+                    PersistenceProperties.KUNDERA_INDEX_COMMIT_INTERVAL, clientMetadata.getIndexCommitInterval()));
+            clientMetadata.setIndexRAMBufferSize(getNumericProperty(puMetadata,
+                    PersistenceProperties.KUNDERA_INDEX_RAM_BUFFER_SIZE, clientMetadata.getIndexRAMBufferSize()));
+            clientMetadata.setIndexSharded(Boolean.parseBoolean(puMetadata
+                    .getProperty(PersistenceProperties.KUNDERA_INDEX_SHARDED)));
             KunderaMetadata.INSTANCE.addClientMetadata(persistenceUnit, clientMetadata);
         }
     }
 
+    /**
+     * Returns numeric value of a persistence unit property.
+     * 
+     * @param puMetadata
+     *            the pu metadata
+     * @param propertyName
+     *            the property name
+     * @param defaultValue
+     *            value returned if property is not specified or invalid
+     * @return the property value
+     */
+    private double getNumericProperty(PersistenceUnitMetadata puMetadata, String propertyName, double defaultValue)
+    {
+        String value = puMetadata.getProperty(propertyName);
+        if (value != null)
+        {
+            try
+            {
+                return Double.parseDouble(value.trim());
+            }
+            catch (NumberFormatException e)
+            {
+                logger.warn("Invalid value " + value + " for property " + propertyName + ", ignoring it");
+            }
+        }
+        return defaultValue;
+    }
+
     /**
      * Initialize client.
      */
@@ -233,7 +233,8 @@ public class ApplicationMetadata
      *            true, if it is a namednativequery.
      * 
      */
-    public void addQueryToCollection(String queryName, String query, boolean isNativeQuery, Class clazz)
+    public synchronized void addQueryToCollection(String queryName, String query, boolean isNativeQuery,
+            Class clazz)
     {
         if (namedNativeQueries == null)
         {
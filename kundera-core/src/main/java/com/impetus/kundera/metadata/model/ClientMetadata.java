@@ -34,6 +34,21 @@ public class ClientMetadata
     /** The Lucene index dir. */
     private String LuceneIndexDir;
 
+    /** Maximum time (in milliseconds) Lucene searches may lag behind writes. */
+    private long indexRefreshInterval;
+
+    /** The Lucene index directory type. */
+    private String indexDirectoryType;
+
+    /** Interval (in milliseconds) of background Lucene index commits. */
+    private long indexCommitInterval;
+
+    /** The Lucene index RAM buffer size in MB. */
+    private double indexRAMBufferSize = 32;
+
+    /** Whether there is a separate Lucene index per index name. */
+    private boolean indexSharded;
+
     /**
      * Gets the client implementor.
      * 
@@ -107,4 +122,109 @@ public class ClientMetadata
         LuceneIndexDir = luceneIndexDir;
     }
 
+    /**
+     * Gets the index refresh interval.
+     * 
+     * @return the indexRefreshInterval
+     */
+    public long getIndexRefreshInterval()
+    {
+        return indexRefreshInterval;
+    }
+
+    /**
+     * Sets the index refresh interval.
+     * 
+     * @param indexRefreshInterval
+     *            the indexRefreshInterval to set
+     */
+    public void setIndexRefreshInterval(long indexRefreshInterval)
+    {
+        this.indexRefreshInterval = indexRefreshInterval;
+    }
+
+    /**
+     * Gets the index directory type.
+     * 
+     * @return the indexDirectoryType
+     */
+    public String getIndexDirectoryType()
+    {
+        return indexDirectoryType;
+    }
+
+    /**
+     * Sets the index directory type.
+     * 
+     * @param indexDirectoryType
+     *            the indexDirectoryType to set
+     */
+    public void setIndexDirectoryType(String indexDirectoryType)
+    {
+        this.indexDirectoryType = indexDirectoryType;
+    }
+
+    /**
+     * Gets the index commit interval.
+     * 
+     * @return the indexCommitInterval
+     */
+    public long getIndexCommitInterval()
+    {
+        return indexCommitInterval;
+    }
+
+    /**
+     * Sets the index commit interval.
+     * 
+     * @param indexCommitInterval
+     *            the indexCommitInterval to set
+     */
+    public void setIndexCommitInterval(long indexCommitInterval)
+    {
+        this.indexCommitInterval = indexCommitInterval;
+    }
+
+    /**
+     * Gets the index RAM buffer size.
+     * 
+     * @return the indexRAMBufferSize
+     */
+    public double getIndexRAMBufferSize()
+    {
+        return indexRAMBufferSize;
+    }
+
+    /**
+     * Sets the index RAM buffer size.
+     * 
+     * @param indexRAMBufferSize
+     *            the indexRAMBufferSize to set
+     */
+    public void setIndexRAMBufferSize(double indexRAMBufferSize)
+    {
+        this.indexRAMBufferSize = indexRAMBufferSize;
+    }
+
+    /**
+     * Checks if index is sharded per index name.
+     * 
+     * @return the indexSharded
+     */
+    public boolean isIndexSharded()
+    {
+        return indexSharded;
+    }
+
+    /**
+     * Sets the index sharded.
+     * 
+     * @param indexSharded
+     *            the indexSharded to set
+     */
+    public void setIndexSharded(boolean indexSharded)
+    {
+        this.indexSharded = indexSharded;
+    }
+
 }
@@ -17,6 +17,9 @@ package com.impetus.kundera.metadata.model;
 
 import java.lang.reflect.Field;
 
+import com.impetus.kundera.property.FieldAccessor;
+import com.impetus.kundera.property.FieldAccessorFactory;
+
 /**
  * Holds metadata for entity column.
  * 
@@ -31,6 +34,9 @@ public final class Column
     /** column field. */
     private Field field;
 
+    /** Accessor of column field. */
+    private FieldAccessor accessor;
+
     /** whether indexable. */
     private boolean isIndexable; // default is NOT indexable
 
@@ -46,12 +52,12 @@ public final class Column
     {
         this.name = name;
         this.field = field;
+        this.accessor = field != null ? FieldAccessorFactory.getFieldAccessor(field) : null;
     }
 
     public Column(String name, Field field, boolean isIndexable)
     {
-        this.name = name;
-        this.field = field;
+        this(name, field);
         this.isIndexable = isIndexable;
     }
 
@@ -75,6 +81,16 @@ public final class Column
         return field;
     }
 
+    /**
+     * Gets the accessor of column field.
+     * 
+     * @return the accessor
+     */
+    public FieldAccessor getAccessor()
+    {
+        return accessor;
+    }
+
     /**
      * Checks if is indexable.
      * 
@@ -96,4 +112,4 @@ public final class Column
         this.isIndexable = isIndexable;
     }
 
-}
\ No newline at end of file
+}
\ No newline at end of file
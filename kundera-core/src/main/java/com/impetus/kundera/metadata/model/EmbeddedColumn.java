@@ -19,6 +19,9 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.List;
 
+import com.impetus.kundera.property.FieldAccessor;
+import com.impetus.kundera.property.FieldAccessorFactory;
+
 /**
  * Holds metadata for embedded column in entity.
  * 
@@ -33,6 +36,9 @@ public final class EmbeddedColumn
     /** Super column field. */
     private Field field;
 
+    /** Accessor of super column field. */
+    private FieldAccessor accessor;
+
     /** The columns. */
     private List<Column> columns;
 
@@ -48,6 +54,7 @@ public final class EmbeddedColumn
     {
         this.name = name;
         this.field = f;
+        this.accessor = f != null ? FieldAccessorFactory.getFieldAccessor(f) : null;
         columns = new ArrayList<Column>();
     }
 
@@ -91,6 +98,17 @@ public final class EmbeddedColumn
     public void setField(Field field)
     {
         this.field = field;
+        this.accessor = field != null ? FieldAccessorFactory.getFieldAccessor(field) : null;
+    }
+
+    /**
+     * Gets the accessor of super column field.
+     * 
+     * @return the accessor
+     */
+    public FieldAccessor getAccessor()
+    {
+        return accessor;
     }
 
     /**
@@ -115,4 +133,4 @@ public final class EmbeddedColumn
     {
         columns.add(new Column(name, field));
     }
-}
\ No newline at end of file
+}
\ No newline at end of file
@@ -19,12 +19,14 @@ import java.lang.reflect.Field;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.PersistenceException;
 
@@ -42,6 +44,7 @@ import com.impetus.kundera.metadata.model.Relation;
 import com.impetus.kundera.metadata.model.Relation.ForeignKey;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessorHelper;
+import com.impetus.kundera.proxy.KunderaProxy;
 
 /**
  * The Class AbstractEntityReader.
@@ -69,15 +72,268 @@ public class AbstractEntityReader
      */
     public Object recursivelyFindEntities(EnhanceEntity e, Client client, EntityMetadata m, PersistenceDelegator pd)
     {
+        return recursivelyFindEntities(e, client, m, pd, m.getRelations(), true, new HashMap<Object, Object>(), null);
+    }
+
+    /**
+     * Fetches child entities for a list of entities, e.g. results of a query.
+     * Related entities of all of them are read together, one call per
+     * relation instead of one per entity, and are then set into each entity.
+     * 
+     * @param entities
+     *            the entities
+     * @param client
+     *            the client
+     * @param m
+     *            the m
+     * @param pd
+     *            the pd
+     * @return the entities with relations populated
+     */
+    public List<Object> recursivelyFindEntities(List<EnhanceEntity> entities, Client client, EntityMetadata m,
+            PersistenceDelegator pd)
+    {
+        // Shared by all entities, so that an entity related to many of them
+        // is resolved only once
         Map<Object, Object> relationValuesMap = new HashMap<Object, Object>();
+        Map<String, List<Object>> fetchedChilds = fetchRelations(entities, m, pd);
+
+        List<Object> results = new ArrayList<Object>(entities.size());
+        for (EnhanceEntity e : entities)
+        {
+            results.add(recursivelyFindEntities(e, client, m, pd, m.getRelations(), true, relationValuesMap,
+                    fetchedChilds));
+        }
+        return results;
+    }
 
+    /**
+     * Reads entities related to given entities in one call per relation.
+     * Entities they refer to through a foreign key are read into persistence
+     * cache, where they're then found one by one. Child entities, referring
+     * to them, are looked up in index for each entity and read all together.
+     * 
+     * @param entities
+     *            the entities
+     * @param m
+     *            the m
+     * @param pd
+     *            the pd
+     * @return child entities keyed by relation and parent id, see
+     *         {@link #getChildsKey(Relation, String)}
+     */
+    private Map<String, List<Object>> fetchRelations(List<EnhanceEntity> entities, EntityMetadata m,
+            PersistenceDelegator pd)
+    {
+        Map<String, List<Object>> fetchedChilds = new HashMap<String, List<Object>>();
+        for (Relation relation : m.getRelations())
+        {
+            Class childClass = relation.getTargetEntity();
+            if (relation.isRelatedViaJoinTable() || childClass.equals(m.getEntityClazz())
+                    || (pd.isLazyLoading() && relation.getFetchType().equals(FetchType.LAZY)))
+            {
+                continue;
+            }
+
+            EntityMetadata childMetadata = pd.getMetadata(childClass);
+            Client childClient = pd.getClient(childMetadata);
+            Relation.ForeignKey multiplicity = relation.getType();
+            if (multiplicity.equals(Relation.ForeignKey.ONE_TO_ONE)
+                    || multiplicity.equals(Relation.ForeignKey.MANY_TO_ONE))
+            {
+                String relationName = MetadataUtils.getMappedName(m, relation);
+                Set<String> keys = new HashSet<String>();
+                for (EnhanceEntity e : entities)
+                {
+                    Object relationValue = e.getRelations() != null ? e.getRelations().get(relationName) : null;
+                    if (relationValue != null)
+                    {
+                        keys.add(relationValue.toString());
+                    }
+                }
+                if (keys.size() > 1)
+                {
+                    pd.find(childClass, keys.toArray());
+                }
+            }
+            else if (multiplicity.equals(Relation.ForeignKey.ONE_TO_MANY) && !relation.isJoinedByPrimaryKey()
+                    && !MetadataUtils.useSecondryIndex(childClient.getPersistenceUnit()))
+            {
+                // Index lookups are local, it's reads from datastore that are
+                // batched
+                Map<String, Set<String>> childIds = new HashMap<String, Set<String>>();
+                Set<String> allChildIds = new HashSet<String>();
+                for (EnhanceEntity e : entities)
+                {
+                    String query = getQuery(DocumentIndexer.PARENT_ID_CLASS, e.getEntity().getClass()
+                            .getCanonicalName().toLowerCase(), DocumentIndexer.PARENT_ID_FIELD, e.getEntityId(),
+                            childClass.getCanonicalName().toLowerCase());
+                    Set<String> ids = new HashSet<String>(childClient.getIndexManager().search(query).values());
+                    childIds.put(getChildsKey(relation, e.getEntityId()), ids);
+                    allChildIds.addAll(ids);
+                }
+
+                Map<String, Object> childsById = new HashMap<String, Object>();
+                if (!allChildIds.isEmpty())
+                {
+                    List<Object> childs = (List<Object>) childClient.findAll(childClass,
+                            allChildIds.toArray(new String[] {}));
+                    for (Object child : childs)
+                    {
+                        Object o = child instanceof EnhanceEntity ? ((EnhanceEntity) child).getEntity() : child;
+                        childsById.put(PropertyAccessorHelper.getId(o, childMetadata), child);
+                    }
+                }
+
+                for (String key : childIds.keySet())
+                {
+                    List<Object> childs = new ArrayList<Object>();
+                    for (String id : childIds.get(key))
+                    {
+                        if (childsById.get(id) != null)
+                        {
+                            childs.add(childsById.get(id));
+                        }
+                    }
+                    fetchedChilds.put(key, childs);
+                }
+            }
+        }
+        return fetchedChilds;
+    }
+
+    /**
+     * Gets key of child entities of given entity in a one to many relation.
+     * 
+     * @param relation
+     *            the relation
+     * @param entityId
+     *            the entity id
+     * @return the childs key
+     */
+    private String getChildsKey(Relation relation, String entityId)
+    {
+        return relation.getProperty().getName() + "|" + entityId;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.persistence.EntityReader#recursivelyFindRelation(com
+     * .impetus.kundera.client.EnhanceEntity,
+     * com.impetus.kundera.client.Client,
+     * com.impetus.kundera.metadata.model.EntityMetadata,
+     * com.impetus.kundera.persistence.PersistenceDelegator,
+     * com.impetus.kundera.metadata.model.Relation)
+     */
+    public Object recursivelyFindRelation(EnhanceEntity e, Client client, EntityMetadata m, PersistenceDelegator pd,
+            Relation relation)
+    {
+        recursivelyFindEntities(e, client, m, pd, Collections.singletonList(relation), false,
+                new HashMap<Object, Object>(), null);
+
+        Field field = relation.getProperty();
+        Object related = PropertyAccessorHelper.getObject(e.getEntity(), field);
+        if (related instanceof KunderaProxy && PropertyAccessorHelper.isCollection(field.getType()))
+        {
+            // No related entities found, lazily loaded collection is replaced
+            // by an empty one
+            related = getFieldInstance(new ArrayList(), field);
+            PropertyAccessorHelper.set(e.getEntity(), field, related);
+        }
+        return related;
+    }
+
+    /**
+     * Sets proxy of entities related to given entity through a lazily loaded
+     * relation, which are read through persistence delegator on first access.
+     * A related entity is represented by a proxy of its class, one to many and
+     * many to many relations by a proxy of their collection. Self references
+     * are always read eagerly.
+     * 
+     * @param e
+     *            the e
+     * @param m
+     *            the m
+     * @param pd
+     *            the pd
+     * @param relation
+     *            the relation
+     * @return true, if proxy is set, false if relation is to be read eagerly
+     */
+    private boolean populateLazyRelation(EnhanceEntity e, EntityMetadata m, PersistenceDelegator pd,
+            Relation relation)
+    {
+        Class<?> childClass = relation.getTargetEntity();
+        Field relationField = relation.getProperty();
+        if (childClass.equals(e.getEntity().getClass()))
+        {
+            return false;
+        }
+
+        Relation.ForeignKey multiplicity = relation.getType();
+        if (!relation.isRelatedViaJoinTable()
+                && (multiplicity.equals(Relation.ForeignKey.ONE_TO_ONE) || multiplicity
+                        .equals(Relation.ForeignKey.MANY_TO_ONE)))
+        {
+            String relationName = MetadataUtils.getMappedName(m, relation);
+            Object relationValue = e.getRelations() != null ? e.getRelations().get(relationName) : null;
+            if (relationValue == null || PropertyAccessorHelper.isCollection(relationField.getType()))
+            {
+                return false;
+            }
+            PropertyAccessorHelper.set(e.getEntity(), relationField, pd.getReference(childClass, relationValue));
+            return true;
+        }
+        else if (PropertyAccessorHelper.isCollection(relationField.getType()) && e.getEntityId() != null)
+        {
+            PropertyAccessorHelper.set(e.getEntity(), relationField, KunderaMetadataManager
+                    .getLazyInitializerFactory().getCollectionProxy(e.getEntity(), e.getEntityId(), relation, pd));
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Fetches child entities for a given entity.
+     * 
+     * @param e
+     *            the e
+     * @param client
+     *            the client
+     * @param m
+     *            the m
+     * @param pd
+     *            the pd
+     * @param relations
+     *            relations to fetch child entities of
+     * @param lazily
+     *            whether lazily loaded relations are set as proxies, rather
+     *            than read
+     * @param relationValuesMap
+     *            related entities already resolved
+     * @param fetchedChilds
+     *            child entities read for a list of entities, null if fetching
+     *            for one entity
+     * @return the entity
+     */
+    private Object recursivelyFindEntities(EnhanceEntity e, Client client, EntityMetadata m,
+            PersistenceDelegator pd, List<Relation> relations, boolean lazily, Map<Object, Object> relationValuesMap,
+            Map<String, List<Object>> fetchedChilds)
+    {
         Client childClient = null;
         Class childClass = null;
         EntityMetadata childMetadata = null;
 
-        for (Relation relation : m.getRelations())
+        for (Relation relation : relations)
         {
-            if (relation.isRelatedViaJoinTable())
+            if (lazily && pd.isLazyLoading() && relation.getFetchType().equals(FetchType.LAZY)
+                    && populateLazyRelation(e, m, pd, relation))
+            {
+                continue;
+            }
+            else if (relation.isRelatedViaJoinTable())
             {
                 populateRelationFromJoinTable(e, childClient, m, pd, relation);
             }
@@ -122,7 +378,8 @@ public class AbstractEntityReader
                         }
                         Field biDirectionalField = getBiDirectionalField(e.getEntity().getClass(), childClass);
                         onBiDirection(pd, e, client, relation, biDirectionalField, relation.getJoinColumnName(), m,
-                                relationValuesMap.get(relationValue + childClass.getName()), childMetadata, childClient);
+                                relationValuesMap.get(relationValue + childClass.getName()), childMetadata, childClient,
+                                relationValuesMap);
                         // onBiDirection(e, client, g, m,
                         // collectionHolder.get(relationalValue+childClazz.getName()),
                         // childMetadata, childClient);
@@ -147,9 +404,10 @@ public class AbstractEntityReader
                     String relationalValue = e.getEntityId();
 
                     Field f = relation.getProperty();
+                    String childsKey = getChildsKey(relation, relationalValue);
                     if (relationName != null && relationalValue != null)
                     {
-                        if (!relationValuesMap.containsKey(relationalValue + childClass.getName()))
+                        if (!relationValuesMap.containsKey(childsKey))
                         {
                             // create a finder and pass metadata, relationName,
                             // relationalValue.
@@ -181,6 +439,12 @@ public class AbstractEntityReader
                                                 .find(childClass, e.getEntityId())) : pd.find(childClass,
                                                 relationalValue.toString()));
                                     }
+                                    else if (fetchedChilds != null && fetchedChilds.containsKey(childsKey))
+                                    {
+                                        // Read along with childs of other
+                                        // entities
+                                        childs = fetchedChilds.get(childsKey);
+                                    }
                                     else
                                     {
                                         // lucene query, where entity class is
@@ -240,17 +504,18 @@ public class AbstractEntityReader
                                                         null), childClient, childMetadata, pd);
                                     }
                                     onBiDirection(pd, e, client, relation, biDirectionalField,
-                                            relation.getJoinColumnName(), m, o, childMetadata, childClient);
+                                            relation.getJoinColumnName(), m, o, childMetadata, childClient,
+                                            relationValuesMap);
                                     childCol.add(o);
 
                                 }
-                                relationValuesMap.put(relationalValue + childClass.getName(), childCol);
+                                relationValuesMap.put(childsKey, childCol);
                             }
                         }
                     }
                     // handle bi direction here.
 
-                    onReflect(e.getEntity(), f, (List) relationValuesMap.get(relationalValue + childClass.getName()));
+                    onReflect(e.getEntity(), f, (List) relationValuesMap.get(childsKey));
 
                 }
 
@@ -774,12 +1039,14 @@ public class AbstractEntityReader
      *            the child metadata
      * @param childClient
      *            the child client
+     * @param relationValuesMap
+     *            related entities already resolved, may be null
      * @throws Exception
      *             the exception
      */
     private void onBiDirection(PersistenceDelegator pd, EnhanceEntity e, Client client, Relation originalRelation,
             Field bidirectionalField, String relationName, EntityMetadata origMetadata, Object child,
-            EntityMetadata childMetadata, Client childClient)
+            EntityMetadata childMetadata, Client childClient, Map<Object, Object> relationValuesMap)
     {
         // Process bidirectional processing only if it's a bidirectional graph
         // and child exists (there is a possibility that this
@@ -803,7 +1070,15 @@ public class AbstractEntityReader
                     String id = PropertyAccessorHelper.getId(child, childMetadata);
                     List<Object> results = null;
 
-                    if (MetadataUtils.useSecondryIndex(client.getPersistenceUnit()))
+                    // Entities referring to a child are the same for every
+                    // entity it's read with
+                    String resultsKey = "bidirectional|" + bidirectionalField.getName() + "|" + id
+                            + child.getClass().getName();
+                    if (relationValuesMap != null && relationValuesMap.containsKey(resultsKey))
+                    {
+                        results = (List<Object>) relationValuesMap.get(resultsKey);
+                    }
+                    else if (MetadataUtils.useSecondryIndex(client.getPersistenceUnit()))
                     {
                         if (origMetadata.isRelationViaJoinTable())
                         {
@@ -891,18 +1166,26 @@ public class AbstractEntityReader
                         }
                         Set<String> uqSet = new HashSet<String>(keys.values());
                         results = new ArrayList<Object>();
-                        for (String rowKey : uqSet)
+                        List<Object> found = !uqSet.isEmpty() ? (List<Object>) client.findAll(e.getEntity()
+                                .getClass(), uqSet.toArray(new String[] {})) : null;
+                        if (found != null)
                         {
-                            Object result = client.find(e.getEntity().getClass(), rowKey);
-                            if (result != null)
+                            for (Object result : found)
                             {
-                                results.add(result instanceof EnhanceEntity ? ((EnhanceEntity) result).getEntity()
-                                        : result);
+                                if (result != null)
+                                {
+                                    results.add(result instanceof EnhanceEntity ? ((EnhanceEntity) result)
+                                            .getEntity() : result);
+                                }
                             }
-
                         }
                     }
 
+                    if (relationValuesMap != null)
+                    {
+                        relationValuesMap.put(resultsKey, results);
+                    }
+
                     if (results != null)
                     {
                         obj.addAll(results);
@@ -1089,7 +1372,7 @@ public class AbstractEntityReader
             // childMetadata, childClient);
             onBiDirection(delegator, e, pClient, relation,
                     getBiDirectionalField(entity.getClass(), relation.getTargetEntity()), joinColumnName,
-                    entityMetadata, obj, childMetadata, childClient);
+                    entityMetadata, obj, childMetadata, childClient, null);
 
             childrenEntities.add(obj);
         }
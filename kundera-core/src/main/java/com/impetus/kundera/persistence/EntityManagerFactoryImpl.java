@@ -42,6 +42,9 @@ import com.impetus.kundera.cache.NonOperationalCacheProvider;
 import com.impetus.kundera.client.ClientResolver;
 import com.impetus.kundera.loader.ClientLifeCycleManager;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
+import com.impetus.kundera.query.QueryPlanCache;
+import com.impetus.kundera.query.QueryResultCache;
 
 /**
  * The Class EntityManagerFactoryImpl.
@@ -76,6 +79,24 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
     // Transaction type
     PersistenceUnitTransactionType transactionType;
 
+    /** Maximum number of query plans cached. */
+    private static final int QUERY_PLAN_CACHE_SIZE = 1000;
+
+    /** Compiled query plans, shared by entity managers of this factory. */
+    private final QueryPlanCache queryPlanCache = new QueryPlanCache(QUERY_PLAN_CACHE_SIZE);
+
+    /** Default maximum number of query results cached. */
+    private static final int DEFAULT_QUERY_CACHE_SIZE = 1000;
+
+    /** Default time (in milliseconds) query results are cached for. */
+    private static final long DEFAULT_QUERY_CACHE_TTL = 60000;
+
+    /**
+     * Query results, shared by entity managers of this factory. Null if
+     * disabled.
+     */
+    private QueryResultCache queryResultCache;
+
     /**
      * This one is generally called via the PersistenceProvider.
      * 
@@ -113,6 +134,15 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
         cacheProvider = initSecondLevelCache();
         cacheProvider.createCache(Constants.KUNDERA_SECONDARY_CACHE_NAME);
 
+        // Initialize query result cache, results are read through L2 cache
+        long queryCacheSize = getLongProperty(PersistenceProperties.KUNDERA_QUERY_CACHE_SIZE,
+                DEFAULT_QUERY_CACHE_SIZE);
+        if (queryCacheSize > 0)
+        {
+            queryResultCache = new QueryResultCache((int) queryCacheSize, getLongProperty(
+                    PersistenceProperties.KUNDERA_QUERY_CACHE_TTL, DEFAULT_QUERY_CACHE_TTL));
+        }
+
         // Invoke Client Loaders
         logger.info("Loading Client(s) For Persistence Unit(s) " + persistenceUnit);
 
@@ -160,6 +190,9 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
         {
             ((ClientLifeCycleManager) ClientResolver.getClientFactory(pu)).destroy();
         }
+
+        // Query plans are resolved against metadata of this factory
+        queryPlanCache.clear();
     }
 
     @Override
@@ -242,6 +275,27 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
         throw new NotImplementedException("TODO");
     }
 
+    /**
+     * Gets the cache of compiled query plans, e.g. for its hit and miss
+     * counts.
+     * 
+     * @return the query plan cache
+     */
+    public QueryPlanCache getQueryPlanCache()
+    {
+        return queryPlanCache;
+    }
+
+    /**
+     * Gets the cache of query results, e.g. for its hit ratio.
+     * 
+     * @return the query result cache, null if disabled
+     */
+    public QueryResultCache getQueryResultCache()
+    {
+        return queryResultCache;
+    }
+
     /**
      * @return the transactionType
      */
@@ -303,6 +357,40 @@ public class EntityManagerFactoryImpl implements EntityManagerFactory
         return cacheProvider;
     }
 
+    /**
+     * Returns value of given property as a long. Factory properties override
+     * those of persistence units.
+     * 
+     * @param propertyName
+     *            the property name
+     * @param defaultValue
+     *            value returned if property isn't set or is invalid
+     * @return the property value
+     */
+    private long getLongProperty(String propertyName, long defaultValue)
+    {
+        Object value = getProperties().get(propertyName);
+        for (int i = 0; value == null && i < persistenceUnits.length; i++)
+        {
+            PersistenceUnitMetadata puMetadata = KunderaMetadataManager
+                    .getPersistenceUnitMetadata(persistenceUnits[i]);
+            value = puMetadata != null ? puMetadata.getProperty(propertyName) : null;
+        }
+        if (value == null)
+        {
+            return defaultValue;
+        }
+        try
+        {
+            return Long.parseLong(value.toString().trim());
+        }
+        catch (NumberFormatException e)
+        {
+            logger.warn("Invalid value " + value + " for property " + propertyName + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+
     /**
      * Gets the persistence units.
      * 
@@ -15,6 +15,7 @@
  ******************************************************************************/
 package com.impetus.kundera.persistence;
 
+import java.util.HashMap;
 import java.util.Map;
 
 import javax.persistence.EntityManager;
@@ -36,9 +37,12 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.Constants;
+import com.impetus.kundera.PersistenceProperties;
 import com.impetus.kundera.cache.Cache;
+import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.model.ApplicationMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.persistence.context.FlushManager;
 import com.impetus.kundera.persistence.context.PersistenceCache;
 
@@ -90,18 +94,7 @@ public class EntityManagerImpl implements EntityManager, EntityTransaction
     public EntityManagerImpl(EntityManagerFactory factory, PersistenceUnitTransactionType transactionType,
             PersistenceContextType persistenceContextType)
     {
-        this.factory = factory;
-        logger.debug("Creating EntityManager for persistence unit : " + getPersistenceUnit());
-        session = new EntityManagerSession((Cache) factory.getCache());
-        persistenceCache = new PersistenceCache();
-        persistenceCache.setPersistenceContextType(persistenceContextType);
-
-        persistenceDelegator = new PersistenceDelegator(session, persistenceCache);
-
-        this.persistenceContextType = persistenceContextType;
-        this.transactionType = transactionType;
-
-        logger.debug("Created EntityManager for persistence unit : " + getPersistenceUnit());
+        this(factory, null, transactionType, persistenceContextType);
     }
 
     /**
@@ -115,8 +108,29 @@ public class EntityManagerImpl implements EntityManager, EntityTransaction
     public EntityManagerImpl(EntityManagerFactory factory, Map properties,
             PersistenceUnitTransactionType transactionType, PersistenceContextType persistenceContextType)
     {
-        this(factory, transactionType, persistenceContextType);
+        this.factory = factory;
         this.properties = properties;
+        logger.debug("Creating EntityManager for persistence unit : " + getPersistenceUnit());
+        session = new EntityManagerSession((Cache) factory.getCache());
+        persistenceCache = new PersistenceCache();
+        persistenceCache.setPersistenceContextType(persistenceContextType);
+
+        persistenceDelegator = new PersistenceDelegator(session, persistenceCache);
+        persistenceDelegator.setBatchSize(getIntProperty(PersistenceProperties.KUNDERA_BATCH_SIZE));
+        persistenceDelegator.setFlushInterval(getIntProperty(PersistenceProperties.KUNDERA_BATCH_FLUSH_INTERVAL));
+        persistenceDelegator.setLazyLoading(Boolean.parseBoolean(String.valueOf(getProperty(
+                PersistenceProperties.KUNDERA_LAZY_LOADING)).trim()));
+        persistenceDelegator.setProperties(properties);
+        if (factory instanceof EntityManagerFactoryImpl)
+        {
+            persistenceDelegator.setQueryPlanCache(((EntityManagerFactoryImpl) factory).getQueryPlanCache());
+            persistenceDelegator.setQueryResultCache(((EntityManagerFactoryImpl) factory).getQueryResultCache());
+        }
+
+        this.persistenceContextType = persistenceContextType;
+        this.transactionType = transactionType;
+
+        logger.debug("Created EntityManager for persistence unit : " + getPersistenceUnit());
     }
 
     /*
@@ -201,7 +215,7 @@ public class EntityManagerImpl implements EntityManager, EntityTransaction
     public final void clear()
     {
         checkClosed();
-        session.clear();
+        session.clear(false);
 
         // TODO Do we need a client and persistenceDelegator close here?
         if (!PersistenceUnitTransactionType.JTA.equals(transactionType))
@@ -215,7 +229,7 @@ public class EntityManagerImpl implements EntityManager, EntityTransaction
     public final void close()
     {
         checkClosed();
-        session.clear();
+        session.clear(false);
         session = null;
         persistenceDelegator.close();
 
@@ -330,7 +344,13 @@ public class EntityManagerImpl implements EntityManager, EntityTransaction
     @Override
     public final <T> T getReference(Class<T> entityClass, Object primaryKey)
     {
-        throw new NotImplementedException("TODO");
+        checkClosed();
+        if (primaryKey == null)
+        {
+            throw new IllegalArgumentException("PrimaryKey value must not be null for object you want to find.");
+        }
+
+        return getPersistenceDelegator().getReference(entityClass, primaryKey);
     }
 
     @Override
@@ -508,8 +528,14 @@ public class EntityManagerImpl implements EntityManager, EntityTransaction
     @Override
     public void setProperty(String paramString, Object paramObject)
     {
-        throw new NotImplementedException("TODO");
-
+        Map<String, Object> newProperties = new HashMap<String, Object>();
+        if (properties != null)
+        {
+            newProperties.putAll(properties);
+        }
+        newProperties.put(paramString, paramObject);
+        properties = newProperties;
+        persistenceDelegator.setProperties(properties);
     }
 
     /*
@@ -653,6 +679,61 @@ public class EntityManagerImpl implements EntityManager, EntityTransaction
         return (String) this.factory.getProperties().get(Constants.PERSISTENCE_UNIT_NAME);
     }
 
+    /**
+     * Returns value of given property, as supplied at the time of
+     * EntityManager creation or else in persistence unit(s) associated with
+     * EMF.
+     * 
+     * @param propertyName
+     *            the property name
+     * @return the property value, null if not specified
+     */
+    private Object getProperty(String propertyName)
+    {
+        Object value = properties != null ? properties.get(propertyName) : null;
+
+        String persistenceUnits = getPersistenceUnit();
+        if (value == null && persistenceUnits != null)
+        {
+            for (String persistenceUnit : persistenceUnits.split(Constants.PERSISTENCE_UNIT_SEPARATOR))
+            {
+                PersistenceUnitMetadata puMetadata = KunderaMetadataManager.getPersistenceUnitMetadata(persistenceUnit);
+                value = puMetadata != null ? puMetadata.getProperty(propertyName) : null;
+                if (value != null)
+                {
+                    break;
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns integer value of given property, see
+     * {@link #getProperty(String)}.
+     * 
+     * @param propertyName
+     *            the property name
+     * @return the property value, 0 if not specified
+     */
+    private int getIntProperty(String propertyName)
+    {
+        Object value = getProperty(propertyName);
+        if (value == null)
+        {
+            return 0;
+        }
+        try
+        {
+            return Integer.parseInt(value.toString().trim());
+        }
+        catch (NumberFormatException e)
+        {
+            logger.warn("Invalid value " + value + " for property " + propertyName + ", ignoring it");
+            return 0;
+        }
+    }
+
     /**
      * Gets the session.
      * 
@@ -75,7 +75,7 @@ public class EntityManagerSession
             Cache c = (Cache) getL2Cache();
             if (c != null)
             {
-                o = (T) c.get(key);
+                o = (T) c.get(entityClass, key);
                 if (o != null)
                 {
                     LOG.debug("Found item in second level cache!");
@@ -121,7 +121,7 @@ public class EntityManagerSession
             Cache c = (Cache) getL2Cache();
             if (c != null)
             {
-                c.put(key, entity);
+                c.put(entity.getClass(), key, entity);
             }
         }
     }
@@ -170,6 +170,30 @@ public class EntityManagerSession
         }
     }
 
+    /**
+     * Removes all entities of given class (and its subclasses) from cache.
+     * 
+     * @param entityClass
+     *            the entity class
+     */
+    protected void remove(Class<?> entityClass)
+    {
+        LOG.debug("Removing from L1 and L2 >> " + entityClass.getName());
+        for (Map.Entry<Object, Object> entry : sessionCache.entrySet())
+        {
+            if (entityClass.isInstance(entry.getValue()))
+            {
+                sessionCache.remove(entry.getKey());
+            }
+        }
+
+        Cache c = (Cache) getL2Cache();
+        if (c != null)
+        {
+            c.evict(entityClass);
+        }
+    }
+
     /**
      * Cache key.
      * 
@@ -189,11 +213,23 @@ public class EntityManagerSession
      * Clear.
      */
     public final void clear()
+    {
+        clear(Boolean.TRUE);
+    }
+
+    /**
+     * Clears L1 cache, and L2 cache too if asked to. L2 cache is shared by all
+     * EntityManagers of a factory, so it should outlive them.
+     * 
+     * @param spillOverToL2
+     *            the spill over to l2
+     */
+    public final void clear(boolean spillOverToL2)
     {
         sessionCache = new ConcurrentHashMap<Object, Object>();
 
         // Clear L2 Cahce
-        if (getL2Cache() != null)
+        if (spillOverToL2 && getL2Cache() != null)
         {
             getL2Cache().evictAll();
         }
@@ -20,6 +20,7 @@ import java.util.List;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.Relation;
 
 /**
  * The Interface EntityReader.
@@ -70,6 +71,43 @@ public interface EntityReader
 
     Object recursivelyFindEntities(EnhanceEntity e, Client client, EntityMetadata m, PersistenceDelegator pd);
 
+    /**
+     * Returns populated entities along with all relational values. Related
+     * entities of all of them are read together, rather than entity by
+     * entity.
+     * 
+     * @param entities
+     *            enhance entities
+     * @param client
+     *            client
+     * @param m
+     *            entity meta data
+     * @param pd
+     *            persistence delegator.
+     * @return populated entities.
+     */
+    List<Object> recursivelyFindEntities(List<EnhanceEntity> entities, Client client, EntityMetadata m,
+            PersistenceDelegator pd);
+
+    /**
+     * Reads entities related to given entity through one relation, e.g. on
+     * first access to a lazily loaded collection, and sets them into entity.
+     * 
+     * @param e
+     *            enhance entity
+     * @param client
+     *            client
+     * @param m
+     *            entity meta data
+     * @param pd
+     *            persistence delegator.
+     * @param relation
+     *            the relation
+     * @return related entity or collection of entities set into entity.
+     */
+    Object recursivelyFindRelation(EnhanceEntity e, Client client, EntityMetadata m, PersistenceDelegator pd,
+            Relation relation);
+
     /**
      * Find by id.
      * 
@@ -16,14 +16,22 @@
 
 package com.impetus.kundera.persistence;
 
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.persistence.CascadeType;
+import javax.persistence.FetchType;
 import javax.persistence.FlushModeType;
 import javax.persistence.PostPersist;
 import javax.persistence.PostRemove;
@@ -37,8 +45,11 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.client.Batcher;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.ClientResolver;
+import com.impetus.kundera.client.Configurable;
+import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.graph.Node;
 import com.impetus.kundera.graph.NodeLink;
 import com.impetus.kundera.graph.NodeLink.LinkProperty;
@@ -62,8 +73,11 @@ import com.impetus.kundera.persistence.event.EntityEventDispatcher;
 import com.impetus.kundera.persistence.handler.impl.EntitySaveGraph;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessorHelper;
+import com.impetus.kundera.proxy.KunderaProxy;
+import com.impetus.kundera.query.QueryPlanCache;
 import com.impetus.kundera.query.QueryResolver;
-import com.impetus.kundera.utils.ObjectUtils;
+import com.impetus.kundera.query.QueryResultCache;
+import com.impetus.kundera.utils.EntitySnapshot;
 
 /**
  * The Class PersistenceDelegator.
@@ -100,6 +114,49 @@ public class PersistenceDelegator
 
     private PersistenceCache persistenceCache;
 
+    /**
+     * Number of pending persist/merge/remove operations after which
+     * persistence context is flushed, 0 to flush after every operation.
+     */
+    private int batchSize;
+
+    /**
+     * Age (in milliseconds) of oldest pending operation after which
+     * persistence context is flushed on next operation, 0 for no time based
+     * flush.
+     */
+    private long flushInterval;
+
+    /** Number of persist/merge/remove operations not yet flushed. */
+    private int pendingOperations;
+
+    /** Time at which the oldest pending operation was performed. */
+    private long firstPendingTime;
+
+    /** EntityManager properties applied to configurable clients. */
+    private Map<String, Object> properties;
+
+    /** Maximum number of entities read together to initialize a proxy. */
+    private static final int PROXY_BATCH_SIZE = 100;
+
+    /**
+     * Whether relations with FetchType.LAZY are set to proxies read on first
+     * access, rather than read along with their entity.
+     */
+    private boolean lazyLoading;
+
+    /**
+     * Ids of entities referred to by proxies not initialized yet, per entity
+     * class. Proxies of a class are initialized together.
+     */
+    private Map<Class<?>, Set<Object>> proxiedKeys = new HashMap<Class<?>, Set<Object>>();
+
+    /** Query plans of entity manager factory, null if not cached. */
+    private QueryPlanCache queryPlanCache;
+
+    /** Query results of entity manager factory, null if not cached. */
+    private QueryResultCache queryResultCache;
+
     /**
      * Instantiates a new persistence delegator.
      * 
@@ -127,6 +184,11 @@ public class PersistenceDelegator
 
     public void persist(Object e)
     {
+        if (e instanceof KunderaProxy)
+        {
+            e = ((KunderaProxy) e).getKunderaLazyInitializer().getImplementation();
+        }
+
         // Invoke Pre Persist Events
         EntityMetadata metadata = getMetadata(e.getClass());
         getEventDispatcher().fireEventListeners(metadata, e, PrePersist.class);
@@ -144,8 +206,7 @@ public class PersistenceDelegator
 
         headNode.persist();
 
-        // TODO: not always, should be conditional
-        flush();
+        flushIfRequired();
 
         graph.getNodeMapping().clear();
         graph = null;
@@ -174,26 +235,44 @@ public class PersistenceDelegator
         MainCache mainCache = (MainCache) getPersistenceCache().getMainCache();
         Node node = mainCache.getNodeFromCache(nodeId);
 
-        // if node is not in persistence cache or is dirty, fetch from database
-        if (node == null || node.isDirty())
+        // Write pending changes of this node first, so that they aren't lost
+        // while it's re-read from database
+        if (node != null && node.isDirty() && pendingOperations > 0)
         {
-
-            node = new Node(nodeId, entityClass, new ManagedState(), getPersistenceCache());
-            Client client = getClient(entityMetadata);
-            node.setClient(client);
-            node.setPersistenceDelegator(this);
-
-            node.find();
+            flush();
+            node = mainCache.getNodeFromCache(nodeId);
         }
 
-        Object nodeData = node.getData();
+        // if node is not in persistence cache, only refers to an entity not
+        // read yet or is dirty, fetch from second level cache or database
+        Object nodeData;
+        if (node == null || node.getData() == null || node.isDirty())
+        {
+            nodeData = node == null || !node.isDirty() ? lookupCache(entityMetadata, primaryKey) : null;
+            if (nodeData == null)
+            {
+                node = new Node(nodeId, entityClass, new ManagedState(), getPersistenceCache());
+                Client client = getClient(entityMetadata);
+                node.setClient(client);
+                node.setPersistenceDelegator(this);
+
+                node.find();
+                nodeData = node.getData();
+                cache(nodeData, entityMetadata);
+            }
+        }
+        else
+        {
+            nodeData = node.getData();
+        }
 
         // If node for this nodeData is not already there in PC,
         // Generate an object graph of this found entity, and put it into cache
         // with Managed state
         if (nodeData != null)
         {
-            if (getPersistenceCache().getMainCache().getNodeFromCache(nodeId) == null)
+            Node nodeInCache = getPersistenceCache().getMainCache().getNodeFromCache(nodeId);
+            if (nodeInCache == null || nodeInCache.getData() == null)
             {
                 ObjectGraph graph = new ObjectGraphBuilder().getObjectGraph(nodeData, new ManagedState(),
                         getPersistenceCache());
@@ -206,15 +285,20 @@ public class PersistenceDelegator
             return null;
         }
 
-        // Return a deep copy of the node data
-        return (E) ObjectUtils.deepCopy(nodeData);
+        // Node data is the managed instance, its changes are detected against
+        // snapshot taken when it was cached
+        return (E) nodeData;
 
     }
 
     public <E> List<E> find(Class<E> entityClass, Object... primaryKeys)
     {
         List<E> entities = new ArrayList<E>();
-        Set pKeys = new HashSet(Arrays.asList(primaryKeys));
+        Set pKeys = new LinkedHashSet(Arrays.asList(primaryKeys));
+
+        // Entities not in persistence cache are read all together first, and
+        // then found in cache one by one
+        loadAll(entityClass, pKeys);
         for (Object primaryKey : pKeys)
         {
             entities.add(find(entityClass, primaryKey));
@@ -222,16 +306,313 @@ public class PersistenceDelegator
         return entities;
     }
 
+    /**
+     * Reads entities of given primary keys that are not in persistence cache
+     * in one call to client, populates their relations for all of them
+     * together and puts them into persistence cache.
+     * 
+     * @param entityClass
+     *            the entity class
+     * @param primaryKeys
+     *            the primary keys
+     */
+    private void loadAll(Class<?> entityClass, Set<?> primaryKeys)
+    {
+        MainCache mainCache = (MainCache) getPersistenceCache().getMainCache();
+        EntityMetadata entityMetadata = getMetadata(entityClass);
+        List<Object> keys = new ArrayList<Object>(primaryKeys.size());
+        for (Object primaryKey : primaryKeys)
+        {
+            if (!isLoaded(mainCache.getNodeFromCache(ObjectGraphBuilder.getNodeId(primaryKey, entityClass))))
+            {
+                Object cached = lookupCache(entityMetadata, primaryKey);
+                if (cached != null)
+                {
+                    mainCache.addGraphToCache(new ObjectGraphBuilder().getObjectGraph(cached, new ManagedState(),
+                            getPersistenceCache()), getPersistenceCache());
+                }
+                else
+                {
+                    keys.add(primaryKey);
+                }
+            }
+        }
+        if (keys.size() < 2)
+        {
+            return;
+        }
+
+        Client client = getClient(entityMetadata);
+        List<?> found = client.findAll(entityClass, keys.toArray());
+        if (found == null || found.isEmpty())
+        {
+            return;
+        }
+
+        List<EnhanceEntity> enhanceEntities = new ArrayList<EnhanceEntity>(found.size());
+        for (Object o : found)
+        {
+            if (o != null)
+            {
+                enhanceEntities.add(o instanceof EnhanceEntity ? (EnhanceEntity) o : new EnhanceEntity(o,
+                        PropertyAccessorHelper.getId(o, entityMetadata), null));
+            }
+        }
+
+        List<Object> entities = new ArrayList<Object>(enhanceEntities.size());
+        if ((entityMetadata.getRelationNames() == null || entityMetadata.getRelationNames().isEmpty())
+                && !entityMetadata.isRelationViaJoinTable())
+        {
+            for (EnhanceEntity e : enhanceEntities)
+            {
+                entities.add(e.getEntity());
+            }
+        }
+        else
+        {
+            entities = client.getReader().recursivelyFindEntities(enhanceEntities, client, entityMetadata, this);
+        }
+
+        for (Object entity : entities)
+        {
+            if (entity != null
+                    && !isLoaded(mainCache.getNodeFromCache(ObjectGraphBuilder.getNodeId(
+                            PropertyAccessorHelper.getId(entity, entityMetadata), entityClass))))
+            {
+                cache(entity, entityMetadata);
+                ObjectGraph graph = new ObjectGraphBuilder().getObjectGraph(entity, new ManagedState(),
+                        getPersistenceCache());
+                mainCache.addGraphToCache(graph, getPersistenceCache());
+            }
+        }
+    }
+
+    /**
+     * Looks up an entity of a cacheable class in second level cache.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param primaryKey
+     *            the primary key
+     * @return copy of cached entity, or null if it isn't cached
+     */
+    private Object lookupCache(EntityMetadata entityMetadata, Object primaryKey)
+    {
+        if (!entityMetadata.isCacheable())
+        {
+            return null;
+        }
+
+        // Returned entity becomes managed and is changed in place by its
+        // EntityManager, so cached instance must not be handed out itself
+        Object cached = session.lookup(entityMetadata.getEntityClazz(), primaryKey);
+        return cached != null ? EntitySnapshot.copy(entityMetadata, cached) : null;
+    }
+
+    /**
+     * Puts a copy of an entity read from database into second level cache, if
+     * its class is cacheable. Copies are cached, so that changes made to
+     * managed instances don't leak to other EntityManagers before they are
+     * flushed.
+     * 
+     * @param entity
+     *            the entity, may be null
+     * @param entityMetadata
+     *            the entity metadata
+     */
+    private void cache(Object entity, EntityMetadata entityMetadata)
+    {
+        if (entity != null && entityMetadata.isCacheable()
+                && !(lazyLoading && hasLazyRelations(entityMetadata, new HashSet<Class<?>>())))
+        {
+            session.store(getId(entity, entityMetadata), EntitySnapshot.copy(entityMetadata, entity));
+        }
+    }
+
+    /**
+     * Checks whether entities of given class may hold proxies, i.e. whether
+     * any relation reachable from it is fetched lazily. Proxies are bound to
+     * EntityManager that created them, so such entities aren't cached.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param visited
+     *            entity classes already visited
+     * @return true, if a lazily fetched relation is reachable
+     */
+    private boolean hasLazyRelations(EntityMetadata entityMetadata, Set<Class<?>> visited)
+    {
+        if (entityMetadata == null || !visited.add(entityMetadata.getEntityClazz()))
+        {
+            return false;
+        }
+
+        for (Relation relation : entityMetadata.getRelations())
+        {
+            if (FetchType.LAZY.equals(relation.getFetchType())
+                    || hasLazyRelations(getMetadata(relation.getTargetEntity()), visited))
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evicts all entities of given class from second level cache, e.g. once
+     * they've been updated in database by a query.
+     * 
+     * @param entityClass
+     *            the entity class
+     */
+    public void evictFromCache(Class<?> entityClass)
+    {
+        session.remove(entityClass);
+    }
+
+    /**
+     * Checks whether given node of persistence cache holds entity data, rather
+     * than only referring to an entity not read yet.
+     * 
+     * @param node
+     *            the node, may be null
+     * @return true, if node holds entity data
+     */
+    private boolean isLoaded(Node node)
+    {
+        return node != null && node.getData() != null;
+    }
+
+    /**
+     * Returns an entity from persistence cache if it's there, otherwise a proxy
+     * of it, read from database on first access.
+     * 
+     * @param <E>
+     *            the element type
+     * @param entityClass
+     *            the entity class
+     * @param primaryKey
+     *            the primary key
+     * @return the entity or its proxy
+     */
+    public <E> E getReference(Class<E> entityClass, Object primaryKey)
+    {
+        Node node = getPersistenceCache().getMainCache().getNodeFromCache(
+                ObjectGraphBuilder.getNodeId(primaryKey, entityClass));
+        if (isLoaded(node))
+        {
+            return (E) node.getData();
+        }
+
+        // Proxy returns its id as string, so id getter is intercepted only if
+        // it returns one
+        EntityMetadata entityMetadata = getMetadata(entityClass);
+        Method getIdentifierMethod = entityMetadata.getReadIdentifierMethod();
+        if (getIdentifierMethod != null && !String.class.equals(getIdentifierMethod.getReturnType()))
+        {
+            getIdentifierMethod = null;
+        }
+
+        String id = primaryKey.toString();
+        KunderaProxy proxy = KunderaMetadataManager.getLazyInitializerFactory().getProxy(entityClass.getName(),
+                entityClass, getIdentifierMethod, entityMetadata.getWriteIdentifierMethod(), id, this);
+
+        Set<Object> keys = proxiedKeys.get(entityClass);
+        if (keys == null)
+        {
+            keys = new LinkedHashSet<Object>();
+            proxiedKeys.put(entityClass, keys);
+        }
+        keys.add(id);
+        return (E) proxy;
+    }
+
+    /**
+     * Finds entity referred to by a proxy being initialized. Entities of other
+     * proxies of same class, not initialized yet, are read along with it, so
+     * that accessing each of them doesn't cost a call to database.
+     * 
+     * @param <E>
+     *            the element type
+     * @param entityClass
+     *            the entity class
+     * @param primaryKey
+     *            the primary key
+     * @return the entity
+     */
+    public <E> E initializeProxy(Class<E> entityClass, Object primaryKey)
+    {
+        Set<Object> keys = proxiedKeys.get(entityClass);
+        if (keys != null)
+        {
+            keys.remove(primaryKey);
+            if (!keys.isEmpty())
+            {
+                List<Object> batch = new ArrayList<Object>();
+                batch.add(primaryKey);
+                Iterator<Object> iter = keys.iterator();
+                while (iter.hasNext() && batch.size() < PROXY_BATCH_SIZE)
+                {
+                    batch.add(iter.next());
+                    iter.remove();
+                }
+                find(entityClass, batch.toArray());
+            }
+        }
+        return find(entityClass, primaryKey);
+    }
+
+    /**
+     * Reads entities of a lazily loaded collection of given entity, sets them
+     * into entity and returns the collection holding them.
+     * 
+     * @param entity
+     *            the entity holding the collection
+     * @param relation
+     *            the relation
+     * @return the collection
+     */
+    public Object initializeCollection(Object entity, Relation relation)
+    {
+        EntityMetadata entityMetadata = getMetadata(entity.getClass());
+        Client client = getClient(entityMetadata);
+        String id = getId(entity, entityMetadata);
+
+        // Reading a collection doesn't modify its entity, so snapshot of a
+        // managed entity not modified otherwise is retaken
+        Node node = getPersistenceCache().getMainCache().getNodeFromCache(
+                ObjectGraphBuilder.getNodeId(id, entity.getClass()));
+        boolean isUnmodified = node != null && node.getData() == entity
+                && !EntitySnapshot.isModified(entityMetadata, entity, node.getSnapshot());
+
+        Object collection = client.getReader().recursivelyFindRelation(new EnhanceEntity(entity, id, null), client,
+                entityMetadata, this, relation);
+
+        if (isUnmodified)
+        {
+            node.setSnapshot(EntitySnapshot.take(entityMetadata, entity));
+        }
+        return collection;
+    }
+
     /**
      * Removes an entity object from persistence cache
      */
     public void remove(Object e)
     {
+        if (e instanceof KunderaProxy)
+        {
+            e = ((KunderaProxy) e).getKunderaLazyInitializer().getImplementation();
+        }
 
         // Invoke Pre Remove Events
         EntityMetadata metadata = getMetadata(e.getClass());
         getEventDispatcher().fireEventListeners(metadata, e, PreRemove.class);
 
+        // Entities removal is cascaded to must be in object graph, so
+        // lazily loaded ones are read first
+        initializeCascadedRelations(e, new IdentityHashMap<Object, Object>());
+
         // Create an object graph of the entity object
         ObjectGraph graph = graphBuilder.getObjectGraph(e, new ManagedState(), getPersistenceCache());
 
@@ -244,14 +625,59 @@ public class PersistenceDelegator
 
         headNode.remove();
 
-        // TODO: not always, should be conditional
-        flush();
+        flushIfRequired();
 
         getEventDispatcher().fireEventListeners(metadata, e, PostRemove.class);
         log.debug("Data removed successfully for entity : " + e.getClass());
 
     }
 
+    /**
+     * Initializes proxies of entities that removal of given entity is cascaded
+     * to, recursively.
+     * 
+     * @param entity
+     *            the entity
+     * @param visited
+     *            entities already visited
+     */
+    private void initializeCascadedRelations(Object entity, Map<Object, Object> visited)
+    {
+        if (entity instanceof KunderaProxy)
+        {
+            entity = ((KunderaProxy) entity).getKunderaLazyInitializer().getImplementation();
+        }
+
+        EntityMetadata metadata = entity != null ? getMetadata(entity.getClass()) : null;
+        if (metadata == null || visited.put(entity, entity) != null)
+        {
+            return;
+        }
+
+        for (Relation relation : metadata.getRelations())
+        {
+            List<CascadeType> cascades = relation.getCascades();
+            if (cascades == null
+                    || !(cascades.contains(CascadeType.ALL) || cascades.contains(CascadeType.REMOVE)))
+            {
+                continue;
+            }
+
+            Object related = PropertyAccessorHelper.getObject(entity, relation.getProperty());
+            if (related instanceof Collection<?>)
+            {
+                for (Object child : (Collection<?>) related)
+                {
+                    initializeCascadedRelations(child, visited);
+                }
+            }
+            else
+            {
+                initializeCascadedRelations(related, visited);
+            }
+        }
+    }
+
     /**
      * Flushes Dirty objects in {@link PersistenceCache} to databases.
      */
@@ -265,81 +691,181 @@ public class PersistenceDelegator
         }
         else if (FlushModeType.AUTO.equals(getFlushMode()))
         {
-            // Build Flush Stack from the Persistence Cache
-            // TODO: Cascade flush for only those related entities for whom
-            // cascade=ALL or PERSIST
-            flushManager.buildFlushStack(getPersistenceCache());
+            doFlush();
+        }
+    }
+
+    /**
+     * Flushes persistence context if write-behind is disabled, or if pending
+     * operations have exceeded configured batch size or flush interval. No
+     * timer flushes on its own, as persistence context isn't safe to flush
+     * from a thread other than EntityManager's.
+     */
+    private void flushIfRequired()
+    {
+        if (pendingOperations++ == 0)
+        {
+            firstPendingTime = System.currentTimeMillis();
+        }
+
+        if (batchSize <= 0 && flushInterval <= 0)
+        {
+            flush();
+        }
+        else if ((batchSize > 0 && pendingOperations >= batchSize)
+                || (flushInterval > 0 && System.currentTimeMillis() - firstPendingTime >= flushInterval))
+        {
+            log.debug("Flushing " + pendingOperations + " pending operation(s) to database(s)");
+            flush();
+        }
+    }
+
+    /**
+     * Writes all dirty nodes in {@link PersistenceCache} to databases. Managed
+     * nodes of clients implementing {@link Batcher} are grouped per client and
+     * written in one batch, rest are flushed one by one.
+     */
+    private void doFlush()
+    {
+        // Build Flush Stack from the Persistence Cache
+        // TODO: Cascade flush for only those related entities for whom
+        // cascade=ALL or PERSIST
+        flushManager.buildFlushStack(getPersistenceCache());
+
+        // Get flush stack from Persistence Cache
+        FlushStack fs = getPersistenceCache().getFlushStack();
+
+        // Nodes added to batch of each client
+        Map<Batcher, List<Node>> batches = new LinkedHashMap<Batcher, List<Node>>();
 
-            // Get flush stack from Persistence Cache
-            FlushStack fs = getPersistenceCache().getFlushStack();
+        // Classes of entities written, whose cached query results are stale
+        Set<Class<?>> writtenClasses = new HashSet<Class<?>>();
 
-            // Flush each node in flush stack from top to bottom unit it's empty
-            log.debug("Flushing following flush stack to database(s) (showing stack objects from top to bottom):\n"
-                    + fs);
-            while (!fs.isEmpty())
+        // Written nodes of cacheable entities
+        List<Node> cachedNodes = new ArrayList<Node>();
+
+        // Flush each node in flush stack from top to bottom unit it's empty
+        log.debug("Flushing following flush stack to database(s) (showing stack objects from top to bottom):\n"
+                + fs);
+        while (!fs.isEmpty())
+        {
+            Node node = fs.pop();
+
+            // Only nodes in Managed and Removed state are flushed, rest are
+            // ignored
+            if (node.isInState(ManagedState.class) || node.isInState(RemovedState.class))
             {
-                Node node = fs.pop();
+                EntityMetadata metadata = getMetadata(node.getDataClass());
+                Client client = getClient(metadata);
+                node.setClient(client);
 
-                // Only nodes in Managed and Removed state are flushed, rest are
-                // ignored
-                if (node.isInState(ManagedState.class) || node.isInState(RemovedState.class))
+                // Cached copies of entities written to database are stale
+                if (node.isDirty() || node.isInState(RemovedState.class))
                 {
-                    EntityMetadata metadata = getMetadata(node.getDataClass());
-                    node.setClient(getClient(metadata));
+                    writtenClasses.add(node.getDataClass());
+                    if (metadata.isCacheable())
+                    {
+                        session.remove(node.getDataClass(), ObjectGraphBuilder.getEntityId(node.getNodeId()));
+                        cachedNodes.add(node);
+                    }
+                }
 
+                if (client instanceof Batcher && node.isInState(ManagedState.class) && node.isDirty())
+                {
+                    List<Node> batch = batches.get(client);
+                    if (batch == null)
+                    {
+                        batch = new ArrayList<Node>();
+                        batches.put((Batcher) client, batch);
+                    }
+                    ((Batcher) client).addBatch(node);
+                    batch.add(node);
+                }
+                else
+                {
                     node.flush();
+                }
 
-                    // Update Link value for all nodes attached to this one
-                    Map<NodeLink, Node> parents = node.getParents();
-                    Map<NodeLink, Node> children = node.getChildren();
+                // Update Link value for all nodes attached to this one
+                Map<NodeLink, Node> parents = node.getParents();
+                Map<NodeLink, Node> children = node.getChildren();
 
-                    if (parents != null && !parents.isEmpty())
+                if (parents != null && !parents.isEmpty())
+                {
+                    for (NodeLink parentNodeLink : parents.keySet())
                     {
-                        for (NodeLink parentNodeLink : parents.keySet())
-                        {
-                            parentNodeLink.addLinkProperty(LinkProperty.LINK_VALUE,
-                                    ObjectGraphBuilder.getEntityId(node.getNodeId()));
-                        }
+                        parentNodeLink.addLinkProperty(LinkProperty.LINK_VALUE,
+                                ObjectGraphBuilder.getEntityId(node.getNodeId()));
                     }
+                }
 
-                    if (children != null && !children.isEmpty())
+                if (children != null && !children.isEmpty())
+                {
+                    for (NodeLink childNodeLink : children.keySet())
                     {
-                        for (NodeLink childNodeLink : children.keySet())
-                        {
-                            childNodeLink.addLinkProperty(LinkProperty.LINK_VALUE,
-                                    ObjectGraphBuilder.getEntityId(node.getNodeId()));
-                        }
+                        childNodeLink.addLinkProperty(LinkProperty.LINK_VALUE,
+                                ObjectGraphBuilder.getEntityId(node.getNodeId()));
                     }
                 }
+            }
+
+        }
 
+        // Write batched nodes, one batch per client
+        for (Batcher batcher : batches.keySet())
+        {
+            batcher.executeBatch();
+            for (Node node : batches.get(batcher))
+            {
+                node.setDirty(false);
             }
+        }
 
-            // Flush Join Table data into database
-            Map<String, JoinTableData> joinTableDataMap = getPersistenceCache().getJoinTableDataMap();
-            for (JoinTableData jtData : joinTableDataMap.values())
+        // Evicted again, as another EntityManager may have cached old copies
+        // read while they were being written
+        for (Node node : cachedNodes)
+        {
+            session.remove(node.getDataClass(), ObjectGraphBuilder.getEntityId(node.getNodeId()));
+        }
+        for (Class<?> writtenClass : writtenClasses)
+        {
+            if (queryResultCache != null)
             {
-                EntityMetadata m = KunderaMetadataManager.getEntityMetadata(jtData.getEntityClass());
-                Client client = getClient(m);
+                queryResultCache.invalidate(writtenClass);
+            }
+        }
 
-                if (OPERATION.INSERT.equals(jtData.getOperation()))
-                {
-                    client.persistJoinTable(jtData);
-                }
-                else if (OPERATION.DELETE.equals(jtData.getOperation()))
+        // Flush Join Table data into database
+        Map<String, JoinTableData> joinTableDataMap = getPersistenceCache().getJoinTableDataMap();
+        for (JoinTableData jtData : joinTableDataMap.values())
+        {
+            EntityMetadata m = KunderaMetadataManager.getEntityMetadata(jtData.getEntityClass());
+            Client client = getClient(m);
+
+            if (OPERATION.INSERT.equals(jtData.getOperation()))
+            {
+                client.persistJoinTable(jtData);
+            }
+            else if (OPERATION.DELETE.equals(jtData.getOperation()))
+            {
+                for (Object pk : jtData.getJoinTableRecords().keySet())
                 {
-                    for (Object pk : jtData.getJoinTableRecords().keySet())
-                    {
-                        client.deleteByColumn(jtData.getJoinTableName(), m.getIdColumn().getName(), pk);
-                    }
+                    client.deleteByColumn(jtData.getJoinTableName(), m.getIdColumn().getName(), pk);
                 }
             }
-            joinTableDataMap.clear(); // All Join table operation performed,
-                                      // clear it.
         }
+        joinTableDataMap.clear(); // All Join table operation performed,
+                                  // clear it.
+
+        pendingOperations = 0;
     }
 
     public <E> E merge(E e)
     {
+        if (e instanceof KunderaProxy)
+        {
+            e = (E) ((KunderaProxy) e).getKunderaLazyInitializer().getImplementation();
+        }
 
         log.debug("Merging Entity : " + e);
         EntityMetadata m = getMetadata(e.getClass());
@@ -361,8 +887,7 @@ public class PersistenceDelegator
         }
         headNode.merge();
 
-        // TODO: not always, should be conditional
-        flush();
+        flushIfRequired();
 
         // fire PreUpdate events
         getEventDispatcher().fireEventListeners(m, e, PostUpdate.class);
@@ -394,12 +919,14 @@ public class PersistenceDelegator
         {
             clientMap = new HashMap<String, Client>();
             client = ClientResolver.discoverClient(persistenceUnit);
+            configure(client);
             clientMap.put(persistenceUnit, client);
 
         }
         else if (clientMap.get(persistenceUnit) == null)
         {
             client = ClientResolver.discoverClient(persistenceUnit);
+            configure(client);
             clientMap.put(persistenceUnit, client);
         }
         else
@@ -410,6 +937,20 @@ public class PersistenceDelegator
         return client;
     }
 
+    /**
+     * Applies EntityManager properties to client, if it is configurable.
+     *
+     * @param client
+     *            the client
+     */
+    private void configure(Client client)
+    {
+        if (properties != null && client instanceof Configurable)
+        {
+            ((Configurable) client).setProperties(properties);
+        }
+    }
+
     /**
      * Gets the session.
      * 
@@ -497,6 +1038,11 @@ public class PersistenceDelegator
      */
     public Query createQuery(String jpaQuery)
     {
+        // Pending changes must be visible to query
+        if (pendingOperations > 0)
+        {
+            flush();
+        }
         Query query = new QueryResolver().getQueryImplementation(jpaQuery, this);
         return query;
     }
@@ -516,6 +1062,11 @@ public class PersistenceDelegator
      */
     public final void close()
     {
+        // Write pending changes before clients are closed
+        if (pendingOperations > 0)
+        {
+            flush();
+        }
         eventDispatcher = null;
 
         // Close all clients created in this session
@@ -531,11 +1082,14 @@ public class PersistenceDelegator
 
         // TODO: Move all nodes tied to this EM into detached state
 
+        proxiedKeys.clear();
         closed = true;
     }
 
     public final void clear()
     {
+        proxiedKeys.clear();
+
         // Move all nodes tied to this EM into detached state
         new PersistenceCacheManager(getPersistenceCache()).clearPersistenceCache();
     }
@@ -584,7 +1138,11 @@ public class PersistenceDelegator
      */
     public void store(Object id, Object entity)
     {
-        session.store(id, entity);
+        EntityMetadata entityMetadata = getMetadata(entity.getClass());
+        if (entityMetadata != null && entityMetadata.isCacheable())
+        {
+            session.store(id, EntitySnapshot.copy(entityMetadata, entity));
+        }
     }
 
     /**
@@ -598,7 +1156,35 @@ public class PersistenceDelegator
     public void store(List entities, EntityMetadata entityMetadata)
     {
         for (Object o : entities)
-            session.store(getId(o, entityMetadata), o);
+            cache(o, entityMetadata);
+    }
+
+    /**
+     * Puts an entity read by a query into persistence cache in managed state.
+     * If persistence cache already holds the entity, that instance is returned
+     * in place of the one read, so that query results and find agree.
+     * 
+     * @param <E>
+     *            the element type
+     * @param entity
+     *            the entity read from database
+     * @return the managed entity
+     */
+    public <E> E manage(E entity)
+    {
+        EntityMetadata entityMetadata = getMetadata(entity.getClass());
+        MainCache mainCache = (MainCache) getPersistenceCache().getMainCache();
+        Node node = mainCache.getNodeFromCache(ObjectGraphBuilder.getNodeId(
+                PropertyAccessorHelper.getId(entity, entityMetadata), entity.getClass()));
+        if (isLoaded(node))
+        {
+            return (E) node.getData();
+        }
+
+        cache(entity, entityMetadata);
+        mainCache.addGraphToCache(new ObjectGraphBuilder().getObjectGraph(entity, new ManagedState(),
+                getPersistenceCache()), getPersistenceCache());
+        return entity;
     }
 
     /**
@@ -630,6 +1216,119 @@ public class PersistenceDelegator
         this.flushMode = flushMode;
     }
 
+    /**
+     * @return number of pending operations after which persistence context is
+     *         flushed, 0 if it's flushed after every operation
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * @param batchSize
+     *            number of pending operations after which persistence context
+     *            is flushed, 0 to flush after every operation
+     */
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * @return EntityManager properties applied to configurable clients
+     */
+    public Map<String, Object> getProperties()
+    {
+        return properties;
+    }
+
+    /**
+     * Sets EntityManager properties and applies them to configurable clients
+     * already in use.
+     *
+     * @param properties
+     *            EntityManager properties, overriding persistence unit
+     *            settings of the same name
+     */
+    public void setProperties(Map<String, Object> properties)
+    {
+        this.properties = properties;
+        if (clientMap != null)
+        {
+            for (Client client : clientMap.values())
+            {
+                configure(client);
+            }
+        }
+    }
+
+    /**
+     * @param flushInterval
+     *            age (in milliseconds) of oldest pending operation after which
+     *            persistence context is flushed on next operation, 0 for no
+     *            time based flush
+     */
+    public void setFlushInterval(long flushInterval)
+    {
+        this.flushInterval = flushInterval;
+    }
+
+    /**
+     * @param lazyLoading
+     *            whether relations with FetchType.LAZY are set to proxies read
+     *            on first access, rather than read along with their entity
+     */
+    public void setLazyLoading(boolean lazyLoading)
+    {
+        this.lazyLoading = lazyLoading;
+    }
+
+    /**
+     * @return true, if relations with FetchType.LAZY are set to proxies read
+     *         on first access
+     */
+    public boolean isLazyLoading()
+    {
+        return lazyLoading;
+    }
+
+    /**
+     * @param queryPlanCache
+     *            cache of compiled query plans shared by entity managers of
+     *            same factory
+     */
+    public void setQueryPlanCache(QueryPlanCache queryPlanCache)
+    {
+        this.queryPlanCache = queryPlanCache;
+    }
+
+    /**
+     * @return cache of compiled query plans, null if plans aren't cached
+     */
+    public QueryPlanCache getQueryPlanCache()
+    {
+        return queryPlanCache;
+    }
+
+    /**
+     * @param queryResultCache
+     *            cache of query results shared by entity managers of same
+     *            factory
+     */
+    public void setQueryResultCache(QueryResultCache queryResultCache)
+    {
+        this.queryResultCache = queryResultCache;
+    }
+
+    /**
+     * @return cache of query results, null if results aren't cached
+     */
+    public QueryResultCache getQueryResultCache()
+    {
+        return queryResultCache;
+    }
+
     /**
      * @return the isTransactionInProgress
      */
@@ -655,12 +1354,27 @@ public class PersistenceDelegator
 
     public void commit()
     {
-        flush();
+        // Unit of work is written irrespective of flush mode
+        doFlush();
         isTransactionInProgress = false;
     }
 
     public void rollback()
     {
+        // Changes pending since begin() are discarded, so that they are not
+        // written on a later flush or on close
+        getPersistenceCache().clean();
+        pendingOperations = 0;
+        if (clientMap != null)
+        {
+            for (Client client : clientMap.values())
+            {
+                if (client instanceof Batcher)
+                {
+                    ((Batcher) client).clear();
+                }
+            }
+        }
         isTransactionInProgress = false;
     }
 
@@ -27,7 +27,9 @@ import org.apache.commons.logging.LogFactory;
 import com.impetus.kundera.graph.Node;
 import com.impetus.kundera.graph.NodeLink;
 import com.impetus.kundera.graph.ObjectGraph;
-import com.impetus.kundera.utils.ObjectUtils;
+import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.utils.EntitySnapshot;
 
 /**
  * Base class for all cache required in persistence context
@@ -62,11 +64,14 @@ public class CacheBase
 
     public void addNodeToCache(Node node)
     {
-        // Make a deep copy of Node data and and set into node
-        // Original data object is now detached from Node and is possibly
-        // referred by user code
-        Object nodeDataCopy = ObjectUtils.deepCopy(node.getData());
-        node.setData(nodeDataCopy);
+        // Snapshot column values of Node data, changes made to it by user code
+        // from now on are detected against this snapshot
+        EntityMetadata metadata = node.getData() != null ? KunderaMetadataManager.getEntityMetadata(node
+                .getDataClass()) : null;
+        if (metadata != null)
+        {
+            node.setSnapshot(EntitySnapshot.take(metadata, node.getData()));
+        }
 
         /*
          * check if this node already exists in cache node mappings If yes,
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+/**
+ * Reads and writes value of an entity field, bypassing field lookup and
+ * access checks on every call. Instances are obtained from
+ * {@link FieldAccessorFactory}.
+ * 
+ * @author agent
+ */
+public interface FieldAccessor
+{
+
+    /**
+     * Gets field value from target object.
+     * 
+     * @param target
+     *            the target
+     * @return the value
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    Object get(Object target);
+
+    /**
+     * Sets field value onto target object.
+     * 
+     * @param target
+     *            the target
+     * @param value
+     *            the value
+     * @throws PropertyAccessException
+     *             the property access exception
+     */
+    void set(Object target, Object value);
+}
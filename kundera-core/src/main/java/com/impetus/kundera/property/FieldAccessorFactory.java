@@ -0,0 +1,487 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javassist.ClassClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtMethod;
+import javassist.CtNewConstructor;
+import javassist.CtNewMethod;
+import javassist.LoaderClassPath;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.CodeAttribute;
+import javassist.bytecode.CodeIterator;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.Opcode;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Creates and caches {@link FieldAccessor}s of entity fields. Where a field
+ * has a public getter and setter that do nothing but read and write the field,
+ * an accessor class calling them directly is generated using javassist, else
+ * a reflective accessor is used.
+ * 
+ * @author agent
+ */
+public final class FieldAccessorFactory
+{
+
+    /** log for this class. */
+    private static Log log = LogFactory.getLog(FieldAccessorFactory.class);
+
+    /** Accessors keyed by field. */
+    private static final Map<Field, FieldAccessor> accessors = new ConcurrentHashMap<Field, FieldAccessor>();
+
+    /** Declared fields keyed by class and field name. */
+    private static final ConcurrentHashMap<Class<?>, Map<String, Field>> declaredFields =
+            new ConcurrentHashMap<Class<?>, Map<String, Field>>();
+
+    /** Class pool used for generating accessors. */
+    private static ClassPool classPool;
+
+    /** Class loaders already on class path of pool. */
+    private static final Map<ClassLoader, Boolean> poolLoaders = new WeakHashMap<ClassLoader, Boolean>();
+
+    /** Sequence making generated class names unique. */
+    private static int sequence;
+
+    /**
+     * Instantiates a new field accessor factory.
+     */
+    private FieldAccessorFactory()
+    {
+    }
+
+    /**
+     * Gets accessor of given field, creating it on first call.
+     * 
+     * @param field
+     *            the field
+     * @return the field accessor
+     */
+    public static FieldAccessor getFieldAccessor(Field field)
+    {
+        FieldAccessor accessor = accessors.get(field);
+        if (accessor == null)
+        {
+            accessor = createFieldAccessor(field);
+        }
+        return accessor;
+    }
+
+    /**
+     * Gets field of given name declared by given class, looking it up only on
+     * first call.
+     * 
+     * @param clazz
+     *            the clazz
+     * @param fieldName
+     *            the field name
+     * @return the field
+     * @throws NoSuchFieldException
+     *             if class doesn't declare such field
+     */
+    public static Field getDeclaredField(Class<?> clazz, String fieldName) throws NoSuchFieldException
+    {
+        Map<String, Field> fields = declaredFields.get(clazz);
+        if (fields == null)
+        {
+            declaredFields.putIfAbsent(clazz, new ConcurrentHashMap<String, Field>());
+            fields = declaredFields.get(clazz);
+        }
+
+        Field field = fields.get(fieldName);
+        if (field == null)
+        {
+            field = clazz.getDeclaredField(fieldName);
+            fields.put(fieldName, field);
+        }
+        return field;
+    }
+
+    /**
+     * Creates accessor of given field, unless created meanwhile by another
+     * thread.
+     * 
+     * @param field
+     *            the field
+     * @return the field accessor
+     */
+    private static synchronized FieldAccessor createFieldAccessor(Field field)
+    {
+        FieldAccessor accessor = accessors.get(field);
+        if (accessor != null)
+        {
+            return accessor;
+        }
+
+        FieldAccessor reflectiveAccessor = new ReflectiveFieldAccessor(field);
+        accessor = reflectiveAccessor;
+        try
+        {
+            FieldAccessor generatedAccessor = generateFieldAccessor(field, reflectiveAccessor);
+            if (generatedAccessor != null)
+            {
+                accessor = generatedAccessor;
+            }
+        }
+        catch (Exception e)
+        {
+            // e.g. class loader of entity can't see Kundera classes
+            log.debug("Using reflection for field " + field + ", accessor could not be generated. Details:"
+                    + e.getMessage());
+        }
+        catch (LinkageError e)
+        {
+            log.debug("Using reflection for field " + field + ", accessor could not be generated. Details:"
+                    + e.getMessage());
+        }
+
+        accessors.put(field, accessor);
+        return accessor;
+    }
+
+    /**
+     * Generates accessor calling getter and setter of given field.
+     * 
+     * @param field
+     *            the field
+     * @param fallback
+     *            accessor for instances of subclasses
+     * @return the field accessor, null if field doesn't have suitable getter
+     *         and setter
+     * @throws Exception
+     *             if accessor could not be generated
+     */
+    private static FieldAccessor generateFieldAccessor(Field field, FieldAccessor fallback) throws Exception
+    {
+        Class<?> entityClass = field.getDeclaringClass();
+        if (!Modifier.isPublic(entityClass.getModifiers()) || entityClass.getClassLoader() == null)
+        {
+            return null;
+        }
+
+        Method getter = getAccessorMethod(entityClass, getterNames(field), field.getType());
+        Method setter = getAccessorMethod(entityClass, new String[] { "set" + StringUtils.capitalize(field.getName()) },
+                null, field.getType());
+        if (getter == null || setter == null)
+        {
+            return null;
+        }
+
+        ClassPool pool = getClassPool(entityClass.getClassLoader());
+        CtClass entityCtClass = pool.get(entityClass.getName());
+        if (!isFieldRead(entityCtClass.getDeclaredMethod(getter.getName(), new CtClass[0]), field)
+                || !isFieldWrite(
+                        entityCtClass.getDeclaredMethod(setter.getName(),
+                                new CtClass[] { pool.get(typeName(field.getType())) }), field))
+        {
+            return null;
+        }
+
+        String entityType = entityClass.getName();
+        CtClass accessorClass = pool.makeClass(entityType + "$$KunderaAccessor$$" + field.getName() + "$$"
+                + (++sequence));
+        accessorClass.setSuperclass(pool.get(GeneratedFieldAccessor.class.getName()));
+        accessorClass.addConstructor(CtNewConstructor.make(
+                new CtClass[] { pool.get(Class.class.getName()), pool.get(FieldAccessor.class.getName()) },
+                new CtClass[0], "{ super($1, $2); }", accessorClass));
+        accessorClass.addMethod(CtNewMethod.make("protected java.lang.Object read(java.lang.Object target) { return "
+                + "($w) ((" + entityType + ") $1)." + getter.getName() + "(); }", accessorClass));
+        accessorClass.addMethod(CtNewMethod.make("protected void write(java.lang.Object target, "
+                + "java.lang.Object value) { " + nullCheck(field) + "((" + entityType + ") $1)." + setter.getName()
+                + "(" + castValue(field.getType()) + "); }", accessorClass));
+
+        Class<?> generated = accessorClass.toClass(entityClass.getClassLoader(), entityClass.getProtectionDomain());
+        accessorClass.detach();
+        return (FieldAccessor) generated.getConstructor(Class.class, FieldAccessor.class).newInstance(entityClass,
+                fallback);
+    }
+
+    /**
+     * Returns class pool able to load classes of given class loader.
+     * 
+     * @param classLoader
+     *            the class loader
+     * @return the class pool
+     */
+    private static ClassPool getClassPool(ClassLoader classLoader)
+    {
+        if (classPool == null)
+        {
+            classPool = new ClassPool(true);
+            classPool.insertClassPath(new ClassClassPath(FieldAccessorFactory.class));
+        }
+        if (!poolLoaders.containsKey(classLoader))
+        {
+            classPool.appendClassPath(new LoaderClassPath(classLoader));
+            poolLoaders.put(classLoader, Boolean.TRUE);
+        }
+        return classPool;
+    }
+
+    /**
+     * Returns public, non static method declared in given class with one of
+     * given names, given return type and parameter types.
+     * 
+     * @param clazz
+     *            the clazz
+     * @param names
+     *            the names
+     * @param returnType
+     *            the return type, null for void
+     * @param parameterTypes
+     *            the parameter types
+     * @return the method, null if there isn't any
+     */
+    private static Method getAccessorMethod(Class<?> clazz, String[] names, Class<?> returnType,
+            Class<?>... parameterTypes)
+    {
+        for (String name : names)
+        {
+            try
+            {
+                Method method = clazz.getDeclaredMethod(name, parameterTypes);
+                int modifiers = method.getModifiers();
+                Class<?> expectedType = returnType != null ? returnType : void.class;
+                if (Modifier.isPublic(modifiers) && !Modifier.isStatic(modifiers)
+                        && method.getReturnType().equals(expectedType))
+                {
+                    return method;
+                }
+            }
+            catch (NoSuchMethodException e)
+            {
+                // Try next name
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns possible getter names of a field.
+     * 
+     * @param field
+     *            the field
+     * @return the getter names
+     */
+    private static String[] getterNames(Field field)
+    {
+        String name = StringUtils.capitalize(field.getName());
+        if (boolean.class.equals(field.getType()))
+        {
+            return new String[] { "is" + name, "get" + name };
+        }
+        return new String[] { "get" + name };
+    }
+
+    /**
+     * Checks whether method body is just "return this.field;".
+     * 
+     * @param method
+     *            the method
+     * @param field
+     *            the field
+     * @return true, if is field read
+     * @throws BadBytecode
+     *             the bad bytecode
+     */
+    private static boolean isFieldRead(CtMethod method, Field field) throws BadBytecode
+    {
+        int[] opcodes = { Opcode.ALOAD_0, Opcode.GETFIELD, returnOpcode(field.getType()) };
+        return matches(method, field, opcodes, Opcode.GETFIELD);
+    }
+
+    /**
+     * Checks whether method body is just "this.field = value;".
+     * 
+     * @param method
+     *            the method
+     * @param field
+     *            the field
+     * @return true, if is field write
+     * @throws BadBytecode
+     *             the bad bytecode
+     */
+    private static boolean isFieldWrite(CtMethod method, Field field) throws BadBytecode
+    {
+        int[] opcodes = { Opcode.ALOAD_0, loadOpcode(field.getType()), Opcode.PUTFIELD, Opcode.RETURN };
+        return matches(method, field, opcodes, Opcode.PUTFIELD);
+    }
+
+    /**
+     * Checks whether instructions of method are exactly given ones, with
+     * field instruction referring to given field.
+     * 
+     * @param method
+     *            the method
+     * @param field
+     *            the field
+     * @param opcodes
+     *            the opcodes
+     * @param fieldOpcode
+     *            the field opcode
+     * @return true, if matches
+     * @throws BadBytecode
+     *             the bad bytecode
+     */
+    private static boolean matches(CtMethod method, Field field, int[] opcodes, int fieldOpcode) throws BadBytecode
+    {
+        CodeAttribute code = method.getMethodInfo().getCodeAttribute();
+        if (code == null)
+        {
+            return false;
+        }
+
+        ConstPool constPool = method.getMethodInfo().getConstPool();
+        CodeIterator iterator = code.iterator();
+        int i = 0;
+        while (iterator.hasNext())
+        {
+            int index = iterator.next();
+            int opcode = iterator.byteAt(index);
+            if (i >= opcodes.length || opcode != opcodes[i++])
+            {
+                return false;
+            }
+            if (opcode == fieldOpcode)
+            {
+                int fieldRef = iterator.u16bitAt(index + 1);
+                if (!field.getName().equals(constPool.getFieldrefName(fieldRef))
+                        || !field.getDeclaringClass().getName().equals(constPool.getFieldrefClassName(fieldRef)))
+                {
+                    return false;
+                }
+            }
+        }
+        return i == opcodes.length;
+    }
+
+    /**
+     * Returns opcode returning value of given type.
+     * 
+     * @param type
+     *            the type
+     * @return the opcode
+     */
+    private static int returnOpcode(Class<?> type)
+    {
+        if (!type.isPrimitive())
+        {
+            return Opcode.ARETURN;
+        }
+        else if (long.class.equals(type))
+        {
+            return Opcode.LRETURN;
+        }
+        else if (float.class.equals(type))
+        {
+            return Opcode.FRETURN;
+        }
+        else if (double.class.equals(type))
+        {
+            return Opcode.DRETURN;
+        }
+        return Opcode.IRETURN;
+    }
+
+    /**
+     * Returns opcode loading first method parameter of given type.
+     * 
+     * @param type
+     *            the type
+     * @return the opcode
+     */
+    private static int loadOpcode(Class<?> type)
+    {
+        if (!type.isPrimitive())
+        {
+            return Opcode.ALOAD_1;
+        }
+        else if (long.class.equals(type))
+        {
+            return Opcode.LLOAD_1;
+        }
+        else if (float.class.equals(type))
+        {
+            return Opcode.FLOAD_1;
+        }
+        else if (double.class.equals(type))
+        {
+            return Opcode.DLOAD_1;
+        }
+        return Opcode.ILOAD_1;
+    }
+
+    /**
+     * Returns source rejecting null value for primitive field, as reflection
+     * does.
+     * 
+     * @param field
+     *            the field
+     * @return the source
+     */
+    private static String nullCheck(Field field)
+    {
+        if (!field.getType().isPrimitive())
+        {
+            return "";
+        }
+        return "if ($2 == null) { throw new " + PropertyAccessException.class.getName()
+                + "(\"Can't set null to primitive field " + field.getName() + "\"); } ";
+    }
+
+    /**
+     * Returns source converting second method parameter to given type.
+     * 
+     * @param type
+     *            the type
+     * @return the source
+     */
+    private static String castValue(Class<?> type)
+    {
+        if (type.isPrimitive())
+        {
+            String wrapper = type.equals(int.class) ? "Integer" : type.equals(char.class) ? "Character" : StringUtils
+                    .capitalize(type.getName());
+            return "((java.lang." + wrapper + ") $2)." + type.getName() + "Value()";
+        }
+        return "(" + typeName(type) + ") $2";
+    }
+
+    /**
+     * Returns name of given type as used in source.
+     * 
+     * @param type
+     *            the type
+     * @return the type name
+     */
+    private static String typeName(Class<?> type)
+    {
+        return type.isArray() ? typeName(type.getComponentType()) + "[]" : type.getName();
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+/**
+ * Base class of {@link FieldAccessor}s generated by
+ * {@link FieldAccessorFactory}, which read and write a field through its
+ * getter and setter, compiled as direct calls. These are used only on
+ * instances of field's declaring class itself, so that getters and setters
+ * overridden in a subclass (or proxy) aren't invoked in place of field access;
+ * other instances are accessed through reflection.
+ * 
+ * @author agent
+ */
+public abstract class GeneratedFieldAccessor implements FieldAccessor
+{
+
+    /** Class declaring the field. */
+    private final Class<?> declaringClass;
+
+    /** Accessor for instances of subclasses. */
+    private final FieldAccessor fallback;
+
+    /**
+     * Instantiates a new generated field accessor.
+     * 
+     * @param declaringClass
+     *            the declaring class
+     * @param fallback
+     *            accessor for instances of subclasses
+     */
+    protected GeneratedFieldAccessor(Class<?> declaringClass, FieldAccessor fallback)
+    {
+        this.declaringClass = declaringClass;
+        this.fallback = fallback;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.property.FieldAccessor#get(java.lang.Object)
+     */
+    @Override
+    public final Object get(Object target)
+    {
+        if (target.getClass() != declaringClass)
+        {
+            return fallback.get(target);
+        }
+        return read(target);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.property.FieldAccessor#set(java.lang.Object,
+     * java.lang.Object)
+     */
+    @Override
+    public final void set(Object target, Object value)
+    {
+        if (target.getClass() != declaringClass)
+        {
+            fallback.set(target, value);
+        }
+        else
+        {
+            try
+            {
+                write(target, value);
+            }
+            catch (ClassCastException e)
+            {
+                // Reflection widens primitive values, e.g. Integer to long,
+                // and rejects the rest
+                fallback.set(target, value);
+            }
+        }
+    }
+
+    /**
+     * Reads field of an instance of declaring class.
+     * 
+     * @param target
+     *            the target
+     * @return the value
+     */
+    protected abstract Object read(Object target);
+
+    /**
+     * Writes field of an instance of declaring class.
+     * 
+     * @param target
+     *            the target
+     * @param value
+     *            the value
+     */
+    protected abstract void write(Object target, Object value);
+}
@@ -27,6 +27,7 @@ import java.util.Set;
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.proxy.EnhancedEntity;
+import com.impetus.kundera.proxy.KunderaProxy;
 import com.impetus.kundera.utils.ReflectUtils;
 
 /**
@@ -93,24 +94,15 @@ public class PropertyAccessorHelper
      *             the property access exception
      */
     public static void set(Object target, Field field, Object value)
-    {       
-
-        if (!field.isAccessible())
-        {
-            field.setAccessible(true);
-        }
+    {
         try
         {
-            field.set(target, value);
+            FieldAccessorFactory.getFieldAccessor(field).set(target, value);
         }
         catch (IllegalArgumentException iarg)
         {
             throw new PropertyAccessException(iarg);
         }
-        catch (IllegalAccessException iacc)
-        {
-            throw new PropertyAccessException(iacc);
-        }
     }
 
     /**
@@ -128,24 +120,14 @@ public class PropertyAccessorHelper
      */
     public static Object getObject(Object from, Field field)
     {
-
-        if (!field.isAccessible())
-        {
-            field.setAccessible(true);
-        }
-
         try
         {
-            return field.get(from);
+            return FieldAccessorFactory.getFieldAccessor(field).get(from);
         }
         catch (IllegalArgumentException iarg)
         {
             throw new PropertyAccessException(iarg);
         }
-        catch (IllegalAccessException iacc)
-        {
-            throw new PropertyAccessException(iacc);
-        }
     }
 
     /**
@@ -214,6 +196,12 @@ public class PropertyAccessorHelper
             return ((EnhancedEntity) entity).getId();
         }
 
+        // Lazily loaded entity's id is held by proxy's initializer
+        if (entity instanceof KunderaProxy)
+        {
+            return ((KunderaProxy) entity).getKunderaLazyInitializer().getIdentifier();
+        }
+
         // Otherwise, as Kundera currently supports only field access, access
         // the underlying Entity's id field
         return getString(entity, metadata.getIdColumn().getField());
@@ -273,14 +261,11 @@ public class PropertyAccessorHelper
         Field embeddedField;
         try
         {
-            embeddedField = obj.getClass().getDeclaredField(fieldName);
+            embeddedField = FieldAccessorFactory.getDeclaredField(obj.getClass(), fieldName);
             if (embeddedField != null)
             {
-                if (!embeddedField.isAccessible())
-                {
-                    embeddedField.setAccessible(true);
-                }
-                Object embededObject = embeddedField.get(obj);
+                FieldAccessor accessor = FieldAccessorFactory.getFieldAccessor(embeddedField);
+                Object embededObject = accessor.get(obj);
                 if (embededObject == null)
                 {
                     Class embeddedObjectClass = embeddedField.getType();
@@ -298,7 +283,7 @@ public class PropertyAccessorHelper
                     else
                     {
                         embededObject = embeddedField.getType().newInstance();
-                        embeddedField.set(obj, embededObject);
+                        accessor.set(obj, embededObject);
                     }
 
                 }
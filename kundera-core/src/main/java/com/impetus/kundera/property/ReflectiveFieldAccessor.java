@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import java.lang.reflect.Field;
+
+/**
+ * {@link FieldAccessor} using reflection, field is made accessible once when
+ * accessor is created.
+ * 
+ * @author agent
+ */
+class ReflectiveFieldAccessor implements FieldAccessor
+{
+
+    /** The field. */
+    private final Field field;
+
+    /**
+     * Instantiates a new reflective field accessor.
+     * 
+     * @param field
+     *            the field
+     */
+    ReflectiveFieldAccessor(Field field)
+    {
+        this.field = field;
+        if (!field.isAccessible())
+        {
+            field.setAccessible(true);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.property.FieldAccessor#get(java.lang.Object)
+     */
+    @Override
+    public Object get(Object target)
+    {
+        try
+        {
+            return field.get(target);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.property.FieldAccessor#set(java.lang.Object,
+     * java.lang.Object)
+     */
+    @Override
+    public void set(Object target, Object value)
+    {
+        try
+        {
+            field.set(target, value);
+        }
+        catch (IllegalArgumentException iarg)
+        {
+            throw new PropertyAccessException(iarg);
+        }
+        catch (IllegalAccessException iacc)
+        {
+            throw new PropertyAccessException(iacc);
+        }
+    }
+}
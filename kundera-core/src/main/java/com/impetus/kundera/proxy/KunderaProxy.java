@@ -23,4 +23,11 @@ package com.impetus.kundera.proxy;
 public interface KunderaProxy
 {
 
+    /**
+     * Gets the lazy initializer of this proxy, without initializing it.
+     * 
+     * @return the lazy initializer
+     */
+    LazyInitializer getKunderaLazyInitializer();
+
 }
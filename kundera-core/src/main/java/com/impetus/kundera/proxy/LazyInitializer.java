@@ -73,6 +73,13 @@ public interface LazyInitializer
      */
     public boolean isUninitialized();
 
+    /**
+     * Return the underlying persistent object, initializing if necessary.
+     * 
+     * @return The underlying object.
+     */
+    public Object getImplementation();
+
     /**
      * Get the session to which this proxy is associated, or null if it is not
      * attached.
@@ -19,6 +19,7 @@ import java.lang.reflect.Method;
 
 import javax.persistence.PersistenceException;
 
+import com.impetus.kundera.metadata.model.Relation;
 import com.impetus.kundera.persistence.PersistenceDelegator;
 
 /**
@@ -53,4 +54,23 @@ public interface LazyInitializerFactory
     KunderaProxy getProxy(final String entityName, final Class<?> persistentClass, final Method getIdentifierMethod,
             final Method setIdentifierMethod, final String id, final PersistenceDelegator persistenceDelegator);
 
+    /**
+     * Get Lazily loadable proxy of a collection of related entities, which
+     * also implements collection type of relation's field.
+     * 
+     * @param owner
+     *            the entity holding the collection
+     * @param ownerId
+     *            id of the entity holding the collection
+     * @param relation
+     *            the relation
+     * @param persistenceDelegator
+     *            the persistence delegator
+     * @return the proxy
+     * @throws PersistenceException
+     *             the persistence exception
+     */
+    KunderaProxy getCollectionProxy(final Object owner, final String ownerId, final Relation relation,
+            final PersistenceDelegator persistenceDelegator);
+
 }
@@ -0,0 +1,335 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.proxy.cglib;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+import javax.persistence.PersistenceException;
+
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.InvocationHandler;
+import net.sf.cglib.proxy.NoOp;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import com.impetus.kundera.metadata.model.Relation;
+import com.impetus.kundera.persistence.PersistenceDelegator;
+import com.impetus.kundera.proxy.KunderaProxy;
+import com.impetus.kundera.proxy.LazyInitializationException;
+import com.impetus.kundera.proxy.LazyInitializer;
+
+/**
+ * Lazy initializer of a collection of related entities, backing a cglib proxy
+ * that implements collection type of relation's field. Related entities are
+ * read through owning {@link PersistenceDelegator} on first access to the
+ * collection.
+ *
+ * @author agent
+ */
+public final class CglibLazyCollectionInitializer implements LazyInitializer, InvocationHandler
+{
+
+    /** The Constant log. */
+    private static final Log log = LogFactory.getLog(CglibLazyCollectionInitializer.class);
+
+    /** The entity holding the collection. */
+    private Object owner;
+
+    /** Id of the entity holding the collection. */
+    private String ownerId;
+
+    /** The relation. */
+    private Relation relation;
+
+    /** The target. */
+    private Object target;
+
+    /** The initialized. */
+    private boolean initialized;
+
+    /** The unwrap. */
+    private boolean unwrap;
+
+    /** The constructed. */
+    private boolean constructed = false;
+
+    /** The persistenceDelegator. */
+    private transient PersistenceDelegator persistenceDelegator;
+
+    /**
+     * Gets the proxy.
+     *
+     * @param owner
+     *            the entity holding the collection
+     * @param ownerId
+     *            id of the entity holding the collection
+     * @param relation
+     *            the relation
+     * @param persistenceDelegator
+     *            the persistence delegator
+     * @return the proxy
+     * @throws PersistenceException
+     *             the persistence exception
+     */
+    public static KunderaProxy getProxy(final Object owner, final String ownerId, final Relation relation,
+            final PersistenceDelegator persistenceDelegator) throws PersistenceException
+    {
+        final CglibLazyCollectionInitializer instance = new CglibLazyCollectionInitializer(owner, ownerId, relation,
+                persistenceDelegator);
+
+        Class<?> collectionType = relation.getProperty().getType();
+        Enhancer e = new Enhancer();
+        if (collectionType.isInterface())
+        {
+            e.setInterfaces(new Class[] { collectionType, KunderaProxy.class });
+        }
+        else
+        {
+            e.setSuperclass(collectionType);
+            e.setInterfaces(new Class[] { KunderaProxy.class });
+        }
+        e.setCallbackTypes(new Class[] { InvocationHandler.class, NoOp.class, });
+        e.setCallbackFilter(CglibLazyInitializer.FINALIZE_FILTER);
+        e.setUseFactory(false);
+        e.setInterceptDuringConstruction(false);
+        Class factory = e.createClass();
+
+        KunderaProxy proxy;
+        try
+        {
+            Enhancer.registerCallbacks(factory, new Callback[] { instance, null });
+            proxy = (KunderaProxy) factory.newInstance();
+        }
+        catch (IllegalAccessException ex)
+        {
+            throw new LazyInitializationException(ex);
+        }
+        catch (InstantiationException ex)
+        {
+            throw new LazyInitializationException(ex);
+        }
+        finally
+        {
+            Enhancer.registerCallbacks(factory, null);
+        }
+
+        instance.constructed = true;
+        return proxy;
+    }
+
+    /**
+     * Instantiates a new cglib lazy collection initializer.
+     *
+     * @param owner
+     *            the owner
+     * @param ownerId
+     *            the owner id
+     * @param relation
+     *            the relation
+     * @param persistenceDelegator
+     *            the persistence delegator
+     */
+    private CglibLazyCollectionInitializer(final Object owner, final String ownerId, final Relation relation,
+            final PersistenceDelegator persistenceDelegator)
+    {
+        this.owner = owner;
+        this.ownerId = ownerId;
+        this.relation = relation;
+        this.persistenceDelegator = persistenceDelegator;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see net.sf.cglib.proxy.InvocationHandler#invoke(java.lang.Object,
+     * java.lang.reflect.Method, java.lang.Object[])
+     */
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable
+    {
+        if (!constructed)
+        {
+            // while constructor is running
+            throw new LazyInitializationException("unexpected case hit, method=" + method.getName());
+        }
+
+        if (args.length == 0 && "getKunderaLazyInitializer".equals(method.getName()))
+        {
+            return this;
+        }
+
+        Object target = getImplementation();
+        try
+        {
+            if (!method.isAccessible())
+            {
+                method.setAccessible(true);
+            }
+            Object returnValue = method.invoke(target, args);
+            return returnValue == target ? proxy : returnValue;
+        }
+        catch (InvocationTargetException ite)
+        {
+            // Collection's own exceptions are thrown as they are
+            throw ite.getTargetException();
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.impetus.kundera.proxy.LazyInitializer#initialize()
+     */
+    @Override
+    public void initialize() throws PersistenceException
+    {
+        if (!initialized)
+        {
+            if (persistenceDelegator == null)
+            {
+                throw new LazyInitializationException("could not initialize collection " + getEntityName() + "_"
+                        + ownerId + " - no EntityManager");
+            }
+            else if (!persistenceDelegator.isOpen())
+            {
+                throw new LazyInitializationException("could not initialize collection " + getEntityName() + "_"
+                        + ownerId + " - the owning Session was closed");
+            }
+            else
+            {
+                log.debug("Proxy >> Initialization >> " + getEntityName() + "_" + ownerId);
+                target = persistenceDelegator.initializeCollection(owner, relation);
+                initialized = true;
+            }
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.impetus.kundera.proxy.LazyInitializer#getImplementation()
+     */
+    @Override
+    public Object getImplementation()
+    {
+        initialize();
+        return target;
+    }
+
+    /**
+     * Gets the identifier.
+     *
+     * @return id of the entity holding the collection
+     */
+    @Override
+    public String getIdentifier()
+    {
+        return ownerId;
+    }
+
+    /**
+     * Sets the identifier.
+     *
+     * @param id
+     *            id of the entity holding the collection
+     */
+    @Override
+    public void setIdentifier(String id)
+    {
+        this.ownerId = id;
+    }
+
+    /**
+     * Gets the entity name.
+     *
+     * @return name of the collection, i.e. owner's class and field name
+     */
+    @Override
+    public String getEntityName()
+    {
+        return owner.getClass().getName() + "." + relation.getProperty().getName();
+    }
+
+    /**
+     * Gets the persistent class.
+     *
+     * @return class of entities in the collection
+     */
+    @Override
+    public Class<?> getPersistentClass()
+    {
+        return relation.getTargetEntity();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.impetus.kundera.proxy.LazyInitializer#isUninitialized()
+     */
+    @Override
+    public boolean isUninitialized()
+    {
+        return !initialized;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.impetus.kundera.proxy.LazyInitializer#getPersistenceDelegator()
+     */
+    @Override
+    public PersistenceDelegator getPersistenceDelegator()
+    {
+        return persistenceDelegator;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * com.impetus.kundera.proxy.LazyInitializer#unsetPersistenceDelegator()
+     */
+    @Override
+    public void unsetPersistenceDelegator()
+    {
+        persistenceDelegator = null;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.impetus.kundera.proxy.LazyInitializer#setUnwrap(boolean)
+     */
+    @Override
+    public void setUnwrap(boolean unwrap)
+    {
+        this.unwrap = unwrap;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see com.impetus.kundera.proxy.LazyInitializer#isUnwrap()
+     */
+    @Override
+    public boolean isUnwrap()
+    {
+        return unwrap;
+    }
+}
@@ -78,7 +78,7 @@ public final class CglibLazyInitializer implements LazyInitializer, InvocationHa
     private transient PersistenceDelegator persistenceDelegator;
 
     /** The Constant FINALIZE_FILTER. */
-    private static final CallbackFilter FINALIZE_FILTER = new CallbackFilter()
+    static final CallbackFilter FINALIZE_FILTER = new CallbackFilter()
     {
         public int accept(Method method)
         {
@@ -388,10 +388,9 @@ public final class CglibLazyInitializer implements LazyInitializer, InvocationHa
             {
                 log.debug("Proxy >> Initialization >> " + persistentClass.getName() + "_" + id);
 
-                // TODO: consider not calling em.find from here. Not sure 'why',
-                // but something
-                // doesn't feel right.
-                target = persistenceDelegator.find(persistentClass, id);
+                // Other proxies of this class pending initialization are
+                // loaded along with this one
+                target = persistenceDelegator.initializeProxy(persistentClass, id);
                 initialized = true;
             }
         }
@@ -32,6 +32,7 @@ package com.impetus.kundera.proxy.cglib;
 
 import java.lang.reflect.Method;
 
+import com.impetus.kundera.metadata.model.Relation;
 import com.impetus.kundera.persistence.PersistenceDelegator;
 import com.impetus.kundera.proxy.KunderaProxy;
 import com.impetus.kundera.proxy.LazyInitializerFactory;
@@ -68,4 +69,20 @@ public class CglibLazyInitializerFactory implements LazyInitializerFactory
 
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.proxy.LazyInitializerFactory#getCollectionProxy(java
+     * .lang.Object, java.lang.String,
+     * com.impetus.kundera.metadata.model.Relation,
+     * com.impetus.kundera.persistence.PersistenceDelegator)
+     */
+    @Override
+    public KunderaProxy getCollectionProxy(Object owner, String ownerId, Relation relation,
+            PersistenceDelegator persistenceDelegator)
+    {
+        return CglibLazyCollectionInitializer.getProxy(owner, ownerId, relation, persistenceDelegator);
+    }
+
 }
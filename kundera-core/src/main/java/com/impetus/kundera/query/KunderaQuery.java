@@ -52,6 +52,10 @@ public class KunderaQuery
     /** The Constant INTRA_CLAUSE_OPERATORS. */
     public static final String[] INTRA_CLAUSE_OPERATORS = { "=", "LIKE", ">", ">=", "<", "<=" };
 
+    /** The Constant AGGREGATE_FUNCTIONS. */
+    public static final String[] AGGREGATE_FUNCTIONS = { ResultClause.COUNT, ResultClause.SUM, ResultClause.MIN,
+            ResultClause.MAX, ResultClause.AVG };
+
     /** The INTER pattern. */
     private static final Pattern INTER_CLAUSE_PATTERN = Pattern.compile("\\band\\b|\\bor\\b|\\bbetween\\b",
             Pattern.CASE_INSENSITIVE);
@@ -60,6 +64,9 @@ public class KunderaQuery
     private static final Pattern INTRA_CLAUSE_PATTERN = Pattern.compile("=|\\blike\\b|>=|>|<=|<",
             Pattern.CASE_INSENSITIVE);
 
+    /** The aggregate function pattern, e.g. COUNT(p) or MAX(p.price). */
+    private static final Pattern AGGREGATE_PATTERN = Pattern.compile("^(\\w+)\\s*\\(\\s*([\\w.]+)\\s*\\)$");
+
     /** The logger. */
     private static Logger logger = LoggerFactory.getLogger(KunderaQuery.class);
 
@@ -75,6 +82,18 @@ public class KunderaQuery
     /** The ordering. */
     private String ordering;
 
+    /** The grouping. */
+    private String grouping;
+
+    /** The having. */
+    private String having;
+
+    /** Expressions selected by an aggregate query, null for other queries. */
+    private List<ResultClause> resultClauses;
+
+    /** Columns results of an aggregate query are grouped by. */
+    private List<Column> groupingColumns;
+
     /** The entity name. */
     private String entityName;
 
@@ -120,6 +139,18 @@ public class KunderaQuery
      */
     public void setGrouping(String groupingClause)
     {
+        this.grouping = groupingClause;
+    }
+
+    /**
+     * Sets the having.
+     * 
+     * @param havingClause
+     *            the new having
+     */
+    public void setHaving(String havingClause)
+    {
+        this.having = havingClause;
     }
 
     /**
@@ -216,7 +247,38 @@ public class KunderaQuery
      */
     public final boolean isAliasOnly()
     {
-        return result != null && (result.indexOf(".") == -1);
+        return result != null && (result.indexOf(".") == -1) && !isAggregated();
+    }
+
+    /**
+     * Checks if query selects aggregate functions, and columns it's grouped
+     * by, rather than entities.
+     * 
+     * @return true, if it is an aggregate query
+     */
+    public final boolean isAggregated()
+    {
+        return resultClauses != null;
+    }
+
+    /**
+     * Gets expressions selected by an aggregate query.
+     * 
+     * @return the result clauses, null unless query is aggregated
+     */
+    public final List<ResultClause> getResultClauses()
+    {
+        return resultClauses;
+    }
+
+    /**
+     * Gets columns results of an aggregate query are grouped by.
+     * 
+     * @return the grouping columns, empty if query isn't grouped
+     */
+    public final List<Column> getGroupingColumns()
+    {
+        return groupingColumns;
     }
 
     // must be executed after parse(). it verifies and populated the query
@@ -227,6 +289,7 @@ public class KunderaQuery
     protected void postParsingInit()
     {
         initEntityClass();
+        initResult();
         initFilter();
     }
 
@@ -287,6 +350,112 @@ public class KunderaQuery
         }
     }
 
+    /**
+     * Inits expressions selected by an aggregate query, i.e. one selecting
+     * aggregate functions, and columns it's grouped by, rather than entities.
+     */
+    private void initResult()
+    {
+        if (having != null)
+        {
+            throw new JPQLParseException("HAVING clause is not supported: " + having);
+        }
+        if (isDeleteUpdate || result == null || result.indexOf("(") == -1)
+        {
+            if (grouping != null)
+            {
+                throw new JPQLParseException("GROUP BY without aggregate function in: " + result);
+            }
+            return;
+        }
+
+        EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(entityClass);
+        List<Column> columns = new ArrayList<Column>();
+        if (grouping != null)
+        {
+            for (String property : grouping.split(","))
+            {
+                columns.add(getColumnFromProperty(metadata, property.trim()));
+            }
+        }
+
+        List<ResultClause> clauses = new ArrayList<ResultClause>();
+        for (String expression : result.split(","))
+        {
+            expression = expression.trim();
+            Matcher matcher = AGGREGATE_PATTERN.matcher(expression);
+            if (!matcher.matches())
+            {
+                Column column = getColumnFromProperty(metadata, expression);
+                if (!columns.contains(column))
+                {
+                    throw new JPQLParseException("Selected column is not in GROUP BY clause: " + expression);
+                }
+                clauses.add(new ResultClause(null, column));
+            }
+            else
+            {
+                String function = matcher.group(1).toUpperCase();
+                String argument = matcher.group(2);
+                if (!Arrays.asList(AGGREGATE_FUNCTIONS).contains(function))
+                {
+                    throw new JPQLParseException("Unsupported aggregate function: " + expression);
+                }
+                else if (argument.equals(entityAlias))
+                {
+                    if (!ResultClause.COUNT.equals(function))
+                    {
+                        throw new JPQLParseException("Only COUNT may be applied to entities: " + expression);
+                    }
+                    clauses.add(new ResultClause(function, null));
+                }
+                else
+                {
+                    Column column = getColumnFromProperty(metadata, argument);
+                    if ((ResultClause.SUM.equals(function) || ResultClause.AVG.equals(function))
+                            && !ResultClause.isNumeric(column.getField().getType()))
+                    {
+                        throw new JPQLParseException(function + " requires a numeric column: " + expression);
+                    }
+                    clauses.add(new ResultClause(function, column));
+                }
+            }
+        }
+
+        groupingColumns = columns;
+        resultClauses = clauses;
+    }
+
+    /**
+     * Gets column of a property selected or grouped by, in the form
+     * alias.fieldName.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param property
+     *            the property
+     * @return the column
+     */
+    private Column getColumnFromProperty(EntityMetadata metadata, String property)
+    {
+        if (property.startsWith(entityAlias + "."))
+        {
+            String fieldName = property.substring((entityAlias + ".").length());
+            if (metadata.getIdColumn().getField().getName().equals(fieldName))
+            {
+                return metadata.getIdColumn();
+            }
+            for (Column column : metadata.getColumnsAsList())
+            {
+                if (column.getField().getName().equals(fieldName))
+                {
+                    return column;
+                }
+            }
+        }
+        throw new JPQLParseException("No column found for: " + property);
+    }
+
     /**
      * Inits the filter.
      */
@@ -594,6 +763,52 @@ public class KunderaQuery
 
     }
 
+    /**
+     * Returns a copy of this query for a single execution. Parsed parts are
+     * shared, whereas filter and update clauses are copied so that parameters
+     * bound on the copy don't change this query.
+     * 
+     * @return the kundera query
+     */
+    public final KunderaQuery copy()
+    {
+        KunderaQuery copy = new KunderaQuery();
+        copy.result = result;
+        copy.from = from;
+        copy.filter = filter;
+        copy.ordering = ordering;
+        copy.grouping = grouping;
+        copy.having = having;
+        copy.resultClauses = resultClauses;
+        copy.groupingColumns = groupingColumns;
+        copy.entityName = entityName;
+        copy.entityAlias = entityAlias;
+        copy.entityClass = entityClass;
+        copy.sortOrders = sortOrders;
+        copy.persistenceUnit = persistenceUnit;
+        copy.isDeleteUpdate = isDeleteUpdate;
+
+        for (Object object : filtersQueue)
+        {
+            if (object instanceof FilterClause)
+            {
+                FilterClause clause = (FilterClause) object;
+                copy.filtersQueue.add(copy.new FilterClause(clause.property, clause.condition, clause.value));
+            }
+            else
+            {
+                // Logical operators are plain strings
+                copy.filtersQueue.add(object);
+            }
+        }
+
+        for (UpdateClause clause : updateClauseQueue)
+        {
+            copy.updateClauseQueue.add(copy.new UpdateClause(clause.property, clause.value));
+        }
+        return copy;
+    }
+
     /* @see java.lang.Object#clone() */
     /*
      * (non-Javadoc)
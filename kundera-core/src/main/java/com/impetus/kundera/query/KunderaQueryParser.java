@@ -107,8 +107,6 @@ public class KunderaQueryParser
         /** The tokenizer. */
         private Parser tokenizer;
 
-        // Temporary variable since grouping clause is made up of GROUP BY ...
-        // HAVING ...
         /** The grouping clause. */
         private String groupingClause;
 
@@ -343,14 +341,7 @@ public class KunderaQueryParser
             {
                 throw new JPQLParseException("keyword without value: HAVING");
             }
-            if (groupingClause != null)
-            {
-                groupingClause = groupingClause.trim() + content;
-            }
-            else
-            {
-                groupingClause = content;
-            }
+            query.setHaving(content);
         }
 
         /**
@@ -87,18 +87,31 @@ public class LuceneQuery extends QueryImpl implements Query
     {
         log.debug("JPA Query: " + query);
 
-        // get luence query
-        String q = luceneQuery;
-        if (null == q)
+        EntityMetadata m = kunderaQuery.getEntityMetadata();
+        if (!isIndexQuery(m))
         {
-            q = getLuceneQueryFromJPAQuery();
+            return super.getResultList();
         }
 
-        log.debug("Lucene Query: " + q);
-
-        EntityMetadata m = kunderaQuery.getEntityMetadata();
         Client client = persistenceDelegeator.getClient(m);
-        Map<String, String> searchFilter = client.getIndexManager().search(q, -1, maxResult);
+        if (kunderaQuery.isAggregated())
+        {
+            return getAggregatedResultList(m, client);
+        }
+
+        // get luence query
+        Map<String, String> searchFilter;
+        if (null == luceneQuery)
+        {
+            org.apache.lucene.search.Query q = getLuceneQuery();
+            log.debug("Lucene Query: " + q);
+            searchFilter = client.getIndexManager().search(q, -1, maxResult);
+        }
+        else
+        {
+            log.debug("Lucene Query: " + luceneQuery);
+            searchFilter = client.getIndexManager().search(luceneQuery, -1, maxResult);
+        }
 
         if (kunderaQuery.isAliasOnly())
         {
@@ -113,6 +126,21 @@ public class LuceneQuery extends QueryImpl implements Query
 
     }
 
+    /**
+     * Checks whether query is run through Lucene index. Subclasses able to
+     * run some queries on datastore itself return false for them, these are
+     * then run through {@link QueryImpl#getResultList()} and
+     * {@link #populateEntities(EntityMetadata, Client)}.
+     * 
+     * @param m
+     *            the entity metadata
+     * @return true, if query is run through Lucene index
+     */
+    protected boolean isIndexQuery(EntityMetadata m)
+    {
+        return true;
+    }
+
     // @see com.impetus.kundera.query.QueryImpl#setMaxResults(int)
     /*
      * (non-Javadoc)
@@ -123,7 +151,9 @@ public class LuceneQuery extends QueryImpl implements Query
     public Query setMaxResults(int maxResult)
     {
         this.maxResult = maxResult;
-        return this;
+
+        // Also kept by QueryImpl, e.g. as part of result cache key
+        return super.setMaxResults(maxResult);
     }
 
     /*
@@ -139,6 +169,19 @@ public class LuceneQuery extends QueryImpl implements Query
         throw new UnsupportedOperationException("Method not supported for default indexing");
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onAggregate(com.impetus.kundera.metadata
+     * .model.EntityMetadata, com.impetus.kundera.client.Client)
+     */
+    @Override
+    protected List<Object> onAggregate(EntityMetadata m, Client client)
+    {
+        return aggregateUsingLucene(m, client);
+    }
+
     @Override
     protected EntityReader getReader()
     {
@@ -19,9 +19,12 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -29,7 +32,13 @@ import java.util.StringTokenizer;
 
 import javax.persistence.FlushModeType;
 import javax.persistence.LockModeType;
+import javax.persistence.NoResultException;
+import javax.persistence.NonUniqueResultException;
 import javax.persistence.Parameter;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.PreRemove;
+import javax.persistence.PreUpdate;
 import javax.persistence.Query;
 import javax.persistence.TemporalType;
 
@@ -38,16 +47,23 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.Constants;
+import com.impetus.kundera.PersistenceProperties;
 import com.impetus.kundera.client.Client;
+import com.impetus.kundera.client.Configurable;
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.index.DocumentIndexer;
+import com.impetus.kundera.index.IndexManager;
+import com.impetus.kundera.index.LuceneQueryBuilder;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.ApplicationMetadata;
 import com.impetus.kundera.metadata.model.Column;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.PropertyIndex;
 import com.impetus.kundera.persistence.EntityReader;
 import com.impetus.kundera.persistence.PersistenceDelegator;
+import com.impetus.kundera.property.PropertyAccessorFactory;
 import com.impetus.kundera.property.PropertyAccessorHelper;
 import com.impetus.kundera.query.KunderaQuery.FilterClause;
 import com.impetus.kundera.query.KunderaQuery.UpdateClause;
@@ -77,6 +93,18 @@ public abstract class QueryImpl implements Query
      */
     protected int maxResult = 100;
 
+    /**
+     * Number of entities deleted, updated or re-indexed in one call by bulk
+     * delete/update queries.
+     */
+    protected static final int BULK_BATCH_SIZE = 1000;
+
+    /** Query hints, applied to configurable clients while query runs. */
+    private Map<String, Object> hints = new HashMap<String, Object>();
+
+    /** Number of nested calls for which hints are currently applied. */
+    private int hintsApplied;
+
     /**
      * Instantiates a new query impl.
      * 
@@ -128,7 +156,29 @@ public abstract class QueryImpl implements Query
     @Override
     public int executeUpdate()
     {
-        return onExecuteUpdate();
+        Client client = hints.isEmpty() ? null : persistenceDelegeator.getClient(getEntityMetadata());
+        setHints(client);
+        try
+        {
+            int count = onExecuteUpdate();
+
+            // Entities changed in database by query can't be told apart, all
+            // cached ones of queried class are stale
+            EntityMetadata m = getEntityMetadata();
+            if (m != null)
+            {
+                persistenceDelegeator.evictFromCache(m.getEntityClazz());
+                if (persistenceDelegeator.getQueryResultCache() != null)
+                {
+                    persistenceDelegeator.getQueryResultCache().invalidate(m.getEntityClazz());
+                }
+            }
+            return count;
+        }
+        finally
+        {
+            unsetHints(client);
+        }
     }
 
     @Override
@@ -139,14 +189,59 @@ public abstract class QueryImpl implements Query
 
         EntityMetadata m = getEntityMetadata();
         Client client = persistenceDelegeator.getClient(m);
+        if (kunderaQuery.isAggregated())
+        {
+            return getAggregatedResultList(m, client);
+        }
 
-        if (!m.isRelationViaJoinTable() && (m.getRelationNames() == null || (m.getRelationNames().isEmpty())))
+        // Results of a cached query are found by their ids, through second
+        // level cache
+        QueryResultCache resultCache = persistenceDelegeator.getQueryResultCache();
+        String cacheKey = isResultCacheable(m) ? getJPAQuery() + kunderaQuery.getFilterClauseQueue() + maxResult
+                : null;
+        List<String> cachedIds = cacheKey != null ? resultCache.get(cacheKey) : null;
+        if (cachedIds != null)
         {
-            results = populateEntities(m, client);
+            results = new ArrayList<Object>(cachedIds.size());
+            for (Object entity : persistenceDelegeator.find(m.getEntityClazz(), cachedIds.toArray()))
+            {
+                if (entity != null)
+                {
+                    results.add(entity);
+                }
+            }
+            return !results.isEmpty() ? results : null;
         }
-        else
+        long startCount = cacheKey != null ? resultCache.getInvalidationCount() : 0;
+
+        setHints(client);
+        try
+        {
+            if (!m.isRelationViaJoinTable() && (m.getRelationNames() == null || (m.getRelationNames().isEmpty())))
+            {
+                results = populateEntities(m, client);
+            }
+            else
+            {
+                results = recursivelyPopulateEntities(m, client);
+            }
+        }
+        finally
         {
-            results = recursivelyPopulateEntities(m, client);
+            unsetHints(client);
+        }
+
+        if (cacheKey != null)
+        {
+            List<String> ids = new ArrayList<String>(results != null ? results.size() : 0);
+            if (results != null)
+            {
+                for (Object entity : results)
+                {
+                    ids.add(PropertyAccessorHelper.getId(entity, m));
+                }
+            }
+            resultCache.put(cacheKey, m.getEntityClazz(), ids, startCount);
         }
 
         // If intended for delete/update.
@@ -179,24 +274,75 @@ public abstract class QueryImpl implements Query
         this.persistenceDelegeator = persistenceDelegeator;
     }
 
+    /**
+     * Checks whether ids returned by this query are cached, as hinted through
+     * {@link PersistenceProperties#KUNDERA_QUERY_CACHE}, or by default if
+     * queried entity is cacheable. Native queries and bulk updates are never
+     * cached.
+     * 
+     * @param m
+     *            the entity metadata
+     * @return true, if query results are cached
+     */
+    private boolean isResultCacheable(EntityMetadata m)
+    {
+        if (persistenceDelegeator.getQueryResultCache() == null || kunderaQuery.isDeleteUpdate()
+                || KunderaMetadata.INSTANCE.getApplicationMetadata().isNative(query))
+        {
+            return false;
+        }
+        Object hint = hints.get(PersistenceProperties.KUNDERA_QUERY_CACHE);
+        return hint != null ? Boolean.valueOf(hint.toString()) : m.isCacheable();
+    }
+
+    /**
+     * Applies query hints, on top of EntityManager properties, to client if
+     * it is configurable. Calls may be nested, each one must be followed by a
+     * call to {@link #unsetHints(Client)}.
+     * 
+     * @param client
+     *            the client
+     */
+    protected void setHints(Client client)
+    {
+        if (hintsApplied++ == 0 && !hints.isEmpty() && client instanceof Configurable)
+        {
+            Map<String, Object> properties = new HashMap<String, Object>();
+            if (persistenceDelegeator.getProperties() != null)
+            {
+                properties.putAll(persistenceDelegeator.getProperties());
+            }
+            properties.putAll(hints);
+            ((Configurable) client).setProperties(properties);
+        }
+    }
+
+    /**
+     * Restores EntityManager properties of client once the outermost call
+     * applying query hints returns.
+     * 
+     * @param client
+     *            the client
+     */
+    protected void unsetHints(Client client)
+    {
+        if (--hintsApplied == 0 && !hints.isEmpty() && client instanceof Configurable)
+        {
+            Map<String, Object> properties = persistenceDelegeator.getProperties();
+            ((Configurable) client).setProperties(properties != null ? properties : new HashMap<String, Object>());
+        }
+    }
+
     protected List<Object> setRelationEntities(List<EnhanceEntity> enhanceEntities, Client client, EntityMetadata m)
     {
         // Enhance entities can contain or may not contain relation.
         // if it contain a relation means it is a child
         // if it does not then it means it is a parent.
         List<Object> result = null;
-        Map<Object, Object> relationalValues = new HashMap<Object, Object>();
-        if (enhanceEntities != null)
+        if (enhanceEntities != null && !enhanceEntities.isEmpty())
         {
-            for (EnhanceEntity e : enhanceEntities)
-            {
-                if (result == null)
-                {
-                    result = new ArrayList<Object>(enhanceEntities.size());
-                }
-
-                result.add(getReader().recursivelyFindEntities(e, client, m, persistenceDelegeator));
-            }
+            // Relations of all entities are fetched together
+            result = getReader().recursivelyFindEntities(enhanceEntities, client, m, persistenceDelegeator);
         }
 
         return result;
@@ -215,8 +361,7 @@ public abstract class QueryImpl implements Query
      */
     protected List<Object> populateUsingLucene(EntityMetadata m, Client client, List<Object> result)
     {
-        String luceneQ = getLuceneQueryFromJPAQuery();
-        Map<String, String> searchFilter = client.getIndexManager().search(luceneQ, Constants.INVALID,
+        Map<String, String> searchFilter = client.getIndexManager().search(getLuceneQuery(), Constants.INVALID,
                 Constants.INVALID);
         if (kunderaQuery.isAliasOnly())
         {
@@ -276,6 +421,30 @@ public abstract class QueryImpl implements Query
         return relationVal;
     }
 
+    /**
+     * Gets lucene query matching filter clauses of jpa query, built as typed
+     * lucene queries rather than a query string.
+     * 
+     * @return the lucene query
+     */
+    protected org.apache.lucene.search.Query getLuceneQuery()
+    {
+        LuceneQueryBuilder builder = new LuceneQueryBuilder();
+        for (Object object : kunderaQuery.getFilterClauseQueue())
+        {
+            if (object instanceof FilterClause)
+            {
+                FilterClause filter = (FilterClause) object;
+                builder.appendClause(filter.getProperty(), filter.getCondition(), filter.getValue());
+            }
+            else
+            {
+                builder.appendOperator(object.toString());
+            }
+        }
+        return builder.build(kunderaQuery.getEntityClass());
+    }
+
     /**
      * Gets the lucene query from jpa query.
      * 
@@ -409,11 +578,11 @@ public abstract class QueryImpl implements Query
      */
     protected Set<String> fetchDataFromLucene(Client client)
     {
-        String luceneQuery = getLuceneQueryFromJPAQuery();
         // use lucene to query and get Pk's only.
         // go to client and get relation with values.!
         // populate EnhanceEntity
-        Map<String, String> results = client.getIndexManager().search(luceneQuery);
+        Map<String, String> results = client.getIndexManager().search(getLuceneQuery(), Constants.INVALID,
+                Constants.INVALID);
         Set<String> rSet = new HashSet<String>(results.values());
         return rSet;
     }
@@ -527,6 +696,293 @@ public abstract class QueryImpl implements Query
         return m;
     }
 
+    /**
+     * Deletes or updates entities matching a JPQL DELETE or UPDATE query. Query
+     * is pushed down to datastore by
+     * {@link #onBulkDeleteOrUpdate(EntityMetadata, Client)} where possible,
+     * otherwise matching entities are read and removed or merged.
+     * 
+     * @return number of entities deleted or updated
+     */
+    protected int executeDeleteOrUpdate()
+    {
+        EntityMetadata m = getEntityMetadata();
+        if (isBulkDeleteOrUpdateSupported(m))
+        {
+            // Pending changes are written first, for query to see them
+            persistenceDelegeator.flush();
+            int count = onBulkDeleteOrUpdate(m, persistenceDelegeator.getClient(m));
+            if (count != Constants.INVALID)
+            {
+                log.debug("Bulk " + (kunderaQuery.isUpdateClause() ? "updated " : "deleted ") + count
+                        + " row(s) of " + m.getEntityClazz().getName());
+                return count;
+            }
+        }
+
+        List<?> results = getResultList();
+        return results != null ? results.size() : 0;
+    }
+
+    /**
+     * Deletes or updates rows matching query in datastore, without reading
+     * entities into persistence context. Clients supporting it override this
+     * method, which is called only for queries
+     * {@link #isBulkDeleteOrUpdateSupported(EntityMetadata)} allows.
+     * 
+     * @param m
+     *            the entity metadata
+     * @param client
+     *            the client
+     * @return number of rows deleted or updated, {@link Constants#INVALID} if
+     *         query can't be pushed down
+     */
+    protected int onBulkDeleteOrUpdate(EntityMetadata m, Client client)
+    {
+        return Constants.INVALID;
+    }
+
+    /**
+     * Checks whether query may be pushed down to datastore. It may not if it's
+     * a native query, if removal could cascade to related entities or join
+     * tables, if lifecycle callbacks are defined for it or if it updates
+     * columns other than plain ones.
+     * 
+     * @param m
+     *            the entity metadata
+     * @return true, if query can be run as a bulk delete/update
+     */
+    protected boolean isBulkDeleteOrUpdateSupported(EntityMetadata m)
+    {
+        if (m == null || KunderaMetadata.INSTANCE.getApplicationMetadata().isNative(getJPAQuery())
+                || m.isRelationViaJoinTable() || (m.getRelations() != null && !m.getRelations().isEmpty()))
+        {
+            return false;
+        }
+
+        Class<?>[] events = kunderaQuery.isUpdateClause() ? new Class<?>[] { PreUpdate.class, PostUpdate.class }
+                : new Class<?>[] { PreRemove.class, PostRemove.class };
+        for (Class<?> event : events)
+        {
+            List<?> callbacks = m.getCallbackMethods(event);
+            if (callbacks != null && !callbacks.isEmpty())
+            {
+                return false;
+            }
+        }
+
+        if (kunderaQuery.isUpdateClause())
+        {
+            for (UpdateClause c : kunderaQuery.getUpdateClauseQueue())
+            {
+                if (m.getColumn(c.getProperty()) == null || c.getProperty().equals(m.getIdColumn().getName()))
+                {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets values set by update query, converted to types of their columns.
+     * 
+     * @param m
+     *            the entity metadata
+     * @return the values keyed by their columns
+     */
+    protected Map<Column, Object> getUpdatedValues(EntityMetadata m)
+    {
+        Map<Column, Object> values = new LinkedHashMap<Column, Object>();
+        for (UpdateClause c : kunderaQuery.getUpdateClauseQueue())
+        {
+            Column column = m.getColumn(c.getProperty());
+            values.put(column,
+                    PropertyAccessorFactory.getPropertyAccessor(column.getField()).fromString(m.getEntityClazz(),
+                            c.getValue()));
+        }
+        return values;
+    }
+
+    /**
+     * Gets results of an aggregate query, computed by
+     * {@link #onAggregate(EntityMetadata, Client)} with query hints applied.
+     * Results of aggregate queries are never cached.
+     * 
+     * @param m
+     *            the entity metadata
+     * @param client
+     *            the client
+     * @return the results, each a scalar or an Object[] row
+     */
+    protected List<?> getAggregatedResultList(EntityMetadata m, Client client)
+    {
+        setHints(client);
+        try
+        {
+            List<Object> results = onAggregate(m, client);
+            return results != null && !results.isEmpty() ? results : null;
+        }
+        finally
+        {
+            unsetHints(client);
+        }
+    }
+
+    /**
+     * Computes results of an aggregate query. Clients able to aggregate in
+     * datastore override this method. By default, queries resolved by Lucene
+     * are aggregated by {@link #aggregateUsingLucene(EntityMetadata, Client)}
+     * and other ones over entities populated by query.
+     * 
+     * @param m
+     *            the entity metadata
+     * @param client
+     *            the client
+     * @return the results, each a scalar or an Object[] row
+     */
+    protected List<Object> onAggregate(EntityMetadata m, Client client)
+    {
+        if (!MetadataUtils.useSecondryIndex(m.getPersistenceUnit()))
+        {
+            return aggregateUsingLucene(m, client);
+        }
+
+        ResultAggregator aggregator = newResultAggregator();
+        aggregator.addAll(populateEntities(m, client));
+        return aggregator.getResults();
+    }
+
+    /**
+     * Computes results of an aggregate query resolved by Lucene. COUNT of
+     * entities is answered by index alone, other aggregates are computed over
+     * matching entities read a batch at a time, bypassing persistence
+     * context.
+     * 
+     * @param m
+     *            the entity metadata
+     * @param client
+     *            the client
+     * @return the results, each a scalar or an Object[] row
+     */
+    protected List<Object> aggregateUsingLucene(EntityMetadata m, Client client)
+    {
+        List<Object> results = new ArrayList<Object>(1);
+        if (isEntityCountOnly())
+        {
+            // Embedded objects are indexed as documents of their own
+            long count = m.getEmbeddedColumnsAsList().isEmpty() ? client.getIndexManager().count(getLuceneQuery())
+                    : fetchIdsFromLucene(client).size();
+            Object[] values = new Object[kunderaQuery.getResultClauses().size()];
+            Arrays.fill(values, Long.valueOf(count));
+            results.add(ResultAggregator.toResult(kunderaQuery.getResultClauses(), values));
+            return results;
+        }
+
+        ResultAggregator aggregator = newResultAggregator();
+        List<String> ids = new ArrayList<String>(fetchIdsFromLucene(client));
+        for (int i = 0; i < ids.size(); i += BULK_BATCH_SIZE)
+        {
+            List<String> batch = ids.subList(i, Math.min(i + BULK_BATCH_SIZE, ids.size()));
+            aggregator.addAll(client.findAll(m.getEntityClazz(), batch.toArray()));
+        }
+        return aggregator.getResults();
+    }
+
+    /**
+     * Checks if an aggregate query selects nothing but COUNT of entities,
+     * without grouping them.
+     * 
+     * @return true, if it does
+     */
+    protected boolean isEntityCountOnly()
+    {
+        if (!kunderaQuery.getGroupingColumns().isEmpty())
+        {
+            return false;
+        }
+        for (ResultClause clause : kunderaQuery.getResultClauses())
+        {
+            if (!clause.isEntityCount())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates an aggregator for results of an aggregate query.
+     * 
+     * @return the result aggregator
+     */
+    protected ResultAggregator newResultAggregator()
+    {
+        return new ResultAggregator(kunderaQuery.getResultClauses(), kunderaQuery.getGroupingColumns());
+    }
+
+    /**
+     * Fetches ids of all entities matching query from Lucene index.
+     * 
+     * @param client
+     *            the client
+     * @return the ids
+     */
+    protected Set<String> fetchIdsFromLucene(Client client)
+    {
+        Map<String, String> results = client.getIndexManager().search(getLuceneQuery(), Constants.INVALID,
+                Integer.MAX_VALUE);
+        return new HashSet<String>(results.values());
+    }
+
+    /**
+     * Brings Lucene index in line with rows deleted or updated by a bulk
+     * query. Entries of deleted entities are removed, updated entities are
+     * read back and re-indexed a batch at a time, unless no indexed column was
+     * updated.
+     * 
+     * @param m
+     *            the entity metadata
+     * @param client
+     *            the client
+     * @param ids
+     *            ids of entities deleted or updated
+     */
+    protected void onBulkIndexUpdate(EntityMetadata m, Client client, Collection<String> ids)
+    {
+        IndexManager indexManager = client.getIndexManager();
+        if (!kunderaQuery.isUpdateClause())
+        {
+            for (String id : ids)
+            {
+                indexManager.remove(m, null, id);
+            }
+            return;
+        }
+
+        boolean indexedColumnUpdated = false;
+        for (Column column : getUpdatedValues(m).keySet())
+        {
+            for (PropertyIndex index : m.getIndexProperties())
+            {
+                indexedColumnUpdated |= index.getProperty().equals(column.getField());
+            }
+        }
+        if (indexedColumnUpdated)
+        {
+            List<String> batch = new ArrayList<String>(Math.min(ids.size(), BULK_BATCH_SIZE));
+            for (Iterator<String> i = ids.iterator(); i.hasNext();)
+            {
+                batch.add(i.next());
+                if (batch.size() == BULK_BATCH_SIZE || !i.hasNext())
+                {
+                    indexManager.writeAll(m, client.findAll(m.getEntityClazz(), batch.toArray()));
+                    batch.clear();
+                }
+            }
+        }
+    }
+
     /**
      * Performs delete or update based on query.
      * 
@@ -535,31 +991,45 @@ public abstract class QueryImpl implements Query
      */
     private void onDeleteOrUpdate(List results)
     {
-        if (!kunderaQuery.isUpdateClause())
+        if (results == null)
         {
-            // then case of delete
-            for (Object result : results)
-            {
-                persistenceDelegeator.remove(result);
-            }
+            return;
         }
-        else
+
+        // Removals and merges are flushed together, once all are done
+        int batchSize = persistenceDelegeator.getBatchSize();
+        persistenceDelegeator.setBatchSize(Integer.MAX_VALUE);
+        try
         {
-            EntityMetadata entityMetadata = getEntityMetadata();
-            for (Object result : results)
+            if (!kunderaQuery.isUpdateClause())
             {
-                for (UpdateClause c : kunderaQuery.getUpdateClauseQueue())
+                // then case of delete
+                for (Object result : results)
                 {
-                    String columnName = c.getProperty();
-                    Column column = entityMetadata.getColumn(columnName);
+                    persistenceDelegeator.remove(result);
+                }
+            }
+            else
+            {
+                EntityMetadata entityMetadata = getEntityMetadata();
+                for (Object result : results)
+                {
+                    for (UpdateClause c : kunderaQuery.getUpdateClauseQueue())
+                    {
+                        String columnName = c.getProperty();
+                        Column column = entityMetadata.getColumn(columnName);
 
-                    PropertyAccessorHelper.set(result, column.getField(), c.getValue());
+                        PropertyAccessorHelper.set(result, column.getField(), c.getValue());
+                    }
                     persistenceDelegeator.merge(result);
                 }
-
             }
         }
-
+        finally
+        {
+            persistenceDelegeator.setBatchSize(batchSize);
+        }
+        persistenceDelegeator.flush();
     }
 
     /************************* Methods from {@link Query} interface *******************************/
@@ -573,7 +1043,17 @@ public abstract class QueryImpl implements Query
     @Override
     public Object getSingleResult()
     {
-        throw new NotImplementedException("TODO");
+        // Aggregate queries without GROUP BY always return one row
+        List<?> results = getResultList();
+        if (results == null || results.isEmpty())
+        {
+            throw new NoResultException("No result found for query: " + query);
+        }
+        if (results.size() > 1)
+        {
+            throw new NonUniqueResultException(results.size() + " results found for query: " + query);
+        }
+        return results.get(0);
     }
 
     /* @see javax.persistence.Query#setFirstResult(int) */
@@ -613,7 +1093,8 @@ public abstract class QueryImpl implements Query
     @Override
     public Query setHint(String hintName, Object value)
     {
-        throw new NotImplementedException("TODO");
+        hints.put(hintName, value);
+        return this;
     }
 
     /* @see javax.persistence.Query#setMaxResults(int) */
@@ -752,7 +1233,7 @@ public abstract class QueryImpl implements Query
     @Override
     public Map<String, Object> getHints()
     {
-        throw new NotImplementedException("TODO");
+        return hints;
     }
 
     /*
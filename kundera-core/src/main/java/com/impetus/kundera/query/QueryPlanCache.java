@@ -0,0 +1,211 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.lang.reflect.Constructor;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.impetus.kundera.metadata.model.EntityMetadata;
+
+/**
+ * Bounded, thread-safe cache of compiled query plans keyed by query string.
+ * Least recently used plans are evicted once the cache is full.
+ *
+ * @author agent
+ */
+public class QueryPlanCache
+{
+
+    /** Cached plans, in access order. */
+    private final Map<String, QueryPlan> plans;
+
+    /** The hit count. */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /** The miss count. */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Instantiates a new query plan cache.
+     *
+     * @param maxSize
+     *            maximum number of plans held
+     */
+    public QueryPlanCache(final int maxSize)
+    {
+        plans = new LinkedHashMap<String, QueryPlan>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryPlan> eldest)
+            {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns plan cached for given query, counting a hit or a miss.
+     *
+     * @param query
+     *            the query
+     * @return the query plan, null if not cached
+     */
+    QueryPlan get(String query)
+    {
+        QueryPlan plan;
+        synchronized (plans)
+        {
+            plan = plans.get(query);
+        }
+
+        if (plan != null)
+        {
+            hitCount.incrementAndGet();
+        }
+        else
+        {
+            missCount.incrementAndGet();
+        }
+        return plan;
+    }
+
+    /**
+     * Caches plan of given query.
+     *
+     * @param query
+     *            the query
+     * @param plan
+     *            the plan
+     */
+    void put(String query, QueryPlan plan)
+    {
+        synchronized (plans)
+        {
+            plans.put(query, plan);
+        }
+    }
+
+    /**
+     * Removes all cached plans, e.g. when metadata they're resolved against
+     * has changed.
+     */
+    public void clear()
+    {
+        synchronized (plans)
+        {
+            plans.clear();
+        }
+    }
+
+    /**
+     * Gets the number of cached plans.
+     *
+     * @return the size
+     */
+    public int size()
+    {
+        synchronized (plans)
+        {
+            return plans.size();
+        }
+    }
+
+    /**
+     * Gets the number of queries found in cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of queries not found in cache, hence compiled.
+     *
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Compiled form of a query: parsed and validated query, entity it's run
+     * on and constructor of query implementation of entity's client.
+     */
+    static final class QueryPlan
+    {
+
+        /** Parsed query, copied for every execution. */
+        private final KunderaQuery kunderaQuery;
+
+        /** The entity metadata. */
+        private final EntityMetadata entityMetadata;
+
+        /** Constructor of query implementation. */
+        private final Constructor<?> queryConstructor;
+
+        /**
+         * Instantiates a new query plan.
+         *
+         * @param kunderaQuery
+         *            the kundera query
+         * @param entityMetadata
+         *            the entity metadata
+         * @param queryConstructor
+         *            the query constructor
+         */
+        QueryPlan(KunderaQuery kunderaQuery, EntityMetadata entityMetadata, Constructor<?> queryConstructor)
+        {
+            this.kunderaQuery = kunderaQuery;
+            this.entityMetadata = entityMetadata;
+            this.queryConstructor = queryConstructor;
+        }
+
+        /**
+         * Gets the kundera query.
+         *
+         * @return the kunderaQuery
+         */
+        KunderaQuery getKunderaQuery()
+        {
+            return kunderaQuery;
+        }
+
+        /**
+         * Gets the entity metadata.
+         *
+         * @return the entityMetadata
+         */
+        EntityMetadata getEntityMetadata()
+        {
+            return entityMetadata;
+        }
+
+        /**
+         * Gets the query constructor.
+         *
+         * @return the queryConstructor
+         */
+        Constructor<?> getQueryConstructor()
+        {
+            return queryConstructor;
+        }
+    }
+}
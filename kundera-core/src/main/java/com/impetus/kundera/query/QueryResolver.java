@@ -27,8 +27,8 @@ import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.model.ApplicationMetadata;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
-import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.persistence.PersistenceDelegator;
+import com.impetus.kundera.query.QueryPlanCache.QueryPlan;
 
 /**
  * The Class QueryResolver.
@@ -58,39 +58,26 @@ public class QueryResolver
      */
     public Query getQueryImplementation(String jpaQuery, PersistenceDelegator persistenceDelegator)
     {
-        kunderaQuery = new KunderaQuery();
-        ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
-        String mappedQuery = appMetadata.getQuery(jpaQuery);
-        boolean isNative = appMetadata.isNative(jpaQuery);
-        String pu = null;
-        EntityMetadata m = null;
-        // In case of named native query
-        if (!isNative)
-        {
-            KunderaQueryParser parser = new KunderaQueryParser(kunderaQuery, mappedQuery != null ? mappedQuery
-                    : jpaQuery);
-
-            parser.parse();
-
-            kunderaQuery.postParsingInit();
-            pu = kunderaQuery.getPersistenceUnit();
-            m = kunderaQuery.getEntityMetadata();
-        }
-        else
-        {
-            Class mappedClass = appMetadata.getMappedClass(jpaQuery);
-
-            pu = appMetadata.getMappedPersistenceUnit(mappedClass).get(0);
-            m = KunderaMetadataManager.getEntityMetadata(mappedClass);
-        }
-
-        PersistenceUnitMetadata puMetadata = KunderaMetadataManager.getPersistenceUnitMetadata(pu);
-
         Query query = null;
 
         try
         {
-            query = getQuery(jpaQuery, persistenceDelegator, m);
+            // Plans are cached per entity manager factory, same query string
+            // may resolve to different entities in other persistence units
+            QueryPlanCache planCache = persistenceDelegator.getQueryPlanCache();
+            QueryPlan plan = planCache != null ? planCache.get(jpaQuery) : null;
+            if (plan == null)
+            {
+                plan = compile(jpaQuery, persistenceDelegator);
+                if (planCache != null)
+                {
+                    planCache.put(jpaQuery, plan);
+                }
+            }
+
+            // Parameters are bound on a copy, cached plan stays as parsed
+            kunderaQuery = plan.getKunderaQuery().copy();
+            query = (Query) plan.getQueryConstructor().newInstance(jpaQuery, kunderaQuery, persistenceDelegator);
         }
         catch (SecurityException e)
         {
@@ -133,41 +120,47 @@ public class QueryResolver
     }
 
     /**
-     * Gets the query instance.
+     * Parses and validates a query, resolving entity it's run on and query
+     * implementation of entity's client.
      * 
      * @param jpaQuery
      *            the jpa query
      * @param persistenceDelegator
      *            the persistence delegator
-     * @param persistenceUnits
-     *            the persistence units
-     * @return the query
+     * @return the query plan
      * @throws ClassNotFoundException
      *             the class not found exception
-     * @throws SecurityException
-     *             the security exception
      * @throws NoSuchMethodException
      *             the no such method exception
-     * @throws IllegalArgumentException
-     *             the illegal argument exception
-     * @throws InstantiationException
-     *             the instantiation exception
-     * @throws IllegalAccessException
-     *             the illegal access exception
-     * @throws InvocationTargetException
-     *             the invocation target exception
      */
-    public Query getQuery(String jpaQuery, PersistenceDelegator persistenceDelegator, EntityMetadata m)
-            throws ClassNotFoundException, SecurityException, NoSuchMethodException, IllegalArgumentException,
-            InstantiationException, IllegalAccessException, InvocationTargetException
+    private QueryPlan compile(String jpaQuery, PersistenceDelegator persistenceDelegator)
+            throws ClassNotFoundException, NoSuchMethodException
     {
-        Query query;
-        Class clazz = persistenceDelegator.getClient(m).getQueryImplementor();
+        KunderaQuery parsedQuery = new KunderaQuery();
+        ApplicationMetadata appMetadata = KunderaMetadata.INSTANCE.getApplicationMetadata();
+        String mappedQuery = appMetadata.getQuery(jpaQuery);
+        boolean isNative = appMetadata.isNative(jpaQuery);
+        EntityMetadata m = null;
+        // In case of named native query
+        if (!isNative)
+        {
+            KunderaQueryParser parser = new KunderaQueryParser(parsedQuery, mappedQuery != null ? mappedQuery
+                    : jpaQuery);
 
-        @SuppressWarnings("rawtypes")
-        Constructor constructor = clazz.getConstructor(String.class, KunderaQuery.class, PersistenceDelegator.class);
-        query = (Query) constructor.newInstance(jpaQuery, kunderaQuery, persistenceDelegator);
+            parser.parse();
 
-        return query;
+            parsedQuery.postParsingInit();
+            m = parsedQuery.getEntityMetadata();
+        }
+        else
+        {
+            Class mappedClass = appMetadata.getMappedClass(jpaQuery);
+            m = KunderaMetadataManager.getEntityMetadata(mappedClass);
+        }
+
+        Class clazz = persistenceDelegator.getClient(m).getQueryImplementor();
+        Constructor<?> constructor = clazz.getConstructor(String.class, KunderaQuery.class,
+                PersistenceDelegator.class);
+        return new QueryPlan(parsedQuery, m, constructor);
     }
 }
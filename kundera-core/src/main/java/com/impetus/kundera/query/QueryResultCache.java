@@ -0,0 +1,285 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe cache of ids of entities returned by queries, keyed by
+ * query string and its bound parameters. Entries expire after a time to live,
+ * are removed once any entity of queried class is written, and least recently
+ * used ones are evicted once the cache is full.
+ *
+ * @author agent
+ */
+public class QueryResultCache
+{
+
+    /** Cached results, in access order. */
+    private final Map<String, QueryResult> results;
+
+    /** Time (in milliseconds) results are held for. */
+    private final long timeToLive;
+
+    /** Number of invalidations so far, never goes back unlike system clock. */
+    private long invalidationCount;
+
+    /** Invalidation count at which entities of each class were last written. */
+    private final Map<Class<?>, Long> invalidationCounts = new HashMap<Class<?>, Long>();
+
+    /** The hit count. */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /** The miss count. */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Instantiates a new query result cache.
+     *
+     * @param maxSize
+     *            maximum number of results held
+     * @param timeToLive
+     *            time (in milliseconds) results are held for
+     */
+    public QueryResultCache(final int maxSize, long timeToLive)
+    {
+        this.timeToLive = timeToLive;
+        results = new LinkedHashMap<String, QueryResult>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, QueryResult> eldest)
+            {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Returns ids cached for given query key, counting a hit or a miss.
+     *
+     * @param key
+     *            query string and its bound parameters
+     * @return ids of entities returned by query, null if not cached or expired
+     */
+    List<String> get(String key)
+    {
+        QueryResult result;
+        synchronized (results)
+        {
+            result = results.get(key);
+            if (result != null && System.currentTimeMillis() - result.getCreationTime() > timeToLive)
+            {
+                results.remove(key);
+                result = null;
+            }
+        }
+
+        if (result != null)
+        {
+            hitCount.incrementAndGet();
+            return result.getIds();
+        }
+        missCount.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Gets the number of invalidations so far, to be taken before running a
+     * query whose results are to be cached.
+     *
+     * @return the invalidation count
+     */
+    long getInvalidationCount()
+    {
+        synchronized (results)
+        {
+            return invalidationCount;
+        }
+    }
+
+    /**
+     * Caches ids returned by a query, unless entities of queried class have
+     * been written since query started, as they may have been read before
+     * the write.
+     *
+     * @param key
+     *            query string and its bound parameters
+     * @param entityClass
+     *            queried entity class
+     * @param ids
+     *            ids of entities returned by query
+     * @param startCount
+     *            invalidation count at which query started
+     */
+    void put(String key, Class<?> entityClass, List<String> ids, long startCount)
+    {
+        synchronized (results)
+        {
+            Long classCount = invalidationCounts.get(entityClass);
+            if (classCount == null || classCount <= startCount)
+            {
+                results.put(key, new QueryResult(entityClass, ids, System.currentTimeMillis()));
+            }
+        }
+    }
+
+    /**
+     * Removes cached results of queries on given entity class, as entities of
+     * it have been written.
+     *
+     * @param entityClass
+     *            the entity class
+     */
+    public void invalidate(Class<?> entityClass)
+    {
+        synchronized (results)
+        {
+            invalidationCounts.put(entityClass, ++invalidationCount);
+            for (Iterator<QueryResult> iter = results.values().iterator(); iter.hasNext();)
+            {
+                if (iter.next().getEntityClass().equals(entityClass))
+                {
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all cached results.
+     */
+    public void clear()
+    {
+        synchronized (results)
+        {
+            results.clear();
+        }
+    }
+
+    /**
+     * Gets the number of cached results.
+     *
+     * @return the size
+     */
+    public int size()
+    {
+        synchronized (results)
+        {
+            return results.size();
+        }
+    }
+
+    /**
+     * Gets the number of queries whose results were found in cache.
+     *
+     * @return the hit count
+     */
+    public long getHitCount()
+    {
+        return hitCount.get();
+    }
+
+    /**
+     * Gets the number of queries whose results were not found in cache, hence
+     * run against datastore.
+     *
+     * @return the miss count
+     */
+    public long getMissCount()
+    {
+        return missCount.get();
+    }
+
+    /**
+     * Gets the ratio of cache hits to all cache lookups.
+     *
+     * @return the hit ratio, 0 if nothing has been looked up yet
+     */
+    public double getHitRatio()
+    {
+        long hits = hitCount.get();
+        long lookups = hits + missCount.get();
+        return lookups > 0 ? (double) hits / lookups : 0;
+    }
+
+    /**
+     * Ids of entities returned by a query.
+     */
+    private static final class QueryResult
+    {
+
+        /** Queried entity class. */
+        private final Class<?> entityClass;
+
+        /** The ids. */
+        private final List<String> ids;
+
+        /** Time at which result was cached. */
+        private final long creationTime;
+
+        /**
+         * Instantiates a new query result.
+         *
+         * @param entityClass
+         *            the entity class
+         * @param ids
+         *            the ids
+         * @param creationTime
+         *            the creation time
+         */
+        QueryResult(Class<?> entityClass, List<String> ids, long creationTime)
+        {
+            this.entityClass = entityClass;
+            this.ids = ids;
+            this.creationTime = creationTime;
+        }
+
+        /**
+         * Gets the entity class.
+         *
+         * @return the entityClass
+         */
+        Class<?> getEntityClass()
+        {
+            return entityClass;
+        }
+
+        /**
+         * Gets the ids.
+         *
+         * @return the ids
+         */
+        List<String> getIds()
+        {
+            return ids;
+        }
+
+        /**
+         * Gets the creation time.
+         *
+         * @return the creationTime
+         */
+        long getCreationTime()
+        {
+            return creationTime;
+        }
+    }
+}
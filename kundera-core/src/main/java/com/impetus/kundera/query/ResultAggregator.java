@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.impetus.kundera.metadata.model.Column;
+import com.impetus.kundera.property.PropertyAccessorHelper;
+
+/**
+ * Computes results of an aggregate query in memory, from entities matching it
+ * added one at a time. Only the running values of each group are held, so
+ * that entities may be streamed through it straight from a scan, without
+ * being kept in persistence context.
+ *
+ * @author agent
+ */
+public final class ResultAggregator
+{
+
+    /** The result clauses. */
+    private final List<ResultClause> resultClauses;
+
+    /** The grouping columns. */
+    private final List<Column> groupingColumns;
+
+    /** Running values of each group, keyed by values of grouping columns. */
+    private final Map<List<Object>, Accumulator[]> groups = new LinkedHashMap<List<Object>, Accumulator[]>();
+
+    /**
+     * Instantiates a new result aggregator.
+     *
+     * @param resultClauses
+     *            expressions selected by query
+     * @param groupingColumns
+     *            columns query is grouped by, empty if it isn't grouped
+     */
+    public ResultAggregator(List<ResultClause> resultClauses, List<Column> groupingColumns)
+    {
+        this.resultClauses = resultClauses;
+        this.groupingColumns = groupingColumns;
+    }
+
+    /**
+     * Adds an entity to its group.
+     *
+     * @param entity
+     *            the entity
+     */
+    public void add(Object entity)
+    {
+        List<Object> key = new ArrayList<Object>(groupingColumns.size());
+        for (Column column : groupingColumns)
+        {
+            key.add(PropertyAccessorHelper.getObject(entity, column.getField()));
+        }
+
+        Accumulator[] accumulators = groups.get(key);
+        if (accumulators == null)
+        {
+            accumulators = newAccumulators();
+            groups.put(key, accumulators);
+        }
+        for (Accumulator accumulator : accumulators)
+        {
+            if (accumulator != null)
+            {
+                accumulator.add(entity);
+            }
+        }
+    }
+
+    /**
+     * Adds entities to their groups.
+     *
+     * @param entities
+     *            the entities, may be null
+     */
+    public void addAll(Collection<?> entities)
+    {
+        if (entities != null)
+        {
+            for (Object entity : entities)
+            {
+                add(entity);
+            }
+        }
+    }
+
+    /**
+     * Gets the results, one per group in the order groups were first seen. A
+     * query without GROUP BY has a single result even if no entity was added.
+     *
+     * @return the results, each a scalar if query selects one expression and
+     *         an Object[] otherwise
+     */
+    public List<Object> getResults()
+    {
+        if (groups.isEmpty() && groupingColumns.isEmpty())
+        {
+            groups.put(new ArrayList<Object>(0), newAccumulators());
+        }
+
+        List<Object> results = new ArrayList<Object>(groups.size());
+        for (Map.Entry<List<Object>, Accumulator[]> group : groups.entrySet())
+        {
+            Object[] values = new Object[resultClauses.size()];
+            for (int i = 0; i < values.length; i++)
+            {
+                ResultClause clause = resultClauses.get(i);
+                values[i] = clause.isAggregate() ? group.getValue()[i].getValue() : group.getKey().get(
+                        groupingColumns.indexOf(clause.getColumn()));
+            }
+            results.add(toResult(resultClauses, values));
+        }
+        return results;
+    }
+
+    /**
+     * Converts values computed for a group, by datastore or in memory, to a
+     * query result.
+     *
+     * @param resultClauses
+     *            expressions selected by query
+     * @param values
+     *            values of expressions, in the same order
+     * @return the result, a scalar if query selects one expression and an
+     *         Object[] otherwise
+     */
+    public static Object toResult(List<ResultClause> resultClauses, Object[] values)
+    {
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = resultClauses.get(i).toResultType(values[i]);
+        }
+        return values.length == 1 ? values[0] : values;
+    }
+
+    /**
+     * Creates accumulators for a new group, one per aggregate function.
+     *
+     * @return the accumulators, null at positions of grouped columns
+     */
+    private Accumulator[] newAccumulators()
+    {
+        Accumulator[] accumulators = new Accumulator[resultClauses.size()];
+        for (int i = 0; i < accumulators.length; i++)
+        {
+            if (resultClauses.get(i).isAggregate())
+            {
+                accumulators[i] = new Accumulator(resultClauses.get(i));
+            }
+        }
+        return accumulators;
+    }
+
+    /**
+     * Running value of an aggregate function within a group. Null values are
+     * skipped, as SQL does.
+     */
+    private static final class Accumulator
+    {
+
+        /** The clause. */
+        private final ResultClause clause;
+
+        /** Number of non null values. */
+        private long count;
+
+        /** Sum of values, for integral columns. */
+        private long longSum;
+
+        /** Sum of values, for floating point columns. */
+        private double doubleSum;
+
+        /** Least or greatest value so far. */
+        private Object extreme;
+
+        /**
+         * Instantiates a new accumulator.
+         *
+         * @param clause
+         *            the clause
+         */
+        Accumulator(ResultClause clause)
+        {
+            this.clause = clause;
+        }
+
+        /**
+         * Adds value of an entity.
+         *
+         * @param entity
+         *            the entity
+         */
+        @SuppressWarnings("unchecked")
+        void add(Object entity)
+        {
+            Object value = clause.getColumn() != null ? PropertyAccessorHelper.getObject(entity, clause
+                    .getColumn().getField()) : entity;
+            if (value == null)
+            {
+                return;
+            }
+
+            count++;
+            String function = clause.getFunction();
+            if (ResultClause.SUM.equals(function) || ResultClause.AVG.equals(function))
+            {
+                longSum += ((Number) value).longValue();
+                doubleSum += ((Number) value).doubleValue();
+            }
+            else if (ResultClause.MIN.equals(function))
+            {
+                extreme = extreme == null || ((Comparable<Object>) value).compareTo(extreme) < 0 ? value : extreme;
+            }
+            else if (ResultClause.MAX.equals(function))
+            {
+                extreme = extreme == null || ((Comparable<Object>) value).compareTo(extreme) > 0 ? value : extreme;
+            }
+        }
+
+        /**
+         * Gets the value.
+         *
+         * @return value of function over values added, null if none was added
+         *         (zero for COUNT)
+         */
+        Object getValue()
+        {
+            String function = clause.getFunction();
+            if (ResultClause.COUNT.equals(function))
+            {
+                return Long.valueOf(count);
+            }
+            else if (count == 0)
+            {
+                return null;
+            }
+            else if (ResultClause.SUM.equals(function))
+            {
+                return ResultClause.isIntegral(clause.getColumn().getField().getType()) ? (Object) Long
+                        .valueOf(longSum) : (Object) Double.valueOf(doubleSum);
+            }
+            else if (ResultClause.AVG.equals(function))
+            {
+                return Double.valueOf(doubleSum / count);
+            }
+            return extreme;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+
+import com.impetus.kundera.metadata.model.Column;
+
+/**
+ * Expression selected by an aggregate query: either an aggregate function
+ * (COUNT, SUM, MIN, MAX or AVG) over a column or over entities, or a column
+ * results are grouped by.
+ *
+ * @author agent
+ */
+public final class ResultClause
+{
+
+    /** The Constant COUNT. */
+    public static final String COUNT = "COUNT";
+
+    /** The Constant SUM. */
+    public static final String SUM = "SUM";
+
+    /** The Constant MIN. */
+    public static final String MIN = "MIN";
+
+    /** The Constant MAX. */
+    public static final String MAX = "MAX";
+
+    /** The Constant AVG. */
+    public static final String AVG = "AVG";
+
+    /** The aggregate function, null for a grouped column. */
+    private final String function;
+
+    /** The column, null for COUNT of entities. */
+    private final Column column;
+
+    /**
+     * Instantiates a new result clause.
+     *
+     * @param function
+     *            the aggregate function, null for a grouped column
+     * @param column
+     *            the column, null for COUNT of entities
+     */
+    public ResultClause(String function, Column column)
+    {
+        this.function = function;
+        this.column = column;
+    }
+
+    /**
+     * Gets the function.
+     *
+     * @return the aggregate function, null for a grouped column
+     */
+    public String getFunction()
+    {
+        return function;
+    }
+
+    /**
+     * Gets the column.
+     *
+     * @return the column, null for COUNT of entities
+     */
+    public Column getColumn()
+    {
+        return column;
+    }
+
+    /**
+     * Checks if this is an aggregate function.
+     *
+     * @return true, unless this is a grouped column
+     */
+    public boolean isAggregate()
+    {
+        return function != null;
+    }
+
+    /**
+     * Checks if this is COUNT of entities, e.g. COUNT(p).
+     *
+     * @return true, if it is
+     */
+    public boolean isEntityCount()
+    {
+        return COUNT.equals(function) && column == null;
+    }
+
+    /**
+     * Converts a value computed for this expression, by datastore or in
+     * memory, to its result type: Long for COUNT, Double for AVG, Long or
+     * Double for SUM of integral or floating point columns, and column's own
+     * type otherwise.
+     *
+     * @param value
+     *            the value
+     * @return the converted value
+     */
+    public Object toResultType(Object value)
+    {
+        if (value == null)
+        {
+            return COUNT.equals(function) ? Long.valueOf(0) : null;
+        }
+        if (!(value instanceof Number))
+        {
+            return value;
+        }
+
+        Number number = (Number) value;
+        if (COUNT.equals(function))
+        {
+            return Long.valueOf(number.longValue());
+        }
+        else if (AVG.equals(function))
+        {
+            return Double.valueOf(number.doubleValue());
+        }
+        else if (SUM.equals(function))
+        {
+            if (isIntegral(column.getField().getType()))
+            {
+                return Long.valueOf(number.longValue());
+            }
+            return Double.valueOf(number.doubleValue());
+        }
+        return toNumber(number, column.getField().getType());
+    }
+
+    /**
+     * Checks if given type is numeric.
+     *
+     * @param type
+     *            the type
+     * @return true, if it is a primitive or boxed number, BigInteger or
+     *         BigDecimal
+     */
+    public static boolean isNumeric(Class<?> type)
+    {
+        return isIntegral(type) || type.equals(float.class) || type.equals(Float.class)
+                || type.equals(double.class) || type.equals(Double.class) || type.equals(BigDecimal.class);
+    }
+
+    /**
+     * Checks if given type is integral.
+     *
+     * @param type
+     *            the type
+     * @return true, if it is a primitive or boxed integral number or
+     *         BigInteger
+     */
+    public static boolean isIntegral(Class<?> type)
+    {
+        return type.equals(int.class) || type.equals(Integer.class) || type.equals(long.class)
+                || type.equals(Long.class) || type.equals(short.class) || type.equals(Short.class)
+                || type.equals(byte.class) || type.equals(Byte.class) || type.equals(BigInteger.class);
+    }
+
+    /**
+     * Converts a number to given numeric type, e.g. a Double computed by
+     * MongoDB to an int column's Integer.
+     *
+     * @param number
+     *            the number
+     * @param type
+     *            the type
+     * @return the converted number, or number itself if type isn't numeric
+     */
+    private static Object toNumber(Number number, Class<?> type)
+    {
+        if (type.equals(int.class) || type.equals(Integer.class))
+        {
+            return Integer.valueOf(number.intValue());
+        }
+        else if (type.equals(long.class) || type.equals(Long.class))
+        {
+            return Long.valueOf(number.longValue());
+        }
+        else if (type.equals(short.class) || type.equals(Short.class))
+        {
+            return Short.valueOf(number.shortValue());
+        }
+        else if (type.equals(byte.class) || type.equals(Byte.class))
+        {
+            return Byte.valueOf(number.byteValue());
+        }
+        else if (type.equals(float.class) || type.equals(Float.class))
+        {
+            return Float.valueOf(number.floatValue());
+        }
+        else if (type.equals(double.class) || type.equals(Double.class))
+        {
+            return Double.valueOf(number.doubleValue());
+        }
+        else if (type.equals(BigInteger.class) && !(number instanceof BigInteger))
+        {
+            return BigInteger.valueOf(number.longValue());
+        }
+        else if (type.equals(BigDecimal.class) && !(number instanceof BigDecimal))
+        {
+            return new BigDecimal(number.toString());
+        }
+        return number;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString()
+    {
+        String name = column != null ? column.getName() : "*";
+        return function != null ? function + "(" + name + ")" : name;
+    }
+}
@@ -0,0 +1,333 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.utils;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import com.impetus.kundera.metadata.KunderaMetadataManager;
+import com.impetus.kundera.metadata.model.Column;
+import com.impetus.kundera.metadata.model.EmbeddedColumn;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.model.Relation;
+import com.impetus.kundera.property.PropertyAccessorHelper;
+import com.impetus.kundera.proxy.KunderaProxy;
+
+/**
+ * Captures persistent state of an entity, as described by its
+ * {@link EntityMetadata}, into a flat array, for dirty checking. Unlike a deep
+ * copy of the entity, only column values are copied: id, columns, columns of
+ * embedded objects (element-wise for element collections) and ids of related
+ * entities. Related entities themselves are captured by their own snapshots.
+ * Entities are copied the same way, by their persistent state, for second
+ * level cache.
+ *
+ * @author agent
+ */
+public final class EntitySnapshot
+{
+
+    /**
+     * Instantiates a new entity snapshot.
+     */
+    private EntitySnapshot()
+    {
+    }
+
+    /**
+     * Takes snapshot of given entity.
+     *
+     * @param metadata
+     *            the metadata
+     * @param entity
+     *            the entity
+     * @return the snapshot
+     */
+    public static Object[] take(EntityMetadata metadata, Object entity)
+    {
+        // Map views, iterated in the same order for as long as metadata is
+        // unchanged, without copying them into lists
+        Collection<Column> columns = metadata.getColumnsMap().values();
+        Collection<EmbeddedColumn> embeddedColumns = metadata.getEmbeddedColumnsMap().values();
+        List<Relation> relations = metadata.getRelations();
+
+        Object[] snapshot = new Object[1 + columns.size() + embeddedColumns.size() + relations.size()];
+        int i = 0;
+        snapshot[i++] = copyValue(metadata.getIdColumn().getAccessor().get(entity));
+
+        for (Column column : columns)
+        {
+            snapshot[i++] = copyValue(column.getAccessor().get(entity));
+        }
+
+        for (EmbeddedColumn embeddedColumn : embeddedColumns)
+        {
+            Object embeddedObject = embeddedColumn.getAccessor().get(entity);
+            if (embeddedObject instanceof Collection<?>)
+            {
+                Collection<?> elements = (Collection<?>) embeddedObject;
+                Object[] elementSnapshots = new Object[elements.size()];
+                int j = 0;
+                for (Object element : elements)
+                {
+                    elementSnapshots[j++] = takeEmbedded(embeddedColumn, element);
+                }
+                snapshot[i++] = elementSnapshots;
+            }
+            else
+            {
+                snapshot[i++] = takeEmbedded(embeddedColumn, embeddedObject);
+            }
+        }
+
+        for (Relation relation : relations)
+        {
+            Object related = PropertyAccessorHelper.getObject(entity, relation.getProperty());
+            if (related instanceof KunderaProxy && PropertyAccessorHelper.isCollection(related.getClass())
+                    && ((KunderaProxy) related).getKunderaLazyInitializer().isUninitialized())
+            {
+                // Collection not read yet is captured by its initializer
+                snapshot[i++] = ((KunderaProxy) related).getKunderaLazyInitializer();
+            }
+            else if (related instanceof Collection<?>)
+            {
+                Collection<?> relatedEntities = (Collection<?>) related;
+                Object[] relatedIds = new Object[relatedEntities.size()];
+                int j = 0;
+                for (Object relatedEntity : relatedEntities)
+                {
+                    relatedIds[j++] = getRelatedId(relatedEntity);
+                }
+                snapshot[i++] = relatedIds;
+            }
+            else
+            {
+                snapshot[i++] = getRelatedId(related);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Checks whether persistent state of given entity has changed since given
+     * snapshot was taken.
+     *
+     * @param metadata
+     *            the metadata
+     * @param entity
+     *            the entity
+     * @param snapshot
+     *            the snapshot, may be null
+     * @return true, if entity is not the same as in snapshot
+     */
+    public static boolean isModified(EntityMetadata metadata, Object entity, Object[] snapshot)
+    {
+        return snapshot == null || !Arrays.deepEquals(snapshot, take(metadata, entity));
+    }
+
+    /**
+     * Copies persistent state of given entity into a new instance of its
+     * class: id, columns and embedded objects, with mutable values copied and
+     * immutable ones shared. Cheaper than a deep copy, as only mapped fields
+     * are visited through their cached accessors. Entities with relations are
+     * deep copied, along with entities they refer to.
+     * 
+     * @param metadata
+     *            the metadata
+     * @param entity
+     *            the entity
+     * @return the copy
+     */
+    public static Object copy(EntityMetadata metadata, Object entity)
+    {
+        if (!metadata.getRelations().isEmpty())
+        {
+            return ObjectUtils.deepCopy(entity);
+        }
+
+        Object copy;
+        try
+        {
+            copy = entity.getClass().newInstance();
+            copyColumn(metadata.getIdColumn(), entity, copy);
+            for (Column column : metadata.getColumnsMap().values())
+            {
+                copyColumn(column, entity, copy);
+            }
+
+            for (EmbeddedColumn embeddedColumn : metadata.getEmbeddedColumnsMap().values())
+            {
+                Object embeddedObject = embeddedColumn.getAccessor().get(entity);
+                Object embeddedCopy = null;
+                if (embeddedObject instanceof Collection<?> || embeddedObject instanceof Map<?, ?>)
+                {
+                    embeddedCopy = ObjectUtils.deepCopy(embeddedObject);
+                }
+                else if (embeddedObject != null)
+                {
+                    embeddedCopy = embeddedObject.getClass().newInstance();
+                    for (Column column : embeddedColumn.getColumns())
+                    {
+                        copyColumn(column, embeddedObject, embeddedCopy);
+                    }
+                }
+                embeddedColumn.getAccessor().set(copy, embeddedCopy);
+            }
+        }
+        catch (InstantiationException e)
+        {
+            // e.g. no default constructor
+            return ObjectUtils.deepCopy(entity);
+        }
+        catch (IllegalAccessException e)
+        {
+            return ObjectUtils.deepCopy(entity);
+        }
+        return copy;
+    }
+
+    /**
+     * Copies value of a column from one object to another, see
+     * {@link #copy(EntityMetadata, Object)}.
+     * 
+     * @param column
+     *            the column
+     * @param from
+     *            the object copied from
+     * @param to
+     *            the object copied to
+     */
+    private static void copyColumn(Column column, Object from, Object to)
+    {
+        Object value = column.getAccessor().get(from);
+        if (value instanceof Date || value instanceof Calendar || value instanceof byte[] || value instanceof char[])
+        {
+            value = copyValue(value);
+        }
+        else if (value != null && !isImmutable(value))
+        {
+            value = ObjectUtils.deepCopy(value);
+        }
+        column.getAccessor().set(to, value);
+    }
+
+    /**
+     * Checks whether given value is of a well known immutable type.
+     * 
+     * @param value
+     *            the value
+     * @return true, if value can be shared by copies
+     */
+    private static boolean isImmutable(Object value)
+    {
+        return value instanceof String || value instanceof Integer || value instanceof Long
+                || value instanceof Double || value instanceof Float || value instanceof Short
+                || value instanceof Byte || value instanceof Boolean || value instanceof Character
+                || value instanceof BigDecimal || value instanceof BigInteger || value instanceof Enum<?>;
+    }
+
+    /**
+     * Takes snapshot of column values of an embedded object.
+     *
+     * @param embeddedColumn
+     *            the embedded column
+     * @param embeddedObject
+     *            the embedded object
+     * @return the snapshot, null if embedded object is null
+     */
+    private static Object[] takeEmbedded(EmbeddedColumn embeddedColumn, Object embeddedObject)
+    {
+        if (embeddedObject == null)
+        {
+            return null;
+        }
+
+        List<Column> columns = embeddedColumn.getColumns();
+        Object[] snapshot = new Object[columns.size()];
+        int i = 0;
+        for (Column column : columns)
+        {
+            snapshot[i++] = copyValue(column.getAccessor().get(embeddedObject));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Returns id of a related entity, or the entity itself if it isn't a known
+     * entity. Proxies aren't initialized for it.
+     *
+     * @param relatedEntity
+     *            the related entity
+     * @return the related id
+     */
+    private static Object getRelatedId(Object relatedEntity)
+    {
+        if (relatedEntity == null)
+        {
+            return null;
+        }
+        else if (relatedEntity instanceof KunderaProxy)
+        {
+            return ((KunderaProxy) relatedEntity).getKunderaLazyInitializer().getIdentifier();
+        }
+        EntityMetadata relatedMetadata = KunderaMetadataManager.getEntityMetadata(relatedEntity.getClass());
+        return relatedMetadata != null ? PropertyAccessorHelper.getId(relatedEntity, relatedMetadata)
+                : relatedEntity;
+    }
+
+    /**
+     * Copies mutable column values, so that changes to them made in place are
+     * detected. Immutable values are shared.
+     *
+     * @param value
+     *            the value
+     * @return the copy
+     */
+    private static Object copyValue(Object value)
+    {
+        if (value instanceof Date)
+        {
+            return ((Date) value).clone();
+        }
+        else if (value instanceof Calendar)
+        {
+            return ((Calendar) value).clone();
+        }
+        else if (value instanceof byte[])
+        {
+            return ((byte[]) value).clone();
+        }
+        else if (value instanceof char[])
+        {
+            return ((char[]) value).clone();
+        }
+        else if (value instanceof Collection<?>)
+        {
+            return ((Collection<?>) value).toArray();
+        }
+        else if (value instanceof Map<?, ?>)
+        {
+            return new Object[] { ((Map<?, ?>) value).keySet().toArray(), ((Map<?, ?>) value).values().toArray() };
+        }
+        return value;
+    }
+}
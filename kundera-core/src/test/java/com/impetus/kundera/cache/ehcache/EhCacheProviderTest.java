@@ -133,4 +133,37 @@ public class EhCacheProviderTest extends TestCase
         cacheProvider.clearAll();
         assertEquals(0, ehCache.size());
     }
+
+    /**
+     * Test method for.
+     * 
+     * {@link com.impetus.kundera.cache.ehcache.EhCacheWrapper#evict(java.lang.Class)}
+     * .
+     */
+    public void testEvictClass()
+    {
+        cacheProvider.init(cacheResource);
+        EhCacheWrapper ehCache = (EhCacheWrapper) cacheProvider.createCache(cacheName);
+
+        // Entities go to region configured for their class
+        ehCache.put(PersonnelDTO.class, person1.getPersonId(), person1);
+        ehCache.put(PersonnelDTO.class, person2.getPersonId(), person2);
+        ehCache.put("key", "value");
+        assertEquals(3, ehCache.size());
+        assertEquals(2, cacheProvider.getCacheManager().getCache(PersonnelDTO.class.getName()).getSize());
+        assertNull(ehCache.get(person1.getPersonId()));
+        assertEquals(person1, ehCache.get(PersonnelDTO.class, person1.getPersonId()));
+        assertTrue(ehCache.contains(PersonnelDTO.class, person2.getPersonId()));
+
+        // Evict region
+        ehCache.evict(PersonnelDTO.class);
+        assertEquals(1, ehCache.size());
+        assertNull(ehCache.get(PersonnelDTO.class, person1.getPersonId()));
+
+        // Evict entries of a class from shared cache
+        ehCache.evict(Integer.class);
+        assertEquals(1, ehCache.size());
+        ehCache.evict(String.class);
+        assertEquals(0, ehCache.size());
+    }
 }
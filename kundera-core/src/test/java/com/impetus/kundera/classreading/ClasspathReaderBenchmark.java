@@ -0,0 +1,147 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.classreading;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.List;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+
+import javax.persistence.Entity;
+
+/**
+ * Compares parallel scanning of a synthetic class path of a few thousand
+ * classes, with constant pool check, against sequential scanning parsing every
+ * class file. Not a test case, so it isn't run by the build; run its main
+ * method to print timings.
+ *
+ * @author agent
+ */
+public final class ClasspathReaderBenchmark
+{
+
+    /** Number of class path directories. */
+    private static final int DIRECTORIES = 8;
+
+    /** Number of classes per directory. */
+    private static final int CLASSES_PER_DIRECTORY = 500;
+
+    /** Every n-th class is an entity. */
+    private static final int ENTITY_EVERY = 50;
+
+    /**
+     * Instantiates a new classpath reader benchmark.
+     */
+    private ClasspathReaderBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            the arguments, ignored
+     * @throws Exception
+     *             the exception
+     */
+    public static void main(String[] args) throws Exception
+    {
+        File root = File.createTempFile("kundera-classpath", "");
+        root.delete();
+        try
+        {
+            URL[] classpath = new URL[DIRECTORIES];
+            for (int i = 0; i < DIRECTORIES; i++)
+            {
+                File directory = new File(root, "classes" + i);
+                for (int j = 0; j < CLASSES_PER_DIRECTORY; j++)
+                {
+                    ClasspathReaderTest.writeClass(directory, "com.impetus.kundera.synthetic" + i + ".Synthetic" + j,
+                            j % ENTITY_EVERY == 0, false);
+                }
+                classpath[i] = directory.toURI().toURL();
+            }
+
+            ClasspathReader reader = new ClasspathReader();
+            reader.addValidAnnotations(Entity.class.getName());
+
+            // Warm up both paths
+            reader.scanResources(classpath);
+            scanSequentially(classpath);
+
+            long start = System.nanoTime();
+            reader.scanResources(classpath);
+            long parallelTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            scanSequentially(classpath);
+            long sequentialTime = System.nanoTime() - start;
+
+            System.out.println("Scanning of " + DIRECTORIES * CLASSES_PER_DIRECTORY + " classes, parallel: "
+                    + parallelTime / 1000000 + "ms, sequential: " + sequentialTime / 1000000 + "ms");
+        }
+        finally
+        {
+            ClasspathReaderTest.delete(root);
+        }
+    }
+
+    /**
+     * Scans class path one class at a time, parsing every class file, as was
+     * done earlier.
+     *
+     * @param classpath
+     *            the classpath
+     * @return names of entity classes
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private static List<String> scanSequentially(URL[] classpath) throws IOException
+    {
+        List<String> classNames = new ArrayList<String>();
+        for (URL url : classpath)
+        {
+            ResourceIterator itr = new ClassFileIterator(new File(url.getPath()), new FilterImpl());
+            InputStream is = null;
+            while ((is = itr.next()) != null)
+            {
+                DataInputStream dstream = new DataInputStream(new BufferedInputStream(is));
+                try
+                {
+                    ClassFile cf = new ClassFile(dstream);
+                    AnnotationsAttribute visible = (AnnotationsAttribute) cf
+                            .getAttribute(AnnotationsAttribute.visibleTag);
+                    if (visible != null && visible.getAnnotation(Entity.class.getName()) != null)
+                    {
+                        classNames.add(cf.getName());
+                    }
+                }
+                finally
+                {
+                    dstream.close();
+                }
+            }
+        }
+        return classNames;
+    }
+}
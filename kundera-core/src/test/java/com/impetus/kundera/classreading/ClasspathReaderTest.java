@@ -0,0 +1,247 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.classreading;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javassist.bytecode.AnnotationsAttribute;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.ConstPool;
+import javassist.bytecode.annotation.Annotation;
+
+import javax.persistence.Entity;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for {@link ClasspathReader}, scanning a synthetic class path.
+ * Timings of parallel scanning against sequential scanning parsing every class
+ * file are compared by {@link ClasspathReaderBenchmark}.
+ *
+ * @author agent
+ */
+public class ClasspathReaderTest
+{
+
+    /** Number of class path directories. */
+    private static final int DIRECTORIES = 4;
+
+    /** Number of classes per directory. */
+    private static final int CLASSES_PER_DIRECTORY = 50;
+
+    /** Every n-th class is an entity. */
+    private static final int ENTITY_EVERY = 10;
+
+    /** Root of synthetic class path. */
+    private File root;
+
+    /** The class path. */
+    private URL[] classpath;
+
+    /** Names of entity classes on class path. */
+    private Set<String> entityClassNames;
+
+    /**
+     * Writes synthetic class files.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        root = File.createTempFile("kundera-classpath", "");
+        root.delete();
+        classpath = new URL[DIRECTORIES];
+        entityClassNames = new HashSet<String>();
+        for (int i = 0; i < DIRECTORIES; i++)
+        {
+            File directory = new File(root, "classes" + i);
+            for (int j = 0; j < CLASSES_PER_DIRECTORY; j++)
+            {
+                String className = "com.impetus.kundera.synthetic" + i + ".Synthetic" + j;
+                boolean isEntity = j % ENTITY_EVERY == 0;
+                writeClass(directory, className, isEntity, false);
+                if (isEntity)
+                {
+                    entityClassNames.add(className);
+                }
+            }
+            classpath[i] = directory.toURI().toURL();
+        }
+    }
+
+    /**
+     * Deletes synthetic class files.
+     */
+    @After
+    public void tearDown()
+    {
+        delete(root);
+    }
+
+    /**
+     * Entities are found, other classes are skipped.
+     */
+    @Test
+    public void testScanResources()
+    {
+        ClasspathReader reader = new ClasspathReader();
+        reader.addValidAnnotations(Entity.class.getName());
+
+        List<String> classNames = reader.scanResources(classpath);
+        Assert.assertEquals(entityClassNames.size(), classNames.size());
+        Assert.assertEquals(entityClassNames, new HashSet<String>(classNames));
+    }
+
+    /**
+     * Classes merely mentioning an annotation in their constant pool, e.g. as
+     * a string, pass the constant pool check but aren't reported. Classes not
+     * mentioning it are skipped without being parsed.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testConstantPoolCheck() throws Exception
+    {
+        File directory = new File(root, "mentions");
+        String entityName = "com.impetus.kundera.synthetic.Entity";
+        String mentionName = "com.impetus.kundera.synthetic.Mention";
+        String plainName = "com.impetus.kundera.synthetic.Plain";
+        writeClass(directory, entityName, true, false);
+        writeClass(directory, mentionName, false, true);
+        writeClass(directory, plainName, false, false);
+
+        ClasspathReader reader = new ClasspathReader();
+        reader.addValidAnnotations(Entity.class.getName());
+        Assert.assertTrue(reader.isCandidate(readClass(directory, entityName)));
+        Assert.assertTrue(reader.isCandidate(readClass(directory, mentionName)));
+        Assert.assertFalse(reader.isCandidate(readClass(directory, plainName)));
+
+        List<String> classNames = reader.scanResources(new URL[] { directory.toURI().toURL() });
+        Assert.assertEquals(1, classNames.size());
+        Assert.assertEquals(entityName, classNames.get(0));
+    }
+
+    /**
+     * Reads class file written by {@link #writeClass}.
+     *
+     * @param directory
+     *            class path directory
+     * @param className
+     *            the class name
+     * @return the class bytes
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private byte[] readClass(File directory, String className) throws IOException
+    {
+        File file = new File(directory, className.replace('.', File.separatorChar) + ".class");
+        byte[] bytes = new byte[(int) file.length()];
+        DataInputStream in = new DataInputStream(new FileInputStream(file));
+        try
+        {
+            in.readFully(bytes);
+        }
+        finally
+        {
+            in.close();
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes class file of an empty class.
+     *
+     * @param directory
+     *            class path directory
+     * @param className
+     *            the class name
+     * @param isEntity
+     *            whether class is annotated with @Entity
+     * @param mentionsEntity
+     *            whether descriptor of @Entity is in constant pool, without
+     *            class being annotated with it
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    static void writeClass(File directory, String className, boolean isEntity, boolean mentionsEntity)
+            throws IOException
+    {
+        ClassFile cf = new ClassFile(false, className, null);
+        ConstPool constPool = cf.getConstPool();
+        // Constants an ordinary class would have, so that constant pool isn't
+        // trivially small
+        constPool.addStringInfo("Synthetic class " + className);
+        constPool.addLongInfo(System.currentTimeMillis());
+        constPool.addMethodrefInfo(constPool.addClassInfo("java.lang.Object"), "toString", "()Ljava/lang/String;");
+        if (mentionsEntity)
+        {
+            constPool.addUtf8Info("L" + Entity.class.getName().replace('.', '/') + ";");
+        }
+        if (isEntity)
+        {
+            AnnotationsAttribute attribute = new AnnotationsAttribute(constPool, AnnotationsAttribute.visibleTag);
+            attribute.addAnnotation(new Annotation(Entity.class.getName(), constPool));
+            cf.addAttribute(attribute);
+        }
+
+        File file = new File(directory, className.replace('.', File.separatorChar) + ".class");
+        file.getParentFile().mkdirs();
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(file));
+        try
+        {
+            cf.write(out);
+        }
+        finally
+        {
+            out.close();
+        }
+    }
+
+    /**
+     * Deletes a file or directory recursively.
+     *
+     * @param file
+     *            the file
+     */
+    static void delete(File file)
+    {
+        File[] children = file.listFiles();
+        if (children != null)
+        {
+            for (File child : children)
+            {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+}
@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.metadata.model.ClientMetadata;
+
+/**
+ * Test case for {@link LuceneIndexShard}.
+ *
+ * @author agent
+ */
+public class LuceneIndexShardTest
+{
+
+    /** The index directory. */
+    private File indexDirectory;
+
+    /** The shard. */
+    private LuceneIndexShard shard;
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        indexDirectory = new File(System.getProperty("java.io.tmpdir"), "kundera-shard-" + System.nanoTime());
+        ClientMetadata clientMetadata = new ClientMetadata();
+        clientMetadata.setLuceneIndexDir(indexDirectory.getAbsolutePath());
+        shard = new LuceneIndexShard(new StandardAnalyzer(Version.LUCENE_34), indexDirectory, clientMetadata);
+    }
+
+    /**
+     * Updating by kundera id replaces documents indexed earlier, and adds
+     * them if there were none.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testUpdateDocuments() throws Exception
+    {
+        Term term = new Term(DocumentIndexer.KUNDERA_ID_FIELD, "Person~1");
+        shard.updateDocuments(term, documents("Person~1", 1));
+        Assert.assertEquals(1, count(term));
+
+        // Super column family entities are indexed as several documents
+        shard.updateDocuments(term, documents("Person~1", 3));
+        Assert.assertEquals(3, count(term));
+
+        shard.updateDocuments(term, documents("Person~1", 2));
+        Assert.assertEquals(2, count(term));
+
+        shard.deleteDocuments(term);
+        Assert.assertEquals(0, count(term));
+    }
+
+    /**
+     * Pending changes are committed on close, and index can be opened again
+     * afterwards.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testClose() throws Exception
+    {
+        Term term = new Term(DocumentIndexer.KUNDERA_ID_FIELD, "Person~1");
+        shard.updateDocuments(term, documents("Person~1", 1));
+        shard.close();
+
+        ClientMetadata clientMetadata = new ClientMetadata();
+        clientMetadata.setLuceneIndexDir(indexDirectory.getAbsolutePath());
+        shard = new LuceneIndexShard(new StandardAnalyzer(Version.LUCENE_34), indexDirectory, clientMetadata);
+        Assert.assertEquals(1, count(term));
+    }
+
+    /**
+     * Index locked by another writer is not opened, and lock is left in place.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testLockedIndex() throws Exception
+    {
+        File lockedDirectory = new File(System.getProperty("java.io.tmpdir"), "kundera-locked-" + System.nanoTime());
+        FSDirectory directory = FSDirectory.open(lockedDirectory);
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_34,
+                new StandardAnalyzer(Version.LUCENE_34)));
+        try
+        {
+            ClientMetadata clientMetadata = new ClientMetadata();
+            clientMetadata.setIndexDirectoryType(LuceneIndexer.DIRECTORY_FS);
+            new LuceneIndexShard(new StandardAnalyzer(Version.LUCENE_34), lockedDirectory, clientMetadata);
+            Assert.fail("Locked index must not be opened");
+        }
+        catch (LuceneIndexingException e)
+        {
+            Assert.assertTrue(IndexWriter.isLocked(directory));
+        }
+        finally
+        {
+            writer.close();
+            directory.close();
+            for (File file : lockedDirectory.listFiles())
+            {
+                file.delete();
+            }
+            lockedDirectory.delete();
+        }
+    }
+
+    /**
+     * Builds documents of an entity.
+     *
+     * @param kunderaId
+     *            the kundera id
+     * @param count
+     *            number of documents
+     * @return the documents
+     */
+    private List<Document> documents(String kunderaId, int count)
+    {
+        List<Document> documents = new ArrayList<Document>();
+        for (int i = 0; i < count; i++)
+        {
+            Document document = new Document();
+            document.add(new Field(DocumentIndexer.KUNDERA_ID_FIELD, kunderaId, Field.Store.YES,
+                    Field.Index.NOT_ANALYZED_NO_NORMS));
+            documents.add(document);
+        }
+        return documents;
+    }
+
+    /**
+     * Counts documents containing given term.
+     *
+     * @param term
+     *            the term
+     * @return the number of documents
+     * @throws Exception
+     *             the exception
+     */
+    private int count(Term term) throws Exception
+    {
+        IndexSearcher searcher = shard.acquire();
+        try
+        {
+            return searcher.search(new TermQuery(term), 10).totalHits;
+        }
+        finally
+        {
+            shard.release(searcher);
+        }
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        shard.close();
+        for (File file : indexDirectory.listFiles())
+        {
+            file.delete();
+        }
+        indexDirectory.delete();
+    }
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import java.io.File;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.metadata.model.ClientMetadata;
+
+/**
+ * Test case for {@link LuceneIndexer} instances shared by persistence units
+ * with the same index directory.
+ *
+ * @author agent
+ */
+public class LuceneIndexerTest
+{
+
+    /** The index directory. */
+    private File indexDirectory;
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        indexDirectory = new File(System.getProperty("java.io.tmpdir"), "kundera-indexer-" + System.nanoTime());
+    }
+
+    /**
+     * Persistence units with same index layout share one indexer.
+     */
+    @Test
+    public void testSharedIndexer()
+    {
+        LuceneIndexer first = LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34), clientMetadata(false));
+        ClientMetadata other = clientMetadata(false);
+        other.setIndexDirectoryType(LuceneIndexer.DIRECTORY_RAM.toUpperCase());
+        other.setIndexCommitInterval(1000);
+        LuceneIndexer second = LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34), other);
+        Assert.assertSame(first, second);
+        second.close();
+        first.close();
+    }
+
+    /**
+     * Persistence unit asking for a different index layout of same directory
+     * is refused.
+     */
+    @Test
+    public void testLayoutMismatch()
+    {
+        LuceneIndexer first = LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34), clientMetadata(false));
+        try
+        {
+            LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34), clientMetadata(true));
+            Assert.fail("Sharded index must not be opened over an unsharded one");
+        }
+        catch (LuceneIndexingException e)
+        {
+            // Expected
+        }
+        finally
+        {
+            first.close();
+        }
+    }
+
+    /**
+     * Builds client metadata for index directory.
+     *
+     * @param sharded
+     *            whether index is sharded per index name
+     * @return the client metadata
+     */
+    private ClientMetadata clientMetadata(boolean sharded)
+    {
+        ClientMetadata clientMetadata = new ClientMetadata();
+        clientMetadata.setLuceneIndexDir(indexDirectory.getAbsolutePath());
+        clientMetadata.setIndexSharded(sharded);
+        return clientMetadata;
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        if (indexDirectory.isDirectory())
+        {
+            for (File file : indexDirectory.listFiles())
+            {
+                file.delete();
+            }
+            indexDirectory.delete();
+        }
+    }
+}
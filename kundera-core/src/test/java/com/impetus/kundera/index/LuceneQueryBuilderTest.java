@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for {@link LuceneQueryBuilder}.
+ *
+ * @author agent
+ */
+public class LuceneQueryBuilderTest
+{
+
+    /** The Constant NAME_FIELD. */
+    private static final String NAME_FIELD = "PERSON.PERSON_NAME";
+
+    /** The searcher. */
+    private IndexSearcher searcher;
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        RAMDirectory directory = new RAMDirectory();
+        IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(Version.LUCENE_34,
+                new StandardAnalyzer(Version.LUCENE_34)));
+        writer.addDocument(newDocument("1", "Vivek Mishra"));
+        writer.addDocument(newDocument("2", "Amresh Singh"));
+        writer.close();
+        searcher = new IndexSearcher(IndexReader.open(directory));
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        searcher.close();
+    }
+
+    /**
+     * Values of text fields are matched as analyzed, ids as they are.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testTermQuery() throws Exception
+    {
+        Assert.assertEquals(1, count(LuceneQueryBuilder.getTermQuery(NAME_FIELD, "Vivek")));
+        Assert.assertEquals(1, count(LuceneQueryBuilder.getTermQuery(NAME_FIELD, "vivek mishra")));
+        Assert.assertEquals(0, count(LuceneQueryBuilder.getTermQuery(NAME_FIELD, "mishra vivek")));
+        Assert.assertEquals(1, count(LuceneQueryBuilder.getTermQuery(DocumentIndexer.ENTITY_ID_FIELD, "2")));
+    }
+
+    /**
+     * Like patterns match by prefix unless they have wildcards.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testLikeQuery() throws Exception
+    {
+        Assert.assertEquals(1, count(LuceneQueryBuilder.getLikeQuery(NAME_FIELD, "Viv")));
+        Assert.assertEquals(1, count(LuceneQueryBuilder.getLikeQuery(NAME_FIELD, "%resh")));
+        Assert.assertEquals(0, count(LuceneQueryBuilder.getLikeQuery(NAME_FIELD, "resh")));
+    }
+
+    /**
+     * Clauses joined by AND must all match, those joined by OR are
+     * alternatives.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testBuild() throws Exception
+    {
+        Query and = new LuceneQueryBuilder().appendClause(NAME_FIELD, "=", "vivek").appendOperator("AND")
+                .appendClause(NAME_FIELD, "=", "amresh").build(getClass());
+        Assert.assertEquals(0, count(and));
+
+        Query or = new LuceneQueryBuilder().appendClause(NAME_FIELD, "=", "vivek").appendOperator("OR")
+                .appendClause(NAME_FIELD, "=", "amresh").build(getClass());
+        Assert.assertEquals(2, count(or));
+
+        Assert.assertEquals(2, count(new LuceneQueryBuilder().build(getClass())));
+        Assert.assertEquals(0, count(new LuceneQueryBuilder().build(String.class)));
+    }
+
+    /**
+     * New document.
+     *
+     * @param id
+     *            the id
+     * @param name
+     *            the name
+     * @return the document
+     */
+    private Document newDocument(String id, String name)
+    {
+        Document document = new Document();
+        document.add(new Field(DocumentIndexer.ENTITY_ID_FIELD, id, Field.Store.YES,
+                Field.Index.NOT_ANALYZED_NO_NORMS));
+        document.add(new Field(DocumentIndexer.ENTITY_CLASS_FIELD, getClass().getCanonicalName().toLowerCase(),
+                Field.Store.YES, Field.Index.NOT_ANALYZED_NO_NORMS));
+        document.add(new Field(NAME_FIELD, name, Field.Store.YES, Field.Index.ANALYZED_NO_NORMS));
+        return document;
+    }
+
+    /**
+     * Counts documents matching query.
+     *
+     * @param query
+     *            the query
+     * @return the count
+     * @throws Exception
+     *             the exception
+     */
+    private int count(Query query) throws Exception
+    {
+        return searcher.search(query, 10).totalHits;
+    }
+}
@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.index;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for {@link LuceneSearcherManager}.
+ *
+ * @author agent
+ */
+public class LuceneSearcherManagerTest
+{
+
+    /** The writer. */
+    private IndexWriter writer;
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        writer = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(Version.LUCENE_34, new StandardAnalyzer(
+                Version.LUCENE_34)));
+    }
+
+    /**
+     * Writes are visible to next search without any commit.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testReopenOnDirty() throws Exception
+    {
+        LuceneSearcherManager manager = new LuceneSearcherManager(writer, 0);
+        Assert.assertEquals(0, numDocs(manager));
+
+        addDocument("1");
+        // Not marked dirty, so searcher is not reopened
+        Assert.assertEquals(0, numDocs(manager));
+
+        manager.markDirty();
+        Assert.assertEquals(1, numDocs(manager));
+        manager.close();
+    }
+
+    /**
+     * Searches may lag behind writes by at most the refresh interval.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testRefreshInterval() throws Exception
+    {
+        LuceneSearcherManager manager = new LuceneSearcherManager(writer, 60000);
+        addDocument("1");
+        manager.markDirty();
+        Assert.assertEquals(0, numDocs(manager));
+
+        manager.maybeRefresh();
+        Assert.assertEquals(1, numDocs(manager));
+        manager.close();
+    }
+
+    /**
+     * A searcher held by a search stays usable after it's been replaced.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testReleaseAfterSwap() throws Exception
+    {
+        LuceneSearcherManager manager = new LuceneSearcherManager(writer, 0);
+        IndexSearcher held = manager.acquire();
+
+        addDocument("1");
+        manager.markDirty();
+        IndexSearcher current = manager.acquire();
+        Assert.assertNotSame(held, current);
+
+        Assert.assertEquals(0, held.getIndexReader().numDocs());
+        Assert.assertEquals(1, current.getIndexReader().numDocs());
+        manager.release(held);
+        manager.release(current);
+        manager.close();
+    }
+
+    /**
+     * Returns number of documents visible to current searcher.
+     *
+     * @param manager
+     *            the manager
+     * @return the number of documents
+     * @throws Exception
+     *             the exception
+     */
+    private int numDocs(LuceneSearcherManager manager) throws Exception
+    {
+        IndexSearcher searcher = manager.acquire();
+        try
+        {
+            return searcher.getIndexReader().numDocs();
+        }
+        finally
+        {
+            manager.release(searcher);
+        }
+    }
+
+    /**
+     * Adds a document to index.
+     *
+     * @param id
+     *            the id
+     * @throws Exception
+     *             the exception
+     */
+    private void addDocument(String id) throws Exception
+    {
+        Document document = new Document();
+        document.add(new Field("id", id, Field.Store.YES, Field.Index.NOT_ANALYZED));
+        writer.addDocument(document);
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        writer.close();
+    }
+}
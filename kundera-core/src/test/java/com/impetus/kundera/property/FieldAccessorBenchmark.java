@@ -0,0 +1,105 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import java.lang.reflect.Field;
+
+import com.impetus.kundera.entity.PersonnelDTO;
+
+/**
+ * Compares hydrating entities through generated accessors with doing it
+ * through reflection. Not a test case, so it isn't run by the build; run its
+ * main method to print timings.
+ *
+ * @author agent
+ */
+public final class FieldAccessorBenchmark
+{
+
+    /** Number of entities hydrated per approach. */
+    private static final int ITERATIONS = 1000000;
+
+    /**
+     * Instantiates a new field accessor benchmark.
+     */
+    private FieldAccessorBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            the arguments, ignored
+     * @throws Exception
+     *             the exception
+     */
+    public static void main(String[] args) throws Exception
+    {
+        Field[] fields = { PersonnelDTO.class.getDeclaredField("personId"),
+                PersonnelDTO.class.getDeclaredField("firstName"), PersonnelDTO.class.getDeclaredField("lastName") };
+        FieldAccessor[] generated = new FieldAccessor[fields.length];
+        FieldAccessor[] reflective = new FieldAccessor[fields.length];
+        for (int i = 0; i < fields.length; i++)
+        {
+            generated[i] = FieldAccessorFactory.getFieldAccessor(fields[i]);
+            reflective[i] = new ReflectiveFieldAccessor(fields[i]);
+        }
+        Object[] row = { "1", "Amresh", "Singh" };
+
+        // Warm up both paths
+        hydrate(generated, row, ITERATIONS / 10);
+        hydrate(reflective, row, ITERATIONS / 10);
+
+        long start = System.nanoTime();
+        hydrate(generated, row, ITERATIONS);
+        long generatedTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        hydrate(reflective, row, ITERATIONS);
+        long reflectiveTime = System.nanoTime() - start;
+
+        System.out.println("Hydration of " + ITERATIONS + " entities, generated: " + generatedTime / 1000000
+                + "ms, reflective: " + reflectiveTime / 1000000 + "ms");
+    }
+
+    /**
+     * Creates entities from a row of column values, as done by data handlers
+     * of clients.
+     *
+     * @param accessors
+     *            the accessors
+     * @param row
+     *            the row
+     * @param iterations
+     *            the iterations
+     * @return last entity created
+     */
+    private static PersonnelDTO hydrate(FieldAccessor[] accessors, Object[] row, int iterations)
+    {
+        PersonnelDTO person = null;
+        for (int i = 0; i < iterations; i++)
+        {
+            person = new PersonnelDTO();
+            for (int j = 0; j < accessors.length; j++)
+            {
+                accessors[j].set(person, row[j]);
+                accessors[j].get(person);
+            }
+        }
+        return person;
+    }
+}
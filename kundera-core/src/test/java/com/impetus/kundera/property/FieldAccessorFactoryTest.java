@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.property;
+
+import java.lang.reflect.Field;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.impetus.kundera.entity.PersonnelDTO;
+
+/**
+ * Test case for {@link FieldAccessorFactory}. Timings of generated accessors
+ * against reflection are compared by {@link FieldAccessorBenchmark}.
+ *
+ * @author agent
+ */
+public class FieldAccessorFactoryTest
+{
+
+    /**
+     * Fields with plain getter and setter get a generated accessor.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testGeneratedAccessor() throws Exception
+    {
+        FieldAccessor accessor = getAccessor(PersonnelDTO.class, "firstName");
+        Assert.assertTrue(accessor instanceof GeneratedFieldAccessor);
+        Assert.assertSame(accessor, getAccessor(PersonnelDTO.class, "firstName"));
+
+        PersonnelDTO person = new PersonnelDTO("1", "Amresh", "Singh");
+        Assert.assertEquals("Amresh", accessor.get(person));
+        accessor.set(person, "Vivek");
+        Assert.assertEquals("Vivek", person.getFirstName());
+
+        try
+        {
+            accessor.set(person, new Integer(1));
+            Assert.fail("Value of wrong type must be rejected");
+        }
+        catch (PropertyAccessException e)
+        {
+            Assert.assertEquals("Vivek", person.getFirstName());
+        }
+    }
+
+    /**
+     * Primitive fields are boxed and unboxed, null is rejected.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testPrimitiveField() throws Exception
+    {
+        FieldAccessor accessor = getAccessor(Counter.class, "count");
+        Assert.assertTrue(accessor instanceof GeneratedFieldAccessor);
+
+        Counter counter = new Counter();
+        accessor.set(counter, 5);
+        Assert.assertEquals(5, counter.getCount());
+        Assert.assertEquals(new Integer(5), accessor.get(counter));
+
+        try
+        {
+            accessor.set(counter, null);
+            Assert.fail("Null must be rejected for primitive field");
+        }
+        catch (PropertyAccessException e)
+        {
+            Assert.assertEquals(5, counter.getCount());
+        }
+    }
+
+    /**
+     * Primitive values are widened as reflection does, e.g. Integer to long,
+     * but not narrowed.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testPrimitiveWidening() throws Exception
+    {
+        FieldAccessor accessor = getAccessor(Counter.class, "total");
+        Assert.assertTrue(accessor instanceof GeneratedFieldAccessor);
+
+        Counter counter = new Counter();
+        accessor.set(counter, new Integer(7));
+        Assert.assertEquals(7L, counter.getTotal());
+        accessor.set(counter, new Long(8));
+        Assert.assertEquals(8L, counter.getTotal());
+
+        try
+        {
+            getAccessor(Counter.class, "count").set(counter, new Long(9));
+            Assert.fail("Long must not be narrowed to int");
+        }
+        catch (PropertyAccessException e)
+        {
+            Assert.assertEquals(0, counter.getCount());
+        }
+    }
+
+    /**
+     * Fields without plain getter and setter, and instances of subclasses
+     * overriding them, are accessed through reflection.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testReflectiveAccess() throws Exception
+    {
+        FieldAccessor accessor = getAccessor(Counter.class, "label");
+        Assert.assertFalse(accessor instanceof GeneratedFieldAccessor);
+
+        Counter counter = new Counter();
+        accessor.set(counter, "hits");
+        Assert.assertEquals("hits", accessor.get(counter));
+
+        // Overridden getter must not be called in place of field access
+        Counter subCounter = new Counter()
+        {
+            @Override
+            public int getCount()
+            {
+                return -1;
+            }
+        };
+        FieldAccessor countAccessor = getAccessor(Counter.class, "count");
+        countAccessor.set(subCounter, 3);
+        Assert.assertEquals(new Integer(3), countAccessor.get(subCounter));
+    }
+
+    /**
+     * Generated accessors read and write same values as reflection does.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testGeneratedSameAsReflective() throws Exception
+    {
+        String[] fieldNames = { "personId", "firstName", "lastName" };
+        Object[] row = { "1", "Amresh", "Singh" };
+        PersonnelDTO byGenerated = new PersonnelDTO();
+        PersonnelDTO byReflection = new PersonnelDTO();
+        for (int i = 0; i < fieldNames.length; i++)
+        {
+            Field field = PersonnelDTO.class.getDeclaredField(fieldNames[i]);
+            FieldAccessor generated = FieldAccessorFactory.getFieldAccessor(field);
+            FieldAccessor reflective = new ReflectiveFieldAccessor(field);
+            Assert.assertTrue(generated instanceof GeneratedFieldAccessor);
+
+            generated.set(byGenerated, row[i]);
+            reflective.set(byReflection, row[i]);
+            Assert.assertEquals(row[i], generated.get(byReflection));
+            Assert.assertEquals(row[i], reflective.get(byGenerated));
+        }
+        Assert.assertEquals("1", byGenerated.getPersonId());
+        Assert.assertEquals("Amresh", byGenerated.getFirstName());
+        Assert.assertEquals("Singh", byGenerated.getLastName());
+    }
+
+    /**
+     * Declared fields are looked up once per class and name, unknown ones are
+     * rejected.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testDeclaredField() throws Exception
+    {
+        Field field = FieldAccessorFactory.getDeclaredField(PersonnelDTO.class, "firstName");
+        Assert.assertEquals(PersonnelDTO.class.getDeclaredField("firstName"), field);
+        Assert.assertSame(field, FieldAccessorFactory.getDeclaredField(PersonnelDTO.class, "firstName"));
+        Assert.assertNotSame(field, FieldAccessorFactory.getDeclaredField(PersonnelDTO.class, "lastName"));
+
+        try
+        {
+            FieldAccessorFactory.getDeclaredField(PersonnelDTO.class, "middleName");
+            Assert.fail("Field not declared by class must be rejected");
+        }
+        catch (NoSuchFieldException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Fields read by name go through cached field and accessor.
+     */
+    @Test
+    public void testGetObjectByName()
+    {
+        PersonnelDTO person = new PersonnelDTO("1", "Amresh", "Singh");
+        Assert.assertEquals("Amresh", PropertyAccessorHelper.getObject(person, "firstName"));
+        Assert.assertEquals("Singh", PropertyAccessorHelper.getObject(person, "lastName"));
+
+        try
+        {
+            PropertyAccessorHelper.getObject(person, "middleName");
+            Assert.fail("Field not declared by class must be rejected");
+        }
+        catch (PropertyAccessException e)
+        {
+            // expected
+        }
+    }
+
+    /**
+     * Gets accessor of a declared field.
+     *
+     * @param clazz
+     *            the clazz
+     * @param fieldName
+     *            the field name
+     * @return the accessor
+     * @throws Exception
+     *             the exception
+     */
+    private FieldAccessor getAccessor(Class<?> clazz, String fieldName) throws Exception
+    {
+        return FieldAccessorFactory.getFieldAccessor(clazz.getDeclaredField(fieldName));
+    }
+
+    /**
+     * Class with a primitive field having plain getter and setter, and a
+     * field without them.
+     */
+    public static class Counter
+    {
+
+        /** The count. */
+        private int count;
+
+        /** The total. */
+        private long total;
+
+        /** The label. */
+        private String label;
+
+        /**
+         * Gets the count.
+         *
+         * @return the count
+         */
+        public int getCount()
+        {
+            return count;
+        }
+
+        /**
+         * Sets the count.
+         *
+         * @param count
+         *            the count
+         */
+        public void setCount(int count)
+        {
+            this.count = count;
+        }
+
+        /**
+         * Gets the total.
+         *
+         * @return the total
+         */
+        public long getTotal()
+        {
+            return total;
+        }
+
+        /**
+         * Sets the total.
+         *
+         * @param total
+         *            the total
+         */
+        public void setTotal(long total)
+        {
+            this.total = total;
+        }
+
+        /**
+         * Gets the label.
+         *
+         * @return the label
+         */
+        public String getLabel()
+        {
+            return label == null ? "" : label;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.impetus.kundera.query.QueryPlanCache.QueryPlan;
+
+/**
+ * Test case for {@link QueryPlanCache}.
+ *
+ * @author agent
+ */
+public class QueryPlanCacheTest
+{
+
+    /**
+     * Hits and misses are counted.
+     */
+    @Test
+    public void testHitMissCount()
+    {
+        QueryPlanCache cache = new QueryPlanCache(10);
+        Assert.assertNull(cache.get("Select p from Person p"));
+
+        QueryPlan plan = new QueryPlan(new KunderaQuery(), null, null);
+        cache.put("Select p from Person p", plan);
+        Assert.assertSame(plan, cache.get("Select p from Person p"));
+        Assert.assertSame(plan, cache.get("Select p from Person p"));
+
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * Least recently used plan is evicted once cache is full.
+     */
+    @Test
+    public void testEviction()
+    {
+        QueryPlanCache cache = new QueryPlanCache(2);
+        cache.put("q1", new QueryPlan(new KunderaQuery(), null, null));
+        cache.put("q2", new QueryPlan(new KunderaQuery(), null, null));
+
+        // q1 is used more recently than q2 now
+        Assert.assertNotNull(cache.get("q1"));
+        cache.put("q3", new QueryPlan(new KunderaQuery(), null, null));
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get("q2"));
+        Assert.assertNotNull(cache.get("q1"));
+        Assert.assertNotNull(cache.get("q3"));
+
+        cache.clear();
+        Assert.assertEquals(0, cache.size());
+    }
+}
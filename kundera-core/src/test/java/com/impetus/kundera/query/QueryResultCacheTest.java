@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+/**
+ * Test case for {@link QueryResultCache}.
+ *
+ * @author agent
+ */
+public class QueryResultCacheTest
+{
+
+    /** The ids. */
+    private List<String> ids = Arrays.asList("1", "2");
+
+    /**
+     * Hits and misses are counted.
+     */
+    @Test
+    public void testHitMissCount()
+    {
+        QueryResultCache cache = new QueryResultCache(10, 60000);
+        Assert.assertNull(cache.get("q1"));
+
+        cache.put("q1", String.class, ids, cache.getInvalidationCount());
+        Assert.assertEquals(ids, cache.get("q1"));
+        Assert.assertEquals(ids, cache.get("q1"));
+        Assert.assertNull(cache.get("q2"));
+
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(0.5, cache.getHitRatio());
+    }
+
+    /**
+     * Results are removed once entities of queried class are written, and
+     * results of queries started before a write aren't cached.
+     */
+    @Test
+    public void testInvalidation()
+    {
+        QueryResultCache cache = new QueryResultCache(10, 60000);
+        long startCount = cache.getInvalidationCount();
+        cache.put("q1", String.class, ids, startCount);
+        cache.put("q2", Integer.class, ids, startCount);
+
+        cache.invalidate(String.class);
+        Assert.assertNull(cache.get("q1"));
+        Assert.assertNotNull(cache.get("q2"));
+
+        // Write within the same millisecond as query start is not missed
+        cache.put("q1", String.class, ids, startCount);
+        Assert.assertNull(cache.get("q1"));
+
+        cache.put("q1", String.class, ids, cache.getInvalidationCount());
+        Assert.assertNotNull(cache.get("q1"));
+    }
+
+    /**
+     * Results expire after time to live, and least recently used ones are
+     * evicted once cache is full.
+     */
+    @Test
+    public void testEviction() throws InterruptedException
+    {
+        QueryResultCache cache = new QueryResultCache(2, 60000);
+        cache.put("q1", String.class, ids, cache.getInvalidationCount());
+        cache.put("q2", String.class, ids, cache.getInvalidationCount());
+        Assert.assertNotNull(cache.get("q1"));
+        cache.put("q3", String.class, ids, cache.getInvalidationCount());
+
+        Assert.assertEquals(2, cache.size());
+        Assert.assertNull(cache.get("q2"));
+
+        cache = new QueryResultCache(2, 10);
+        cache.put("q1", String.class, ids, cache.getInvalidationCount());
+        Thread.sleep(50);
+        Assert.assertNull(cache.get("q1"));
+        Assert.assertEquals(0, cache.size());
+    }
+}
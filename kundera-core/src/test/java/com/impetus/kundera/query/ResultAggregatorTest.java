@@ -0,0 +1,153 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.query;
+
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+
+import com.impetus.kundera.metadata.model.Column;
+
+/**
+ * Test case for {@link ResultAggregator}.
+ *
+ * @author agent
+ */
+public class ResultAggregatorTest
+{
+
+    /**
+     * Aggregates of a query without GROUP BY are computed over all entities,
+     * skipping null values, and returned as a single row.
+     */
+    @Test
+    public void testAggregate() throws Exception
+    {
+        Column age = new Column("AGE", Item.class.getDeclaredField("age"));
+        Column price = new Column("PRICE", Item.class.getDeclaredField("price"));
+        List<ResultClause> clauses = Arrays.asList(new ResultClause(ResultClause.COUNT, null), new ResultClause(
+                ResultClause.COUNT, price), new ResultClause(ResultClause.SUM, age), new ResultClause(
+                ResultClause.AVG, age), new ResultClause(ResultClause.MIN, price), new ResultClause(ResultClause.MAX,
+                price));
+
+        ResultAggregator aggregator = new ResultAggregator(clauses, Arrays.<Column> asList());
+        aggregator.addAll(Arrays.asList(new Item("a", 10, 2.5), new Item("b", 20, null), new Item("a", 30, 1.5)));
+        List<Object> results = aggregator.getResults();
+
+        Assert.assertEquals(1, results.size());
+        Object[] row = (Object[]) results.get(0);
+        Assert.assertEquals(Long.valueOf(3), row[0]);
+        Assert.assertEquals(Long.valueOf(2), row[1]);
+        Assert.assertEquals(Long.valueOf(60), row[2]);
+        Assert.assertEquals(Double.valueOf(20), row[3]);
+        Assert.assertEquals(Double.valueOf(1.5), row[4]);
+        Assert.assertEquals(Double.valueOf(2.5), row[5]);
+    }
+
+    /**
+     * Query without GROUP BY has a result even if nothing matched, a query
+     * selecting a single expression has scalar results.
+     */
+    @Test
+    public void testEmpty() throws Exception
+    {
+        Column age = new Column("AGE", Item.class.getDeclaredField("age"));
+        ResultAggregator aggregator = new ResultAggregator(Arrays.asList(new ResultClause(ResultClause.COUNT, null)),
+                Arrays.<Column> asList());
+        Assert.assertEquals(Arrays.asList(Long.valueOf(0)), aggregator.getResults());
+
+        aggregator = new ResultAggregator(Arrays.asList(new ResultClause(ResultClause.MAX, age)), Arrays
+                .<Column> asList());
+        Assert.assertEquals(Arrays.asList((Object) null), aggregator.getResults());
+
+        aggregator = new ResultAggregator(Arrays.asList(new ResultClause(ResultClause.COUNT, null)), Arrays
+                .asList(age));
+        Assert.assertTrue(aggregator.getResults().isEmpty());
+    }
+
+    /**
+     * Results are grouped by values of grouping columns, in order groups were
+     * first seen.
+     */
+    @Test
+    public void testGroupBy() throws Exception
+    {
+        Column name = new Column("NAME", Item.class.getDeclaredField("name"));
+        Column age = new Column("AGE", Item.class.getDeclaredField("age"));
+        ResultAggregator aggregator = new ResultAggregator(Arrays.asList(new ResultClause(null, name),
+                new ResultClause(ResultClause.MAX, age)), Arrays.asList(name));
+        aggregator.addAll(Arrays.asList(new Item("a", 10, 2.5), new Item("b", 20, null), new Item("a", 30, 1.5)));
+        List<Object> results = aggregator.getResults();
+
+        Assert.assertEquals(2, results.size());
+        Assert.assertTrue(Arrays.equals(new Object[] { "a", 30 }, (Object[]) results.get(0)));
+        Assert.assertTrue(Arrays.equals(new Object[] { "b", 20 }, (Object[]) results.get(1)));
+    }
+
+    /**
+     * Values computed by datastores are converted to types of expressions.
+     */
+    @Test
+    public void testToResultType() throws Exception
+    {
+        Column age = new Column("AGE", Item.class.getDeclaredField("age"));
+        Column price = new Column("PRICE", Item.class.getDeclaredField("price"));
+
+        Assert.assertEquals(Long.valueOf(4), new ResultClause(ResultClause.COUNT, null).toResultType(4.0));
+        Assert.assertEquals(Long.valueOf(0), new ResultClause(ResultClause.COUNT, age).toResultType(null));
+        Assert.assertEquals(Long.valueOf(60), new ResultClause(ResultClause.SUM, age).toResultType(60.0));
+        Assert.assertEquals(Double.valueOf(4.0), new ResultClause(ResultClause.SUM, price).toResultType(4));
+        Assert.assertEquals(Double.valueOf(20), new ResultClause(ResultClause.AVG, age).toResultType(20L));
+        Assert.assertEquals(Integer.valueOf(30), new ResultClause(ResultClause.MAX, age).toResultType(30.0));
+        Assert.assertNull(new ResultClause(ResultClause.MIN, price).toResultType(null));
+    }
+
+    /**
+     * The Class Item.
+     */
+    private static class Item
+    {
+
+        /** The name. */
+        private String name;
+
+        /** The age. */
+        private int age;
+
+        /** The price. */
+        private Double price;
+
+        /**
+         * Instantiates a new item.
+         *
+         * @param name
+         *            the name
+         * @param age
+         *            the age
+         * @param price
+         *            the price
+         */
+        Item(String name, int age, Double price)
+        {
+            this.name = name;
+            this.age = age;
+            this.price = price;
+        }
+    }
+}
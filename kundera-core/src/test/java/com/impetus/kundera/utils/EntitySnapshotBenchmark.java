@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.utils;
+
+import com.impetus.kundera.entity.PersonnelDTO;
+import com.impetus.kundera.metadata.model.Column;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+
+/**
+ * Compares snapshot based dirty checking with deep copy/ deep equals based
+ * one. Not a test case, so it isn't run by the build; run its main method to
+ * print timings.
+ *
+ * @author agent
+ */
+public final class EntitySnapshotBenchmark
+{
+
+    /** Number of dirty checks timed per approach. */
+    private static final int ITERATIONS = 100000;
+
+    /**
+     * Instantiates a new entity snapshot benchmark.
+     */
+    private EntitySnapshotBenchmark()
+    {
+    }
+
+    /**
+     * Runs the benchmark.
+     *
+     * @param args
+     *            the arguments, ignored
+     * @throws Exception
+     *             the exception
+     */
+    public static void main(String[] args) throws Exception
+    {
+        EntityMetadata metadata = new EntityMetadata(PersonnelDTO.class);
+        metadata.setIdColumn(new Column("personId", PersonnelDTO.class.getDeclaredField("personId")));
+        metadata.addColumn("first_name", new Column("first_name", PersonnelDTO.class.getDeclaredField("firstName")));
+        metadata.addColumn("last_name", new Column("last_name", PersonnelDTO.class.getDeclaredField("lastName")));
+
+        PersonnelDTO person = new PersonnelDTO("1", "Amresh", "Singh");
+        PersonnelDTO changed = new PersonnelDTO("1", "Amresh", "Kumar");
+
+        // Warm up both paths
+        checkBySnapshot(metadata, person, changed, ITERATIONS / 10);
+        checkByDeepCopy(person, changed, ITERATIONS / 10);
+
+        long start = System.nanoTime();
+        checkBySnapshot(metadata, person, changed, ITERATIONS);
+        long snapshotTime = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        checkByDeepCopy(person, changed, ITERATIONS);
+        long deepCopyTime = System.nanoTime() - start;
+
+        System.out.println("Dirty checks of " + ITERATIONS + " entities, snapshot: " + snapshotTime / 1000000
+                + "ms, deep copy: " + deepCopyTime / 1000000 + "ms");
+    }
+
+    /**
+     * Snapshots entity and checks changed entity against it, as done when
+     * merging a managed entity.
+     *
+     * @param metadata
+     *            the metadata
+     * @param entity
+     *            the entity
+     * @param changed
+     *            the changed
+     * @param iterations
+     *            the iterations
+     * @return number of times changed entity was found dirty
+     */
+    private static int checkBySnapshot(EntityMetadata metadata, PersonnelDTO entity, PersonnelDTO changed,
+            int iterations)
+    {
+        int dirty = 0;
+        for (int i = 0; i < iterations; i++)
+        {
+            Object[] snapshot = EntitySnapshot.take(metadata, entity);
+            if (EntitySnapshot.isModified(metadata, changed, snapshot))
+            {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Deep copies entity and deep compares changed entity with copy, as was
+     * done earlier.
+     *
+     * @param entity
+     *            the entity
+     * @param changed
+     *            the changed
+     * @param iterations
+     *            the iterations
+     * @return number of times changed entity was found dirty
+     */
+    private static int checkByDeepCopy(PersonnelDTO entity, PersonnelDTO changed, int iterations)
+    {
+        int dirty = 0;
+        for (int i = 0; i < iterations; i++)
+        {
+            Object copy = ObjectUtils.deepCopy(entity);
+            if (!DeepEquals.deepEquals(copy, changed))
+            {
+                dirty++;
+            }
+        }
+        return dirty;
+    }
+}
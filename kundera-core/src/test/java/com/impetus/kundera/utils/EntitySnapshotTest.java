@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.kundera.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.entity.PersonnelDTO;
+import com.impetus.kundera.metadata.model.Column;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+
+/**
+ * Test case for {@link EntitySnapshot}.
+ *
+ * @author agent
+ */
+public class EntitySnapshotTest
+{
+
+    /** The metadata. */
+    private EntityMetadata metadata;
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        metadata = new EntityMetadata(PersonnelDTO.class);
+        metadata.setIdColumn(new Column("personId", PersonnelDTO.class.getDeclaredField("personId")));
+        metadata.addColumn("first_name", new Column("first_name", PersonnelDTO.class.getDeclaredField("firstName")));
+        metadata.addColumn("last_name", new Column("last_name", PersonnelDTO.class.getDeclaredField("lastName")));
+    }
+
+    /**
+     * Changes to columns are detected against snapshot.
+     */
+    @Test
+    public void testIsModified()
+    {
+        PersonnelDTO person = new PersonnelDTO("1", "Amresh", "Singh");
+        Object[] snapshot = EntitySnapshot.take(metadata, person);
+        Assert.assertFalse(EntitySnapshot.isModified(metadata, person, snapshot));
+        Assert.assertFalse(EntitySnapshot.isModified(metadata, new PersonnelDTO("1", "Amresh", "Singh"), snapshot));
+
+        person.setLastName("Kumar");
+        Assert.assertTrue(EntitySnapshot.isModified(metadata, person, snapshot));
+
+        person.setLastName(null);
+        Assert.assertTrue(EntitySnapshot.isModified(metadata, person, snapshot));
+        Assert.assertTrue(EntitySnapshot.isModified(metadata, person, null));
+    }
+
+    /**
+     * Changes made in place to mutable column values, e.g. dates, arrays and
+     * collections, are detected, snapshot doesn't share them with entity.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testInPlaceChanges() throws Exception
+    {
+        EntityMetadata eventMetadata = new EntityMetadata(Event.class);
+        eventMetadata.setIdColumn(new Column("id", Event.class.getDeclaredField("id")));
+        eventMetadata.addColumn("date", new Column("date", Event.class.getDeclaredField("date")));
+        eventMetadata.addColumn("data", new Column("data", Event.class.getDeclaredField("data")));
+        eventMetadata.addColumn("tags", new Column("tags", Event.class.getDeclaredField("tags")));
+
+        Event event = new Event();
+        event.id = "1";
+        event.date = new Date(1000);
+        event.data = new byte[] { 1, 2 };
+        event.tags = new ArrayList<String>(Arrays.asList("a", "b"));
+        Object[] snapshot = EntitySnapshot.take(eventMetadata, event);
+        Assert.assertFalse(EntitySnapshot.isModified(eventMetadata, event, snapshot));
+
+        event.date.setTime(2000);
+        Assert.assertTrue(EntitySnapshot.isModified(eventMetadata, event, snapshot));
+        event.date.setTime(1000);
+        Assert.assertFalse(EntitySnapshot.isModified(eventMetadata, event, snapshot));
+
+        event.data[0] = 3;
+        Assert.assertTrue(EntitySnapshot.isModified(eventMetadata, event, snapshot));
+        event.data[0] = 1;
+        Assert.assertFalse(EntitySnapshot.isModified(eventMetadata, event, snapshot));
+
+        event.tags.add("c");
+        Assert.assertTrue(EntitySnapshot.isModified(eventMetadata, event, snapshot));
+        event.tags.remove("c");
+        Assert.assertFalse(EntitySnapshot.isModified(eventMetadata, event, snapshot));
+
+        event.id = "2";
+        Assert.assertTrue(EntitySnapshot.isModified(eventMetadata, event, snapshot));
+    }
+
+    /**
+     * Dirty checking by snapshots agrees with dirty checking by deep copies,
+     * as was done earlier. Timings of both are compared by
+     * {@link EntitySnapshotBenchmark}.
+     */
+    @Test
+    public void testAgreesWithDeepCopy()
+    {
+        PersonnelDTO person = new PersonnelDTO("1", "Amresh", "Singh");
+        PersonnelDTO[] others = { new PersonnelDTO("1", "Amresh", "Singh"), new PersonnelDTO("1", "Amresh", "Kumar"),
+                new PersonnelDTO("2", "Amresh", "Singh"), new PersonnelDTO("1", null, "Singh") };
+
+        Object[] snapshot = EntitySnapshot.take(metadata, person);
+        Object copy = ObjectUtils.deepCopy(person);
+        for (PersonnelDTO other : others)
+        {
+            Assert.assertEquals(!DeepEquals.deepEquals(copy, other), EntitySnapshot.isModified(metadata, other,
+                    snapshot));
+        }
+    }
+
+    /**
+     * Copies have same column values as entity, without sharing mutable ones
+     * with it.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testCopy() throws Exception
+    {
+        PersonnelDTO person = new PersonnelDTO("1", "Amresh", "Singh");
+        PersonnelDTO personCopy = (PersonnelDTO) EntitySnapshot.copy(metadata, person);
+        Assert.assertNotSame(person, personCopy);
+        Assert.assertEquals("1", personCopy.getPersonId());
+        Assert.assertEquals("Amresh", personCopy.getFirstName());
+        Assert.assertEquals("Singh", personCopy.getLastName());
+
+        EntityMetadata eventMetadata = new EntityMetadata(Event.class);
+        eventMetadata.setIdColumn(new Column("id", Event.class.getDeclaredField("id")));
+        eventMetadata.addColumn("date", new Column("date", Event.class.getDeclaredField("date")));
+        eventMetadata.addColumn("data", new Column("data", Event.class.getDeclaredField("data")));
+        eventMetadata.addColumn("tags", new Column("tags", Event.class.getDeclaredField("tags")));
+
+        Event event = new Event();
+        event.id = "1";
+        event.date = new Date(1000);
+        event.data = new byte[] { 1, 2 };
+        event.tags = new ArrayList<String>(Arrays.asList("a", "b"));
+        Event eventCopy = (Event) EntitySnapshot.copy(eventMetadata, event);
+        Assert.assertFalse(EntitySnapshot.isModified(eventMetadata, eventCopy, EntitySnapshot.take(eventMetadata,
+                event)));
+
+        eventCopy.date.setTime(2000);
+        eventCopy.data[0] = 3;
+        eventCopy.tags.add("c");
+        Assert.assertEquals(1000, event.date.getTime());
+        Assert.assertEquals(1, event.data[0]);
+        Assert.assertEquals(Arrays.asList("a", "b"), event.tags);
+    }
+
+    /**
+     * Entity with mutable column values.
+     */
+    public static class Event
+    {
+
+        /** The id. */
+        private String id;
+
+        /** The date. */
+        private Date date;
+
+        /** The data. */
+        private byte[] data;
+
+        /** The tags. */
+        private List<String> tags;
+    }
+}
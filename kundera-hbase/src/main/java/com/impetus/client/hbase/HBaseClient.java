@@ -20,6 +20,8 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -30,11 +32,15 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hbase.HBaseConfiguration;
 import org.apache.hadoop.hbase.client.HTablePool;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
 
 import com.impetus.client.hbase.admin.DataHandler;
 import com.impetus.client.hbase.admin.HBaseDataHandler;
+import com.impetus.client.hbase.query.HBaseQuery;
 import com.impetus.kundera.Constants;
 import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.client.Batcher;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.ClientBase;
 import com.impetus.kundera.db.RelationHolder;
@@ -44,22 +50,25 @@ import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.Column;
+import com.impetus.kundera.metadata.model.EmbeddedColumn;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.persistence.EntityReader;
 import com.impetus.kundera.persistence.context.jointable.JoinTableData;
 import com.impetus.kundera.property.PropertyAccessorHelper;
-import com.impetus.kundera.query.LuceneQuery;
 
 /**
  * HBase client.
  * 
  * @author impetus
  */
-public class HBaseClient extends ClientBase implements Client<LuceneQuery>
+public class HBaseClient extends ClientBase implements Client<HBaseQuery>, Batcher
 {
     /** the log used by this class. */
     private static Log log = LogFactory.getLog(HBaseClient.class);
 
+    /** Default number of rows fetched in one call by scans. */
+    public static final int DEFAULT_SCAN_PAGE_SIZE = 1000;
+
     /** The handler. */
     private DataHandler handler;
 
@@ -72,6 +81,20 @@ public class HBaseClient extends ClientBase implements Client<LuceneQuery>
     /** The reader. */
     private EntityReader reader;
 
+    /** Entities of current batch keyed by row id, per entity metadata. */
+    private Map<EntityMetadata, Map<String, Object>> batchEntities =
+            new LinkedHashMap<EntityMetadata, Map<String, Object>>();
+
+    /** Relations of current batch keyed by row id, per entity metadata. */
+    private Map<EntityMetadata, Map<String, List<RelationHolder>>> batchRelations =
+            new HashMap<EntityMetadata, Map<String, List<RelationHolder>>>();
+
+    /** Nodes written by current batch, indexed once batch is executed. */
+    private List<Node> batchNodes = new ArrayList<Node>();
+
+    /** Number of rows fetched in one call by scans, i.e. scanner caching. */
+    private int scanPageSize = DEFAULT_SCAN_PAGE_SIZE;
+
     /**
      * Instantiates a new h base client.
      * 
@@ -88,13 +111,49 @@ public class HBaseClient extends ClientBase implements Client<LuceneQuery>
      */
     public HBaseClient(IndexManager indexManager, HBaseConfiguration conf, HTablePool hTablePool, EntityReader reader,
             String persistenceUnit)
+    {
+        this(indexManager, conf, hTablePool, reader, persistenceUnit, 0, null);
+    }
+
+    /**
+     * Instantiates a new h base client.
+     * 
+     * @param indexManager
+     *            the index manager
+     * @param conf
+     *            the conf
+     * @param hTablePool
+     *            the h table pool
+     * @param reader
+     *            the reader
+     * @param persistenceUnit
+     *            the persistence unit
+     * @param writeBufferSize
+     *            client side write buffer size in bytes for batched puts, 0
+     *            for HBase default
+     * @param collectionLayout
+     *            storage layout of embedded collections, null for default
+     */
+    public HBaseClient(IndexManager indexManager, HBaseConfiguration conf, HTablePool hTablePool, EntityReader reader,
+            String persistenceUnit, long writeBufferSize, String collectionLayout)
     {
         this.indexManager = indexManager;
-        this.handler = new HBaseDataHandler(conf, hTablePool);
+        this.handler = new HBaseDataHandler(conf, hTablePool, writeBufferSize, collectionLayout);
         this.reader = reader;
         this.persistenceUnit = persistenceUnit;
     }
 
+    /**
+     * Sets number of rows fetched in one call by scans.
+     * 
+     * @param scanPageSize
+     *            the scan page size
+     */
+    public void setScanPageSize(int scanPageSize)
+    {
+        this.scanPageSize = scanPageSize > 0 ? scanPageSize : DEFAULT_SCAN_PAGE_SIZE;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -132,22 +191,87 @@ public class HBaseClient extends ClientBase implements Client<LuceneQuery>
     public <E> List<E> findAll(Class<E> entityClass, Object... rowIds)
     {
         EntityMetadata entityMetadata = KunderaMetadataManager.getEntityMetadata(entityClass);
-        List<E> entities = new ArrayList<E>();
+        List<String> rowKeys = new ArrayList<String>(rowIds.length);
         for (Object rowKey : rowIds)
         {
-            E e = null;
-            try
+            rowKeys.add(rowKey.toString());
+        }
+
+        try
+        {
+            // All rows are read in one batched call
+            return (List<E>) handler.readAll(entityMetadata.getTableName(), entityMetadata.getEntityClazz(),
+                    entityMetadata, rowKeys, entityMetadata.getRelationNames());
+        }
+        catch (IOException e)
+        {
+            throw new KunderaException(e);
+        }
+    }
+
+    /**
+     * Scans rows of entity's table selected by given scan, e.g. a row key
+     * range and column value filters. Entities are populated as iteration
+     * proceeds, with rows fetched from region servers a page at a time.
+     * Unless already set, scan reads only column families of entity. Iterator
+     * is {@link java.io.Closeable}, to be closed if not iterated till the end.
+     * 
+     * @param m
+     *            the entity metadata
+     * @param scan
+     *            the scan
+     * @param maxResults
+     *            maximum number of entities returned, 0 or less for no limit
+     * @return the iterator over entities
+     */
+    public Iterator<Object> scan(EntityMetadata m, Scan scan, int maxResults)
+    {
+        if (scan.getCaching() <= 0)
+        {
+            scan.setCaching(maxResults > 0 ? Math.min(maxResults, scanPageSize) : scanPageSize);
+        }
+
+        // Embedded collections may be stored in column families of their own,
+        // named after each element, which can't be listed up front
+        if (!scan.hasFamilies() && !hasEmbeddedCollection(m))
+        {
+            for (Column column : m.getColumnsAsList())
             {
-                e = (E) handler.readData(entityMetadata.getTableName(), entityMetadata.getEntityClazz(),
-                        entityMetadata, rowKey.toString(), entityMetadata.getRelationNames());
+                scan.addFamily(Bytes.toBytes(column.getName()));
             }
-            catch (IOException e1)
+            for (EmbeddedColumn embeddedColumn : m.getEmbeddedColumnsAsList())
             {
-                throw new KunderaException(e1);
+                scan.addFamily(Bytes.toBytes(embeddedColumn.getName()));
             }
-            entities.add(e);
         }
-        return entities;
+
+        try
+        {
+            return handler.scanData(m.getTableName(), m.getEntityClazz(), m, scan, maxResults);
+        }
+        catch (IOException e)
+        {
+            throw new KunderaException(e);
+        }
+    }
+
+    /**
+     * Checks whether entity has an embedded collection.
+     * 
+     * @param m
+     *            the entity metadata
+     * @return true, if entity has an embedded collection
+     */
+    private boolean hasEmbeddedCollection(EntityMetadata m)
+    {
+        for (EmbeddedColumn embeddedColumn : m.getEmbeddedColumnsAsList())
+        {
+            if (Collection.class.isAssignableFrom(embeddedColumn.getField().getType()))
+            {
+                return true;
+            }
+        }
+        return false;
     }
 
     /*
@@ -307,6 +431,82 @@ public class HBaseClient extends ClientBase implements Client<LuceneQuery>
         }
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.client.Batcher#addBatch(com.impetus.kundera.graph
+     * .Node)
+     */
+    @Override
+    public void addBatch(Node node)
+    {
+        EntityMetadata entityMetadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+        String id = ObjectGraphBuilder.getEntityId(node.getNodeId());
+
+        Map<String, Object> entities = batchEntities.get(entityMetadata);
+        if (entities == null)
+        {
+            entities = new LinkedHashMap<String, Object>();
+            batchEntities.put(entityMetadata, entities);
+            batchRelations.put(entityMetadata, new HashMap<String, List<RelationHolder>>());
+        }
+        entities.put(id, node.getData());
+        batchRelations.get(entityMetadata).put(id, getRelationHolders(node));
+        batchNodes.add(node);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#executeBatch()
+     */
+    @Override
+    public int executeBatch()
+    {
+        int size = batchNodes.size();
+        try
+        {
+            for (EntityMetadata entityMetadata : batchEntities.keySet())
+            {
+                handler.writeData(entityMetadata.getTableName(), entityMetadata, batchEntities.get(entityMetadata),
+                        batchRelations.get(entityMetadata));
+            }
+        }
+        catch (IOException e)
+        {
+            throw new PersistenceException(e);
+        }
+
+        indexNodes(batchNodes, getIndexManager());
+        clear();
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#getBatchSize()
+     */
+    @Override
+    public int getBatchSize()
+    {
+        return batchNodes.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#clear()
+     */
+    @Override
+    public void clear()
+    {
+        batchEntities.clear();
+        batchRelations.clear();
+        batchNodes.clear();
+    }
+
     @Override
     public void persistJoinTable(JoinTableData joinTableData)
     {
@@ -422,9 +622,9 @@ public class HBaseClient extends ClientBase implements Client<LuceneQuery>
      * @see com.impetus.kundera.client.Client#getQueryImplementor()
      */
     @Override
-    public Class<LuceneQuery> getQueryImplementor()
+    public Class<HBaseQuery> getQueryImplementor()
     {
-        return LuceneQuery.class;
+        return HBaseQuery.class;
     }
 
     /*
@@ -30,7 +30,7 @@ import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.index.LuceneIndexer;
 import com.impetus.kundera.loader.GenericClientFactory;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
-import com.impetus.kundera.metadata.MetadataUtils;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.persistence.EntityReader;
 
@@ -58,6 +58,15 @@ public class HBaseClientFactory extends GenericClientFactory
     /** The pool size. */
     private int poolSize;
 
+    /** Client side write buffer size in bytes, 0 for HBase default. */
+    private long writeBufferSize;
+
+    /** Storage layout of embedded collections. */
+    private String collectionLayout;
+
+    /** Number of rows fetched in one call by scans. */
+    private int scanPageSize;
+
     /** Configure schema manager. */
     private SchemaManager schemaManager;
 
@@ -70,9 +79,8 @@ public class HBaseClientFactory extends GenericClientFactory
     public void initialize()
     {
         // Initialize Index Manager
-        String luceneDirPath = MetadataUtils.getLuceneDirectory(getPersistenceUnit());
         indexManager = new IndexManager(LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34),
-                luceneDirPath));
+                KunderaMetadata.INSTANCE.getClientMetadata(getPersistenceUnit())));
 
         // Initialize HBase configuration
         PersistenceUnitMetadata puMetadata = KunderaMetadataManager.getPersistenceUnitMetadata(getPersistenceUnit());
@@ -90,6 +98,15 @@ public class HBaseClientFactory extends GenericClientFactory
             this.poolSize = Integer.parseInt(poolSize);
         }
 
+        String writeBufferSize = puMetadata.getProperties().getProperty(
+                PersistenceProperties.KUNDERA_WRITE_BUFFER_SIZE);
+        this.writeBufferSize = StringUtils.isEmpty(writeBufferSize) ? 0 : Long.parseLong(writeBufferSize);
+        collectionLayout = puMetadata.getProperties().getProperty(
+                PersistenceProperties.KUNDERA_EMBEDDED_COLLECTION_LAYOUT);
+        String scanPageSize = puMetadata.getProperties().getProperty(PersistenceProperties.KUNDERA_SCAN_PAGE_SIZE);
+        this.scanPageSize = StringUtils.isEmpty(scanPageSize) ? HBaseClient.DEFAULT_SCAN_PAGE_SIZE : Integer
+                .parseInt(scanPageSize);
+
         Configuration hadoopConf = new Configuration();
         hadoopConf.set("hbase.master", node + ":" + port);
         hadoopConf.set("hbase.zookeeper.quorum", node);
@@ -121,7 +138,10 @@ public class HBaseClientFactory extends GenericClientFactory
     @Override
     protected Client instantiateClient(String persistenceUnit)
     {
-        return new HBaseClient(indexManager, conf, hTablePool, reader, persistenceUnit);
+        HBaseClient client = new HBaseClient(indexManager, conf, hTablePool, reader, persistenceUnit,
+                writeBufferSize, collectionLayout);
+        client.setScanPageSize(scanPageSize);
+        return client;
     }
 
     /*
@@ -16,8 +16,11 @@
 package com.impetus.client.hbase;
 
 import java.io.IOException;
+import java.util.List;
 
 import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Scan;
 
 /**
  * The Interface Reader.
@@ -54,16 +57,31 @@ public interface Reader
     HBaseData LoadData(HTable hTable, String rowKey) throws IOException;
 
     /**
-     * Load all.
+     * Loads given rows in a single batched call.
      * 
      * @param hTable
      *            the h table
-     * @param qualifiers
-     *            the qualifiers
-     * @return the h base data
+     * @param rowKeys
+     *            the row keys
+     * @return data of rows, in order of row keys; columns of a row not found
+     *         are null
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    List<HBaseData> loadData(HTable hTable, List<String> rowKeys) throws IOException;
+
+    /**
+     * Opens a scanner over rows selected by given scan. Rows are fetched from
+     * region servers as scanner is iterated, caller must close it.
+     * 
+     * @param hTable
+     *            the h table
+     * @param scan
+     *            the scan
+     * @return the result scanner
      * @throws IOException
      *             Signals that an I/O exception has occurred.
      */
-    HBaseData loadAll(HTable hTable, String... qualifiers) throws IOException;
+    ResultScanner loadAll(HTable hTable, Scan scan) throws IOException;
 
 }
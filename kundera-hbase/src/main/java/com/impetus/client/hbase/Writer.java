@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.Put;
 
 import com.impetus.kundera.db.RelationHolder;
 import com.impetus.kundera.metadata.model.Column;
@@ -106,6 +107,87 @@ public interface Writer
     void writeRelations(HTable htable, String rowKey, boolean containsEmbeddedObjectsOnly,
             List<RelationHolder> relations) throws IOException;
 
+    /**
+     * Adds columns of a column family with name <code>columnFamily</code> to
+     * given put, so that all column families of a row are written in one
+     * call.
+     * 
+     * @param put
+     *            the put
+     * @param columnFamily
+     *            Column Family Name
+     * @param columns
+     *            Columns for a given column family
+     * @param columnFamilyObj
+     *            the column family obj
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void addColumns(Put put, String columnFamily, List<Column> columns, Object columnFamilyObj) throws IOException;
+
+    /**
+     * Adds columns of an object to given put, within column family
+     * <code>columnFamily</code> and with <code>qualifierPrefix</code> prepended
+     * to each column name. This lets many objects, e.g. elements of an
+     * embedded collection, share one column family.
+     * 
+     * @param put
+     *            the put
+     * @param columnFamily
+     *            Column Family Name
+     * @param qualifierPrefix
+     *            prefix of column qualifiers, may be null
+     * @param columns
+     *            Columns of object
+     * @param obj
+     *            the obj
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void addColumns(Put put, String columnFamily, String qualifierPrefix, List<Column> columns, Object obj)
+            throws IOException;
+
+    /**
+     * Adds a column to given put.
+     * 
+     * @param put
+     *            the put
+     * @param columnFamily
+     *            the column family
+     * @param column
+     *            the column
+     * @param columnObj
+     *            the column obj
+     */
+    void addColumn(Put put, String columnFamily, Column column, Object columnObj);
+
+    /**
+     * Adds columns <code>columns</code> of given entity to given put, each in
+     * their own column family(name same as column name).
+     * 
+     * @param put
+     *            the put
+     * @param columns
+     *            Columns of a given table (No column family given)
+     * @param entity
+     *            the entity
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void addColumns(Put put, List<Column> columns, Object entity) throws IOException;
+
+    /**
+     * Adds relations to given put.
+     * 
+     * @param put
+     *            the put
+     * @param containsEmbeddedObjectsOnly
+     *            the contains embedded objects only
+     * @param relations
+     *            the relations
+     */
+    void addRelations(Put put, boolean containsEmbeddedObjectsOnly, List<RelationHolder> relations);
+
     /**
      * Writes foreign keys along with a database table. They are stored into a
      * column family named FKey-TO. Each column corresponds to foreign key field
@@ -16,9 +16,12 @@
 package com.impetus.client.hbase.admin;
 
 import java.io.IOException;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import org.apache.hadoop.hbase.client.Scan;
+
 import com.impetus.kundera.db.RelationHolder;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 
@@ -76,6 +79,49 @@ public interface DataHandler
     Object readData(String tableName, Class clazz, EntityMetadata m, String rowKey, List<String> relationNames)
             throws IOException;
 
+    /**
+     * Populates entities for given row keys, reading all rows from HBase table
+     * in one batched call.
+     * 
+     * @param tableName
+     *            the table name
+     * @param clazz
+     *            the clazz
+     * @param m
+     *            the m
+     * @param rowKeys
+     *            the row keys
+     * @param relationNames
+     *            the relation names
+     * @return entities in order of row keys, null for rows not found
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    List<Object> readAll(String tableName, Class clazz, EntityMetadata m, List<String> rowKeys,
+            List<String> relationNames) throws IOException;
+
+    /**
+     * Scans rows of HBase table selected by given scan, populating entities
+     * from them as iteration proceeds. Scanner is closed once iteration is
+     * over; iterator is {@link java.io.Closeable} to end it earlier.
+     * 
+     * @param tableName
+     *            the table name
+     * @param clazz
+     *            the clazz
+     * @param m
+     *            the m
+     * @param scan
+     *            the scan
+     * @param maxResults
+     *            maximum number of entities returned, 0 or less for no limit
+     * @return the iterator over entities
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    Iterator<Object> scanData(String tableName, Class clazz, EntityMetadata m, Scan scan, int maxResults)
+            throws IOException;
+
     /**
      * Write data.
      * 
@@ -95,6 +141,24 @@ public interface DataHandler
     void writeData(String tableName, EntityMetadata m, Object entity, String rowId, List<RelationHolder> relations)
             throws IOException;
 
+    /**
+     * Writes data held in given entities into HBase table, buffering all puts
+     * and sending them to region servers in one batch.
+     * 
+     * @param tableName
+     *            the table name
+     * @param m
+     *            the m
+     * @param entities
+     *            the entities, keyed by row id
+     * @param relations
+     *            the relations, keyed by row id
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    void writeData(String tableName, EntityMetadata m, Map<String, Object> entities,
+            Map<String, List<RelationHolder>> relations) throws IOException;
+
     /**
      * Writes data into Join Table.
      * 
@@ -15,20 +15,30 @@
  ******************************************************************************/
 package com.impetus.client.hbase.admin;
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.ElementCollection;
 import javax.persistence.Embedded;
 import javax.persistence.PersistenceException;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.hbase.HBaseConfiguration;
@@ -36,9 +46,16 @@ import org.apache.hadoop.hbase.HColumnDescriptor;
 import org.apache.hadoop.hbase.HTableDescriptor;
 import org.apache.hadoop.hbase.KeyValue;
 import org.apache.hadoop.hbase.MasterNotRunningException;
+import org.apache.hadoop.hbase.client.Delete;
+import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HBaseAdmin;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.HTablePool;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.client.ResultScanner;
+import org.apache.hadoop.hbase.client.Row;
+import org.apache.hadoop.hbase.client.Scan;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import com.impetus.client.hbase.HBaseData;
@@ -67,6 +84,19 @@ public class HBaseDataHandler implements DataHandler
     /** the log used by this class. */
     private static Log log = LogFactory.getLog(HBaseDataHandler.class);
 
+    /**
+     * Embedded collection layout where elements are columns of collection's
+     * column family, qualified by element's sequence count.
+     */
+    public static final String COLLECTION_LAYOUT_QUALIFIER = "qualifier";
+
+    /**
+     * Embedded collection layout where each element is a column family of its
+     * own, named after collection and element's sequence count. Adding a
+     * column family alters table schema, so this is slow.
+     */
+    public static final String COLLECTION_LAYOUT_FAMILY = "family";
+
     /** The admin. */
     private HBaseAdmin admin;
 
@@ -82,6 +112,26 @@ public class HBaseDataHandler implements DataHandler
     /** The hbase writer. */
     private Writer hbaseWriter = new HBaseWriter();
 
+    /** Client side write buffer size in bytes for batched puts, 0 for HBase default. */
+    private long writeBufferSize;
+
+    /**
+     * Whether each element of an embedded collection is written in a column
+     * family of its own, created on the fly, rather than in collection's
+     * column family.
+     */
+    private boolean isFamilyPerElement;
+
+    /** Column families known to exist, as table:family. */
+    private Set<String> knownColumnFamilies = Collections.synchronizedSet(new HashSet<String>());
+
+    /**
+     * Column families of embedded collection elements written by earlier
+     * versions, named after collection family and element count, keyed by
+     * table:family of collection.
+     */
+    private Map<String, List<byte[]>> legacyElementFamilies = new ConcurrentHashMap<String, List<byte[]>>();
+
     /**
      * Instantiates a new h base data handler.
      * 
@@ -91,11 +141,34 @@ public class HBaseDataHandler implements DataHandler
      *            the h table pool
      */
     public HBaseDataHandler(HBaseConfiguration conf, HTablePool hTablePool)
+    {
+        this(conf, hTablePool, 0, null);
+    }
+
+    /**
+     * Instantiates a new h base data handler.
+     * 
+     * @param conf
+     *            the conf
+     * @param hTablePool
+     *            the h table pool
+     * @param writeBufferSize
+     *            client side write buffer size in bytes for batched puts, 0
+     *            for HBase default
+     * @param collectionLayout
+     *            storage layout of embedded collections, one of
+     *            {@link #COLLECTION_LAYOUT_QUALIFIER} (default) and
+     *            {@link #COLLECTION_LAYOUT_FAMILY}
+     */
+    public HBaseDataHandler(HBaseConfiguration conf, HTablePool hTablePool, long writeBufferSize,
+            String collectionLayout)
     {
         try
         {
             this.conf = conf;
             this.hTablePool = hTablePool;
+            this.writeBufferSize = writeBufferSize;
+            this.isFamilyPerElement = COLLECTION_LAYOUT_FAMILY.equalsIgnoreCase(collectionLayout);
             this.admin = new HBaseAdmin(conf);
         }
         catch (Exception e)
@@ -174,6 +247,32 @@ public class HBaseDataHandler implements DataHandler
 
     }
 
+    /**
+     * Makes sure given column family exists in table, adding it if not. Column
+     * families are looked up once per table, so writes don't alter schema
+     * once the family is there.
+     * 
+     * @param hTable
+     *            the h table
+     * @param columnFamilyName
+     *            the column family name
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void ensureColumnFamily(HTable hTable, String columnFamilyName) throws IOException
+    {
+        String tableName = Bytes.toString(hTable.getTableName());
+        String key = tableName + ":" + columnFamilyName;
+        if (!knownColumnFamilies.contains(key))
+        {
+            if (!hTable.getTableDescriptor().hasFamily(Bytes.toBytes(columnFamilyName)))
+            {
+                addColumnFamilyToTable(tableName, columnFamilyName);
+            }
+            knownColumnFamilies.add(key);
+        }
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -199,22 +298,7 @@ public class HBaseDataHandler implements DataHandler
             HBaseData data = hbaseReader.LoadData(hTable, rowKey);
 
             // Populate raw data from HBase into entity
-
-            if (data.getColumns() != null)
-            {
-                entity = clazz.newInstance(); // Entity Object
-                entity = populateEntityFromHbaseData(entity, data, m, rowKey, relationNames);
-            }
-        }
-        catch (InstantiationException e1)
-        {
-            log.error("Error while creating an instance of " + clazz);
-            // return enhancedEntity;
-        }
-        catch (IllegalAccessException e1)
-        {
-            log.error("Illegal Access while reading data from " + tableName + ";Details: " + e1.getMessage());
-            // return enhancedEntity;
+            entity = toEntity(tableName, clazz, m, data, relationNames);
         }
         catch (Exception e)
         {
@@ -231,6 +315,105 @@ public class HBaseDataHandler implements DataHandler
         return entity;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.client.hbase.admin.DataHandler#readAll(java.lang.String,
+     * java.lang.Class, com.impetus.kundera.metadata.model.EntityMetadata,
+     * java.util.List, java.util.List)
+     */
+    @Override
+    public List<Object> readAll(String tableName, Class clazz, EntityMetadata m, List<String> rowKeys,
+            List<String> relationNames) throws IOException
+    {
+        List<Object> entities = new ArrayList<Object>(rowKeys.size());
+        if (rowKeys.isEmpty())
+        {
+            return entities;
+        }
+
+        HTable hTable = gethTable(tableName);
+        try
+        {
+            // Load raw data of all rows from HBase in one call
+            for (HBaseData data : hbaseReader.loadData(hTable, rowKeys))
+            {
+                entities.add(toEntity(tableName, clazz, m, data, relationNames));
+            }
+        }
+        finally
+        {
+            puthTable(hTable);
+        }
+        return entities;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.client.hbase.admin.DataHandler#scanData(java.lang.String,
+     * java.lang.Class, com.impetus.kundera.metadata.model.EntityMetadata,
+     * org.apache.hadoop.hbase.client.Scan, int)
+     */
+    @Override
+    public Iterator<Object> scanData(String tableName, Class clazz, EntityMetadata m, Scan scan, int maxResults)
+            throws IOException
+    {
+        HTable hTable = gethTable(tableName);
+        ResultScanner scanner;
+        try
+        {
+            scanner = hbaseReader.loadAll(hTable, scan);
+        }
+        catch (IOException e)
+        {
+            puthTable(hTable);
+            throw e;
+        }
+        return new EntityScanIterator(hTable, scanner, clazz, m, maxResults);
+    }
+
+    /**
+     * Populates raw data read from HBase into a new entity instance.
+     * 
+     * @param tableName
+     *            the table name
+     * @param clazz
+     *            the clazz
+     * @param m
+     *            the m
+     * @param data
+     *            the data
+     * @param relationNames
+     *            the relation names
+     * @return the entity, null if no data was found for row
+     */
+    private Object toEntity(String tableName, Class clazz, EntityMetadata m, HBaseData data,
+            List<String> relationNames)
+    {
+        if (data.getColumns() == null)
+        {
+            return null;
+        }
+
+        try
+        {
+            Object entity = clazz.newInstance(); // Entity Object
+            return populateEntityFromHbaseData(entity, data, m, data.getRowKey(), relationNames);
+        }
+        catch (InstantiationException e1)
+        {
+            log.error("Error while creating an instance of " + clazz);
+        }
+        catch (IllegalAccessException e1)
+        {
+            log.error("Illegal Access while reading data from " + tableName + ";Details: " + e1.getMessage());
+        }
+        return null;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -243,9 +426,89 @@ public class HBaseDataHandler implements DataHandler
     public void writeData(String tableName, EntityMetadata m, Object entity, String rowId,
             List<RelationHolder> relations) throws IOException
     {
+        HTable hTable = gethTable(tableName);
+        try
+        {
+            writeData(hTable, tableName, m, entity, rowId, relations);
+        }
+        finally
+        {
+            puthTable(hTable);
+        }
+    }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.client.hbase.admin.DataHandler#writeData(java.lang.String,
+     * com.impetus.kundera.metadata.model.EntityMetadata, java.util.Map,
+     * java.util.Map)
+     */
+    @Override
+    public void writeData(String tableName, EntityMetadata m, Map<String, Object> entities,
+            Map<String, List<RelationHolder>> relations) throws IOException
+    {
         HTable hTable = gethTable(tableName);
 
+        // Buffer puts on client side, they are sent in one batch on commit, or
+        // earlier whenever write buffer fills up
+        hTable.setAutoFlush(false);
+        if (writeBufferSize > 0)
+        {
+            hTable.setWriteBufferSize(writeBufferSize);
+        }
+        try
+        {
+            for (String rowId : entities.keySet())
+            {
+                writeData(hTable, tableName, m, entities.get(rowId), rowId, relations.get(rowId));
+            }
+            hTable.flushCommits();
+        }
+        catch (IOException e)
+        {
+            // Puts that failed stay in write buffer, which would send them
+            // along with next write on this pooled table
+            hTable.getWriteBuffer().clear();
+            throw e;
+        }
+        finally
+        {
+            hTable.setAutoFlush(true);
+            puthTable(hTable);
+        }
+    }
+
+    /**
+     * Writes data held in entity into given HBase table instance. All column
+     * families, columns and relations of entity go into a single put. Cells of
+     * embedded collection elements no longer in entity are deleted along with
+     * it.
+     * 
+     * @param hTable
+     *            the h table
+     * @param tableName
+     *            the table name
+     * @param m
+     *            the m
+     * @param entity
+     *            the entity
+     * @param rowId
+     *            the row id
+     * @param relations
+     *            the relations
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private void writeData(HTable hTable, String tableName, EntityMetadata m, Object entity, String rowId,
+            List<RelationHolder> relations) throws IOException
+    {
+        Put put = new Put(Bytes.toBytes(rowId));
+
+        // Column families of collections written in qualifier layout
+        List<String> collectionFamilies = new ArrayList<String>();
+
         // Now persist column families in the table. For HBase, embedded columns
         // are called column families
         List<EmbeddedColumn> columnFamilies = m.getEmbeddedColumnsAsList();
@@ -272,6 +535,12 @@ public class HBaseDataHandler implements DataHandler
 
             if (columnFamilyObject == null)
             {
+                // Elements of a collection set to null are all stale
+                if (!isFamilyPerElement && Collection.class.isAssignableFrom(columnFamilyField.getType()))
+                {
+                    ensureColumnFamily(hTable, columnFamilyName);
+                    collectionFamilies.add(columnFamilyName);
+                }
                 continue;
             }
 
@@ -282,43 +551,48 @@ public class HBaseDataHandler implements DataHandler
 
             if (columnFamilyObject instanceof Collection)
             {
-                String dynamicCFName = null;
-
                 ElementCollectionCacheManager ecCacheHandler = ElementCollectionCacheManager.getInstance();
-                // Check whether it's first time insert or updation
-                if (ecCacheHandler.isCacheEmpty())
-                { // First time insert
-                    int count = 0;
-                    for (Object obj : (Collection) columnFamilyObject)
-                    {
-                        dynamicCFName = columnFamilyName + Constants.EMBEDDED_COLUMN_NAME_DELIMITER + count;
-                        addColumnFamilyToTable(tableName, dynamicCFName);
 
-                        hbaseWriter.writeColumns(hTable, dynamicCFName, rowId, columns, obj);
-                        count++;
-                    }
+                // Check whether it's first time insert or updation. On
+                // updation, check whether this object is already in cache,
+                // which means we already have an element with that name.
+                // Otherwise we need to generate a fresh element name
+                boolean isUpdate = !ecCacheHandler.isCacheEmpty();
+                int lastEmbeddedObjectCount = isUpdate ? ecCacheHandler.getLastElementCollectionObjectCount(rowId)
+                        : -1;
 
+                if (!isFamilyPerElement)
+                {
+                    ensureColumnFamily(hTable, columnFamilyName);
+                    collectionFamilies.add(columnFamilyName);
                 }
-                else
+
+                for (Object obj : (Collection) columnFamilyObject)
                 {
-                    // Updation
-                    // Check whether this object is already in cache, which
-                    // means we already have a column family with that name
-                    // Otherwise we need to generate a fresh column family name
-                    int lastEmbeddedObjectCount = ecCacheHandler.getLastElementCollectionObjectCount(rowId);
-                    for (Object obj : (Collection) columnFamilyObject)
-                    {
-                        dynamicCFName = ecCacheHandler.getElementCollectionObjectName(rowId, obj);
-                        if (dynamicCFName == null)
-                        { // Fresh row
-                            dynamicCFName = columnFamilyName + Constants.EMBEDDED_COLUMN_NAME_DELIMITER
-                                    + (++lastEmbeddedObjectCount);
+                    String elementName = isUpdate ? ecCacheHandler.getElementCollectionObjectName(rowId, obj) : null;
+                    if (elementName == null)
+                    { // Fresh element
+                        elementName = columnFamilyName + Constants.EMBEDDED_COLUMN_NAME_DELIMITER
+                                + (++lastEmbeddedObjectCount);
+                    }
 
-                        }
-                        addColumnFamilyToTable(tableName, dynamicCFName);
-                        hbaseWriter.writeColumns(hTable, dynamicCFName, rowId, columns, obj);
+                    if (isFamilyPerElement)
+                    {
+                        addColumnFamilyToTable(tableName, elementName);
+                        hbaseWriter.addColumns(put, elementName, columns, obj);
                     }
+                    else
+                    {
+                        // Element columns go into collection's own column
+                        // family, qualified as <element count>#<column name>
+                        hbaseWriter.addColumns(put, columnFamilyName,
+                                MetadataUtils.getEmbeddedCollectionPostfix(elementName)
+                                        + Constants.EMBEDDED_COLUMN_NAME_DELIMITER, columns, obj);
+                    }
+                }
 
+                if (isUpdate)
+                {
                     // Clear embedded collection cache for GC
                     ecCacheHandler.clearCache();
                 }
@@ -329,11 +603,11 @@ public class HBaseDataHandler implements DataHandler
                 // Write Column family which was Embedded object in entity
                 if (columnFamilyField.isAnnotationPresent(Embedded.class))
                 {
-                    hbaseWriter.writeColumns(hTable, columnFamilyName, rowId, columns, columnFamilyObject);
+                    hbaseWriter.addColumns(put, columnFamilyName, columns, columnFamilyObject);
                 }
                 else
                 {
-                    hbaseWriter.writeColumn(hTable, columnFamilyName, rowId, columns.get(0), columnFamilyObject);
+                    hbaseWriter.addColumn(put, columnFamilyName, columns.get(0), columnFamilyObject);
                 }
 
             }
@@ -344,8 +618,7 @@ public class HBaseDataHandler implements DataHandler
         List<Column> columns = m.getColumnsAsList();
         if (columns != null && !columns.isEmpty())
         {
-
-            hbaseWriter.writeColumns(hTable, rowId, columns, entity);
+            hbaseWriter.addColumns(put, columns, entity);
         }
 
         // Persist relationships as a column in newly created Column family by
@@ -353,10 +626,148 @@ public class HBaseDataHandler implements DataHandler
         boolean containsEmbeddedObjectsOnly = (columns == null || columns.isEmpty());
         if (relations != null && !relations.isEmpty())
         {
-            hbaseWriter.writeRelations(hTable, rowId, containsEmbeddedObjectsOnly, relations);
+            hbaseWriter.addRelations(put, containsEmbeddedObjectsOnly, relations);
         }
 
-        puthTable(hTable);
+        Delete delete = null;
+        for (String collectionFamily : collectionFamilies)
+        {
+            delete = deleteStaleElements(hTable, put, collectionFamily, delete);
+        }
+
+        if (delete != null)
+        {
+            // Sent in one batch, deleted cells don't overlap with those put so
+            // the order they are applied in doesn't matter
+            List<Row> mutations = new ArrayList<Row>(2);
+            mutations.add(delete);
+            if (!put.isEmpty())
+            {
+                mutations.add(put);
+            }
+            try
+            {
+                hTable.batch(mutations);
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while writing row " + rowId + " of table " + tableName);
+            }
+        }
+        else if (!put.isEmpty())
+        {
+            hTable.put(put);
+        }
+    }
+
+    /**
+     * Adds cells of an embedded collection that given put doesn't overwrite to
+     * given delete: qualifiers of elements removed from collection (or of
+     * their columns now null) and column families of elements written by
+     * earlier versions. Row is read first, so that only cells that are there
+     * get deleted.
+     * 
+     * @param hTable
+     *            the h table
+     * @param put
+     *            put of row, with collection elements written in collection
+     *            family
+     * @param columnFamilyName
+     *            column family of collection
+     * @param delete
+     *            delete of row, null if not created yet
+     * @return delete of row, null if nothing is stale
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private Delete deleteStaleElements(HTable hTable, Put put, String columnFamilyName, Delete delete)
+            throws IOException
+    {
+        byte[] family = Bytes.toBytes(columnFamilyName);
+        List<byte[]> legacyFamilies = getLegacyElementFamilies(hTable, columnFamilyName);
+
+        Get get = new Get(put.getRow());
+        get.addFamily(family);
+        for (byte[] legacyFamily : legacyFamilies)
+        {
+            get.addFamily(legacyFamily);
+        }
+        Result result = hTable.get(get);
+        if (result.isEmpty())
+        {
+            return delete;
+        }
+
+        NavigableMap<byte[], byte[]> existing = result.getFamilyMap(family);
+        if (existing != null && !existing.isEmpty())
+        {
+            Set<byte[]> written = new TreeSet<byte[]>(Bytes.BYTES_COMPARATOR);
+            List<KeyValue> writtenValues = put.getFamilyMap().get(family);
+            if (writtenValues != null)
+            {
+                for (KeyValue kv : writtenValues)
+                {
+                    written.add(kv.getQualifier());
+                }
+            }
+
+            for (byte[] qualifier : existing.keySet())
+            {
+                if (!written.contains(qualifier))
+                {
+                    delete = delete != null ? delete : new Delete(put.getRow());
+                    delete.deleteColumns(family, qualifier);
+                }
+            }
+        }
+
+        for (byte[] legacyFamily : legacyFamilies)
+        {
+            NavigableMap<byte[], byte[]> legacyValues = result.getFamilyMap(legacyFamily);
+            if (legacyValues != null && !legacyValues.isEmpty())
+            {
+                delete = delete != null ? delete : new Delete(put.getRow());
+                delete.deleteFamily(legacyFamily);
+            }
+        }
+        return delete;
+    }
+
+    /**
+     * Gets column families of table holding elements of given embedded
+     * collection as written by earlier versions, i.e. named as collection
+     * family, '#' and element count. Families are looked up once per table and
+     * collection.
+     * 
+     * @param hTable
+     *            the h table
+     * @param columnFamilyName
+     *            column family of collection
+     * @return the legacy element families
+     * @throws IOException
+     *             Signals that an I/O exception has occurred.
+     */
+    private List<byte[]> getLegacyElementFamilies(HTable hTable, String columnFamilyName) throws IOException
+    {
+        String key = Bytes.toString(hTable.getTableName()) + ":" + columnFamilyName;
+        List<byte[]> families = legacyElementFamilies.get(key);
+        if (families == null)
+        {
+            families = new ArrayList<byte[]>();
+            String elementPrefix = columnFamilyName + Constants.EMBEDDED_COLUMN_NAME_DELIMITER;
+            for (HColumnDescriptor familyDescriptor : hTable.getTableDescriptor().getFamilies())
+            {
+                String familyName = familyDescriptor.getNameAsString();
+                if (familyName.length() > elementPrefix.length() && familyName.startsWith(elementPrefix)
+                        && StringUtils.isNumeric(familyName.substring(elementPrefix.length())))
+                {
+                    families.add(familyDescriptor.getName());
+                }
+            }
+            legacyElementFamilies.put(key, families);
+        }
+        return families;
     }
 
     /*
@@ -552,60 +963,78 @@ public class HBaseDataHandler implements DataHandler
                 {
 
                     Field embeddedCollectionField = columnFamily.getField();
-                    Object[] embeddedObjectArr = new Object[hbaseValues.size()]; // Array
-                                                                                 // to
-                                                                                 // hold
-                                                                                 // column
-                                                                                 // family
-                                                                                 // objects
-
-                    Object embeddedObject = MetadataUtils.getEmbeddedGenericObjectInstance(embeddedCollectionField);
-                    int prevCFNameCounter = 0; // Previous CF name counter
+                    String elementPrefix = columnFamily.getName() + Constants.EMBEDDED_COLUMN_NAME_DELIMITER;
+
+                    // Elements keyed by their sequence count
+                    Map<Integer, Object> embeddedObjects = new TreeMap<Integer, Object>();
+                    Set<Integer> elementsInCollectionFamily = new HashSet<Integer>();
                     for (KeyValue colData : hbaseValues)
                     {
                         String cfInHbase = Bytes.toString(colData.getFamily());
-                        // Only populate those data from Hbase into entity that
-                        // matches with column family name
-                        // in the format <Collection field name>#<sequence
-                        // count>
-                        if (!cfInHbase.startsWith(columnFamily.getName()))
+                        String qualifier = Bytes.toString(colData.getQualifier());
+                        int elementCount;
+                        String colName;
+
+                        if (cfInHbase.equals(columnFamily.getName()))
+                        {
+                            // Element stored in collection's own column
+                            // family, qualified as <sequence count>#<column>
+                            int delimiterIndex = qualifier.indexOf(Constants.EMBEDDED_COLUMN_NAME_DELIMITER);
+                            if (delimiterIndex < 0)
+                            {
+                                continue;
+                            }
+                            elementCount = Integer.parseInt(qualifier.substring(0, delimiterIndex));
+                            colName = qualifier.substring(delimiterIndex + 1);
+                            elementsInCollectionFamily.add(elementCount);
+                        }
+                        else if (cfInHbase.startsWith(elementPrefix))
+                        {
+                            // Element stored in a column family of its own, in
+                            // the format <Collection field name>#<sequence
+                            // count>, as written by earlier versions. Rows
+                            // rewritten since have it in collection's family,
+                            // which takes precedence
+                            elementCount = Integer.parseInt(MetadataUtils.getEmbeddedCollectionPostfix(cfInHbase));
+                            if (elementsInCollectionFamily.contains(elementCount))
+                            {
+                                continue;
+                            }
+                            colName = qualifier;
+                        }
+                        else
                         {
                             if (relationNames != null && relationNames.contains(cfInHbase))
                             {
                                 relations.put(cfInHbase, Bytes.toString(colData.getValue()));
                             }
                             continue;
-
                         }
 
-                        String cfNamePostfix = MetadataUtils.getEmbeddedCollectionPostfix(cfInHbase);
-                        int cfNameCounter = Integer.parseInt(cfNamePostfix);
-                        if (cfNameCounter != prevCFNameCounter)
+                        Object embeddedObject = embeddedObjects.get(elementCount);
+                        if (embeddedObject == null)
                         {
-                            prevCFNameCounter = cfNameCounter;
-
-                            // Fresh embedded object for the next column family
-                            // in collection
                             embeddedObject = MetadataUtils.getEmbeddedGenericObjectInstance(embeddedCollectionField);
+                            embeddedObjects.put(elementCount, embeddedObject);
                         }
 
                         // Set Hbase data into the embedded object
-                        setHBaseDataIntoObject(colData, columnFamilyFieldInEntity, columnNameToFieldMap, embeddedObject);
-
-                        embeddedObjectArr[cfNameCounter] = embeddedObject;
+                        setHBaseDataIntoObject(colName, colData.getValue(), columnFamilyFieldInEntity,
+                                columnNameToFieldMap, embeddedObject);
+                    }
 
-                        // Save embedded object into Cache, needed while
-                        // updation and deletion
+                    // Save embedded objects into Cache, needed while updation
+                    // and deletion
+                    for (Map.Entry<Integer, Object> embeddedObject : embeddedObjects.entrySet())
+                    {
                         ElementCollectionCacheManager.getInstance().addElementCollectionCacheMapping(rowKey,
-                                embeddedObject, cfInHbase);
+                                embeddedObject.getValue(), elementPrefix + embeddedObject.getKey());
                     }
 
                     // Collection to hold column family objects
                     Collection embeddedCollection = MetadataUtils
                             .getEmbeddedCollectionInstance(embeddedCollectionField);
-                    embeddedCollection.addAll(Arrays.asList(embeddedObjectArr));
-                    embeddedCollection.removeAll(Collections.singletonList(null));
-                    embeddedObjectArr = null; // Eligible for GC
+                    embeddedCollection.addAll(embeddedObjects.values());
 
                     // Now, set the embedded collection into entity
                     if (embeddedCollection != null && !embeddedCollection.isEmpty())
@@ -683,10 +1112,12 @@ public class HBaseDataHandler implements DataHandler
     }
 
     /**
-     * Sets the h base data into object.
+     * Sets value of given column into object.
      * 
-     * @param colData
-     *            the col data
+     * @param colName
+     *            the col name
+     * @param columnValue
+     *            the column value
      * @param columnFamilyField
      *            the column family field
      * @param columnNameToFieldMap
@@ -696,13 +1127,9 @@ public class HBaseDataHandler implements DataHandler
      * @throws PropertyAccessException
      *             the property access exception
      */
-    private void setHBaseDataIntoObject(KeyValue colData, Field columnFamilyField,
+    private void setHBaseDataIntoObject(String colName, byte[] columnValue, Field columnFamilyField,
             Map<String, Field> columnNameToFieldMap, Object columnFamilyObj) throws PropertyAccessException
     {
-
-        String colName = Bytes.toString(colData.getQualifier());
-        byte[] columnValue = colData.getValue();
-
         // Get Column from metadata
         Field columnField = columnNameToFieldMap.get(colName);
         if (columnField != null)
@@ -754,4 +1181,171 @@ public class HBaseDataHandler implements DataHandler
 
         throw new PersistenceException("Not applicable for HBase");
     }
+
+    /**
+     * Iterates over entities populated from rows of a scanner, reading ahead
+     * one row. Scanner is closed and table returned to pool once rows are
+     * exhausted or maximum number of entities is reached, or earlier by
+     * {@link #close()}. An iterator abandoned before that releases them when
+     * garbage collected.
+     */
+    private class EntityScanIterator implements Iterator<Object>, Closeable
+    {
+
+        /** The h table. */
+        private HTable hTable;
+
+        /** The scanner. */
+        private ResultScanner scanner;
+
+        /** The clazz. */
+        private Class clazz;
+
+        /** The m. */
+        private EntityMetadata m;
+
+        /** Maximum number of entities returned, 0 or less for no limit. */
+        private int maxResults;
+
+        /** Number of entities returned so far. */
+        private int count;
+
+        /** Entity to be returned next, null once iteration is over. */
+        private Object next;
+
+        /**
+         * Instantiates a new entity scan iterator.
+         * 
+         * @param hTable
+         *            the h table
+         * @param scanner
+         *            the scanner
+         * @param clazz
+         *            the clazz
+         * @param m
+         *            the m
+         * @param maxResults
+         *            the max results
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        EntityScanIterator(HTable hTable, ResultScanner scanner, Class clazz, EntityMetadata m, int maxResults)
+                throws IOException
+        {
+            this.hTable = hTable;
+            this.scanner = scanner;
+            this.clazz = clazz;
+            this.m = m;
+            this.maxResults = maxResults;
+            try
+            {
+                next = readNext();
+            }
+            catch (IOException e)
+            {
+                close();
+                throw e;
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public Object next()
+        {
+            if (next == null)
+            {
+                throw new NoSuchElementException();
+            }
+            Object entity = next;
+            count++;
+            try
+            {
+                next = maxResults > 0 && count >= maxResults ? finish() : readNext();
+            }
+            catch (IOException e)
+            {
+                close();
+                throw new PersistenceException(e);
+            }
+            return entity;
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Method not supported");
+        }
+
+        /**
+         * Reads next row holding data from scanner.
+         * 
+         * @return entity populated from it, null if rows are exhausted
+         * @throws IOException
+         *             Signals that an I/O exception has occurred.
+         */
+        private Object readNext() throws IOException
+        {
+            if (scanner == null)
+            {
+                return null;
+            }
+
+            Result result;
+            while ((result = scanner.next()) != null)
+            {
+                HBaseData data = new HBaseData(Bytes.toString(result.getRow()));
+                data.setColumns(result.list());
+                Object entity = toEntity(Bytes.toString(hTable.getTableName()), clazz, m, data, null);
+                if (entity != null)
+                {
+                    return entity;
+                }
+            }
+            return finish();
+        }
+
+        /**
+         * Closes scanner and returns table to pool.
+         * 
+         * @return null, as there are no more entities
+         */
+        private Object finish()
+        {
+            close();
+            return null;
+        }
+
+        /**
+         * Closes scanner and returns table to pool, ending iteration.
+         */
+        @Override
+        public synchronized void close()
+        {
+            next = null;
+            if (scanner != null)
+            {
+                scanner.close();
+                scanner = null;
+                puthTable(hTable);
+            }
+        }
+
+        @Override
+        protected void finalize() throws Throwable
+        {
+            try
+            {
+                close();
+            }
+            finally
+            {
+                super.finalize();
+            }
+        }
+    }
 }
@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.hbase.query;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.persistence.Query;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.filter.CompareFilter.CompareOp;
+import org.apache.hadoop.hbase.filter.Filter;
+import org.apache.hadoop.hbase.filter.FilterList;
+import org.apache.hadoop.hbase.filter.SingleColumnValueFilter;
+import org.apache.hadoop.hbase.util.Bytes;
+
+import com.impetus.client.hbase.HBaseClient;
+import com.impetus.kundera.client.Client;
+import com.impetus.kundera.metadata.model.Column;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.persistence.PersistenceDelegator;
+import com.impetus.kundera.property.PropertyAccessor;
+import com.impetus.kundera.property.PropertyAccessorFactory;
+import com.impetus.kundera.query.KunderaQuery;
+import com.impetus.kundera.query.KunderaQuery.FilterClause;
+import com.impetus.kundera.query.LuceneQuery;
+
+/**
+ * Query on HBase. Queries selecting entities without relations, with
+ * conditions on row key and stored columns, are run as a single scan: row key
+ * conditions become scan's start and stop rows and column conditions become
+ * column value filters evaluated on region servers. Other queries are run
+ * through Lucene index, as {@link LuceneQuery}.
+ * 
+ * @author agent
+ */
+public class HBaseQuery extends LuceneQuery implements Query
+{
+
+    /** the log used by this class. */
+    private static Log log = LogFactory.getLog(HBaseQuery.class);
+
+    /** Byte appended to a row key to get the smallest row key after it. */
+    private static final byte[] ZERO_BYTE = new byte[] { 0 };
+
+    /** The max results, same default as other queries. */
+    private int maxResults = 100;
+
+    /**
+     * Instantiates a new h base query.
+     * 
+     * @param jpaQuery
+     *            the jpa query
+     * @param kunderaQuery
+     *            the kundera query
+     * @param pd
+     *            the pd
+     */
+    public HBaseQuery(String jpaQuery, KunderaQuery kunderaQuery, PersistenceDelegator pd)
+    {
+        super(jpaQuery, kunderaQuery, pd);
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.LuceneQuery#isIndexQuery(com.impetus.kundera
+     * .metadata.model.EntityMetadata)
+     */
+    @Override
+    protected boolean isIndexQuery(EntityMetadata m)
+    {
+        return toScan(m) == null;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.LuceneQuery#populateEntities(com.impetus.kundera
+     * .metadata.model.EntityMetadata, com.impetus.kundera.client.Client)
+     */
+    @Override
+    protected List<Object> populateEntities(EntityMetadata m, Client client)
+    {
+        List<Object> results = new ArrayList<Object>();
+        ManagedEntityIterator entities = new ManagedEntityIterator(scan(m, toScan(m)));
+        try
+        {
+            while (entities.hasNext())
+            {
+                results.add(entities.next());
+            }
+        }
+        finally
+        {
+            entities.close();
+        }
+        return results;
+    }
+
+    /**
+     * Lazily iterates over results of query. Queries run as a scan populate
+     * entities as rows are fetched from region servers, so that even a query
+     * over a whole table runs in constant memory. Such an iterator holds an
+     * open scanner until it is iterated till the end; it implements
+     * {@link Closeable} to release the scanner earlier. Other queries are run
+     * through {@link #getResultList()}.
+     * 
+     * @return the iterator
+     */
+    public Iterator<?> iterate()
+    {
+        EntityMetadata m = kunderaQuery.getEntityMetadata();
+        Scan scan = toScan(m);
+        if (scan != null)
+        {
+            return new ManagedEntityIterator(scan(m, scan));
+        }
+
+        List<?> results = getResultList();
+        return results != null ? results.iterator() : Collections.emptyList().iterator();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.query.LuceneQuery#setMaxResults(int)
+     */
+    @Override
+    public Query setMaxResults(int maxResult)
+    {
+        this.maxResults = maxResult;
+        return super.setMaxResults(maxResult);
+    }
+
+    /**
+     * Runs given scan over entity's table.
+     * 
+     * @param m
+     *            the m
+     * @param scan
+     *            the scan
+     * @return the iterator over entities
+     */
+    private Iterator<Object> scan(EntityMetadata m, Scan scan)
+    {
+        // Stop row at or before start row selects nothing
+        if (scan.getStopRow().length > 0 && Bytes.compareTo(scan.getStartRow(), scan.getStopRow()) >= 0)
+        {
+            return Collections.emptyList().iterator();
+        }
+
+        log.debug("Running query " + query + " as scan " + scan);
+        return ((HBaseClient) persistenceDelegeator.getClient(m)).scan(m, scan, maxResults);
+    }
+
+    /**
+     * Translates query into a scan, if it selects whole entities without
+     * relations and each of its conditions is on row key or a stored column,
+     * joined all by AND or all by OR (no conditions on row key then).
+     * 
+     * @param m
+     *            the m
+     * @return the scan, null if query can't be run as a scan
+     */
+    private Scan toScan(EntityMetadata m)
+    {
+        if (!kunderaQuery.isAliasOnly() || kunderaQuery.isDeleteUpdate() || m.isRelationViaJoinTable()
+                || (m.getRelationNames() != null && !m.getRelationNames().isEmpty()))
+        {
+            return null;
+        }
+
+        Scan scan = new Scan();
+        Column idColumn = m.getIdColumn();
+        List<Filter> filters = new ArrayList<Filter>();
+        FilterList.Operator operator = FilterList.Operator.MUST_PASS_ALL;
+        boolean isOperatorSet = false;
+        boolean hasRowKeyCondition = false;
+
+        for (Object o : kunderaQuery.getFilterClauseQueue())
+        {
+            if (o instanceof FilterClause)
+            {
+                FilterClause clause = (FilterClause) o;
+                String columnName = getColumnName(clause.getProperty());
+
+                if (idColumn.getName().equals(columnName))
+                {
+                    if (!setRowRange(scan, idColumn, clause.getCondition(), clause.getValue()))
+                    {
+                        return null;
+                    }
+                    hasRowKeyCondition = true;
+                }
+                else
+                {
+                    Column column = m.getColumn(columnName);
+                    Filter filter = column != null ? toFilter(column, clause.getCondition(), clause.getValue())
+                            : null;
+                    if (filter == null)
+                    {
+                        return null;
+                    }
+                    filters.add(filter);
+                }
+            }
+            else
+            {
+                FilterList.Operator clauseOperator;
+                if ("AND".equalsIgnoreCase(o.toString()))
+                {
+                    clauseOperator = FilterList.Operator.MUST_PASS_ALL;
+                }
+                else if ("OR".equalsIgnoreCase(o.toString()))
+                {
+                    clauseOperator = FilterList.Operator.MUST_PASS_ONE;
+                }
+                else
+                {
+                    return null;
+                }
+
+                // Mixed AND and OR would need precedence to be honoured
+                if (isOperatorSet && clauseOperator != operator)
+                {
+                    return null;
+                }
+                operator = clauseOperator;
+                isOperatorSet = true;
+            }
+        }
+
+        if (hasRowKeyCondition && operator == FilterList.Operator.MUST_PASS_ONE)
+        {
+            return null;
+        }
+
+        if (filters.size() == 1)
+        {
+            scan.setFilter(filters.get(0));
+        }
+        else if (!filters.isEmpty())
+        {
+            scan.setFilter(new FilterList(operator, filters));
+        }
+        return scan;
+    }
+
+    /**
+     * Narrows row range of scan by a condition on row key. Row keys are
+     * compared as stored, i.e. as strings, so ranges are supported on string
+     * ids only.
+     * 
+     * @param scan
+     *            the scan
+     * @param idColumn
+     *            the id column
+     * @param condition
+     *            the condition
+     * @param value
+     *            the value
+     * @return true, if condition could be translated
+     */
+    private boolean setRowRange(Scan scan, Column idColumn, String condition, String value)
+    {
+        byte[] rowKey = Bytes.toBytes(value);
+        byte[] nextRowKey = Bytes.add(rowKey, ZERO_BYTE);
+
+        if (condition.equals("="))
+        {
+            setStartRow(scan, rowKey);
+            setStopRow(scan, nextRowKey);
+            return true;
+        }
+        else if (!String.class.equals(idColumn.getField().getType()))
+        {
+            return false;
+        }
+        else if (condition.equals(">"))
+        {
+            setStartRow(scan, nextRowKey);
+        }
+        else if (condition.equals(">="))
+        {
+            setStartRow(scan, rowKey);
+        }
+        else if (condition.equals("<"))
+        {
+            setStopRow(scan, rowKey);
+        }
+        else if (condition.equals("<="))
+        {
+            setStopRow(scan, nextRowKey);
+        }
+        else
+        {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Sets start row of scan, unless it already starts after it.
+     * 
+     * @param scan
+     *            the scan
+     * @param startRow
+     *            the start row
+     */
+    private void setStartRow(Scan scan, byte[] startRow)
+    {
+        if (Bytes.compareTo(startRow, scan.getStartRow()) > 0)
+        {
+            scan.setStartRow(startRow);
+        }
+    }
+
+    /**
+     * Sets stop row of scan, unless it already stops before it.
+     * 
+     * @param scan
+     *            the scan
+     * @param stopRow
+     *            the stop row
+     */
+    private void setStopRow(Scan scan, byte[] stopRow)
+    {
+        if (scan.getStopRow().length == 0 || Bytes.compareTo(stopRow, scan.getStopRow()) < 0)
+        {
+            scan.setStopRow(stopRow);
+        }
+    }
+
+    /**
+     * Translates a condition on a stored column into a column value filter.
+     * Values are compared as stored bytes, which order like values themselves
+     * only for strings, so other types support equality only.
+     * 
+     * @param column
+     *            the column
+     * @param condition
+     *            the condition
+     * @param value
+     *            the value
+     * @return the filter, null if condition can't be translated
+     */
+    private Filter toFilter(Column column, String condition, String value)
+    {
+        Field field = column.getField();
+        CompareOp compareOp;
+        if (condition.equals("="))
+        {
+            compareOp = CompareOp.EQUAL;
+        }
+        else if (!String.class.equals(field.getType()))
+        {
+            return null;
+        }
+        else if (condition.equals(">"))
+        {
+            compareOp = CompareOp.GREATER;
+        }
+        else if (condition.equals(">="))
+        {
+            compareOp = CompareOp.GREATER_OR_EQUAL;
+        }
+        else if (condition.equals("<"))
+        {
+            compareOp = CompareOp.LESS;
+        }
+        else if (condition.equals("<="))
+        {
+            compareOp = CompareOp.LESS_OR_EQUAL;
+        }
+        else
+        {
+            return null;
+        }
+
+        // Columns are stored in a column family of their own, qualified by
+        // column name too
+        PropertyAccessor<?> accessor = PropertyAccessorFactory.getPropertyAccessor(field);
+        byte[] columnName = Bytes.toBytes(column.getName());
+        SingleColumnValueFilter filter = new SingleColumnValueFilter(columnName, columnName, compareOp,
+                accessor.toBytes(accessor.fromString(field.getType(), value)));
+
+        // Rows without the column don't match
+        filter.setFilterIfMissing(true);
+        return filter;
+    }
+
+    /**
+     * Iterator putting entities read by a scan into persistence cache as they
+     * are returned, see {@link PersistenceDelegator#manage(Object)}.
+     */
+    private class ManagedEntityIterator implements Iterator<Object>, Closeable
+    {
+
+        /** Iterator over entities read by scan. */
+        private final Iterator<Object> entities;
+
+        /**
+         * Instantiates a new managed entity iterator.
+         * 
+         * @param entities
+         *            iterator over entities read by scan
+         */
+        ManagedEntityIterator(Iterator<Object> entities)
+        {
+            this.entities = entities;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return entities.hasNext();
+        }
+
+        @Override
+        public Object next()
+        {
+            return persistenceDelegeator.manage(entities.next());
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Method not supported");
+        }
+
+        @Override
+        public void close()
+        {
+            if (entities instanceof Closeable)
+            {
+                try
+                {
+                    ((Closeable) entities).close();
+                }
+                catch (IOException e)
+                {
+                    log.warn("Error while closing scanner of query " + query + ". Details:" + e.getMessage());
+                }
+            }
+        }
+    }
+}
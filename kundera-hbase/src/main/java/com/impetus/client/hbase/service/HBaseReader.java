@@ -16,6 +16,7 @@
 package com.impetus.client.hbase.service;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.hadoop.hbase.KeyValue;
@@ -83,34 +84,46 @@ public class HBaseReader implements Reader
         return data;
     }
 
-    // TODO: for first version this solution is for 1 column family per table
-    // Later need to add support for more than 1 column family.
     /*
      * (non-Javadoc)
      * 
      * @see
-     * com.impetus.client.hbase.Reader#loadAll(org.apache.hadoop.hbase.client
-     * .HTable, java.lang.String[])
+     * com.impetus.client.hbase.Reader#loadData(org.apache.hadoop.hbase.client
+     * .HTable, java.util.List)
      */
     @Override
-    public HBaseData loadAll(HTable hTable, String... qualifiers) throws IOException
+    public List<HBaseData> loadData(HTable hTable, List<String> rowKeys) throws IOException
     {
-        String rowKey;
-        String columnFamily;
-        HBaseData data = null;
-        Scan s = new Scan();
-        ResultScanner scanner = hTable.getScanner(s);
-        for (Result rr : scanner)
+        List<Get> gets = new ArrayList<Get>(rowKeys.size());
+        for (String rowKey : rowKeys)
         {
-            for (KeyValue rs : rr.list())
-            {
-                rowKey = Bytes.toString(rs.getRow());
-                columnFamily = Bytes.toString(rs.getFamily());
-                data = new HBaseData(columnFamily, rowKey);
-                data.setColumns(rr.list());
-                break;
-            }
+            gets.add(new Get(Bytes.toBytes(rowKey)));
         }
-        return data;
+
+        // Gets are grouped by region server and sent in parallel, results
+        // come back in the order of gets
+        Result[] results = hTable.get(gets);
+
+        List<HBaseData> dataList = new ArrayList<HBaseData>(rowKeys.size());
+        for (int i = 0; i < results.length; i++)
+        {
+            HBaseData data = new HBaseData(rowKeys.get(i));
+            data.setColumns(results[i] != null ? results[i].list() : null);
+            dataList.add(data);
+        }
+        return dataList;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.client.hbase.Reader#loadAll(org.apache.hadoop.hbase.client
+     * .HTable, org.apache.hadoop.hbase.client.Scan)
+     */
+    @Override
+    public ResultScanner loadAll(HTable hTable, Scan scan) throws IOException
+    {
+        return hTable.getScanner(scan);
     }
 }
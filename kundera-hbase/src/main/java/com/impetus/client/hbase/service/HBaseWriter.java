@@ -54,17 +54,49 @@ public class HBaseWriter implements Writer
             Object columnFamilyObj) throws IOException
     {
         Put p = new Put(Bytes.toBytes(rowKey));
+        addColumns(p, columnFamily, columns, columnFamilyObj);
+        htable.put(p);
+    }
+
+    @Override
+    public void writeColumn(HTable htable, String columnFamily, String rowKey, Column column, Object columnObj)
+            throws IOException
+    {
+        Put p = new Put(Bytes.toBytes(rowKey));
+        addColumn(p, columnFamily, column, columnObj);
+        htable.put(p);
+    }
 
+    @Override
+    public void writeColumns(HTable htable, String rowKey, List<Column> columns, Object entity) throws IOException
+    {
+        Put p = new Put(Bytes.toBytes(rowKey));
+        addColumns(p, columns, entity);
+        htable.put(p);
+    }
+
+    @Override
+    public void addColumns(Put put, String columnFamily, List<Column> columns, Object columnFamilyObj)
+            throws IOException
+    {
+        addColumns(put, columnFamily, null, columns, columnFamilyObj);
+    }
+
+    @Override
+    public void addColumns(Put put, String columnFamily, String qualifierPrefix, List<Column> columns,
+            Object columnFamilyObj) throws IOException
+    {
+        byte[] family = Bytes.toBytes(columnFamily);
         for (Column column : columns)
         {
-            String qualifier = column.getName();
+            String qualifier = qualifierPrefix != null ? qualifierPrefix + column.getName() : column.getName();
             try
             {
                 byte[] value = PropertyAccessorHelper.get(columnFamilyObj, column.getField());
 
                 if (value != null)
                 {
-                    p.add(Bytes.toBytes(columnFamily), Bytes.toBytes(qualifier), value);
+                    put.add(family, Bytes.toBytes(qualifier), value);
                 }
 
             }
@@ -73,43 +105,30 @@ public class HBaseWriter implements Writer
                 throw new IOException(e1.getMessage());
             }
         }
-        htable.put(p);
     }
 
     @Override
-    public void writeColumn(HTable htable, String columnFamily, String rowKey, Column column, Object columnObj)
-            throws IOException
+    public void addColumn(Put put, String columnFamily, Column column, Object columnObj)
     {
-        Put p = new Put(Bytes.toBytes(rowKey));
-
-        p.add(Bytes.toBytes(columnFamily), Bytes.toBytes(column.getName()), Bytes.toBytes(columnObj.toString()));
-
-        htable.put(p);
+        put.add(Bytes.toBytes(columnFamily), Bytes.toBytes(column.getName()), Bytes.toBytes(columnObj.toString()));
     }
 
     @Override
-    public void writeColumns(HTable htable, String rowKey, List<Column> columns, Object entity) throws IOException
+    public void addColumns(Put put, List<Column> columns, Object entity) throws IOException
     {
-        Put p = new Put(Bytes.toBytes(rowKey));
-
+        long timestamp = System.currentTimeMillis();
         for (Column column : columns)
         {
-            String qualifier = column.getName();
+            byte[] qualifier = Bytes.toBytes(column.getName());
             try
             {
-
-                p.add(Bytes.toBytes(qualifier), Bytes.toBytes(qualifier), System.currentTimeMillis(),
-                        PropertyAccessorHelper.get(entity, column.getField()));
-                // p.add(Bytes.toBytes(qualifier), System.currentTimeMillis(),
-                // PropertyAccessorHelper.get(entity, column.getField()));
-
+                put.add(qualifier, qualifier, timestamp, PropertyAccessorHelper.get(entity, column.getField()));
             }
             catch (PropertyAccessException e1)
             {
                 throw new IOException(e1.getMessage());
             }
         }
-        htable.put(p);
     }
 
     @Override
@@ -131,29 +150,29 @@ public class HBaseWriter implements Writer
             List<RelationHolder> relations) throws IOException
     {
         Put p = new Put(Bytes.toBytes(rowKey));
+        addRelations(p, containsEmbeddedObjectsOnly, relations);
+        htable.put(p);
+    }
 
+    @Override
+    public void addRelations(Put put, boolean containsEmbeddedObjectsOnly, List<RelationHolder> relations)
+    {
+        long timestamp = System.currentTimeMillis();
         for (RelationHolder r : relations)
         {
             if (r != null)
             {
+                byte[] relationName = Bytes.toBytes(r.getRelationName());
                 if (containsEmbeddedObjectsOnly)
                 {
-                    p.add(Bytes.toBytes(r.getRelationName()), Bytes.toBytes(r.getRelationName()),
-                            Bytes.toBytes(r.getRelationValue()));
+                    put.add(relationName, relationName, Bytes.toBytes(r.getRelationValue()));
                 }
                 else
                 {
-                    p.add(Bytes.toBytes(r.getRelationName()), Bytes.toBytes(r.getRelationName()),
-                            System.currentTimeMillis(), Bytes.toBytes(r.getRelationValue()));
-                    // p.add(Bytes.toBytes(r.getRelationName()),
-                    // System.currentTimeMillis(),
-                    // Bytes.toBytes(r.getRelationValue()));
+                    put.add(relationName, relationName, timestamp, Bytes.toBytes(r.getRelationValue()));
                 }
-
             }
         }
-
-        htable.put(p);
     }
 
     // TODO: Scope of performance improvement in this code
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.hbase.junits;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.HBaseAdmin;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.HTablePool;
+import org.apache.hadoop.hbase.client.Scan;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.impetus.client.hbase.admin.HBaseDataHandler;
+import com.impetus.client.hbase.schemaManager.HBaseEntitySimple;
+import com.impetus.kundera.db.RelationHolder;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.processor.TableProcessor;
+
+/**
+ * Test case for batched writes and multi-get reads of {@link HBaseDataHandler}.
+ *
+ * @author agent
+ */
+public class HBaseBatchWriteTest
+{
+
+    /** The table name. */
+    private static final String TABLE = "HBaseBatchWriteTest";
+
+    /** The configuration. */
+    private static HBaseConfiguration conf;
+
+    /** The admin. */
+    private static HBaseAdmin admin;
+
+    /** The entity metadata. */
+    private EntityMetadata m;
+
+    /** The handler. */
+    private HBaseDataHandler handler;
+
+    /**
+     * Starts embedded HBase.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception
+    {
+        HBaseCli.startCluster();
+        Configuration hadoopConf = new Configuration(HBaseCli.utility.getConfiguration());
+
+        // Failed puts are not retried for long
+        hadoopConf.setInt("hbase.client.retries.number", 1);
+        conf = new HBaseConfiguration(hadoopConf);
+        admin = new HBaseAdmin(conf);
+    }
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        m = new EntityMetadata(HBaseEntitySimple.class);
+        new TableProcessor().process(HBaseEntitySimple.class, m);
+        handler = new HBaseDataHandler(conf, new HTablePool(conf, 1));
+    }
+
+    /**
+     * Entities written in one batch are read back with one multi-get.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testBatchWriteAndRead() throws Exception
+    {
+        handler.createTableIfDoesNotExist(TABLE, "PERSON_NAME", "AGE");
+        handler.writeData(TABLE, m, entities("1", "2", "3"), new HashMap<String, List<RelationHolder>>());
+
+        List<String> rowKeys = new ArrayList<String>();
+        rowKeys.add("1");
+        rowKeys.add("3");
+        List<Object> found = handler.readAll(TABLE, HBaseEntitySimple.class, m, rowKeys, null);
+        Assert.assertEquals(2, found.size());
+        Assert.assertEquals("name1", ((HBaseEntitySimple) found.get(0)).getPersonName());
+        Assert.assertEquals("name3", ((HBaseEntitySimple) found.get(1)).getPersonName());
+        Assert.assertEquals(3, ((HBaseEntitySimple) found.get(1)).getAge());
+    }
+
+    /**
+     * Puts of a failed batch are not sent again with next write on the same
+     * pooled table.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testFailedBatchIsDiscarded() throws Exception
+    {
+        // AGE column family is missing, so batch fails
+        handler.createTableIfDoesNotExist(TABLE, "PERSON_NAME");
+        try
+        {
+            handler.writeData(TABLE, m, entities("1"), new HashMap<String, List<RelationHolder>>());
+            Assert.fail("Write to missing column family must fail");
+        }
+        catch (IOException e)
+        {
+            // Expected
+        }
+
+        admin.disableTable(TABLE);
+        admin.addColumn(TABLE, new HColumnDescriptor("AGE"));
+        admin.enableTable(TABLE);
+
+        handler.writeData(TABLE, m, entities("2").get("2"), "2", null);
+
+        HTable hTable = new HTable(conf, TABLE);
+        Assert.assertTrue(hTable.exists(new Get(Bytes.toBytes("2"))));
+        Assert.assertFalse(hTable.exists(new Get(Bytes.toBytes("1"))));
+        hTable.close();
+    }
+
+    /**
+     * Scan iterator closed before its end returns no more entities and can be
+     * closed again.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testCloseScanEarly() throws Exception
+    {
+        handler.createTableIfDoesNotExist(TABLE, "PERSON_NAME", "AGE");
+        handler.writeData(TABLE, m, entities("1", "2", "3"), new HashMap<String, List<RelationHolder>>());
+
+        Iterator<Object> entities = handler.scanData(TABLE, HBaseEntitySimple.class, m, new Scan(), 100);
+        Assert.assertTrue(entities.hasNext());
+        Assert.assertEquals("1", ((HBaseEntitySimple) entities.next()).getPersonId());
+        Assert.assertTrue(entities instanceof Closeable);
+        ((Closeable) entities).close();
+        Assert.assertFalse(entities.hasNext());
+        ((Closeable) entities).close();
+
+        // Table went back to pool, so it is handed out again
+        entities = handler.scanData(TABLE, HBaseEntitySimple.class, m, new Scan(), 100);
+        int count = 0;
+        while (entities.hasNext())
+        {
+            entities.next();
+            count++;
+        }
+        Assert.assertEquals(3, count);
+    }
+
+    /**
+     * Builds entities with given row keys.
+     *
+     * @param rowKeys
+     *            the row keys
+     * @return entities keyed by row key
+     */
+    private Map<String, Object> entities(String... rowKeys)
+    {
+        Map<String, Object> entities = new LinkedHashMap<String, Object>();
+        for (String rowKey : rowKeys)
+        {
+            HBaseEntitySimple entity = new HBaseEntitySimple();
+            entity.setPersonId(rowKey);
+            entity.setPersonName("name" + rowKey);
+            entity.setAge(Short.parseShort(rowKey));
+            entities.put(rowKey, entity);
+        }
+        return entities;
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        if (admin.tableExists(TABLE))
+        {
+            admin.disableTable(TABLE);
+            admin.deleteTable(TABLE);
+        }
+    }
+}
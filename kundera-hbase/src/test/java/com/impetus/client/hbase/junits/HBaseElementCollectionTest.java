@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.hbase.junits;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hbase.HBaseConfiguration;
+import org.apache.hadoop.hbase.HColumnDescriptor;
+import org.apache.hadoop.hbase.HTableDescriptor;
+import org.apache.hadoop.hbase.client.Get;
+import org.apache.hadoop.hbase.client.HBaseAdmin;
+import org.apache.hadoop.hbase.client.HTable;
+import org.apache.hadoop.hbase.client.HTablePool;
+import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.Result;
+import org.apache.hadoop.hbase.util.Bytes;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.impetus.client.hbase.admin.HBaseDataHandler;
+import com.impetus.client.hbase.schemaManager.HBaseEntityCollection;
+import com.impetus.client.hbase.schemaManager.HBasePersonalData;
+import com.impetus.kundera.cache.ElementCollectionCacheManager;
+import com.impetus.kundera.metadata.model.EntityMetadata;
+import com.impetus.kundera.metadata.processor.TableProcessor;
+
+/**
+ * Test case for storage of element collections by {@link HBaseDataHandler},
+ * as qualifiers of collection's column family, and reading of rows written
+ * with a column family per element.
+ *
+ * @author agent
+ */
+public class HBaseElementCollectionTest
+{
+
+    /** The table name. */
+    private static final String TABLE = "HBaseElementCollectionTest";
+
+    /** Column family of element collection. */
+    private static final String COLLECTION_FAMILY = "personalData";
+
+    /** The configuration. */
+    private static HBaseConfiguration conf;
+
+    /** The admin. */
+    private static HBaseAdmin admin;
+
+    /** The entity metadata. */
+    private EntityMetadata m;
+
+    /** The handler. */
+    private HBaseDataHandler handler;
+
+    /**
+     * Starts embedded HBase.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception
+    {
+        HBaseCli.startCluster();
+        conf = new HBaseConfiguration(new Configuration(HBaseCli.utility.getConfiguration()));
+        admin = new HBaseAdmin(conf);
+    }
+
+    /**
+     * Sets the up.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        m = new EntityMetadata(HBaseEntityCollection.class);
+        new TableProcessor().process(HBaseEntityCollection.class, m);
+        handler = new HBaseDataHandler(conf, new HTablePool(conf, 1));
+        ElementCollectionCacheManager.getInstance().clearCache();
+    }
+
+    /**
+     * Elements are written into collection's column family, without altering
+     * table schema, and read back in order.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testQualifierLayout() throws Exception
+    {
+        handler.createTableIfDoesNotExist(TABLE, "PERSON_NAME", COLLECTION_FAMILY);
+
+        HBaseEntityCollection entity = new HBaseEntityCollection();
+        entity.setPersonId("1");
+        entity.setPersonName("kuldeep");
+        entity.getPersonalData().add(new HBasePersonalData("www.impetus.com", "a@impetus.com", "a"));
+        entity.getPersonalData().add(new HBasePersonalData("www.kundera.com", "b@impetus.com", "b"));
+        handler.writeData(TABLE, m, entity, "1", null);
+
+        HTableDescriptor descriptor = admin.getTableDescriptor(Bytes.toBytes(TABLE));
+        Assert.assertEquals(2, descriptor.getFamilies().size());
+
+        assertPersonalData(handler.readData(TABLE, HBaseEntityCollection.class, m, "1", null));
+    }
+
+    /**
+     * Rows written with a column family per element are still read.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testFamilyLayoutRead() throws Exception
+    {
+        handler.createTableIfDoesNotExist(TABLE, "PERSON_NAME", COLLECTION_FAMILY + "#0", COLLECTION_FAMILY + "#1");
+
+        Put put = new Put(Bytes.toBytes("1"));
+        put.add(Bytes.toBytes("PERSON_NAME"), Bytes.toBytes("PERSON_NAME"), Bytes.toBytes("kuldeep"));
+        addElement(put, COLLECTION_FAMILY + "#0", "www.impetus.com", "a@impetus.com", "a");
+        addElement(put, COLLECTION_FAMILY + "#1", "www.kundera.com", "b@impetus.com", "b");
+        HTable hTable = new HTable(conf, TABLE);
+        hTable.put(put);
+        hTable.close();
+
+        assertPersonalData(handler.readData(TABLE, HBaseEntityCollection.class, m, "1", null));
+    }
+
+    /**
+     * Elements removed from collection are deleted on next write, rather than
+     * read back along with those left.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testRemovedElements() throws Exception
+    {
+        handler.createTableIfDoesNotExist(TABLE, "PERSON_NAME", COLLECTION_FAMILY);
+
+        HBaseEntityCollection entity = new HBaseEntityCollection();
+        entity.setPersonId("1");
+        entity.setPersonName("kuldeep");
+        entity.getPersonalData().add(new HBasePersonalData("www.impetus.com", "a@impetus.com", "a"));
+        entity.getPersonalData().add(new HBasePersonalData("www.kundera.com", "b@impetus.com", "b"));
+        entity.getPersonalData().add(new HBasePersonalData("www.hbase.com", "c@impetus.com", "c"));
+        handler.writeData(TABLE, m, entity, "1", null);
+
+        entity.getPersonalData().remove(2);
+        handler.writeData(TABLE, m, entity, "1", null);
+        assertPersonalData(handler.readData(TABLE, HBaseEntityCollection.class, m, "1", null));
+
+        entity.setPersonalData(null);
+        handler.writeData(TABLE, m, entity, "1", null);
+        HTable hTable = new HTable(conf, TABLE);
+        Result result = hTable.get(new Get(Bytes.toBytes("1")));
+        hTable.close();
+        Assert.assertTrue(result.getFamilyMap(Bytes.toBytes(COLLECTION_FAMILY)).isEmpty());
+    }
+
+    /**
+     * Rows written with a column family per element are moved into
+     * collection's family when written again.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testFamilyLayoutRewrite() throws Exception
+    {
+        handler.createTableIfDoesNotExist(TABLE, "PERSON_NAME", COLLECTION_FAMILY, COLLECTION_FAMILY + "#0",
+                COLLECTION_FAMILY + "#1", COLLECTION_FAMILY + "#2");
+
+        Put put = new Put(Bytes.toBytes("1"));
+        put.add(Bytes.toBytes("PERSON_NAME"), Bytes.toBytes("PERSON_NAME"), Bytes.toBytes("kuldeep"));
+        addElement(put, COLLECTION_FAMILY + "#0", "www.impetus.com", "a@impetus.com", "a");
+        addElement(put, COLLECTION_FAMILY + "#1", "www.kundera.com", "b@impetus.com", "b");
+        addElement(put, COLLECTION_FAMILY + "#2", "www.hbase.com", "c@impetus.com", "c");
+        HTable hTable = new HTable(conf, TABLE);
+        hTable.put(put);
+
+        HBaseEntityCollection entity = (HBaseEntityCollection) handler.readData(TABLE, HBaseEntityCollection.class,
+                m, "1", null);
+        Assert.assertEquals(3, entity.getPersonalData().size());
+        entity.getPersonalData().remove(2);
+        ElementCollectionCacheManager.getInstance().clearCache();
+        handler.writeData(TABLE, m, entity, "1", null);
+
+        Result result = hTable.get(new Get(Bytes.toBytes("1")));
+        hTable.close();
+        Assert.assertEquals(6, result.getFamilyMap(Bytes.toBytes(COLLECTION_FAMILY)).size());
+        for (int i = 0; i < 3; i++)
+        {
+            Assert.assertTrue(result.getFamilyMap(Bytes.toBytes(COLLECTION_FAMILY + "#" + i)).isEmpty());
+        }
+        assertPersonalData(handler.readData(TABLE, HBaseEntityCollection.class, m, "1", null));
+    }
+
+    /**
+     * Adds columns of an element stored in a column family of its own.
+     *
+     * @param put
+     *            the put
+     * @param family
+     *            the family
+     * @param website
+     *            the website
+     * @param email
+     *            the email
+     * @param yahooId
+     *            the yahoo id
+     */
+    private void addElement(Put put, String family, String website, String email, String yahooId)
+    {
+        put.add(Bytes.toBytes(family), Bytes.toBytes("p_website"), Bytes.toBytes(website));
+        put.add(Bytes.toBytes(family), Bytes.toBytes("p_email"), Bytes.toBytes(email));
+        put.add(Bytes.toBytes(family), Bytes.toBytes("p_yahoo_id"), Bytes.toBytes(yahooId));
+    }
+
+    /**
+     * Asserts entity read holds both elements, in order.
+     *
+     * @param found
+     *            the entity read
+     */
+    private void assertPersonalData(Object found)
+    {
+        Assert.assertNotNull(found);
+        HBaseEntityCollection entity = (HBaseEntityCollection) found;
+        Assert.assertEquals("kuldeep", entity.getPersonName());
+        Assert.assertEquals(2, entity.getPersonalData().size());
+        Assert.assertEquals("a@impetus.com", entity.getPersonalData().get(0).getEmail());
+        Assert.assertEquals("www.kundera.com", entity.getPersonalData().get(1).getWebsite());
+        Assert.assertEquals("b", entity.getPersonalData().get(1).getYahooId());
+    }
+
+    /**
+     * Tear down.
+     *
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        ElementCollectionCacheManager.getInstance().clearCache();
+        if (admin.tableExists(TABLE))
+        {
+            admin.disableTable(TABLE);
+            admin.deleteTable(TABLE);
+        }
+    }
+}
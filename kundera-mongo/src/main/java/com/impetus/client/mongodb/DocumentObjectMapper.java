@@ -29,7 +29,6 @@ import org.apache.commons.logging.LogFactory;
 
 import com.impetus.kundera.metadata.model.Column;
 import com.impetus.kundera.property.PropertyAccessException;
-import com.impetus.kundera.property.PropertyAccessorHelper;
 import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
 
@@ -69,7 +68,7 @@ public class DocumentObjectMapper
                     || f.getType().equals(Long.class) || f.getType().equals(Short.class)
                     || f.getType().equals(Float.class) || f.getType().equals(Double.class))
             {
-                Object val = PropertyAccessorHelper.getObject(obj, column.getField());
+                Object val = column.getAccessor().get(obj);
                 dBObj.put(column.getName(), val);
             }
             else
@@ -128,7 +127,7 @@ public class DocumentObjectMapper
             for (Column column : columns)
             {
                 Object val = documentObj.get(column.getName());
-                PropertyAccessorHelper.set(obj, column.getField(), val);
+                column.getAccessor().set(obj, val);
             }
             return obj;
 
@@ -16,7 +16,10 @@
 package com.impetus.client.mongodb;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -26,6 +29,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.client.mongodb.query.MongoDBQuery;
+import com.impetus.kundera.Constants;
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.client.Batcher;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.ClientBase;
 import com.impetus.kundera.db.RelationHolder;
@@ -36,18 +42,22 @@ import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.persistence.EntityReader;
 import com.impetus.kundera.persistence.context.jointable.JoinTableData;
+import com.mongodb.BasicDBList;
 import com.mongodb.BasicDBObject;
+import com.mongodb.CommandResult;
 import com.mongodb.DB;
 import com.mongodb.DBCollection;
 import com.mongodb.DBCursor;
 import com.mongodb.DBObject;
+import com.mongodb.WriteConcern;
+import com.mongodb.WriteResult;
 
 /**
  * CLient class for MongoDB database.
  * 
  * @author impetusopensource
  */
-public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>
+public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>, Batcher
 {
 
     /** The is connected. */
@@ -68,9 +78,21 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>
     /** The reader. */
     private EntityReader reader;
 
+    /** Nodes of current batch keyed by entity id, per entity metadata. */
+    private Map<EntityMetadata, Map<String, Node>> batchNodes = new LinkedHashMap<EntityMetadata, Map<String, Node>>();
+
+    /** Relations of nodes in current batch. */
+    private Map<Node, List<RelationHolder>> batchRelations = new HashMap<Node, List<RelationHolder>>();
+
     /** The log. */
     private static Log log = LogFactory.getLog(MongoDBClient.class);
 
+    /** Default number of documents fetched in one call by query cursors. */
+    public static final int DEFAULT_SCAN_PAGE_SIZE = 1000;
+
+    /** Number of documents fetched in one call by query cursors. */
+    private int scanPageSize = DEFAULT_SCAN_PAGE_SIZE;
+
     /**
      * Instantiates a new mongo db client.
      * 
@@ -91,6 +113,17 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>
         this.persistenceUnit = persistenceUnit;
     }
 
+    /**
+     * Sets number of documents fetched in one call by query cursors.
+     * 
+     * @param scanPageSize
+     *            the scan page size
+     */
+    public void setScanPageSize(int scanPageSize)
+    {
+        this.scanPageSize = scanPageSize > 0 ? scanPageSize : DEFAULT_SCAN_PAGE_SIZE;
+    }
+
     public void persist(Node node)
     {
         EntityMetadata entityMetadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
@@ -104,27 +137,124 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>
 
         List<RelationHolder> relationHolders = getRelationHolders(node);
 
-        BasicDBObject query = new BasicDBObject();
-        query.put(entityMetadata.getIdColumn().getName(), key.toString());
+        DBObject document = new MongoDBDataHandler(this, getPersistenceUnit()).getDocumentFromEntity(
+                new BasicDBObject(), entityMetadata, node.getData(), relationHolders);
 
-        DBCursor cursor = dbCollection.find(query);
-        DBObject document = null;
+        // Inserted if not there, otherwise its fields are overwritten, without
+        // reading it first
+        dbCollection.update(new BasicDBObject("_id", key.toString()), toUpsert(document), true, false);
 
-        if (cursor.hasNext())
+        // Index This node
+        indexNode(node, entityMetadata, getIndexManager());
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.client.Batcher#addBatch(com.impetus.kundera.graph
+     * .Node)
+     */
+    @Override
+    public void addBatch(Node node)
+    {
+        EntityMetadata entityMetadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
+
+        Map<String, Node> nodes = batchNodes.get(entityMetadata);
+        if (nodes == null)
         {
-            document = cursor.next();
+            nodes = new LinkedHashMap<String, Node>();
+            batchNodes.put(entityMetadata, nodes);
         }
-        else
+        nodes.put(ObjectGraphBuilder.getEntityId(node.getNodeId()), node);
+        batchRelations.put(node, getRelationHolders(node));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#executeBatch()
+     */
+    @Override
+    public int executeBatch()
+    {
+        int size = batchRelations.size();
+        MongoDBDataHandler handler = new MongoDBDataHandler(this, getPersistenceUnit());
+
+        for (EntityMetadata entityMetadata : batchNodes.keySet())
         {
-            document = new BasicDBObject();
+            Map<String, Node> nodes = batchNodes.get(entityMetadata);
+            DBCollection dbCollection = mongoDb.getCollection(entityMetadata.getTableName());
+            WriteConcern writeConcern = dbCollection.getWriteConcern();
+
+            log.debug("Persisting " + nodes.size() + " documents into " + entityMetadata.getSchema() + "."
+                    + entityMetadata.getTableName());
+
+            // Documents are written one by one on purpose, each upsert
+            // acknowledged as collection's write concern asks. The 2.5 driver
+            // has no bulk update, and one getLastError after pipelined writes
+            // would only report the last of them, hiding earlier failures.
+            // Nor are new entities grouped into one insert: flushed nodes don't
+            // tell new entities from modified ones, and persisting an entity
+            // with an existing id overwrites its document rather than failing.
+            for (String id : nodes.keySet())
+            {
+                Node node = nodes.get(id);
+                DBObject document = handler.getDocumentFromEntity(new BasicDBObject(), entityMetadata,
+                        node.getData(), batchRelations.get(node));
+                WriteResult result = dbCollection.update(new BasicDBObject("_id", id), toUpsert(document), true,
+                        false, writeConcern);
+                CommandResult lastError = result.getCachedLastError();
+                if (lastError != null && lastError.get("err") != null)
+                {
+                    throw new KunderaException("Error while persisting document " + id + " into "
+                            + entityMetadata.getTableName() + "; Details: " + lastError.get("err"));
+                }
+            }
+
+            indexNodes(new ArrayList<Node>(nodes.values()), getIndexManager());
         }
+        clear();
+        return size;
+    }
 
-        document = new MongoDBDataHandler(this, getPersistenceUnit()).getDocumentFromEntity(document, entityMetadata,
-                node.getData(), relationHolders);
-        dbCollection.save(document);
+    /**
+     * Turns document built from an entity into an update that sets its fields
+     * on the document with same id, inserting it if there is none. Fields not
+     * mapped to entity are left as they are.
+     * 
+     * @param document
+     *            the document
+     * @return the update
+     */
+    private DBObject toUpsert(DBObject document)
+    {
+        // Id is taken from query on insert and can't be modified otherwise
+        document.removeField("_id");
+        return new BasicDBObject("$set", document);
+    }
 
-        // Index This node
-        indexNode(node, entityMetadata, getIndexManager());
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#getBatchSize()
+     */
+    @Override
+    public int getBatchSize()
+    {
+        return batchRelations.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#clear()
+     */
+    @Override
+    public void clear()
+    {
+        batchNodes.clear();
+        batchRelations.clear();
     }
 
     @Override
@@ -309,42 +439,118 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>
     public <E> List<E> loadData(EntityMetadata entityMetadata, BasicDBObject mongoQuery, String result,
             List<String> relationNames, BasicDBObject orderBy) throws Exception
     {
-        String documentName = entityMetadata.getTableName();
-        String dbName = entityMetadata.getSchema();
-        Class clazz = entityMetadata.getEntityClazz();
+        return loadData(entityMetadata, mongoQuery, result, null, relationNames, orderBy, 0, Constants.INVALID);
+    }
 
-        DBCollection dbCollection = mongoDb.getCollection(documentName);
+    /**
+     * Loads fields of documents matching given query, skipping first
+     * <code>firstResult</code> of them and returning at most
+     * <code>maxResults</code>. Skip, limit and projection are applied by
+     * server.
+     * 
+     * @param <E>
+     *            the element type
+     * @param entityMetadata
+     *            the entity metadata
+     * @param mongoQuery
+     *            the mongo query
+     * @param result
+     *            the result
+     * @param keys
+     *            fields to be read, null for whole documents
+     * @param relationNames
+     *            the relation names
+     * @param orderBy
+     *            the order by
+     * @param firstResult
+     *            number of documents skipped
+     * @param maxResults
+     *            maximum number of documents read, 0 or less for no limit
+     * @return the list
+     * @throws Exception
+     *             the exception
+     */
+    public <E> List<E> loadData(EntityMetadata entityMetadata, BasicDBObject mongoQuery, String result,
+            BasicDBObject keys, List<String> relationNames, BasicDBObject orderBy, int firstResult, int maxResults)
+            throws Exception
+    {
+        String documentName = entityMetadata.getTableName();
         List entities = new ArrayList<E>();
 
         // If User wants search on a column within a particular super column,
         // fetch that embedded object collection only
         // otherwise retrieve whole entity
         // TODO: improve code
-        if (result.indexOf(".") >= 0)
+        MongoDBDataHandler handler = new MongoDBDataHandler(this, getPersistenceUnit());
+        if (result.indexOf(".") >= 0
+                && handler.getEnclosingDocumentName(entityMetadata, handler.getColumnName(result)) != null)
         {
             // TODO i need to discuss with Amresh before modifying it.
-            entities.addAll(new MongoDBDataHandler(this, getPersistenceUnit()).getEmbeddedObjectList(dbCollection,
-                    entityMetadata, documentName, mongoQuery, result, orderBy));
+            entities.addAll(handler.getEmbeddedObjectList(mongoDb.getCollection(documentName), entityMetadata,
+                    documentName, mongoQuery, result, orderBy));
 
         }
         else
         {
-            log.debug("Fetching data from " + documentName + " for Filter " + mongoQuery.toString());
-
-            DBCursor cursor = orderBy != null ? dbCollection.find(mongoQuery).sort(orderBy) : dbCollection
-                    .find(mongoQuery);
-            MongoDBDataHandler handler = new MongoDBDataHandler(this, getPersistenceUnit());
-            while (cursor.hasNext())
+            Iterator<E> iterator = iterate(entityMetadata, mongoQuery, keys, relationNames, orderBy, firstResult,
+                    maxResults);
+            while (iterator.hasNext())
             {
-                DBObject fetchedDocument = cursor.next();
-                Object entity = handler.getEntityFromDocument(clazz, entityMetadata, fetchedDocument, relationNames);
-                entities.add(entity);
+                entities.add(iterator.next());
             }
         }
 
         return entities;
     }
 
+    /**
+     * Iterates over entities populated from documents matching given query.
+     * Documents are fetched from server a batch at a time as iteration
+     * proceeds, and an entity is populated only when it's returned.
+     * 
+     * @param <E>
+     *            the element type
+     * @param entityMetadata
+     *            the entity metadata
+     * @param mongoQuery
+     *            the mongo query
+     * @param keys
+     *            fields to be read, null for whole documents
+     * @param relationNames
+     *            the relation names
+     * @param orderBy
+     *            the order by
+     * @param firstResult
+     *            number of documents skipped
+     * @param maxResults
+     *            maximum number of documents read, 0 or less for no limit
+     * @return the iterator over entities
+     */
+    public <E> Iterator<E> iterate(EntityMetadata entityMetadata, BasicDBObject mongoQuery, BasicDBObject keys,
+            List<String> relationNames, BasicDBObject orderBy, int firstResult, int maxResults)
+    {
+        String documentName = entityMetadata.getTableName();
+        log.debug("Fetching data from " + documentName + " for Filter " + mongoQuery.toString() + ", fields " + keys);
+
+        DBCursor cursor = mongoDb.getCollection(documentName).find(mongoQuery, keys);
+        if (orderBy != null)
+        {
+            cursor.sort(orderBy);
+        }
+        if (firstResult > 0)
+        {
+            cursor.skip(firstResult);
+        }
+        if (maxResults > 0)
+        {
+            cursor.limit(maxResults);
+        }
+        cursor.batchSize(maxResults > 0 ? Math.min(maxResults, scanPageSize) : scanPageSize);
+
+        return new EntityCursorIterator<E>(cursor, entityMetadata, relationNames, new MongoDBDataHandler(this,
+                getPersistenceUnit()));
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -511,6 +717,118 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>
 
     }
 
+    /**
+     * Gets ids of documents matching given query, fetched from server a batch
+     * at a time.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param mongoQuery
+     *            the mongo query
+     * @return the ids
+     */
+    public List<String> findIds(EntityMetadata entityMetadata, BasicDBObject mongoQuery)
+    {
+        DBCursor cursor = mongoDb.getCollection(entityMetadata.getTableName())
+                .find(mongoQuery, new BasicDBObject("_id", 1)).batchSize(scanPageSize);
+        List<String> ids = new ArrayList<String>();
+        while (cursor.hasNext())
+        {
+            ids.add(cursor.next().get("_id").toString());
+        }
+        return ids;
+    }
+
+    /**
+     * Sets given fields on all documents matching query, in a single update.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param mongoQuery
+     *            the mongo query
+     * @param fields
+     *            the fields to set
+     * @return number of documents updated
+     */
+    public int update(EntityMetadata entityMetadata, BasicDBObject mongoQuery, BasicDBObject fields)
+    {
+        DBCollection dbCollection = mongoDb.getCollection(entityMetadata.getTableName());
+        return dbCollection.update(mongoQuery, new BasicDBObject("$set", fields), false, true,
+                getAcknowledgedWriteConcern(dbCollection)).getN();
+    }
+
+    /**
+     * Removes all documents matching query, in a single remove.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param mongoQuery
+     *            the mongo query
+     * @return number of documents removed
+     */
+    public int remove(EntityMetadata entityMetadata, BasicDBObject mongoQuery)
+    {
+        DBCollection dbCollection = mongoDb.getCollection(entityMetadata.getTableName());
+        return dbCollection.remove(mongoQuery, getAcknowledgedWriteConcern(dbCollection)).getN();
+    }
+
+    /**
+     * Counts documents matching given query.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param mongoQuery
+     *            the mongo query
+     * @return number of matching documents
+     */
+    public long count(EntityMetadata entityMetadata, BasicDBObject mongoQuery)
+    {
+        return mongoDb.getCollection(entityMetadata.getTableName()).count(mongoQuery);
+    }
+
+    /**
+     * Groups documents matching given query by given keys, running reduce
+     * function over documents of each group.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param keys
+     *            the fields documents are grouped by, empty for a single group
+     * @param mongoQuery
+     *            the mongo query
+     * @param initial
+     *            initial values of fields computed for each group
+     * @param reduce
+     *            the reduce function
+     * @return a document per group, holding its keys and computed fields
+     */
+    public List<DBObject> group(EntityMetadata entityMetadata, BasicDBObject keys, BasicDBObject mongoQuery,
+            BasicDBObject initial, String reduce)
+    {
+        BasicDBList groups = (BasicDBList) mongoDb.getCollection(entityMetadata.getTableName()).group(keys,
+                mongoQuery, initial, reduce);
+        List<DBObject> results = new ArrayList<DBObject>(groups.size());
+        for (Object group : groups)
+        {
+            results.add((DBObject) group);
+        }
+        return results;
+    }
+
+    /**
+     * Gets write concern of collection, or SAFE if it isn't acknowledged, so
+     * that number of documents written is known.
+     * 
+     * @param dbCollection
+     *            the db collection
+     * @return the write concern
+     */
+    private WriteConcern getAcknowledgedWriteConcern(DBCollection dbCollection)
+    {
+        WriteConcern writeConcern = dbCollection.getWriteConcern();
+        return writeConcern.getW() > 0 || writeConcern.fsync() ? writeConcern : WriteConcern.SAFE;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -547,4 +865,66 @@ public class MongoDBClient extends ClientBase implements Client<MongoDBQuery>
         return null;
     }
 
+    /**
+     * Iterator over entities of a query cursor, populating each entity from
+     * its document when it's returned.
+     * 
+     * @param <E>
+     *            the element type
+     */
+    private static class EntityCursorIterator<E> implements Iterator<E>
+    {
+
+        /** The cursor. */
+        private DBCursor cursor;
+
+        /** The m. */
+        private EntityMetadata m;
+
+        /** The relation names. */
+        private List<String> relationNames;
+
+        /** The handler. */
+        private MongoDBDataHandler handler;
+
+        /**
+         * Instantiates a new entity cursor iterator.
+         * 
+         * @param cursor
+         *            the cursor
+         * @param m
+         *            the m
+         * @param relationNames
+         *            the relation names
+         * @param handler
+         *            the handler
+         */
+        EntityCursorIterator(DBCursor cursor, EntityMetadata m, List<String> relationNames,
+                MongoDBDataHandler handler)
+        {
+            this.cursor = cursor;
+            this.m = m;
+            this.relationNames = relationNames;
+            this.handler = handler;
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public E next()
+        {
+            DBObject fetchedDocument = cursor.next();
+            return (E) handler.getEntityFromDocument(m.getEntityClazz(), m, fetchedDocument, relationNames);
+        }
+
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException("Method not supported");
+        }
+    }
 }
@@ -18,6 +18,8 @@ package com.impetus.client.mongodb;
 import java.net.UnknownHostException;
 import java.util.Properties;
 
+import javax.persistence.PersistenceException;
+
 import org.apache.commons.lang.StringUtils;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.util.Version;
@@ -31,7 +33,6 @@ import com.impetus.kundera.configure.schema.api.SchemaManager;
 import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.index.LuceneIndexer;
 import com.impetus.kundera.loader.GenericClientFactory;
-import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.metadata.model.PersistenceUnitMetadata;
 import com.impetus.kundera.persistence.EntityReader;
@@ -39,6 +40,7 @@ import com.mongodb.DB;
 import com.mongodb.Mongo;
 import com.mongodb.MongoException;
 import com.mongodb.MongoOptions;
+import com.mongodb.WriteConcern;
 
 /**
  * A factory for creating MongoDBClient objects.
@@ -60,12 +62,14 @@ public class MongoDBClientFactory extends GenericClientFactory
     /** Configure schema manager. */
     private SchemaManager schemaManager;
 
+    /** Number of documents fetched in one call by query cursors. */
+    private int scanPageSize;
+
     @Override
     public void initialize()
     {
-        String luceneDirPath = MetadataUtils.getLuceneDirectory(getPersistenceUnit());
         indexManager = new IndexManager(LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34),
-                luceneDirPath));
+                KunderaMetadata.INSTANCE.getClientMetadata(getPersistenceUnit())));
         reader = new MongoEntityReader();
         schemaManager = new MongoDBSchemaManager(MongoDBClientFactory.class.getName());
         schemaManager.exportSchema();
@@ -92,7 +96,9 @@ public class MongoDBClientFactory extends GenericClientFactory
     @Override
     protected Client instantiateClient(String persistenceUnit)
     {
-        return new MongoDBClient(mongoDB, indexManager, reader, persistenceUnit);
+        MongoDBClient client = new MongoDBClient(mongoDB, indexManager, reader, persistenceUnit);
+        client.setScanPageSize(scanPageSize);
+        return client;
     }
 
     /**
@@ -111,6 +117,10 @@ public class MongoDBClientFactory extends GenericClientFactory
         String defaultPort = (String) props.get(PersistenceProperties.KUNDERA_PORT);
         String keyspace = (String) props.get(PersistenceProperties.KUNDERA_KEYSPACE);
         String poolSize = props.getProperty(PersistenceProperties.KUNDERA_POOL_SIZE_MAX_ACTIVE);
+        String writeConcern = props.getProperty(PersistenceProperties.KUNDERA_WRITE_CONCERN);
+        String scanPageSize = props.getProperty(PersistenceProperties.KUNDERA_SCAN_PAGE_SIZE);
+        this.scanPageSize = StringUtils.isEmpty(scanPageSize) ? MongoDBClient.DEFAULT_SCAN_PAGE_SIZE : Integer
+                .parseInt(scanPageSize);
 
         Mongo mongo = null;
         logger.info("Connecting to mongodb at " + contactNode + " on port " + defaultPort);
@@ -140,10 +150,37 @@ public class MongoDBClientFactory extends GenericClientFactory
         }
 
         DB mongoDB = mongo.getDB(keyspace);
+        if (!StringUtils.isEmpty(writeConcern))
+        {
+            mongoDB.setWriteConcern(getWriteConcern(writeConcern));
+        }
         return mongoDB;
 
     }
 
+    /**
+     * Gets write concern of given name, or requiring given number of servers
+     * to acknowledge writes.
+     * 
+     * @param writeConcern
+     *            write concern name (e.g. NORMAL, SAFE, FSYNC_SAFE) or number
+     * @return the write concern
+     */
+    private WriteConcern getWriteConcern(String writeConcern)
+    {
+        if (StringUtils.isNumeric(writeConcern))
+        {
+            return new WriteConcern(Integer.parseInt(writeConcern));
+        }
+
+        WriteConcern namedWriteConcern = WriteConcern.valueOf(writeConcern.toUpperCase());
+        if (namedWriteConcern == null)
+        {
+            throw new PersistenceException("Invalid write concern " + writeConcern + " for mongodb");
+        }
+        return namedWriteConcern;
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -215,14 +215,20 @@ public class MongoDBDataHandler
      */
     private void setColumnValue(DBObject document, Object entity, Column column)
     {
+        // Column may be left out of a query's projection
+        Object value = document.get(column.getName());
+        if (value == null)
+        {
+            return;
+        }
+
         if (column.getField().getType().isAssignableFrom(Map.class))
         {
-            PropertyAccessorHelper.set(entity, column.getField(),
-                    ((BasicDBObject) document.get(column.getName())).toMap());
+            PropertyAccessorHelper.set(entity, column.getField(), ((BasicDBObject) value).toMap());
         }
         else
         {
-            PropertyAccessorHelper.set(entity, column.getField(), document.get(column.getName()).toString());
+            PropertyAccessorHelper.set(entity, column.getField(), value.toString());
         }
     }
 
@@ -348,7 +354,7 @@ public class MongoDBDataHandler
         if (column.getField().getType().isAssignableFrom(List.class)
                 || column.getField().getType().isAssignableFrom(Set.class))
         {
-            Collection collection = (Collection) PropertyAccessorHelper.getObject(entity, column.getField());
+            Collection collection = (Collection) column.getAccessor().get(entity);
             BasicDBList basicDBList = new BasicDBList();
             for (Object o : collection)
             {
@@ -358,16 +364,16 @@ public class MongoDBDataHandler
         }
         else if (column.getField().getType().isAssignableFrom(Map.class))
         {
-            Map mapObj = (Map) PropertyAccessorHelper.getObject(entity, column.getField());
+            Map mapObj = (Map) column.getAccessor().get(entity);
             BasicDBObjectBuilder builder = BasicDBObjectBuilder.start(mapObj);
             dbObj.put(column.getName(), builder.get());
         }
         else
         {
             // TODO : this should have been handled by DocumentObjectMapper.
-            Object valObj = PropertyAccessorHelper.getObject(entity, column.getField());
+            Object valObj = column.getAccessor().get(entity);
             dbObj.put(column.getName(), valObj instanceof Calendar ? ((Calendar) valObj).getTime().toString()
-                    : PropertyAccessorHelper.getObject(entity, column.getField()).toString());
+                    : valObj.toString());
         }
     }
 
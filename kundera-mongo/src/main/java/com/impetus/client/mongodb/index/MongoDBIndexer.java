@@ -16,6 +16,7 @@
 package com.impetus.client.mongodb.index;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -99,6 +100,23 @@ public class MongoDBIndexer implements Indexer
 
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.index.Indexer#index(com.impetus.kundera.metadata.
+     * model.EntityMetadata, java.util.Collection)
+     */
+    @Override
+    public void index(EntityMetadata metadata, Collection<?> objects)
+    {
+        // Index is defined on collection, hence ensured once for whole batch
+        if (!objects.isEmpty())
+        {
+            index(metadata, objects.iterator().next());
+        }
+    }
+
     @Override
     public boolean entityExistsInIndex(Class<?> entityClass)
     {
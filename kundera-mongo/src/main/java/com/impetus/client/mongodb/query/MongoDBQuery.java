@@ -16,8 +16,13 @@
 package com.impetus.client.mongodb.query;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Queue;
+import java.util.StringTokenizer;
 import java.util.regex.Pattern;
 
 import javax.persistence.Query;
@@ -27,8 +32,10 @@ import org.apache.commons.logging.LogFactory;
 
 import com.impetus.client.mongodb.MongoDBClient;
 import com.impetus.client.mongodb.MongoEntityReader;
+import com.impetus.kundera.Constants;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.EnhanceEntity;
+import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.Column;
 import com.impetus.kundera.metadata.model.EmbeddedColumn;
 import com.impetus.kundera.metadata.model.EntityMetadata;
@@ -40,7 +47,10 @@ import com.impetus.kundera.query.KunderaQuery.SortOrder;
 import com.impetus.kundera.query.KunderaQuery.SortOrdering;
 import com.impetus.kundera.query.QueryHandlerException;
 import com.impetus.kundera.query.QueryImpl;
+import com.impetus.kundera.query.ResultAggregator;
+import com.impetus.kundera.query.ResultClause;
 import com.mongodb.BasicDBObject;
+import com.mongodb.DBObject;
 
 /**
  * Query class for MongoDB data store.
@@ -52,6 +62,12 @@ public class MongoDBQuery extends QueryImpl
     /** The log used by this class. */
     private static Log log = LogFactory.getLog(MongoDBQuery.class);
 
+    /** Number of documents skipped. */
+    private int firstResult;
+
+    /** Maximum number of documents read, as set by user. */
+    private int maxResults = Constants.INVALID;
+
     /**
      * Instantiates a new mongo db query.
      * 
@@ -89,9 +105,56 @@ public class MongoDBQuery extends QueryImpl
     @Override
     public Query setMaxResults(int maxResult)
     {
+        this.maxResults = maxResult;
         return super.setMaxResults(maxResult);
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.query.QueryImpl#setFirstResult(int)
+     */
+    @Override
+    public Query setFirstResult(int startPosition)
+    {
+        this.firstResult = startPosition;
+        return this;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.query.QueryImpl#getFirstResult()
+     */
+    @Override
+    public int getFirstResult()
+    {
+        return firstResult;
+    }
+
+    /**
+     * Lazily iterates over results of query. Queries selecting entities
+     * without relations populate them as documents are fetched from server a
+     * batch at a time. Other queries are run through {@link #getResultList()}.
+     * 
+     * @return the iterator
+     */
+    public Iterator<?> iterate()
+    {
+        EntityMetadata m = getEntityMetadata();
+        BasicDBObject keys = getKeys(m, null);
+        if (keys != null && !kunderaQuery.isDeleteUpdate() && !m.isRelationViaJoinTable()
+                && (m.getRelationNames() == null || m.getRelationNames().isEmpty()))
+        {
+            return ((MongoDBClient) persistenceDelegeator.getClient(m)).iterate(m,
+                    createMongoQuery(m, getKunderaQuery().getFilterClauseQueue()), keys, null, getOrderByClause(),
+                    firstResult, maxResults);
+        }
+
+        List<?> results = getResultList();
+        return results != null ? results.iterator() : Collections.emptyList().iterator();
+    }
+
     /*
      * (non-Javadoc)
      * 
@@ -107,7 +170,7 @@ public class MongoDBQuery extends QueryImpl
         {
             BasicDBObject orderByClause = getOrderByClause();
             return ((MongoDBClient) client).loadData(m, createMongoQuery(m, getKunderaQuery().getFilterClauseQueue()),
-                    getKunderaQuery().getResult(), null, orderByClause);
+                    getKunderaQuery().getResult(), getKeys(m, null), null, orderByClause, firstResult, maxResults);
         }
         catch (Exception e)
         {
@@ -128,7 +191,8 @@ public class MongoDBQuery extends QueryImpl
         {
             BasicDBObject orderByClause = getOrderByClause();
             ls = ((MongoDBClient) client).loadData(m, createMongoQuery(m, getKunderaQuery().getFilterClauseQueue()),
-                    getKunderaQuery().getResult(), m.getRelationNames(), orderByClause);
+                    getKunderaQuery().getResult(), getKeys(m, m.getRelationNames()), m.getRelationNames(),
+                    orderByClause, firstResult, maxResults);
         }
         catch (Exception e)
         {
@@ -248,6 +312,56 @@ public class MongoDBQuery extends QueryImpl
         return query;
     }
 
+    /**
+     * Builds projection of fields read by query: columns in select clause, or
+     * all columns and embedded documents of entity if whole entities are
+     * selected, along with given relations. Other fields of documents aren't
+     * sent by server.
+     * 
+     * @param m
+     *            the m
+     * @param relationNames
+     *            the relation names
+     * @return the projection, null if query selects embedded objects
+     */
+    private BasicDBObject getKeys(EntityMetadata m, List<String> relationNames)
+    {
+        BasicDBObject keys = new BasicDBObject();
+        if (kunderaQuery.isAliasOnly())
+        {
+            for (String columnName : m.getColumnFieldNames())
+            {
+                keys.put(columnName, 1);
+            }
+            for (EmbeddedColumn embeddedColumn : m.getEmbeddedColumnsAsList())
+            {
+                keys.put(embeddedColumn.getField().getName(), 1);
+            }
+        }
+        else
+        {
+            StringTokenizer tokenizer = new StringTokenizer(kunderaQuery.getResult(), ",");
+            while (tokenizer.hasMoreTokens())
+            {
+                String columnName = getColumnName(tokenizer.nextToken().trim());
+                if (m.getColumn(columnName) == null)
+                {
+                    return null;
+                }
+                keys.put(columnName, 1);
+            }
+        }
+
+        if (relationNames != null)
+        {
+            for (String relationName : relationNames)
+            {
+                keys.put(relationName, 1);
+            }
+        }
+        return keys;
+    }
+
     /**
      * Prepare order by clause.
      * 
@@ -263,7 +377,8 @@ public class MongoDBQuery extends QueryImpl
             orderByClause = new BasicDBObject();
             for (SortOrdering order : orders)
             {
-                orderByClause.append(order.getColumnName(), order.getColumnName().equals(SortOrder.ASC) ? 1 : -1);
+                orderByClause.append(getColumnName(order.getColumnName()), order.getOrder().equals(SortOrder.ASC) ? 1
+                        : -1);
             }
         }
 
@@ -312,10 +427,194 @@ public class MongoDBQuery extends QueryImpl
     {
         if (kunderaQuery.isDeleteUpdate())
         {
-            List result = getResultList();
-            return result != null ? result.size() : 0;
+            return executeDeleteOrUpdate();
         }
 
         return 0;
     }
+
+    /**
+     * Runs query as a single update setting changed fields, or a single
+     * remove, of all matching documents. Ids of matching documents are read
+     * first if entity is indexed in Lucene, for index to be brought in line.
+     * 
+     * @param m
+     *            the m
+     * @param client
+     *            the client
+     * @return number of documents updated or removed
+     */
+    @Override
+    protected int onBulkDeleteOrUpdate(EntityMetadata m, Client client)
+    {
+        MongoDBClient mongoClient = (MongoDBClient) client;
+        BasicDBObject mongoQuery = createMongoQuery(m, getKunderaQuery().getFilterClauseQueue());
+        List<String> ids = MetadataUtils.useSecondryIndex(m.getPersistenceUnit()) ? null : mongoClient.findIds(m,
+                mongoQuery);
+
+        int count;
+        if (kunderaQuery.isUpdateClause())
+        {
+            BasicDBObject fields = new BasicDBObject();
+            for (Map.Entry<Column, Object> value : getUpdatedValues(m).entrySet())
+            {
+                fields.put(value.getKey().getName(), value.getValue());
+            }
+            count = mongoClient.update(m, mongoQuery, fields);
+        }
+        else
+        {
+            count = mongoClient.remove(m, mongoQuery);
+        }
+
+        if (ids != null)
+        {
+            onBulkIndexUpdate(m, client, ids);
+        }
+        return count;
+    }
+
+    /**
+     * Pushes aggregate query down to MongoDB. COUNT of entities is a count of
+     * matching documents, other aggregates are computed by a group command,
+     * whose reduce function accumulates running values of each group on
+     * server. Group command returns all groups in a single reply, so it suits
+     * queries with a moderate number of groups.
+     * 
+     * @param m
+     *            the m
+     * @param client
+     *            the client
+     * @return the results
+     */
+    @Override
+    protected List<Object> onAggregate(EntityMetadata m, Client client)
+    {
+        MongoDBClient mongoClient = (MongoDBClient) client;
+        BasicDBObject mongoQuery = createMongoQuery(m, getKunderaQuery().getFilterClauseQueue());
+        List<ResultClause> resultClauses = kunderaQuery.getResultClauses();
+        List<Object> results = new ArrayList<Object>();
+        if (isEntityCountOnly())
+        {
+            Object[] values = new Object[resultClauses.size()];
+            Arrays.fill(values, Long.valueOf(mongoClient.count(m, mongoQuery)));
+            results.add(ResultAggregator.toResult(resultClauses, values));
+            return results;
+        }
+
+        BasicDBObject keys = new BasicDBObject();
+        for (Column column : kunderaQuery.getGroupingColumns())
+        {
+            keys.put(getFieldName(m, column), true);
+        }
+        BasicDBObject initial = new BasicDBObject();
+        StringBuilder reduce = new StringBuilder("function(obj, prev) {");
+        for (int i = 0; i < resultClauses.size(); i++)
+        {
+            if (resultClauses.get(i).isAggregate())
+            {
+                appendReduce(m, resultClauses.get(i), i, initial, reduce);
+            }
+        }
+        reduce.append("}");
+
+        for (DBObject group : mongoClient.group(m, keys, mongoQuery, initial, reduce.toString()))
+        {
+            Object[] values = new Object[resultClauses.size()];
+            for (int i = 0; i < values.length; i++)
+            {
+                ResultClause clause = resultClauses.get(i);
+                if (!clause.isAggregate())
+                {
+                    values[i] = group.get(getFieldName(m, clause.getColumn()));
+                }
+                else if (ResultClause.AVG.equals(clause.getFunction()))
+                {
+                    Number count = (Number) group.get("n" + i);
+                    values[i] = count.longValue() > 0 ? Double.valueOf(((Number) group.get("a" + i)).doubleValue()
+                            / count.doubleValue()) : null;
+                }
+                else
+                {
+                    values[i] = group.get("a" + i);
+                }
+            }
+            results.add(ResultAggregator.toResult(resultClauses, values));
+        }
+
+        // Query without GROUP BY has a result even if no document matched
+        return !results.isEmpty() ? results : newResultAggregator().getResults();
+    }
+
+    /**
+     * Appends statements accumulating an aggregate function to reduce function
+     * of a group command, and its initial values to initial document. Running
+     * value of i-th selected expression is held in field "a" + i of a group,
+     * along with number of values in field "n" + i for AVG. Null values are
+     * skipped.
+     * 
+     * @param m
+     *            the m
+     * @param clause
+     *            the aggregate function
+     * @param i
+     *            position of function in select clause
+     * @param initial
+     *            the initial document
+     * @param reduce
+     *            the reduce function
+     */
+    private void appendReduce(EntityMetadata m, ResultClause clause, int i, BasicDBObject initial,
+            StringBuilder reduce)
+    {
+        String result = "prev.a" + i;
+        String value = clause.getColumn() != null ? "obj['" + getFieldName(m, clause.getColumn()) + "']" : null;
+        String function = clause.getFunction();
+        if (clause.isEntityCount())
+        {
+            initial.put("a" + i, 0);
+            reduce.append(result).append(" += 1;");
+        }
+        else if (ResultClause.COUNT.equals(function))
+        {
+            initial.put("a" + i, 0);
+            reduce.append("if (").append(value).append(" != null) ").append(result).append(" += 1;");
+        }
+        else if (ResultClause.SUM.equals(function))
+        {
+            initial.put("a" + i, null);
+            reduce.append("if (").append(value).append(" != null) ").append(result).append(" = ").append(result)
+                    .append(" == null ? ").append(value).append(" : ").append(result).append(" + ").append(value)
+                    .append(";");
+        }
+        else if (ResultClause.AVG.equals(function))
+        {
+            initial.put("a" + i, 0);
+            initial.put("n" + i, 0);
+            reduce.append("if (").append(value).append(" != null) {").append(result).append(" += ").append(value)
+                    .append("; prev.n").append(i).append(" += 1;}");
+        }
+        else
+        {
+            String operator = ResultClause.MIN.equals(function) ? " < " : " > ";
+            initial.put("a" + i, null);
+            reduce.append("if (").append(value).append(" != null && (").append(result).append(" == null || ")
+                    .append(value).append(operator).append(result).append(")) ").append(result).append(" = ")
+                    .append(value).append(";");
+        }
+    }
+
+    /**
+     * Gets name of document field holding a column, "_id" for id column.
+     * 
+     * @param m
+     *            the m
+     * @param column
+     *            the column
+     * @return the field name
+     */
+    private String getFieldName(EntityMetadata m, Column column)
+    {
+        return column == m.getIdColumn() ? "_id" : column.getName();
+    }
 }
@@ -0,0 +1,225 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.mongodb.query;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.mongodb.entities.PersonMongo;
+import com.impetus.client.mongodb.entities.PersonMongoLucene;
+import com.impetus.kundera.index.LuceneIndexer;
+import com.impetus.kundera.index.LuceneQueryBuilder;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.mongodb.Mongo;
+
+/**
+ * Test case for JPQL UPDATE and DELETE queries run in MongoDB, on documents
+ * matched by MongoDB itself or looked up in Lucene. Requires MongoDB running
+ * at localhost:27017.
+ * 
+ * @author agent
+ */
+public class BulkUpdateDeleteTest
+{
+
+    /** The Lucene indexed persistence unit. */
+    private static final String LUCENE_PERSISTENCE_UNIT = "mongoLuceneTest";
+
+    /** States of indexed persons persisted, in order of their ids. */
+    private static final String[] STATES = { "UP", "UP", "UK", "MP" };
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /** The emf of Lucene indexed persistence unit. */
+    private EntityManagerFactory luceneEmf;
+
+    /**
+     * Persists persons aged 10, 20, 30 and 40, and an indexed person per
+     * state.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        emf = Persistence.createEntityManagerFactory("mongoTest");
+        EntityManager em = emf.createEntityManager();
+        for (int i = 1; i <= STATES.length; i++)
+        {
+            PersonMongo person = new PersonMongo();
+            person.setPersonId(String.valueOf(i));
+            person.setPersonName("name" + i);
+            person.setAge(i * 10);
+            em.persist(person);
+        }
+        em.close();
+
+        luceneEmf = Persistence.createEntityManagerFactory(LUCENE_PERSISTENCE_UNIT);
+        em = luceneEmf.createEntityManager();
+        for (int i = 0; i < STATES.length; i++)
+        {
+            PersonMongoLucene person = new PersonMongoLucene();
+            person.setPersonId(String.valueOf(i + 1));
+            person.setPersonName("name" + (i + 1));
+            person.setState(STATES[i]);
+            em.persist(person);
+        }
+        em.close();
+    }
+
+    /**
+     * Matching documents are updated in place.
+     */
+    @Test
+    public void testUpdate()
+    {
+        EntityManager em = emf.createEntityManager();
+        int count = em.createQuery("Update PersonMongo p SET p.age=99 where p.personName = name2").executeUpdate();
+        em.close();
+        Assert.assertEquals(1, count);
+
+        em = emf.createEntityManager();
+        Assert.assertEquals(Integer.valueOf(99), em.find(PersonMongo.class, "2").getAge());
+        Assert.assertEquals("name2", em.find(PersonMongo.class, "2").getPersonName());
+        Assert.assertEquals(Integer.valueOf(10), em.find(PersonMongo.class, "1").getAge());
+        em.close();
+    }
+
+    /**
+     * Matching documents are removed.
+     */
+    @Test
+    public void testDelete()
+    {
+        EntityManager em = emf.createEntityManager();
+        int count = em.createQuery("Delete from PersonMongo p where p.personName = name2").executeUpdate();
+        em.close();
+        Assert.assertEquals(1, count);
+
+        em = emf.createEntityManager();
+        Assert.assertNull(em.find(PersonMongo.class, "2"));
+        Assert.assertNotNull(em.find(PersonMongo.class, "1"));
+        em.close();
+    }
+
+    /**
+     * Documents looked up in Lucene are updated, and so are their index
+     * entries.
+     */
+    @Test
+    public void testUpdateIndexed()
+    {
+        EntityManager em = luceneEmf.createEntityManager();
+        int count = em.createQuery("Update PersonMongoLucene p SET p.state=DELHI where p.state = UP").executeUpdate();
+        em.close();
+        Assert.assertEquals(2, count);
+
+        em = luceneEmf.createEntityManager();
+        Assert.assertEquals("DELHI", em.find(PersonMongoLucene.class, "1").getState());
+        Assert.assertEquals("DELHI", em.find(PersonMongoLucene.class, "2").getState());
+        Assert.assertEquals("UK", em.find(PersonMongoLucene.class, "3").getState());
+        Assert.assertEquals("name1", em.find(PersonMongoLucene.class, "1").getPersonName());
+        em.close();
+
+        Assert.assertEquals(0, countIndexed("UP"));
+        Assert.assertEquals(2, countIndexed("DELHI"));
+    }
+
+    /**
+     * Documents looked up in Lucene are removed, and so are their index
+     * entries.
+     */
+    @Test
+    public void testDeleteIndexed()
+    {
+        EntityManager em = luceneEmf.createEntityManager();
+        int count = em.createQuery("Delete from PersonMongoLucene p where p.state = UP").executeUpdate();
+        em.close();
+        Assert.assertEquals(2, count);
+
+        em = luceneEmf.createEntityManager();
+        Assert.assertNull(em.find(PersonMongoLucene.class, "1"));
+        Assert.assertNull(em.find(PersonMongoLucene.class, "2"));
+        Assert.assertNotNull(em.find(PersonMongoLucene.class, "3"));
+        Assert.assertNotNull(em.find(PersonMongoLucene.class, "4"));
+        em.close();
+
+        Assert.assertEquals(0, countIndexed("UP"));
+        Assert.assertEquals(1, countIndexed("UK"));
+    }
+
+    /**
+     * Counts indexed persons with given state.
+     * 
+     * @param state
+     *            the state
+     * @return number of index entries
+     */
+    private int countIndexed(String state)
+    {
+        LuceneIndexer indexer = LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34),
+                KunderaMetadata.INSTANCE.getClientMetadata(LUCENE_PERSISTENCE_UNIT));
+        try
+        {
+            return indexer.count(new LuceneQueryBuilder().appendClause("PersonMongoLucene.state", "=", state).build(
+                    PersonMongoLucene.class));
+        }
+        finally
+        {
+            indexer.close();
+        }
+    }
+
+    /**
+     * Removes indexed persons left, along with their index entries, and drops
+     * collections.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        EntityManager em = luceneEmf.createEntityManager();
+        for (int i = 1; i <= STATES.length; i++)
+        {
+            PersonMongoLucene person = em.find(PersonMongoLucene.class, String.valueOf(i));
+            if (person != null)
+            {
+                em.remove(person);
+            }
+        }
+        em.close();
+        luceneEmf.close();
+        emf.close();
+
+        Mongo mongo = new Mongo("localhost", 27017);
+        mongo.getDB("KunderaExamples").getCollection("PERSON").drop();
+        mongo.getDB("KunderaExamples").getCollection("PERSON_LUCENE").drop();
+        mongo.close();
+    }
+}
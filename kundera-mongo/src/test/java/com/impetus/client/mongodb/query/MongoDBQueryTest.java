@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.mongodb.query;
+
+import java.util.Iterator;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+import javax.persistence.Query;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.client.mongodb.entities.PersonMongo;
+import com.mongodb.Mongo;
+
+/**
+ * Test case for skip, limit and field projection of {@link MongoDBQuery}.
+ * Requires MongoDB running at localhost:27017.
+ * 
+ * @author agent
+ */
+public class MongoDBQueryTest
+{
+
+    /** Number of persons persisted, more than cursor batch size. */
+    private static final int PERSONS = 5;
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /**
+     * Persists persons aged 10, 20, ... 50.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        emf = Persistence.createEntityManagerFactory("mongoTest");
+        EntityManager em = emf.createEntityManager();
+        for (int i = 1; i <= PERSONS; i++)
+        {
+            PersonMongo person = new PersonMongo();
+            person.setPersonId(String.valueOf(i));
+            person.setPersonName("name" + i);
+            person.setAge(i * 10);
+            em.persist(person);
+        }
+        em.close();
+    }
+
+    /**
+     * First result and max results page through ordered results.
+     */
+    @Test
+    public void testSkipAndLimit()
+    {
+        EntityManager em = emf.createEntityManager();
+        Query query = em.createQuery("Select p from PersonMongo p ORDER BY p.age ASC");
+        query.setFirstResult(1);
+        query.setMaxResults(2);
+        List<PersonMongo> persons = query.getResultList();
+        Assert.assertEquals(2, persons.size());
+        Assert.assertEquals("name2", persons.get(0).getPersonName());
+        Assert.assertEquals(Integer.valueOf(30), persons.get(1).getAge());
+
+        query = em.createQuery("Select p from PersonMongo p ORDER BY p.age DESC");
+        query.setFirstResult(3);
+        query.setMaxResults(10);
+        persons = query.getResultList();
+        Assert.assertEquals(2, persons.size());
+        Assert.assertEquals("name2", persons.get(0).getPersonName());
+        Assert.assertEquals("name1", persons.get(1).getPersonName());
+        em.close();
+    }
+
+    /**
+     * Only selected columns are read.
+     */
+    @Test
+    public void testProjection()
+    {
+        EntityManager em = emf.createEntityManager();
+        Query query = em.createQuery("Select p.personName from PersonMongo p");
+        List<PersonMongo> persons = query.getResultList();
+        Assert.assertEquals(PERSONS, persons.size());
+        for (PersonMongo person : persons)
+        {
+            Assert.assertNotNull(person.getPersonName());
+            Assert.assertNull(person.getAge());
+        }
+
+        // Whole entities are read otherwise
+        persons = em.createQuery("Select p from PersonMongo p").getResultList();
+        Assert.assertEquals(PERSONS, persons.size());
+        for (PersonMongo person : persons)
+        {
+            Assert.assertNotNull(person.getAge());
+        }
+        em.close();
+    }
+
+    /**
+     * Iteration goes over more than one cursor batch and stops at max results.
+     */
+    @Test
+    public void testIterate()
+    {
+        EntityManager em = emf.createEntityManager();
+        MongoDBQuery query = (MongoDBQuery) em.createQuery("Select p from PersonMongo p ORDER BY p.age ASC");
+        query.setMaxResults(4);
+        Iterator<?> persons = query.iterate();
+        for (int i = 1; i <= 4; i++)
+        {
+            Assert.assertTrue(persons.hasNext());
+            Assert.assertEquals("name" + i, ((PersonMongo) persons.next()).getPersonName());
+        }
+        Assert.assertFalse(persons.hasNext());
+        em.close();
+    }
+
+    /**
+     * Tear down.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        emf.close();
+        Mongo mongo = new Mongo("localhost", 27017);
+        mongo.getDB("KunderaExamples").getCollection("PERSON").drop();
+        mongo.close();
+    }
+}
@@ -17,8 +17,15 @@ package com.impetus.client.rdbms;
 
 import java.io.Serializable;
 import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -34,10 +41,14 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
-import org.hibernate.cfg.Configuration;
 import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.SessionImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.type.Type;
 
 import com.impetus.client.rdbms.query.RDBMSQuery;
+import com.impetus.kundera.KunderaException;
+import com.impetus.kundera.client.Batcher;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.ClientBase;
 import com.impetus.kundera.db.RelationHolder;
@@ -46,32 +57,38 @@ import com.impetus.kundera.graph.ObjectGraphBuilder;
 import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.metadata.KunderaMetadataManager;
 import com.impetus.kundera.metadata.MetadataUtils;
+import com.impetus.kundera.metadata.model.Column;
 import com.impetus.kundera.metadata.model.EntityMetadata;
-import com.impetus.kundera.metadata.model.KunderaMetadata;
-import com.impetus.kundera.metadata.model.MetamodelImpl;
 import com.impetus.kundera.persistence.EntityReader;
 import com.impetus.kundera.persistence.context.jointable.JoinTableData;
 import com.impetus.kundera.property.PropertyAccessException;
 import com.impetus.kundera.property.PropertyAccessor;
 import com.impetus.kundera.property.PropertyAccessorFactory;
+import com.impetus.kundera.property.PropertyAccessorHelper;
 
 /**
  * The Class HibernateClient.
  * 
  * @author vivek.mishra
  */
-public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
+public class HibernateClient extends ClientBase implements Client<RDBMSQuery>, Batcher
 {
 
     /** The persistence unit. */
     private String persistenceUnit;
 
-    /** The conf. */
-    private Configuration conf;
-
-    /** The sf. */
+    /** The sf, shared by all clients of persistence unit. */
     private SessionFactory sf;
 
+    /** Number of statements sent to database in one JDBC batch. */
+    private int batchSize;
+
+    /** Nodes of current batch keyed by id, per entity metadata. */
+    private Map<EntityMetadata, Map<String, Node>> batchNodes = new LinkedHashMap<EntityMetadata, Map<String, Node>>();
+
+    /** Foreign keys of each node of current batch. */
+    private Map<Node, List<RelationHolder>> batchRelations = new HashMap<Node, List<RelationHolder>>();
+
     /** The index manager. */
     private IndexManager indexManager;
 
@@ -93,20 +110,16 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
      *            the index manager
      * @param reader
      *            the reader
+     * @param sf
+     *            the session factory of persistence unit
+     * @param batchSize
+     *            number of statements sent to database in one JDBC batch
      */
-    public HibernateClient(final String persistenceUnit, IndexManager indexManager, EntityReader reader)
+    public HibernateClient(final String persistenceUnit, IndexManager indexManager, EntityReader reader,
+            SessionFactory sf, int batchSize)
     {
-        conf = new Configuration().addProperties(HibernateUtils.getProperties(persistenceUnit));
-        Collection<Class<?>> classes = ((MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
-                persistenceUnit)).getEntityNameToClassMap().values();
-        // to keep hibernate happy! As in our case all scanned classes are not
-        // meant for rdbms, so initally i have set depth to zero!
-        conf.setProperty("hibernate.max_fetch_depth", "0");
-        for (Class<?> c : classes)
-        {
-            conf.addAnnotatedClass(c);
-        }
-        sf = conf.buildSessionFactory();
+        this.sf = sf;
+        this.batchSize = batchSize > 0 ? batchSize : RDBMSClientFactory.DEFAULT_JDBC_BATCH_SIZE;
 
         // TODO . once we clear this persistenceUnit stuff we need to simply
         // modify this to have a properties or even pass an EMF!
@@ -148,9 +161,12 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
     public void close()
     {
         this.indexManager.flush();
-        if (sf != null && !sf.isClosed())
+
+        // Session factory is shared, it's closed along with client factory
+        if (s != null)
         {
-            sf.close();
+            s.close();
+            s = null;
         }
     }
 
@@ -267,53 +283,288 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
 
     @Override
     public void persist(Node node)
+    {
+        addBatch(node);
+        executeBatch();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.client.Batcher#addBatch(com.impetus.kundera.graph
+     * .Node)
+     */
+    @Override
+    public void addBatch(Node node)
     {
         EntityMetadata metadata = KunderaMetadataManager.getEntityMetadata(node.getDataClass());
-        String id = ObjectGraphBuilder.getEntityId(node.getNodeId());
 
-        Transaction tx = null;
+        Map<String, Node> nodes = batchNodes.get(metadata);
+        if (nodes == null)
+        {
+            nodes = new LinkedHashMap<String, Node>();
+            batchNodes.put(metadata, nodes);
+        }
+        nodes.put(ObjectGraphBuilder.getEntityId(node.getNodeId()), node);
+        batchRelations.put(node, getRelationHolders(node));
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#executeBatch()
+     */
+    @Override
+    public int executeBatch()
+    {
+        int size = batchRelations.size();
+        if (size == 0)
+        {
+            return 0;
+        }
+
+        // Whole batch is written in one transaction, rows of a table (along
+        // with their foreign keys) by batched INSERT/UPDATE statements
+        StatelessSession session = sf.openStatelessSession();
+        Transaction tx = session.beginTransaction();
         try
         {
-            s = getStatelessSession();
-            tx = s.beginTransaction();
-            s.insert(node.getData());
+            Connection connection = session.connection();
+            for (EntityMetadata metadata : batchNodes.keySet())
+            {
+                Map<String, Node> nodes = batchNodes.get(metadata);
+                log.debug("Persisting " + nodes.size() + " rows into " + metadata.getTableName());
+
+                if (!metadata.getEmbeddedColumnsAsList().isEmpty())
+                {
+                    // Columns of embedded objects are mapped by Hibernate only
+                    for (Node node : nodes.values())
+                    {
+                        writeByHibernate(session, connection, metadata, node);
+                    }
+                }
+                else
+                {
+                    writeRows(session, connection, metadata, nodes);
+                }
+            }
             tx.commit();
         }
-        // TODO: Bad code, get rid of these exceptions, currently necessary for
-        // handling many to one case
-        catch (org.hibernate.exception.ConstraintViolationException e)
+        catch (Exception e)
         {
-            log.info(e.getMessage());
-            s.update(node.getData());
-            tx.commit();
+            // Failed batch is dropped, so that it isn't sent again along with
+            // next one
+            clear();
+            tx.rollback();
+            throw new KunderaException("Error while persisting batch of " + size + " entities", e);
         }
-        catch (HibernateException e)
+        finally
         {
-            log.info(e.getMessage());
+            session.close();
         }
 
-        // Update foreign Keys
-        List<RelationHolder> relationHolders = getRelationHolders(node);
-        for (RelationHolder rh : relationHolders)
+        // Index Entities
+        if (!MetadataUtils.useSecondryIndex(getPersistenceUnit()))
+        {
+            for (Map<String, Node> nodes : batchNodes.values())
+            {
+                indexNodes(new ArrayList<Node>(nodes.values()), getIndexManager());
+            }
+        }
+        clear();
+        return size;
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#getBatchSize()
+     */
+    @Override
+    public int getBatchSize()
+    {
+        return batchRelations.size();
+    }
+
+    /*
+     * (non-Javadoc)
+     * 
+     * @see com.impetus.kundera.client.Batcher#clear()
+     */
+    @Override
+    public void clear()
+    {
+        batchNodes.clear();
+        batchRelations.clear();
+    }
+
+    /**
+     * Writes rows of given nodes into entity's table, foreign keys included.
+     * Rows not in table yet are inserted, others are updated, each by a
+     * parameterized statement sent in JDBC batches. Values are bound by
+     * Hibernate types of their properties, so that they are written as
+     * Hibernate would write them (enum ordinals, temporal and LOB types).
+     * 
+     * @param session
+     *            the session
+     * @param connection
+     *            the connection
+     * @param metadata
+     *            the metadata
+     * @param nodes
+     *            nodes keyed by id
+     * @throws SQLException
+     *             the SQL exception
+     */
+    private void writeRows(StatelessSession session, Connection connection, EntityMetadata metadata,
+            Map<String, Node> nodes) throws SQLException
+    {
+        Set<String> existingIds = findExistingIds(session, connection, metadata, nodes);
+        ClassMetadata classMetadata = sf.getClassMetadata(metadata.getEntityClazz());
+
+        // Nodes may differ in foreign keys they hold, so there is a statement
+        // per distinct column list
+        Map<String, PreparedStatement> statements = new LinkedHashMap<String, PreparedStatement>();
+        Map<String, Integer> pending = new HashMap<String, Integer>();
+        try
         {
-            String linkName = rh.getRelationName();
-            String linkValue = rh.getRelationValue();
-            if (linkName != null && linkValue != null)
+            for (String id : nodes.keySet())
             {
+                Node node = nodes.get(id);
+                Object entity = node.getData();
+
+                List<String> columnNames = new ArrayList<String>();
+                List<Object> values = new ArrayList<Object>();
+                List<Type> types = new ArrayList<Type>();
+                for (Column column : metadata.getColumnsAsList())
+                {
+                    columnNames.add(column.getName());
+                    values.add(PropertyAccessorHelper.getObject(entity, column.getField()));
+                    types.add(classMetadata.getPropertyType(column.getField().getName()));
+                }
+                for (RelationHolder rh : batchRelations.get(node))
+                {
+                    if (rh.getRelationName() != null && rh.getRelationValue() != null
+                            && !columnNames.contains(rh.getRelationName()))
+                    {
+                        columnNames.add(rh.getRelationName());
+                        values.add(rh.getRelationValue());
+                        types.add(getType(rh.getRelationValue()));
+                    }
+                }
 
-                s = getStatelessSession();
-                tx = s.beginTransaction();
-                String updateSql = "Update " + metadata.getTableName() + " SET " + linkName + "= '" + linkValue
-                        + "' WHERE " + metadata.getIdColumn().getName() + " = '" + id + "'";
-                s.createSQLQuery(updateSql).executeUpdate();
-                tx.commit();
+                // Id is the last parameter of both statements
+                String idColumnName = metadata.getIdColumn().getName();
+                values.add(PropertyAccessorHelper.getObject(entity, metadata.getIdColumn().getField()));
+                types.add(classMetadata.getIdentifierType());
+                String sql = existingIds.contains(id) ? getUpdateSql(metadata.getTableName(), columnNames,
+                        idColumnName) : getInsertSql(metadata.getTableName(), columnNames, idColumnName);
+                if (sql == null)
+                {
+                    // Row is already there and has nothing but id
+                    continue;
+                }
+
+                PreparedStatement statement = statements.get(sql);
+                if (statement == null)
+                {
+                    statement = connection.prepareStatement(sql);
+                    statements.put(sql, statement);
+                    pending.put(sql, 0);
+                }
+                for (int i = 0; i < values.size(); i++)
+                {
+                    types.get(i).nullSafeSet(statement, values.get(i), i + 1, (SessionImplementor) session);
+                }
+                statement.addBatch();
+
+                int count = pending.get(sql) + 1;
+                if (count >= batchSize)
+                {
+                    statement.executeBatch();
+                    count = 0;
+                }
+                pending.put(sql, count);
+            }
+
+            for (String sql : statements.keySet())
+            {
+                if (pending.get(sql) > 0)
+                {
+                    statements.get(sql).executeBatch();
+                }
+            }
+        }
+        finally
+        {
+            for (PreparedStatement statement : statements.values())
+            {
+                statement.close();
             }
         }
+    }
 
-        // Index Entity
-        if (!MetadataUtils.useSecondryIndex(getPersistenceUnit()))
+    /**
+     * Writes given node through Hibernate, updating its row if already there,
+     * and then sets its foreign keys in the same transaction.
+     * 
+     * @param session
+     *            the session
+     * @param connection
+     *            connection of session
+     * @param metadata
+     *            the metadata
+     * @param node
+     *            the node
+     * @throws SQLException
+     *             the SQL exception
+     */
+    private void writeByHibernate(StatelessSession session, Connection connection, EntityMetadata metadata,
+            Node node) throws SQLException
+    {
+        Object entity = node.getData();
+        Set<String> existingIds = findExistingIds(session, connection, metadata,
+                Collections.singletonMap(ObjectGraphBuilder.getEntityId(node.getNodeId()), node));
+        if (existingIds.isEmpty())
         {
-            indexNode(node, metadata, getIndexManager());
+            session.insert(entity);
+        }
+        else
+        {
+            session.update(entity);
+        }
+
+        List<String> columnNames = new ArrayList<String>();
+        List<Object> values = new ArrayList<Object>();
+        List<Type> types = new ArrayList<Type>();
+        for (RelationHolder rh : batchRelations.get(node))
+        {
+            if (rh.getRelationName() != null && rh.getRelationValue() != null)
+            {
+                columnNames.add(rh.getRelationName());
+                values.add(rh.getRelationValue());
+                types.add(getType(rh.getRelationValue()));
+            }
+        }
+        if (!columnNames.isEmpty())
+        {
+            values.add(PropertyAccessorHelper.getObject(entity, metadata.getIdColumn().getField()));
+            types.add(sf.getClassMetadata(metadata.getEntityClazz()).getIdentifierType());
+            PreparedStatement statement = connection.prepareStatement(getUpdateSql(metadata.getTableName(),
+                    columnNames, metadata.getIdColumn().getName()));
+            try
+            {
+                for (int i = 0; i < values.size(); i++)
+                {
+                    types.get(i).nullSafeSet(statement, values.get(i), i + 1, (SessionImplementor) session);
+                }
+                statement.executeUpdate();
+            }
+            finally
+            {
+                statement.close();
+            }
         }
     }
 
@@ -329,10 +580,26 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
 
         Map<Object, Set<Object>> joinTableRecords = joinTableData.getJoinTableRecords();
 
-        for (Object key : joinTableRecords.keySet())
+        StatelessSession session = sf.openStatelessSession();
+        Transaction tx = session.beginTransaction();
+        try
+        {
+            Connection connection = session.connection();
+            for (Object key : joinTableRecords.keySet())
+            {
+                Set<Object> values = joinTableRecords.get(key);
+                insertRecordInJoinTable(connection, joinTableName, joinColumnName, invJoinColumnName, key, values);
+            }
+            tx.commit();
+        }
+        catch (SQLException e)
         {
-            Set<Object> values = joinTableRecords.get(key);
-            insertRecordInJoinTable(joinTableName, joinColumnName, invJoinColumnName, key, values);
+            tx.rollback();
+            throw new KunderaException("Error while inserting records into join table " + joinTableName, e);
+        }
+        finally
+        {
+            session.close();
         }
     }
 
@@ -414,61 +681,125 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
     }
 
     /**
-     * Insert record in join table.
+     * Executes native SQL DELETE or UPDATE statement.
      * 
+     * @param nativeQuery
+     *            the native query
+     * @param parameters
+     *            values of query's positional parameters
+     * @return number of rows deleted or updated
+     */
+    public int executeUpdate(String nativeQuery, List<Object> parameters)
+    {
+        s = getStatelessSession();
+        Transaction tx = s.beginTransaction();
+        try
+        {
+            SQLQuery q = s.createSQLQuery(nativeQuery);
+            for (int i = 0; i < parameters.size(); i++)
+            {
+                q.setParameter(i, parameters.get(i));
+            }
+            int count = q.executeUpdate();
+            tx.commit();
+            return count;
+        }
+        catch (HibernateException e)
+        {
+            tx.rollback();
+            throw new KunderaException("Error while executing " + nativeQuery, e);
+        }
+    }
+
+    /**
+     * Runs native SQL SELECT statement returning scalar values.
+     * 
+     * @param nativeQuery
+     *            the native query
+     * @param parameters
+     *            values of query's positional parameters
+     * @return the rows, each a scalar if statement selects one column and an
+     *         Object[] otherwise
+     */
+    public List findScalars(String nativeQuery, List<Object> parameters)
+    {
+        s = getStatelessSession();
+        SQLQuery q = s.createSQLQuery(nativeQuery);
+        for (int i = 0; i < parameters.size(); i++)
+        {
+            q.setParameter(i, parameters.get(i));
+        }
+        return q.list();
+    }
+
+    /**
+     * Insert record in join table. Children already linked to parent are
+     * looked up by one query, rows for the others are inserted in JDBC
+     * batches.
+     * 
+     * @param connection
+     *            the connection
      * @param joinTableName
      *            the join table name
      * @param joinColumnName
      *            the join column name
      * @param inverseJoinColumnName
      *            the inverse join column name
-     * @param relMetadata
-     *            the rel metadata
      * @param parentId
      *            the parent id
-     * @param child
-     *            the child
+     * @param childrenIds
+     *            the children ids
+     * @throws SQLException
+     *             the SQL exception
      */
-    private void insertRecordInJoinTable(String joinTableName, String joinColumnName, String inverseJoinColumnName,
-            Object parentId, Set<Object> childrenIds)
+    private void insertRecordInJoinTable(Connection connection, String joinTableName, String joinColumnName,
+            String inverseJoinColumnName, Object parentId, Set<Object> childrenIds) throws SQLException
     {
-
-        s = getStatelessSession();
-        Transaction tx = s.beginTransaction();
-        for (Object childId : childrenIds)
+        Set<String> existingChildrenIds = new HashSet<String>();
+        PreparedStatement select = connection.prepareStatement("SELECT " + inverseJoinColumnName + " FROM "
+                + joinTableName + " WHERE " + joinColumnName + " = ?");
+        try
         {
-            StringBuffer query = new StringBuffer();
-
-            // write an update query
-            Object[] existingRowIds = findIdsByColumn(joinTableName, joinColumnName, inverseJoinColumnName,
-                    (String) childId, null);
+            select.setObject(1, parentId);
+            ResultSet rs = select.executeQuery();
+            while (rs.next())
+            {
+                existingChildrenIds.add(rs.getString(1));
+            }
+            rs.close();
+        }
+        finally
+        {
+            select.close();
+        }
 
-            boolean joinTableRecordsExists = false;
-            if (existingRowIds != null && existingRowIds.length > 0)
+        PreparedStatement insert = connection.prepareStatement("INSERT INTO " + joinTableName + "("
+                + joinColumnName + "," + inverseJoinColumnName + ") VALUES(?,?)");
+        try
+        {
+            int count = 0;
+            for (Object childId : childrenIds)
             {
-                for (Object o : existingRowIds)
+                if (!existingChildrenIds.contains(childId.toString()))
                 {
-                    if (o.toString().equals(parentId.toString()))
+                    insert.setObject(1, parentId);
+                    insert.setObject(2, childId);
+                    insert.addBatch();
+                    if (++count % batchSize == 0)
                     {
-                        joinTableRecordsExists = true;
-                        break;
+                        insert.executeBatch();
                     }
                 }
-
             }
-
-            if (!joinTableRecordsExists)
+            if (count % batchSize != 0)
             {
-
-                query.append("INSERT INTO ").append(joinTableName).append("(").append(joinColumnName).append(",")
-                        .append(inverseJoinColumnName).append(")").append(" VALUES('").append(parentId).append("','")
-                        .append(childId).append("')");
-
-                s.createSQLQuery(query.toString()).executeUpdate();
+                insert.executeBatch();
             }
-
         }
-        tx.commit();
+        finally
+        {
+            insert.close();
+        }
     }
 
     /**
@@ -573,6 +904,129 @@ public class HibernateClient extends ClientBase implements Client<RDBMSQuery>
         return RDBMSQuery.class;
     }
 
+    /**
+     * Finds which of given ids have a row in entity's table, by one query per
+     * batch of ids.
+     * 
+     * @param session
+     *            the session
+     * @param connection
+     *            the connection
+     * @param metadata
+     *            the metadata
+     * @param nodes
+     *            nodes keyed by id
+     * @return the ids found
+     * @throws SQLException
+     *             the SQL exception
+     */
+    private Set<String> findExistingIds(StatelessSession session, Connection connection, EntityMetadata metadata,
+            Map<String, Node> nodes) throws SQLException
+    {
+        Set<String> existingIds = new HashSet<String>();
+        Field idField = metadata.getIdColumn().getField();
+        Type idType = sf.getClassMetadata(metadata.getEntityClazz()).getIdentifierType();
+        List<Node> nodeList = new ArrayList<Node>(nodes.values());
+        for (int start = 0; start < nodeList.size(); start += batchSize)
+        {
+            List<Node> chunk = nodeList.subList(start, Math.min(start + batchSize, nodeList.size()));
+            StringBuilder sql = new StringBuilder("SELECT ").append(metadata.getIdColumn().getName())
+                    .append(" FROM ").append(metadata.getTableName()).append(" WHERE ")
+                    .append(metadata.getIdColumn().getName()).append(" IN (");
+            for (int i = 0; i < chunk.size(); i++)
+            {
+                sql.append(i > 0 ? ",?" : "?");
+            }
+            sql.append(")");
+
+            PreparedStatement statement = connection.prepareStatement(sql.toString());
+            try
+            {
+                for (int i = 0; i < chunk.size(); i++)
+                {
+                    idType.nullSafeSet(statement, PropertyAccessorHelper.getObject(chunk.get(i).getData(), idField),
+                            i + 1, (SessionImplementor) session);
+                }
+                ResultSet rs = statement.executeQuery();
+                while (rs.next())
+                {
+                    existingIds.add(rs.getString(1));
+                }
+                rs.close();
+            }
+            finally
+            {
+                statement.close();
+            }
+        }
+        return existingIds;
+    }
+
+    /**
+     * Gets parameterized INSERT statement of given columns, id column last.
+     * 
+     * @param tableName
+     *            the table name
+     * @param columnNames
+     *            the column names
+     * @param idColumnName
+     *            the id column name
+     * @return the insert sql
+     */
+    private String getInsertSql(String tableName, List<String> columnNames, String idColumnName)
+    {
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(tableName).append("(");
+        StringBuilder parameters = new StringBuilder();
+        for (String columnName : columnNames)
+        {
+            sql.append(columnName).append(",");
+            parameters.append("?,");
+        }
+        sql.append(idColumnName).append(") VALUES(").append(parameters).append("?)");
+        return sql.toString();
+    }
+
+    /**
+     * Gets parameterized UPDATE statement of given columns, selecting row by
+     * id.
+     * 
+     * @param tableName
+     *            the table name
+     * @param columnNames
+     *            the column names
+     * @param idColumnName
+     *            the id column name
+     * @return the update sql, null if there is no column to set
+     */
+    private String getUpdateSql(String tableName, List<String> columnNames, String idColumnName)
+    {
+        if (columnNames.isEmpty())
+        {
+            return null;
+        }
+
+        StringBuilder sql = new StringBuilder("UPDATE ").append(tableName).append(" SET ");
+        for (int i = 0; i < columnNames.size(); i++)
+        {
+            sql.append(i > 0 ? ", " : "").append(columnNames.get(i)).append(" = ?");
+        }
+        sql.append(" WHERE ").append(idColumnName).append(" = ?");
+        return sql.toString();
+    }
+
+    /**
+     * Gets Hibernate type of a value not mapped to a property, such as a
+     * foreign key.
+     * 
+     * @param value
+     *            the value
+     * @return the type
+     */
+    private Type getType(Object value)
+    {
+        return sf.getTypeHelper().heuristicType(value.getClass().getName());
+    }
+
     /**
      * Gets the key.
      * 
@@ -3,8 +3,13 @@
  */
 package com.impetus.client.rdbms;
 
+import java.util.Collection;
+
+import org.apache.commons.lang.StringUtils;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.util.Version;
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.Configuration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -13,7 +18,8 @@ import com.impetus.kundera.client.Client;
 import com.impetus.kundera.index.IndexManager;
 import com.impetus.kundera.index.LuceneIndexer;
 import com.impetus.kundera.loader.GenericClientFactory;
-import com.impetus.kundera.metadata.MetadataUtils;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+import com.impetus.kundera.metadata.model.MetamodelImpl;
 import com.impetus.kundera.persistence.EntityReader;
 
 /**
@@ -33,6 +39,18 @@ public class RDBMSClientFactory extends GenericClientFactory
     /** The reader. */
     private EntityReader reader;
 
+    /** Hibernate property for number of statements sent to database in one batch. */
+    static final String JDBC_BATCH_SIZE = "hibernate.jdbc.batch_size";
+
+    /** Default number of statements sent to database in one batch. */
+    static final int DEFAULT_JDBC_BATCH_SIZE = 50;
+
+    /** Session factory shared by all clients of persistence unit. */
+    private SessionFactory sf;
+
+    /** Number of statements sent to database in one batch. */
+    private int batchSize;
+
     /*
      * (non-Javadoc)
      * 
@@ -42,6 +60,10 @@ public class RDBMSClientFactory extends GenericClientFactory
     public void destroy()
     {
         indexManager.close();
+        if (sf != null && !sf.isClosed())
+        {
+            sf.close();
+        }
     }
 
     /*
@@ -52,9 +74,8 @@ public class RDBMSClientFactory extends GenericClientFactory
     @Override
     public void initialize()
     {
-        String luceneDirPath = MetadataUtils.getLuceneDirectory(getPersistenceUnit());
         indexManager = new IndexManager(LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34),
-                luceneDirPath));
+                KunderaMetadata.INSTANCE.getClientMetadata(getPersistenceUnit())));
         reader = new RDBMSEntityReader();
         ((RDBMSEntityReader) reader).setFilter("where");
     }
@@ -68,9 +89,27 @@ public class RDBMSClientFactory extends GenericClientFactory
     @Override
     protected Object createPoolOrConnection()
     {
+        Configuration conf = new Configuration().addProperties(HibernateUtils.getProperties(getPersistenceUnit()));
+        Collection<Class<?>> classes = ((MetamodelImpl) KunderaMetadata.INSTANCE.getApplicationMetadata().getMetamodel(
+                getPersistenceUnit())).getEntityNameToClassMap().values();
+        // to keep hibernate happy! As in our case all scanned classes are not
+        // meant for rdbms, so initally i have set depth to zero!
+        conf.setProperty("hibernate.max_fetch_depth", "0");
+        if (StringUtils.isEmpty(conf.getProperty(JDBC_BATCH_SIZE)))
+        {
+            conf.setProperty(JDBC_BATCH_SIZE, String.valueOf(DEFAULT_JDBC_BATCH_SIZE));
+        }
+        batchSize = Integer.parseInt(conf.getProperty(JDBC_BATCH_SIZE));
+        for (Class<?> c : classes)
+        {
+            conf.addAnnotatedClass(c);
+        }
 
-        // Do nothing.
-        return null;
+        // Building a session factory is expensive, one is built per
+        // persistence unit and shared by its clients
+        logger.info("Building session factory for persistence unit : " + getPersistenceUnit());
+        sf = conf.buildSessionFactory();
+        return sf;
     }
 
     /*
@@ -83,7 +122,7 @@ public class RDBMSClientFactory extends GenericClientFactory
     @Override
     protected Client instantiateClient(String persistenceUnit)
     {
-        return new HibernateClient(getPersistenceUnit(), indexManager, reader);
+        return new HibernateClient(getPersistenceUnit(), indexManager, reader, sf, batchSize);
     }
 
     /*
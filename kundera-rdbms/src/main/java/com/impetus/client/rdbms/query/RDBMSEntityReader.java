@@ -17,6 +17,7 @@ package com.impetus.client.rdbms.query;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
@@ -43,8 +44,10 @@ import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.metadata.model.Relation;
 import com.impetus.kundera.persistence.AbstractEntityReader;
 import com.impetus.kundera.persistence.EntityReader;
+import com.impetus.kundera.property.PropertyAccessorFactory;
 import com.impetus.kundera.query.KunderaQuery.FilterClause;
 import com.impetus.kundera.query.QueryHandlerException;
+import com.impetus.kundera.query.ResultClause;
 
 /**
  * The Class RDBMSEntityReader.
@@ -309,15 +312,20 @@ public class RDBMSEntityReader extends AbstractEntityReader implements EntityRea
                             clause.getProperty().substring(0, clause.getProperty().indexOf(".")), aliasName));
                     queryBuilder.append(" ");
                     queryBuilder.append(clause.getCondition());
+                    queryBuilder.append(" ");
 
                     if (clause.getCondition().equalsIgnoreCase("like"))
                     {
-                        queryBuilder.append("%");
+                        queryBuilder.append("'");
+                        queryBuilder.append(getLikePattern(clause.getValue()));
+                        queryBuilder.append("'");
+                    }
+                    else
+                    {
+                        appendStringPrefix(queryBuilder, isString);
+                        queryBuilder.append(clause.getValue());
+                        appendStringPrefix(queryBuilder, isString);
                     }
-                    queryBuilder.append(" ");
-                    appendStringPrefix(queryBuilder, isString);
-                    queryBuilder.append(clause.getValue());
-                    appendStringPrefix(queryBuilder, isString);
                 }
                 else
                 {
@@ -358,6 +366,196 @@ public class RDBMSEntityReader extends AbstractEntityReader implements EntityRea
         return queryBuilder.toString();
     }
 
+    /**
+     * Gets native SQL DELETE or UPDATE statement for JPA query. Values of
+     * updated columns and of query's conditions are bound as positional
+     * parameters, converted to types of their columns.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param updatedValues
+     *            values set by update query keyed by their columns, null for
+     *            a delete query
+     * @param primaryKeys
+     *            ids of rows to delete or update, null for rows matching
+     *            query's conditions
+     * @param parameters
+     *            list filled with values of parameters, in order
+     * @return the SQL statement, null if query's conditions can't be
+     *         translated
+     */
+    public String getSqlDeleteOrUpdateFromJPA(EntityMetadata entityMetadata, Map<Column, Object> updatedValues,
+            Collection<String> primaryKeys, List<Object> parameters)
+    {
+        StringBuilder queryBuilder = new StringBuilder();
+        if (updatedValues != null)
+        {
+            queryBuilder.append("UPDATE ");
+            queryBuilder.append(entityMetadata.getTableName());
+            queryBuilder.append(" SET ");
+            int count = 0;
+            for (Map.Entry<Column, Object> value : updatedValues.entrySet())
+            {
+                if (count++ > 0)
+                {
+                    queryBuilder.append(", ");
+                }
+                queryBuilder.append(value.getKey().getName());
+                queryBuilder.append(" = ?");
+                parameters.add(value.getValue());
+            }
+        }
+        else
+        {
+            queryBuilder.append("DELETE FROM ");
+            queryBuilder.append(entityMetadata.getTableName());
+        }
+
+        return appendWhereClause(queryBuilder, entityMetadata, primaryKeys, parameters) ? queryBuilder.toString()
+                : null;
+    }
+
+    /**
+     * Gets native SQL SELECT statement computing aggregate functions and
+     * grouped columns selected by JPA query, in the same order. Values of
+     * query's conditions are bound as positional parameters.
+     * 
+     * @param entityMetadata
+     *            the entity metadata
+     * @param resultClauses
+     *            expressions selected by query
+     * @param groupingColumns
+     *            columns query is grouped by
+     * @param parameters
+     *            list filled with values of parameters, in order
+     * @return the SQL statement, null if query's conditions can't be
+     *         translated
+     */
+    public String getSqlAggregateFromJPA(EntityMetadata entityMetadata, List<ResultClause> resultClauses,
+            List<Column> groupingColumns, List<Object> parameters)
+    {
+        StringBuilder queryBuilder = new StringBuilder("SELECT ");
+        int count = 0;
+        for (ResultClause clause : resultClauses)
+        {
+            if (count++ > 0)
+            {
+                queryBuilder.append(", ");
+            }
+            if (clause.isEntityCount())
+            {
+                queryBuilder.append("COUNT(*)");
+            }
+            else if (clause.isAggregate())
+            {
+                queryBuilder.append(clause.getFunction());
+                queryBuilder.append("(");
+                queryBuilder.append(clause.getColumn().getName());
+                queryBuilder.append(")");
+            }
+            else
+            {
+                queryBuilder.append(clause.getColumn().getName());
+            }
+        }
+        queryBuilder.append(" FROM ");
+        queryBuilder.append(entityMetadata.getTableName());
+
+        if (!appendWhereClause(queryBuilder, entityMetadata, null, parameters))
+        {
+            return null;
+        }
+
+        count = 0;
+        for (Column column : groupingColumns)
+        {
+            queryBuilder.append(count++ > 0 ? ", " : " GROUP BY ");
+            queryBuilder.append(column.getName());
+        }
+        return queryBuilder.toString();
+    }
+
+    /**
+     * Appends WHERE clause selecting rows of given ids, or rows matching
+     * query's conditions, with their values bound as positional parameters.
+     * 
+     * @param queryBuilder
+     *            the query builder
+     * @param entityMetadata
+     *            the entity metadata
+     * @param primaryKeys
+     *            ids of rows, null for rows matching query's conditions
+     * @param parameters
+     *            list filled with values of parameters, in order
+     * @return false, if query's conditions can't be translated
+     */
+    private boolean appendWhereClause(StringBuilder queryBuilder, EntityMetadata entityMetadata,
+            Collection<String> primaryKeys, List<Object> parameters)
+    {
+        Column idColumn = entityMetadata.getIdColumn();
+        if (primaryKeys != null)
+        {
+            queryBuilder.append(" WHERE ");
+            queryBuilder.append(idColumn.getName());
+            queryBuilder.append(" IN(");
+            int count = 0;
+            for (String key : primaryKeys)
+            {
+                queryBuilder.append(count++ > 0 ? ",?" : "?");
+                parameters.add(PropertyAccessorFactory.getPropertyAccessor(idColumn.getField()).fromString(
+                        entityMetadata.getEntityClazz(), key));
+            }
+            queryBuilder.append(")");
+        }
+        else if (filter != null)
+        {
+            queryBuilder.append(" WHERE ");
+            for (Object o : conditions)
+            {
+                if (o instanceof FilterClause)
+                {
+                    FilterClause clause = ((FilterClause) o);
+                    String columnName = getColumnName(clause.getProperty());
+                    Column column = idColumn.getName().equals(columnName) ? idColumn : entityMetadata
+                            .getColumn(columnName);
+                    if (column == null)
+                    {
+                        // e.g. a column of an embedded object
+                        return false;
+                    }
+
+                    queryBuilder.append(column.getName());
+                    queryBuilder.append(" ");
+                    queryBuilder.append(clause.getCondition());
+                    queryBuilder.append(" ?");
+                    parameters.add(clause.getCondition().equalsIgnoreCase("like") ? getLikePattern(clause.getValue())
+                            : PropertyAccessorFactory.getPropertyAccessor(column.getField()).fromString(
+                                    entityMetadata.getEntityClazz(), clause.getValue()));
+                }
+                else
+                {
+                    queryBuilder.append(" ");
+                    queryBuilder.append(o);
+                    queryBuilder.append(" ");
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets SQL pattern of a LIKE condition. A value without wildcards matches
+     * values starting with it, as in Lucene queries.
+     * 
+     * @param value
+     *            the value
+     * @return the pattern
+     */
+    private String getLikePattern(String value)
+    {
+        return value.indexOf('%') < 0 && value.indexOf('_') < 0 ? value + "%" : value;
+    }
+
     /**
      * Append string prefix.
      * 
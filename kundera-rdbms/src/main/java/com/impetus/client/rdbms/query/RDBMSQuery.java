@@ -16,7 +16,10 @@
 package com.impetus.client.rdbms.query;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import javax.persistence.Query;
 
@@ -24,10 +27,12 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import com.impetus.client.rdbms.HibernateClient;
+import com.impetus.kundera.Constants;
 import com.impetus.kundera.client.Client;
 import com.impetus.kundera.client.EnhanceEntity;
 import com.impetus.kundera.metadata.MetadataUtils;
 import com.impetus.kundera.metadata.model.ApplicationMetadata;
+import com.impetus.kundera.metadata.model.Column;
 import com.impetus.kundera.metadata.model.EntityMetadata;
 import com.impetus.kundera.metadata.model.KunderaMetadata;
 import com.impetus.kundera.persistence.EntityReader;
@@ -35,6 +40,8 @@ import com.impetus.kundera.persistence.PersistenceDelegator;
 import com.impetus.kundera.query.KunderaQuery;
 import com.impetus.kundera.query.QueryHandlerException;
 import com.impetus.kundera.query.QueryImpl;
+import com.impetus.kundera.query.ResultAggregator;
+import com.impetus.kundera.query.ResultClause;
 
 /**
  * The Class RDBMSQuery.
@@ -157,13 +164,88 @@ public class RDBMSQuery extends QueryImpl implements Query
     {
         if (kunderaQuery.isDeleteUpdate())
         {
-            List result = getResultList();
-            return result != null ? result.size() : 0;
+            return executeDeleteOrUpdate();
         }
 
         return 0;
     }
 
+    /*
+     * (non-Javadoc)
+     * 
+     * @see
+     * com.impetus.kundera.query.QueryImpl#onBulkDeleteOrUpdate(com.impetus.
+     * kundera.metadata.model.EntityMetadata, com.impetus.kundera.client.Client)
+     */
+    @Override
+    protected int onBulkDeleteOrUpdate(EntityMetadata m, Client client)
+    {
+        initializeReader();
+        RDBMSEntityReader entityReader = (RDBMSEntityReader) getReader();
+        HibernateClient hibernateClient = (HibernateClient) client;
+        Map<Column, Object> values = kunderaQuery.isUpdateClause() ? getUpdatedValues(m) : null;
+
+        if (MetadataUtils.useSecondryIndex(client.getPersistenceUnit()))
+        {
+            List<Object> parameters = new ArrayList<Object>();
+            String sql = entityReader.getSqlDeleteOrUpdateFromJPA(m, values, null, parameters);
+            return sql != null ? hibernateClient.executeUpdate(sql, parameters) : Constants.INVALID;
+        }
+
+        // Ids are collected before rows change, for index entries to be
+        // brought in line afterwards
+        Set<String> ids = fetchIdsFromLucene(client);
+        int count = 0;
+        List<String> batch = new ArrayList<String>(Math.min(ids.size(), BULK_BATCH_SIZE));
+        for (Iterator<String> i = ids.iterator(); i.hasNext();)
+        {
+            batch.add(i.next());
+            if (batch.size() == BULK_BATCH_SIZE || !i.hasNext())
+            {
+                List<Object> parameters = new ArrayList<Object>(batch.size() + (values != null ? values.size() : 0));
+                count += hibernateClient.executeUpdate(
+                        entityReader.getSqlDeleteOrUpdateFromJPA(m, values, batch, parameters), parameters);
+                batch.clear();
+            }
+        }
+        onBulkIndexUpdate(m, client, ids);
+        return count;
+    }
+
+    /**
+     * Computes aggregate functions in database, by a native SQL SELECT with
+     * GROUP BY, unless query is resolved by Lucene or its conditions can't be
+     * translated to SQL.
+     * 
+     * @param m
+     *            the m
+     * @param client
+     *            the client
+     * @return the results
+     */
+    @Override
+    protected List<Object> onAggregate(EntityMetadata m, Client client)
+    {
+        initializeReader();
+        List<Object> parameters = new ArrayList<Object>();
+        List<ResultClause> resultClauses = kunderaQuery.getResultClauses();
+        String sql = MetadataUtils.useSecondryIndex(client.getPersistenceUnit()) ? ((RDBMSEntityReader) getReader())
+                .getSqlAggregateFromJPA(m, resultClauses, kunderaQuery.getGroupingColumns(), parameters) : null;
+        if (sql == null)
+        {
+            return super.onAggregate(m, client);
+        }
+
+        List rows = ((HibernateClient) client).findScalars(sql, parameters);
+        List<Object> results = new ArrayList<Object>(rows.size());
+        for (Object row : rows)
+        {
+            Object[] values = resultClauses.size() == 1 ? new Object[] { row } : (Object[]) row;
+            results.add(ResultAggregator.toResult(resultClauses, values));
+        }
+        return results;
+    }
+
     /**
      * Initializes reader with conditions and filter in case for JPA/Named query
      * only!
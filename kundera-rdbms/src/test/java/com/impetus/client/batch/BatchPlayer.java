@@ -0,0 +1,202 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.batch;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Lob;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * Entity with columns Hibernate writes in its own way: an enum stored as
+ * ordinal, a date and a LOB.
+ * 
+ * @author agent
+ */
+@Entity
+@Table(name = "BATCH_PLAYER", schema = "test")
+public class BatchPlayer
+{
+
+    /**
+     * Status of a player.
+     */
+    public enum Status
+    {
+        /** The active. */
+        ACTIVE,
+        /** The retired. */
+        RETIRED
+    }
+
+    /** The player id. */
+    @Id
+    @Column(name = "PLAYER_ID")
+    private String playerId;
+
+    /** The player name. */
+    @Column(name = "PLAYER_NAME")
+    private String playerName;
+
+    /** The code, column is not nullable. */
+    @Column(name = "CODE", nullable = false)
+    private String code;
+
+    /** The status. */
+    @Column(name = "STATUS")
+    private Status status;
+
+    /** The joined. */
+    @Temporal(TemporalType.DATE)
+    @Column(name = "JOINED")
+    private Date joined;
+
+    /** The notes. */
+    @Lob
+    @Column(name = "NOTES")
+    private String notes;
+
+    /**
+     * Gets the player id.
+     * 
+     * @return the player id
+     */
+    public String getPlayerId()
+    {
+        return playerId;
+    }
+
+    /**
+     * Sets the player id.
+     * 
+     * @param playerId
+     *            the new player id
+     */
+    public void setPlayerId(String playerId)
+    {
+        this.playerId = playerId;
+    }
+
+    /**
+     * Gets the player name.
+     * 
+     * @return the player name
+     */
+    public String getPlayerName()
+    {
+        return playerName;
+    }
+
+    /**
+     * Sets the player name.
+     * 
+     * @param playerName
+     *            the new player name
+     */
+    public void setPlayerName(String playerName)
+    {
+        this.playerName = playerName;
+    }
+
+    /**
+     * Gets the code.
+     * 
+     * @return the code
+     */
+    public String getCode()
+    {
+        return code;
+    }
+
+    /**
+     * Sets the code.
+     * 
+     * @param code
+     *            the new code
+     */
+    public void setCode(String code)
+    {
+        this.code = code;
+    }
+
+    /**
+     * Gets the status.
+     * 
+     * @return the status
+     */
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Sets the status.
+     * 
+     * @param status
+     *            the new status
+     */
+    public void setStatus(Status status)
+    {
+        this.status = status;
+    }
+
+    /**
+     * Gets the joined.
+     * 
+     * @return the joined
+     */
+    public Date getJoined()
+    {
+        return joined;
+    }
+
+    /**
+     * Sets the joined.
+     * 
+     * @param joined
+     *            the new joined
+     */
+    public void setJoined(Date joined)
+    {
+        this.joined = joined;
+    }
+
+    /**
+     * Gets the notes.
+     * 
+     * @return the notes
+     */
+    public String getNotes()
+    {
+        return notes;
+    }
+
+    /**
+     * Sets the notes.
+     * 
+     * @param notes
+     *            the new notes
+     */
+    public void setNotes(String notes)
+    {
+        this.notes = notes;
+    }
+}
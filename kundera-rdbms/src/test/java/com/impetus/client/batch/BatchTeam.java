@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.batch;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+/**
+ * Entity with no column but its id.
+ * 
+ * @author agent
+ */
+@Entity
+@Table(name = "BATCH_TEAM", schema = "test")
+public class BatchTeam
+{
+
+    /** The team id. */
+    @Id
+    @Column(name = "TEAM_ID")
+    private String teamId;
+
+    /**
+     * Gets the team id.
+     * 
+     * @return the team id
+     */
+    public String getTeamId()
+    {
+        return teamId;
+    }
+
+    /**
+     * Sets the team id.
+     * 
+     * @param teamId
+     *            the new team id
+     */
+    public void setTeamId(String teamId)
+    {
+        this.teamId = teamId;
+    }
+}
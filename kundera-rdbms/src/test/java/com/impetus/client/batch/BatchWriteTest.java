@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.batch;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.GregorianCalendar;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test case for rows written in JDBC batches by HibernateClient. Requires
+ * MySQL database "test" at localhost, as configured in persistence.xml.
+ * 
+ * @author agent
+ */
+public class BatchWriteTest
+{
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /** Connection used to check rows. */
+    private Connection connection;
+
+    /**
+     * Sets the up.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        Class.forName("com.mysql.jdbc.Driver");
+        connection = DriverManager.getConnection("jdbc:mysql://localhost/test", "root", "impetus");
+        Statement statement = connection.createStatement();
+        statement.execute("CREATE TABLE BATCH_PLAYER (PLAYER_ID VARCHAR(255) PRIMARY KEY, PLAYER_NAME VARCHAR(255), "
+                + "CODE VARCHAR(255) NOT NULL, STATUS INT, JOINED DATE, NOTES LONGTEXT)");
+        statement.execute("CREATE TABLE BATCH_TEAM (TEAM_ID VARCHAR(255) PRIMARY KEY)");
+        statement.close();
+        emf = Persistence.createEntityManagerFactory("testHibernate");
+    }
+
+    /**
+     * Enums, dates, LOBs and nulls are written as Hibernate writes them.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testHibernateTypes() throws Exception
+    {
+        BatchPlayer player = prepareObject("1", "c1");
+        player.setStatus(BatchPlayer.Status.RETIRED);
+        player.setJoined(new GregorianCalendar(2012, 4, 17).getTime());
+        player.setNotes("played for ten years");
+        EntityManager em = emf.createEntityManager();
+        em.persist(player);
+        em.close();
+
+        ResultSet rs = connection.createStatement().executeQuery(
+                "SELECT PLAYER_NAME, STATUS, JOINED, NOTES FROM BATCH_PLAYER WHERE PLAYER_ID = '1'");
+        Assert.assertTrue(rs.next());
+        Assert.assertNull(rs.getString(1));
+        Assert.assertEquals(BatchPlayer.Status.RETIRED.ordinal(), rs.getInt(2));
+        Assert.assertEquals("2012-05-17", rs.getDate(3).toString());
+        Assert.assertEquals("played for ten years", rs.getString(4));
+        rs.close();
+
+        em = emf.createEntityManager();
+        BatchPlayer found = em.find(BatchPlayer.class, "1");
+        Assert.assertEquals(BatchPlayer.Status.RETIRED, found.getStatus());
+        Assert.assertNull(found.getPlayerName());
+        em.close();
+    }
+
+    /**
+     * Writing again an entity which has nothing but id doesn't issue an
+     * UPDATE without columns.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testIdOnlyRow() throws Exception
+    {
+        BatchTeam team = new BatchTeam();
+        team.setTeamId("t1");
+        EntityManager em = emf.createEntityManager();
+        em.persist(team);
+        em.close();
+
+        team = new BatchTeam();
+        team.setTeamId("t1");
+        em = emf.createEntityManager();
+        em.merge(team);
+        em.close();
+
+        Assert.assertEquals(1, count("BATCH_TEAM"));
+    }
+
+    /**
+     * Rows of a failed batch are rolled back and aren't written again with
+     * next batch.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testFailedBatch() throws Exception
+    {
+        EntityManager em = emf.createEntityManager();
+        try
+        {
+            // CODE is not nullable
+            em.persist(prepareObject("1", null));
+            Assert.fail("Persisting row with null CODE must fail");
+        }
+        catch (RuntimeException e)
+        {
+            // Expected
+        }
+        em.close();
+
+        em = emf.createEntityManager();
+        em.persist(prepareObject("2", "c2"));
+        em.close();
+
+        Assert.assertEquals(1, count("BATCH_PLAYER"));
+    }
+
+    /**
+     * Prepare object.
+     * 
+     * @param playerId
+     *            the player id
+     * @param code
+     *            the code
+     * @return the batch player
+     */
+    private BatchPlayer prepareObject(String playerId, String code)
+    {
+        BatchPlayer player = new BatchPlayer();
+        player.setPlayerId(playerId);
+        player.setCode(code);
+        player.setStatus(BatchPlayer.Status.ACTIVE);
+        return player;
+    }
+
+    /**
+     * Counts rows of a table.
+     * 
+     * @param tableName
+     *            the table name
+     * @return the row count
+     * @throws Exception
+     *             the exception
+     */
+    private int count(String tableName) throws Exception
+    {
+        ResultSet rs = connection.createStatement().executeQuery("SELECT COUNT(*) FROM " + tableName);
+        rs.next();
+        int count = rs.getInt(1);
+        rs.close();
+        return count;
+    }
+
+    /**
+     * Tear down.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        emf.close();
+        Statement statement = connection.createStatement();
+        statement.execute("DROP TABLE BATCH_PLAYER");
+        statement.execute("DROP TABLE BATCH_TEAM");
+        statement.close();
+        connection.close();
+    }
+}
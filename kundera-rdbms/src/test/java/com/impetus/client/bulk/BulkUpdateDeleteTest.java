@@ -0,0 +1,289 @@
+/*******************************************************************************
+ * * Copyright 2012 Impetus Infotech.
+ *  *
+ *  * Licensed under the Apache License, Version 2.0 (the "License");
+ *  * you may not use this file except in compliance with the License.
+ *  * You may obtain a copy of the License at
+ *  *
+ *  *      http://www.apache.org/licenses/LICENSE-2.0
+ *  *
+ *  * Unless required by applicable law or agreed to in writing, software
+ *  * distributed under the License is distributed on an "AS IS" BASIS,
+ *  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  * See the License for the specific language governing permissions and
+ *  * limitations under the License.
+ ******************************************************************************/
+package com.impetus.client.bulk;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.Persistence;
+
+import junit.framework.Assert;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.util.Version;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.impetus.kundera.index.LuceneIndexer;
+import com.impetus.kundera.index.LuceneQueryBuilder;
+import com.impetus.kundera.metadata.model.KunderaMetadata;
+
+/**
+ * Test case for JPQL UPDATE and DELETE queries run as native SQL, on rows
+ * matched by database itself or looked up in Lucene. Requires MySQL database
+ * "test" at localhost, as configured in persistence.xml.
+ * 
+ * @author agent
+ */
+public class BulkUpdateDeleteTest
+{
+
+    /** The Lucene indexed persistence unit. */
+    private static final String LUCENE_PERSISTENCE_UNIT = "testHibernateLucene";
+
+    /** States of persons persisted, in order of their ids. */
+    private static final String[] STATES = { "UP", "UP", "UK", "MP" };
+
+    /** The emf. */
+    private EntityManagerFactory emf;
+
+    /** The emf of Lucene indexed persistence unit. */
+    private EntityManagerFactory luceneEmf;
+
+    /** Connection used to check rows. */
+    private Connection connection;
+
+    /**
+     * Creates tables and persists a person per state into each.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Before
+    public void setUp() throws Exception
+    {
+        Class.forName("com.mysql.jdbc.Driver");
+        connection = DriverManager.getConnection("jdbc:mysql://localhost/test", "root", "impetus");
+        Statement statement = connection.createStatement();
+        statement.execute("CREATE TABLE BULK_PERSON (personId VARCHAR(255) PRIMARY KEY, personName VARCHAR(255), "
+                + "state VARCHAR(255))");
+        statement.execute("CREATE TABLE BULK_PERSON_LUCENE (personId VARCHAR(255) PRIMARY KEY, "
+                + "personName VARCHAR(255), state VARCHAR(255))");
+        statement.close();
+
+        emf = Persistence.createEntityManagerFactory("testHibernate");
+        EntityManager em = emf.createEntityManager();
+        for (int i = 0; i < STATES.length; i++)
+        {
+            BulkPerson person = new BulkPerson();
+            person.setPersonId(String.valueOf(i + 1));
+            person.setPersonName("name" + (i + 1));
+            person.setState(STATES[i]);
+            em.persist(person);
+        }
+        em.close();
+
+        luceneEmf = Persistence.createEntityManagerFactory(LUCENE_PERSISTENCE_UNIT);
+        em = luceneEmf.createEntityManager();
+        for (int i = 0; i < STATES.length; i++)
+        {
+            BulkPersonLucene person = new BulkPersonLucene();
+            person.setPersonId(String.valueOf(i + 1));
+            person.setPersonName("name" + (i + 1));
+            person.setState(STATES[i]);
+            em.persist(person);
+        }
+        em.close();
+    }
+
+    /**
+     * Matching rows are updated by a single UPDATE statement.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testUpdate() throws Exception
+    {
+        EntityManager em = emf.createEntityManager();
+        int count = em.createQuery("Update BulkPerson p SET p.state=DELHI where p.state = UP").executeUpdate();
+        em.close();
+        Assert.assertEquals(2, count);
+
+        Assert.assertEquals("DELHI", getState("BULK_PERSON", "1"));
+        Assert.assertEquals("DELHI", getState("BULK_PERSON", "2"));
+        Assert.assertEquals("UK", getState("BULK_PERSON", "3"));
+    }
+
+    /**
+     * Matching rows are deleted by a single DELETE statement.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testDelete() throws Exception
+    {
+        EntityManager em = emf.createEntityManager();
+        int count = em.createQuery("Delete from BulkPerson p where p.state = UP").executeUpdate();
+        em.close();
+        Assert.assertEquals(2, count);
+
+        Assert.assertNull(getState("BULK_PERSON", "1"));
+        Assert.assertNull(getState("BULK_PERSON", "2"));
+        Assert.assertEquals("UK", getState("BULK_PERSON", "3"));
+        Assert.assertEquals("MP", getState("BULK_PERSON", "4"));
+    }
+
+    /**
+     * LIKE matches values starting with given one, whether entities are
+     * updated or read.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testLike() throws Exception
+    {
+        EntityManager em = emf.createEntityManager();
+        int count = em.createQuery("Update BulkPerson p SET p.state=DELHI where p.state LIKE U").executeUpdate();
+        em.close();
+        Assert.assertEquals(3, count);
+        Assert.assertEquals("MP", getState("BULK_PERSON", "4"));
+
+        em = emf.createEntityManager();
+        List<BulkPerson> persons = em.createQuery("Select p from BulkPerson p where p.state LIKE DEL")
+                .getResultList();
+        Assert.assertEquals(3, persons.size());
+        em.close();
+    }
+
+    /**
+     * Rows looked up in Lucene are updated, and so are their index entries.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testUpdateIndexed() throws Exception
+    {
+        EntityManager em = luceneEmf.createEntityManager();
+        int count = em.createQuery("Update BulkPersonLucene p SET p.state=DELHI where p.state = UP").executeUpdate();
+        em.close();
+        Assert.assertEquals(2, count);
+
+        Assert.assertEquals("DELHI", getState("BULK_PERSON_LUCENE", "1"));
+        Assert.assertEquals("DELHI", getState("BULK_PERSON_LUCENE", "2"));
+        Assert.assertEquals("UK", getState("BULK_PERSON_LUCENE", "3"));
+
+        Assert.assertEquals(0, countIndexed("UP"));
+        Assert.assertEquals(2, countIndexed("DELHI"));
+    }
+
+    /**
+     * Rows looked up in Lucene are deleted, and so are their index entries.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @Test
+    public void testDeleteIndexed() throws Exception
+    {
+        EntityManager em = luceneEmf.createEntityManager();
+        int count = em.createQuery("Delete from BulkPersonLucene p where p.state = UP").executeUpdate();
+        em.close();
+        Assert.assertEquals(2, count);
+
+        Assert.assertNull(getState("BULK_PERSON_LUCENE", "1"));
+        Assert.assertNull(getState("BULK_PERSON_LUCENE", "2"));
+        Assert.assertEquals("UK", getState("BULK_PERSON_LUCENE", "3"));
+
+        Assert.assertEquals(0, countIndexed("UP"));
+        Assert.assertEquals(1, countIndexed("UK"));
+    }
+
+    /**
+     * Gets state column of a row.
+     * 
+     * @param tableName
+     *            the table name
+     * @param personId
+     *            the person id
+     * @return the state, null if there is no such row
+     * @throws Exception
+     *             the exception
+     */
+    private String getState(String tableName, String personId) throws Exception
+    {
+        PreparedStatement statement = connection.prepareStatement("SELECT state FROM " + tableName
+                + " WHERE personId = ?");
+        statement.setString(1, personId);
+        ResultSet rs = statement.executeQuery();
+        String state = rs.next() ? rs.getString(1) : null;
+        rs.close();
+        statement.close();
+        return state;
+    }
+
+    /**
+     * Counts indexed persons with given state.
+     * 
+     * @param state
+     *            the state
+     * @return number of index entries
+     */
+    private int countIndexed(String state)
+    {
+        LuceneIndexer indexer = LuceneIndexer.getInstance(new StandardAnalyzer(Version.LUCENE_34),
+                KunderaMetadata.INSTANCE.getClientMetadata(LUCENE_PERSISTENCE_UNIT));
+        try
+        {
+            return indexer.count(new LuceneQueryBuilder().appendClause("BulkPersonLucene.state", "=", state).build(
+                    BulkPersonLucene.class));
+        }
+        finally
+        {
+            indexer.close();
+        }
+    }
+
+    /**
+     * Removes indexed persons left, along with their index entries, and drops
+     * tables.
+     * 
+     * @throws Exception
+     *             the exception
+     */
+    @After
+    public void tearDown() throws Exception
+    {
+        EntityManager em = luceneEmf.createEntityManager();
+        for (int i = 1; i <= STATES.length; i++)
+        {
+            BulkPersonLucene person = em.find(BulkPersonLucene.class, String.valueOf(i));
+            if (person != null)
+            {
+                em.remove(person);
+            }
+        }
+        em.close();
+        luceneEmf.close();
+        emf.close();
+
+        Statement statement = connection.createStatement();
+        statement.execute("DROP TABLE BULK_PERSON");
+        statement.execute("DROP TABLE BULK_PERSON_LUCENE");
+        statement.close();
+        connection.close();
+    }
+}